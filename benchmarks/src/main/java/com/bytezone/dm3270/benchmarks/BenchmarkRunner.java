@@ -0,0 +1,30 @@
+package com.bytezone.dm3270.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Runs the benchmarks (all of them, or those matching the usual JMH arguments) always adding
+ * the GC profiler, so every result comes with its allocation rate per operation next to the
+ * throughput and the latency percentiles.
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder()
+        .parent(commandLineOptions)
+        .addProfiler(GCProfiler.class);
+    if (commandLineOptions.getIncludes().isEmpty()) {
+      options.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+    }
+    new Runner(options.build()).run();
+  }
+
+}
@@ -0,0 +1,49 @@
+package com.bytezone.dm3270.benchmarks;
+
+import com.bytezone.dm3270.commands.Command;
+import com.bytezone.dm3270.display.FieldManager;
+import com.bytezone.dm3270.display.Screen;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Rebuilds the fields of an already written screen, as done after every write and every
+ * Erase All Unprotected.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldManagerBenchmark {
+
+  @Param({"typical", "heavy"})
+  private String screen;
+
+  private Screen target;
+
+  @Setup
+  public void setup() {
+    byte[] data = "heavy".equals(screen) ? Screens.heavy() : Screens.typical();
+    target = Screens.newScreen();
+    Command.getCommand(data, 0, data.length).process(target);
+  }
+
+  @Benchmark
+  public FieldManager buildFields() {
+    target.buildFields();
+    return target.getFieldManager();
+  }
+
+}
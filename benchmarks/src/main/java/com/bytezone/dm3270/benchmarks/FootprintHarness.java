@@ -0,0 +1,140 @@
+package com.bytezone.dm3270.benchmarks;
+
+import com.bytezone.dm3270.TerminalClient;
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.display.RowBlockTable;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.host.ScriptedApplication;
+import com.bytezone.dm3270.host.VirtualHost;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Measures the heap retained by each TerminalClient, and the threads it keeps, while idle
+ * (connected and showing its first screen) and once active (after filling fields and getting
+ * the response to an Enter). Sessions are connected to an in-process VirtualHost, so its small
+ * per connection state is counted too, and the heap is measured after full collections, so
+ * only what sessions retain is counted. With --shared-rows the sessions share their screen rows
+ * through a RowBlockTable.
+ *
+ * usage: FootprintHarness [--sessions 1000] [--shared-rows]
+ */
+public final class FootprintHarness {
+
+  private static final int MAX_PENDING_CONNECTIONS = 256;
+  private static final long TIMEOUT_SECONDS = 120;
+
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final RowBlockTable rowBlockTable;
+
+  private FootprintHarness(RowBlockTable rowBlockTable) {
+    this.rowBlockTable = rowBlockTable;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int sessionCount = 1000;
+    RowBlockTable rowBlockTable = null;
+    int i = 0;
+    while (i < args.length) {
+      if ("--sessions".equals(args[i]) && i + 1 < args.length) {
+        sessionCount = Integer.parseInt(args[i + 1]);
+        i += 2;
+      } else if ("--shared-rows".equals(args[i])) {
+        rowBlockTable = new RowBlockTable();
+        i++;
+      } else {
+        throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+    new FootprintHarness(rowBlockTable).run(sessionCount);
+  }
+
+  private void run(int sessionCount) throws Exception {
+    try (VirtualHost host = new VirtualHost(
+        new ScriptedApplication(Arrays.asList(Screens.typical(), Screens.result()), 0))) {
+      host.start();
+      long baseHeap = usedHeapAfterGc();
+      int baseThreads = threads.getThreadCount();
+      List<TerminalClient> clients = new ArrayList<>(sessionCount);
+      try {
+        connect(host, sessionCount, clients);
+        long idleHeap = usedHeapAfterGc() - baseHeap;
+        int idleThreads = threads.getThreadCount() - baseThreads;
+
+        transact(clients);
+        long activeHeap = usedHeapAfterGc() - baseHeap;
+        int activeThreads = threads.getThreadCount() - baseThreads;
+
+        System.out.printf("%8s %14s %14s %14s %14s%n", "sessions", "idle B/sess",
+            "active B/sess", "idle thr/sess", "active thr/sess");
+        System.out.printf("%8d %14d %14d %14.2f %14.2f%n", sessionCount,
+            idleHeap / sessionCount, activeHeap / sessionCount,
+            (double) idleThreads / sessionCount, (double) activeThreads / sessionCount);
+        if (rowBlockTable != null) {
+          System.out.println(rowBlockTable);
+        }
+      } finally {
+        for (TerminalClient client : clients) {
+          client.disconnect();
+        }
+      }
+    }
+  }
+
+  private void connect(VirtualHost host, int sessionCount, List<TerminalClient> clients)
+      throws Exception {
+    Semaphore pending = new Semaphore(MAX_PENDING_CONNECTIONS);
+    List<CompletableFuture<Void>> connections = new ArrayList<>(sessionCount);
+    for (int i = 0; i < sessionCount; i++) {
+      pending.acquire();
+      TerminalClient client = new TerminalClient(2, new ScreenDimensions(24, 80));
+      client.setRowBlockTable(rowBlockTable);
+      clients.add(client);
+      connections.add(client.connectAsync("localhost", host.getPort())
+          .whenComplete((result, ex) -> pending.release()));
+    }
+    CompletableFuture.allOf(connections.toArray(new CompletableFuture[0]))
+        .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  // every client fills the form and waits for the keyboard to be restored by the response
+  private void transact(List<TerminalClient> clients) throws InterruptedException {
+    CountDownLatch responses = new CountDownLatch(clients.size());
+    for (int i = 0; i < clients.size(); i++) {
+      TerminalClient client = clients.get(i);
+      CountDownLatch locked = new CountDownLatch(1);
+      client.addKeyboardStatusListener(evt -> {
+        if (evt.keyboardLocked) {
+          locked.countDown();
+        } else if (locked.getCount() == 0) {
+          responses.countDown();
+        }
+      });
+      client.setFieldTextByLabel("Customer ID", Integer.toString(i));
+      client.setFieldTextByLabel("Name", "FOOTPRINT");
+      client.setFieldTextByLabel("City", "SPRINGFIELD");
+      client.sendAID(AIDCommand.AID_ENTER, "ENTR");
+    }
+    if (!responses.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+      throw new IllegalStateException(responses.getCount() + " sessions got no response");
+    }
+  }
+
+  private long usedHeapAfterGc() throws InterruptedException {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+}
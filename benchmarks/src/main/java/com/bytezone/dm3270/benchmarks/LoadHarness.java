@@ -0,0 +1,364 @@
+package com.bytezone.dm3270.benchmarks;
+
+import com.bytezone.dm3270.ConnectionListener;
+import com.bytezone.dm3270.TerminalClient;
+import com.bytezone.dm3270.application.KeyboardStatusChangedEvent;
+import com.bytezone.dm3270.application.KeyboardStatusListener;
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.host.ScriptedApplication;
+import com.bytezone.dm3270.host.VirtualHost;
+import com.bytezone.dm3270.metrics.LatencyHistogram;
+import com.bytezone.dm3270.metrics.SessionMetrics;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/*
+ * Runs N TerminalClients against an in-process VirtualHost, each one looping over a scripted
+ * logon -> menu -> form -> Enter -> result transaction, and reports what the JVM sustains:
+ * transactions per second, round trip latency from the AID being sent to the keyboard being
+ * restored (client processing plus the loopback and VirtualHost scheduling), client processing
+ * latency of each inbound record from its decoding to the screen being applied (as reported to
+ * SessionMetrics), threads, heap retained per session and GC pauses. N is swept (10 to 10,000
+ * by default) to find the knee, stopping at the first level where sessions can't be started.
+ *
+ * usage: LoadHarness [--sessions 10,100,1000,10000] [--warmup seconds] [--duration seconds]
+ */
+public final class LoadHarness {
+
+  private static final int MAX_PENDING_CONNECTIONS = 256;
+  private static final long CONNECT_TIMEOUT_SECONDS = 120;
+
+  private final ExecutorService scriptExecutor = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(), runnable -> {
+        Thread thread = new Thread(runnable, "load-harness-script");
+        thread.setDaemon(true);
+        return thread;
+      });
+  private final LatencyHistogram latencies = new LatencyHistogram();
+  private final LatencyHistogram processing = new LatencyHistogram();
+  private final LatencyHistogram gcPauses = new LatencyHistogram();
+  private final LongAdder errors = new LongAdder();
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private VirtualHost host;
+  private volatile boolean measuring;
+
+  // shared by all the sessions, so measuring the processing adds nothing to their footprint
+  private final SessionMetrics processingMetrics = new SessionMetrics() {
+
+    @Override
+    public void recordReceived(String type, int bytes, long decodeNanos, long applyNanos) {
+      if (measuring) {
+        processing.record(decodeNanos + applyNanos);
+      }
+    }
+
+  };
+
+  private LoadHarness() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<Integer> levels = Arrays.asList(10, 100, 1000, 10000);
+    long warmupSeconds = 5;
+    long durationSeconds = 10;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--sessions":
+          levels = new ArrayList<>();
+          for (String level : args[i + 1].split(",")) {
+            levels.add(Integer.parseInt(level.trim()));
+          }
+          break;
+        case "--warmup":
+          warmupSeconds = Long.parseLong(args[i + 1]);
+          break;
+        case "--duration":
+          durationSeconds = Long.parseLong(args[i + 1]);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    LoadHarness harness = new LoadHarness();
+    harness.start();
+    try {
+      System.out.println(LevelReport.HEADER);
+      for (int sessions : levels) {
+        LevelReport report = harness.run(sessions, warmupSeconds, durationSeconds);
+        System.out.println(report);
+        if (report.failure != null) {
+          System.out.println("Stopping sweep: " + report.failure);
+          break;
+        }
+      }
+    } finally {
+      harness.stop();
+    }
+  }
+
+  private void start() throws Exception {
+    host = new VirtualHost(new ScriptedApplication(Arrays.asList(Screens.logon(),
+        Screens.menu(), Screens.typical(), Screens.result()), 1));
+    host.start();
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      ((NotificationEmitter) gc).addNotificationListener(gcListener(), null, null);
+    }
+  }
+
+  // collections of concurrent collectors are reported too, but they are not pauses
+  private NotificationListener gcListener() {
+    return (Notification notification, Object handback) -> {
+      if (!measuring || !GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+          .equals(notification.getType())) {
+        return;
+      }
+      GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+          .from((CompositeData) notification.getUserData());
+      if (!info.getGcName().contains("Concurrent")) {
+        gcPauses.record(TimeUnit.MILLISECONDS.toNanos(info.getGcInfo().getDuration()));
+      }
+    };
+  }
+
+  private void stop() throws Exception {
+    scriptExecutor.shutdownNow();
+    host.close();
+  }
+
+  private LevelReport run(int sessionCount, long warmupSeconds, long durationSeconds)
+      throws InterruptedException {
+    LevelReport report = new LevelReport(sessionCount);
+    latencies.reset();
+    processing.reset();
+    gcPauses.reset();
+    errors.reset();
+    long baseHeap = usedHeapAfterGc();
+    List<LoadSession> sessions = new ArrayList<>(sessionCount);
+    try {
+      connect(sessionCount, sessions);
+      report.heapPerSession = (usedHeapAfterGc() - baseHeap) / sessionCount;
+
+      for (LoadSession session : sessions) {
+        scriptExecutor.execute(session::next);
+      }
+      Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+
+      latencies.reset();
+      processing.reset();
+      gcPauses.reset();
+      errors.reset();
+      threads.resetPeakThreadCount();
+      long transactions = host.getTransactionCount();
+      long start = System.nanoTime();
+      measuring = true;
+      Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+      measuring = false;
+      report.elapsedNanos = System.nanoTime() - start;
+      report.transactions = host.getTransactionCount() - transactions;
+      report.errors = errors.sum();
+      report.threads = threads.getPeakThreadCount();
+    } catch (RuntimeException | OutOfMemoryError ex) {
+      report.failure = ex.getCause() == null ? ex.toString() : ex + ": " + ex.getCause();
+    } finally {
+      measuring = false;
+      for (LoadSession session : sessions) {
+        session.disconnect();
+      }
+    }
+    report.latencies.merge(latencies);
+    report.processing.merge(processing);
+    report.gcPauses.merge(gcPauses);
+    return report;
+  }
+
+  // only a bounded number of connections are negotiated at once, as the listen backlog is
+  private void connect(int sessionCount, List<LoadSession> sessions)
+      throws InterruptedException {
+    Semaphore pending = new Semaphore(MAX_PENDING_CONNECTIONS);
+    List<CompletableFuture<Void>> connections = new ArrayList<>(sessionCount);
+    for (int i = 0; i < sessionCount; i++) {
+      pending.acquire();
+      LoadSession session = new LoadSession(i);
+      sessions.add(session);
+      connections.add(session.connect().whenComplete((result, ex) -> pending.release()));
+    }
+    try {
+      CompletableFuture.allOf(connections.toArray(new CompletableFuture[0]))
+          .get(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (Exception ex) {
+      throw new IllegalStateException("Could not connect " + sessionCount + " sessions", ex);
+    }
+  }
+
+  private long usedHeapAfterGc() throws InterruptedException {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  private class LoadSession implements KeyboardStatusListener, ConnectionListener {
+
+    private final int id;
+    private final TerminalClient client = new TerminalClient(2, new ScreenDimensions(24, 80));
+    private int screen;
+    private volatile boolean awaitingLock;
+    private volatile long aidNanos;
+    private volatile boolean stopped;
+
+    private LoadSession(int id) {
+      this.id = id;
+      client.setTypeAheadEnabled(true);
+      client.addKeyboardStatusListener(this);
+      client.setConnectionListener(this);
+      client.setSessionMetrics(processingMetrics);
+    }
+
+    private CompletableFuture<Void> connect() {
+      return client.connectAsync("localhost", host.getPort());
+    }
+
+    @Override
+    public void onConnection() {
+    }
+
+    @Override
+    public void onException(Exception ex) {
+      if (!stopped) {
+        errors.increment();
+      }
+    }
+
+    @Override
+    public void onConnectionClosed() {
+      onException(null);
+    }
+
+    @Override
+    public void keyboardStatusChanged(KeyboardStatusChangedEvent evt) {
+      if (stopped) {
+        return;
+      }
+      if (evt.keyboardLocked) {
+        if (awaitingLock) {
+          awaitingLock = false;
+          aidNanos = System.nanoTime();
+        }
+      } else if (aidNanos != 0) {
+        if (measuring) {
+          latencies.record(System.nanoTime() - aidNanos);
+        }
+        aidNanos = 0;
+        scriptExecutor.execute(this::next);
+      }
+    }
+
+    // the type-ahead buffer applies these once the screen sent by the host is complete
+    private void next() {
+      if (stopped) {
+        return;
+      }
+      switch (screen) {
+        case 0:
+          client.setFieldTextByLabel("USERID", String.format("U%05d", id % 100_000));
+          client.setFieldTextByLabel("PASSWORD", "secret");
+          sendAID(AIDCommand.AID_ENTER, "ENTR", 1);
+          break;
+        case 1:
+          client.setFieldTextByLabel("OPTION", "2");
+          sendAID(AIDCommand.AID_ENTER, "ENTR", 2);
+          break;
+        case 2:
+          client.setFieldTextByLabel("Customer ID", Integer.toString(id));
+          client.setFieldTextByLabel("Name", "LOAD HARNESS");
+          client.setFieldTextByLabel("City", "SPRINGFIELD");
+          sendAID(AIDCommand.AID_ENTER, "ENTR", 3);
+          break;
+        default:
+          sendAID(AIDCommand.AID_PF3, "PF3", 1);
+      }
+    }
+
+    private void sendAID(byte aid, String name, int nextScreen) {
+      screen = nextScreen;
+      awaitingLock = true;
+      client.sendAID(aid, name);
+    }
+
+    private void disconnect() {
+      stopped = true;
+      try {
+        client.disconnect();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } catch (RuntimeException ex) {
+        // never connected
+      }
+    }
+
+  }
+
+  private static class LevelReport {
+
+    // rt: round trip from the AID to the keyboard restored, proc: client processing of records
+    private static final String HEADER = String.format(
+        "%8s %10s %10s %10s %11s %12s %12s %13s %8s %12s %8s %10s %8s", "sessions", "tps",
+        "rt p50 us", "rt p99 us", "rt p999 us", "proc p50 us", "proc p99 us", "proc p999 us",
+        "threads", "heap/sess", "gcs", "gc max ms", "errors");
+
+    private final int sessions;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LatencyHistogram processing = new LatencyHistogram();
+    private final LatencyHistogram gcPauses = new LatencyHistogram();
+    private long transactions;
+    private long errors;
+    private long elapsedNanos;
+    private int threads;
+    private long heapPerSession;
+    private String failure;
+
+    private LevelReport(int sessions) {
+      this.sessions = sessions;
+    }
+
+    @Override
+    public String toString() {
+      double tps = elapsedNanos == 0 ? 0 : transactions * 1e9 / elapsedNanos;
+      return String.format("%8d %10.0f %10d %10d %11d %12d %12d %13d %8d %12d %8d %10d %8d",
+          sessions, tps,
+          micros(latencies.getValueAtPercentile(50)),
+          micros(latencies.getValueAtPercentile(99)),
+          micros(latencies.getValueAtPercentile(99.9)),
+          micros(processing.getValueAtPercentile(50)),
+          micros(processing.getValueAtPercentile(99)),
+          micros(processing.getValueAtPercentile(99.9)), threads, heapPerSession,
+          gcPauses.getCount(), TimeUnit.NANOSECONDS.toMillis(gcPauses.getMax()), errors);
+    }
+
+    private static long micros(long nanos) {
+      return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+  }
+
+}
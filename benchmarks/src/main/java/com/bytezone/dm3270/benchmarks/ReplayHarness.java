@@ -0,0 +1,35 @@
+package com.bytezone.dm3270.benchmarks;
+
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.session.SessionReplayer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Replays the sessions of one or more recordings (see SessionRecorder and RecordingProxy)
+ * through the decoder and screen, and reports the records per second and the latency of each
+ * record. Sessions are replayed as fast as possible, or with --timed at the recorded pace.
+ *
+ * usage: ReplayHarness [--timed] recording...
+ */
+public final class ReplayHarness {
+
+  private ReplayHarness() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    SessionReplayer replayer = new SessionReplayer(2, new ScreenDimensions(24, 80));
+    List<Path> recordings = new ArrayList<>();
+    for (String arg : args) {
+      if ("--timed".equals(arg)) {
+        replayer.setRecordedTiming(true);
+      } else {
+        recordings.add(Paths.get(arg));
+      }
+    }
+    System.out.println(replayer.replayRecordings(recordings));
+  }
+
+}
@@ -0,0 +1,58 @@
+package com.bytezone.dm3270.benchmarks;
+
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.commands.Command;
+import com.bytezone.dm3270.display.Field;
+import com.bytezone.dm3270.display.Screen;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Packs the screen contents into the inbound record sent with an Action ID (Read Modified)
+ * or requested by the host (Read Buffer). Every unprotected field is modified.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ScreenPackerBenchmark {
+
+  @Param({"typical", "heavy"})
+  private String screen;
+
+  private Screen target;
+
+  @Setup
+  public void setup() {
+    byte[] data = "heavy".equals(screen) ? Screens.heavy() : Screens.typical();
+    target = Screens.newScreen();
+    Command.getCommand(data, 0, data.length).process(target);
+    for (Field field : target.getFieldManager().getUnprotectedFields()) {
+      target.setFieldText(field, "MODIFIED");
+    }
+    target.setAID(AIDCommand.AID_ENTER);
+  }
+
+  @Benchmark
+  public Command readModifiedFields() {
+    return target.readModifiedFields();
+  }
+
+  @Benchmark
+  public AIDCommand readBuffer() {
+    return target.readBuffer();
+  }
+
+}
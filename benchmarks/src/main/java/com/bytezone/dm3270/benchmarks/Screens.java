@@ -0,0 +1,120 @@
+package com.bytezone.dm3270.benchmarks;
+
+import com.bytezone.dm3270.attributes.ColorAttribute;
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.host.HostScreenBuilder;
+import com.bytezone.dm3270.streams.TelnetState;
+import com.bytezone.dm3270.telnet.TelnetCommand;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
+import java.io.ByteArrayOutputStream;
+
+/*
+ * 3270 data streams shared by the benchmarks: a typical 24x80 logon/menu screen and a worst
+ * case 27x132 screen where every field is a Start Field Extended and colors change (with Set
+ * Attribute orders) every few characters. Also the logon, menu and result screens scripted
+ * around the typical one by the load harness.
+ */
+final class Screens {
+
+  static final ScreenDimensions DEFAULT_DIMENSIONS = new ScreenDimensions(24, 80);
+  static final ScreenDimensions ALTERNATE_DIMENSIONS = new ScreenDimensions(27, 132);
+
+  private static final byte[] COLORS = {ColorAttribute.COLOR_BLUE, ColorAttribute.COLOR_RED,
+      ColorAttribute.COLOR_PINK, ColorAttribute.COLOR_GREEN, ColorAttribute.COLOR_TURQUOISE,
+      ColorAttribute.COLOR_YELLOW, ColorAttribute.COLOR_WHITE};
+  private static final byte HIGHLIGHT_NONE = 0x00;
+  private static final byte HIGHLIGHT_REVERSE = (byte) 0xF2;
+
+  private Screens() {
+  }
+
+  static byte[] typical() {
+    HostScreenBuilder builder = new HostScreenBuilder(24, 80)
+        .highlightedText(1, 28, "CUSTOMER INFORMATION SYSTEM")
+        .text(2, 2, "Date: 2018-01-01")
+        .text(2, 64, "Terminal: LU0001");
+    String[] labels = {"Customer ID", "Name", "Address", "City", "State", "Zip code",
+        "Phone", "Email", "Account", "Balance", "Last payment", "Due date"};
+    for (int i = 0; i < labels.length; i++) {
+      builder.text(5 + i, 2, labels[i] + " ...")
+          .input(5 + i, 20, 30, i % 3 == 0 ? "VALUE" + i : "");
+    }
+    return builder
+        .numericInput(19, 20, 10)
+        .hiddenInput(20, 20, 8)
+        .text(22, 2, "Command ===>")
+        .input(22, 15, 60)
+        .text(24, 2, "F1=Help  F3=Exit  F7=Up  F8=Down  F12=Cancel")
+        .cursor(5, 20)
+        .build();
+  }
+
+  static byte[] logon() {
+    return new HostScreenBuilder(24, 80)
+        .highlightedText(1, 30, "LOAD HARNESS LOGON")
+        .text(10, 2, "USERID ===>")
+        .input(10, 14, 8)
+        .text(11, 2, "PASSWORD =>")
+        .hiddenInput(11, 14, 8)
+        .cursor(10, 14)
+        .build();
+  }
+
+  static byte[] menu() {
+    return new HostScreenBuilder(24, 80)
+        .highlightedText(1, 34, "MAIN MENU")
+        .text(4, 2, "1  Browse customers")
+        .text(5, 2, "2  Update customer")
+        .text(6, 2, "3  Reports")
+        .text(22, 2, "OPTION ===>")
+        .input(22, 14, 2)
+        .cursor(22, 14)
+        .build();
+  }
+
+  static byte[] result() {
+    return new HostScreenBuilder(24, 80)
+        .highlightedText(1, 30, "CUSTOMER UPDATED")
+        .text(24, 2, "F3=Exit")
+        .build();
+  }
+
+  static byte[] heavy() {
+    HostScreenBuilder builder = new HostScreenBuilder(27, 132).eraseWriteAlternate();
+    for (int row = 1; row <= 27; row++) {
+      for (int column = 2; column < 132; column += 22) {
+        if ((row + column) % 5 == 0) {
+          builder.input(row, column, 20, "INPUT");
+          continue;
+        }
+        builder.colorText(row, column, "R" + row, COLORS[(row + column) % COLORS.length],
+            row % 2 == 0 ? HIGHLIGHT_REVERSE : HIGHLIGHT_NONE);
+        for (int i = 0; i < 4; i++) {
+          builder.setColor(COLORS[(row + column + i) % COLORS.length]).append("abc");
+        }
+      }
+    }
+    return builder.cursor(1, 1).build();
+  }
+
+  // a screen as received from the terminal server: IAC doubled and terminated by IAC EOR
+  static byte[] frame(byte[] data) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 16);
+    for (byte b : data) {
+      out.write(b);
+      if (b == TelnetCommand.IAC) {
+        out.write(b);
+      }
+    }
+    out.write(TelnetCommand.IAC);
+    out.write(TelnetProcessor.EOR);
+    return out.toByteArray();
+  }
+
+  // a screen not connected to any terminal server, so replies go nowhere
+  static Screen newScreen() {
+    return new Screen(DEFAULT_DIMENSIONS, ALTERNATE_DIMENSIONS, new TelnetState());
+  }
+
+}
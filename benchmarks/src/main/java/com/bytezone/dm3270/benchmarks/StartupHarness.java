@@ -0,0 +1,162 @@
+package com.bytezone.dm3270.benchmarks;
+
+import com.bytezone.dm3270.TerminalClient;
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.host.ScriptedApplication;
+import com.bytezone.dm3270.host.VirtualHost;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Measures how long a fresh JVM takes to get its first TerminalClient connected and showing the
+ * first screen, and to get the response to its first Enter, as short lived load agents do.
+ *
+ * Each run is a new JVM started with the given options (e.g. an AppCDS archive), connecting to
+ * a VirtualHost kept in this one, so only the client classes are loaded by the JVM measured.
+ * Times are from the JVM start, and the classes loaded by then are reported next to them.
+ *
+ * usage: StartupHarness [--runs 5] [--jvm-options "-XX:SharedArchiveFile=dm3270.jsa"]
+ */
+public final class StartupHarness {
+
+  private static final long TIMEOUT_SECONDS = 60;
+  private static final String CLIENT_OPTION = "--client";
+  private static final String[] PHASES = {"main", "client", "screen", "response"};
+
+  private StartupHarness() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length == 2 && CLIENT_OPTION.equals(args[0])) {
+      runClient(Integer.parseInt(args[1]));
+      return;
+    }
+
+    int runs = 5;
+    List<String> jvmOptions = new ArrayList<>();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--runs":
+          runs = Integer.parseInt(args[i + 1]);
+          break;
+        case "--jvm-options":
+          jvmOptions.addAll(Arrays.asList(args[i + 1].trim().split("\\s+")));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    try (VirtualHost host = new VirtualHost(
+        new ScriptedApplication(Arrays.asList(Screens.typical(), Screens.result()), 0))) {
+      host.start();
+      long[][] results = new long[runs][];
+      for (int i = 0; i < runs; i++) {
+        results[i] = runJvm(jvmOptions, host.getPort());
+      }
+      printResults(results);
+    }
+  }
+
+  // the child JVM prints the millis since its start and the classes loaded after each phase
+  private static long[] runJvm(List<String> jvmOptions, int port) throws Exception {
+    List<String> command = new ArrayList<>();
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator
+        + "java");
+    command.addAll(jvmOptions);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(StartupHarness.class.getName());
+    command.add(CLIENT_OPTION);
+    command.add(Integer.toString(port));
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    String result = null;
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(CLIENT_OPTION)) {
+          result = line;
+        } else {
+          System.out.println(line);                    // JVM warnings, CDS messages
+        }
+      }
+    }
+    if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+      process.destroyForcibly();
+      throw new IllegalStateException("Client JVM did not end");
+    }
+    if (result == null) {
+      throw new IllegalStateException("Client JVM failed with exit code " + process.exitValue());
+    }
+    return Arrays.stream(result.substring(CLIENT_OPTION.length()).trim().split(" "))
+        .mapToLong(Long::parseLong).toArray();
+  }
+
+  private static void printResults(long[][] results) {
+    System.out.printf("%-10s %12s %12s %12s %12s%n", "phase", "min ms", "median ms", "max ms",
+        "classes");
+    for (int phase = 0; phase < PHASES.length; phase++) {
+      long[] millis = new long[results.length];
+      for (int i = 0; i < results.length; i++) {
+        millis[i] = results[i][phase * 2];
+      }
+      Arrays.sort(millis);
+      System.out.printf("%-10s %12d %12d %12d %12d%n", PHASES[phase], millis[0],
+          millis[millis.length / 2], millis[millis.length - 1], results[0][phase * 2 + 1]);
+    }
+  }
+
+  private static void runClient(int port) throws Exception {
+    StringBuilder result = new StringBuilder(CLIENT_OPTION);
+    record(result);
+
+    TerminalClient client = new TerminalClient(2, new ScreenDimensions(24, 80));
+    AtomicInteger unlocks = new AtomicInteger();
+    CountDownLatch screen = new CountDownLatch(1);
+    CountDownLatch response = new CountDownLatch(1);
+    client.addKeyboardStatusListener(evt -> {
+      if (!evt.keyboardLocked) {
+        (unlocks.incrementAndGet() == 1 ? screen : response).countDown();
+      }
+    });
+    record(result);
+
+    try {
+      client.connect("localhost", port);
+      await(screen, "first screen");
+      record(result);
+
+      client.setFieldTextByLabel("Customer ID", "1");
+      client.sendAID(AIDCommand.AID_ENTER, "ENTR");
+      await(response, "response");
+      record(result);
+    } finally {
+      client.disconnect();
+    }
+    System.out.println(result);
+  }
+
+  private static void record(StringBuilder result) {
+    result.append(' ').append(ManagementFactory.getRuntimeMXBean().getUptime())
+        .append(' ').append(ManagementFactory.getClassLoadingMXBean().getLoadedClassCount());
+  }
+
+  private static void await(CountDownLatch latch, String what) throws InterruptedException {
+    if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+      throw new IllegalStateException("No " + what + " after " + TIMEOUT_SECONDS + " seconds");
+    }
+  }
+
+}
@@ -0,0 +1,89 @@
+package com.bytezone.dm3270.benchmarks;
+
+import com.bytezone.dm3270.telnet.TelnetCommandProcessor;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * Splits a session worth of telnet traffic (negotiation commands and framed screens) in
+ * socket sized reads, and measures TelnetProcessor framing it back into records.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TelnetProcessorBenchmark {
+
+  private static final byte[] NOP = {(byte) 0xFF, (byte) 0xF1};
+  private static final int READ_SIZE = 4096;
+
+  @Param({"typical", "heavy"})
+  private String screen;
+
+  private List<byte[]> reads;
+  private TelnetProcessor telnetProcessor;
+  private Blackhole blackhole;
+
+  @Setup
+  public void setup(Blackhole blackhole) {
+    this.blackhole = blackhole;
+    byte[] framed = Screens.frame("heavy".equals(screen) ? Screens.heavy() : Screens.typical());
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    for (int i = 0; i < 16; i++) {
+      stream.write(framed, 0, framed.length);
+      stream.write(NOP, 0, NOP.length);
+    }
+    byte[] data = stream.toByteArray();
+    reads = new ArrayList<>();
+    for (int offset = 0; offset < data.length; offset += READ_SIZE) {
+      reads.add(Arrays.copyOfRange(data, offset, Math.min(data.length, offset + READ_SIZE)));
+    }
+    telnetProcessor = new TelnetProcessor(new TelnetCommandProcessor() {
+      @Override
+      public void processData(byte[] buffer, int length) {
+        TelnetProcessorBenchmark.this.blackhole.consume(length);
+      }
+
+      @Override
+      public void processRecord(byte[] buffer, int length) {
+        TelnetProcessorBenchmark.this.blackhole.consume(length);
+      }
+
+      @Override
+      public void processTelnetCommand(byte[] buffer, int length) {
+        TelnetProcessorBenchmark.this.blackhole.consume(length);
+      }
+
+      @Override
+      public void processTelnetSubcommand(byte[] buffer, int length) {
+        TelnetProcessorBenchmark.this.blackhole.consume(length);
+      }
+    });
+  }
+
+  @Benchmark
+  public void listen() {
+    for (byte[] read : reads) {
+      telnetProcessor.listen(read);
+    }
+  }
+
+}
@@ -0,0 +1,69 @@
+package com.bytezone.dm3270.benchmarks;
+
+import com.bytezone.dm3270.TerminalClient;
+import com.bytezone.dm3270.host.ScriptedApplication;
+import com.bytezone.dm3270.host.VirtualHost;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Public API calls made by scripts on every screen, against a client connected to a
+ * VirtualHost showing the typical screen. The label is searched in the screen text, so
+ * its position matters.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TerminalClientBenchmark {
+
+  private static final long CONNECT_TIMEOUT_MILLIS = 10000;
+
+  @Param({"Customer ID", "Command ===>"})
+  private String label;
+
+  private VirtualHost host;
+  private TerminalClient client;
+
+  @Setup
+  public void setup() throws Exception {
+    host = new VirtualHost(
+        new ScriptedApplication(Collections.singletonList(Screens.typical()), 0));
+    host.start();
+    client = new TerminalClient(2, Screens.ALTERNATE_DIMENSIONS);
+    client.connectAsync("localhost", host.getPort())
+        .get(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  @TearDown
+  public void teardown() throws Exception {
+    client.disconnect();
+    host.close();
+  }
+
+  @Benchmark
+  public String getScreenText() {
+    return client.getScreenText();
+  }
+
+  @Benchmark
+  public TerminalClient setFieldTextByLabel() {
+    client.setFieldTextByLabel(label, "12345");
+    return client;
+  }
+
+}
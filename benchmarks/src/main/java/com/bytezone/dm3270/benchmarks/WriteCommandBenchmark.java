@@ -0,0 +1,53 @@
+package com.bytezone.dm3270.benchmarks;
+
+import com.bytezone.dm3270.commands.Command;
+import com.bytezone.dm3270.display.Screen;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Parses an Erase/Write record into a Command and applies it to a Screen, which is what
+ * TelnetListener does for every screen received.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WriteCommandBenchmark {
+
+  @Param({"typical", "heavy"})
+  private String screen;
+
+  private byte[] data;
+  private Screen target;
+
+  @Setup
+  public void setup() {
+    data = "heavy".equals(screen) ? Screens.heavy() : Screens.typical();
+    target = Screens.newScreen();
+  }
+
+  @Benchmark
+  public Command getCommand() {
+    return Command.getCommand(data, 0, data.length);
+  }
+
+  @Benchmark
+  public Screen getCommandAndProcess() {
+    Command.getCommand(data, 0, data.length).process(target);
+    return target;
+  }
+
+}
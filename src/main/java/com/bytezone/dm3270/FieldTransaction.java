@@ -0,0 +1,134 @@
+package com.bytezone.dm3270;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Field values, cursor position and Action ID to be sent together with {@link
+ * TerminalClient#send(FieldTransaction)}.
+ * <p>
+ * All the fields are looked up before any of them is changed, so when one can't be found the
+ * screen is left as it was. The values are then set without moving the cursor after each one,
+ * and a single record is sent to the terminal server.
+ * <p>
+ * A transaction keeps no session state, so the same instance can be sent any number of times,
+ * by any number of clients, as long as it is not modified meanwhile.
+ */
+public final class FieldTransaction {
+
+  private final byte aid;
+  private final String aidName;
+  private final List<FieldInput> inputs = new ArrayList<>();
+  private int cursorRow;
+  private int cursorColumn;
+
+  /**
+   * Creates a transaction ending with the given Action ID.
+   *
+   * @param aid Action ID to send. For example Enter.
+   * @param aidName Name of the action sent.
+   */
+  public FieldTransaction(byte aid, String aidName) {
+    this.aid = aid;
+    this.aidName = aidName;
+  }
+
+  /**
+   * Adds the text of the field at the given position.
+   *
+   * @param row row number of the field. First row is 1.
+   * @param column column number of the field. First column is 1.
+   * @param text the text to set on the field.
+   * @return this transaction, to chain calls.
+   */
+  public FieldTransaction setFieldTextByCoord(int row, int column, String text) {
+    inputs.add(new FieldInput(row, column, null, text));
+    return this;
+  }
+
+  /**
+   * Adds the text of the field following the given label.
+   *
+   * @param label text shown before the field, as with {@link
+   * TerminalClient#setFieldTextByLabel(String, String)}.
+   * @param text the text to set on the field.
+   * @return this transaction, to chain calls.
+   */
+  public FieldTransaction setFieldTextByLabel(String label, String text) {
+    inputs.add(new FieldInput(0, 0, label, text));
+    return this;
+  }
+
+  /**
+   * Sets where to leave the cursor before sending the Action ID.
+   *
+   * @param row row number of the cursor. First row is 1.
+   * @param column column number of the cursor. First column is 1.
+   * @return this transaction, to chain calls. By default the cursor is left where setting the
+   * last field text one by one would leave it.
+   */
+  public FieldTransaction setCursor(int row, int column) {
+    cursorRow = row;
+    cursorColumn = column;
+    return this;
+  }
+
+  byte getAid() {
+    return aid;
+  }
+
+  String getAidName() {
+    return aidName;
+  }
+
+  List<FieldInput> getInputs() {
+    return Collections.unmodifiableList(inputs);
+  }
+
+  boolean hasCursor() {
+    return cursorRow > 0;
+  }
+
+  int getCursorRow() {
+    return cursorRow;
+  }
+
+  int getCursorColumn() {
+    return cursorColumn;
+  }
+
+  static final class FieldInput {
+
+    private final int row;
+    private final int column;
+    private final String label;
+    private final String text;
+
+    private FieldInput(int row, int column, String label, String text) {
+      this.row = row;
+      this.column = column;
+      this.label = label;
+      this.text = text;
+    }
+
+    int getRow() {
+      return row;
+    }
+
+    int getColumn() {
+      return column;
+    }
+
+    // null when the field is set by coordinates
+    String getLabel() {
+      return label;
+    }
+
+    String getText() {
+      return text;
+    }
+
+  }
+
+}
@@ -2,19 +2,40 @@ package com.bytezone.dm3270;
 
 import com.bytezone.dm3270.application.ConsolePane;
 import com.bytezone.dm3270.application.KeyboardStatusListener;
+import com.bytezone.dm3270.commands.CommandCache;
 import com.bytezone.dm3270.display.Cursor;
 import com.bytezone.dm3270.display.CursorMoveListener;
 import com.bytezone.dm3270.display.Field;
+import com.bytezone.dm3270.display.FieldLayoutCache;
+import com.bytezone.dm3270.display.FieldManager;
+import com.bytezone.dm3270.display.RowBlockTable;
 import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.display.ScreenChangeListener;
 import com.bytezone.dm3270.display.ScreenDimensions;
 import com.bytezone.dm3270.display.ScreenPosition;
+import com.bytezone.dm3270.filetransfer.FileTransfer;
+import com.bytezone.dm3270.metrics.RecordTracer;
+import com.bytezone.dm3270.metrics.ResponseTimes;
+import com.bytezone.dm3270.metrics.SessionMetrics;
+import com.bytezone.dm3270.printer.Printer;
+import com.bytezone.dm3270.session.SessionRecorder;
+import com.bytezone.dm3270.streams.SocketConnector;
 import com.bytezone.dm3270.streams.TelnetState;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 import com.bytezone.dm3270.utilities.Site;
 import java.awt.Point;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import javax.net.SocketFactory;
 
 /**
@@ -30,6 +51,12 @@ public class TerminalClient {
   private SocketFactory socketFactory = SocketFactory.getDefault();
   private ConnectionListener connectionListener;
   private int connectionTimeoutMillis;
+  private long connectionAttemptDelayMillis = SocketConnector.DEFAULT_ATTEMPT_DELAY_MILLIS;
+  private boolean typeAheadEnabled;
+  private SessionRecorder sessionRecorder;
+  private SessionMetrics sessionMetrics = SessionMetrics.NO_OP;
+  private String printerLuName;
+  private Writer printerOutput;
 
   /**
    * Creates a new terminal client with given model and screen dimensions.
@@ -74,6 +101,17 @@ public class TerminalClient {
     this.connectionTimeoutMillis = connectionTimeoutMillis;
   }
 
+  /**
+   * Sets the time to wait for a connection attempt before starting the next one in {@link
+   * #connectAsync(List)}.
+   *
+   * @param connectionAttemptDelayMillis Number of millis to wait for an attempt to connect to one
+   * address before also trying the next one. By default is 250.
+   */
+  public void setConnectionAttemptDelayMillis(long connectionAttemptDelayMillis) {
+    this.connectionAttemptDelayMillis = connectionAttemptDelayMillis;
+  }
+
   /**
    * Sets a class to handle general exception handler.
    *
@@ -84,6 +122,277 @@ public class TerminalClient {
     this.connectionListener = connectionListener;
   }
 
+  /**
+   * Sets whether field inputs and Action IDs submitted while the keyboard is locked are kept in a
+   * type-ahead buffer, as real terminals do.
+   * <p>
+   * When enabled, {@link #setFieldTextByCoord(int, int, String)}, {@link
+   * #setFieldTextByLabel(String, String)} and {@link #sendAID(byte, String)} invoked while the
+   * keyboard is locked return immediately, and are applied (in the same order) to the screen sent
+   * by the terminal server as soon as it restores the keyboard. Applying stops again after an
+   * Action ID is sent, and continues when the keyboard is restored again. If a queued input can't
+   * be applied to the new screen, the rest of the buffer is discarded and the exception is
+   * notified to the {@link ConnectionListener}.
+   *
+   * @param typeAheadEnabled set true to enable the type-ahead buffer. By default is false.
+   */
+  public void setTypeAheadEnabled(boolean typeAheadEnabled) {
+    this.typeAheadEnabled = typeAheadEnabled;
+    if (consolePane != null) {
+      consolePane.setTypeAheadEnabled(typeAheadEnabled);
+    }
+  }
+
+  /**
+   * Sets a {@link SessionRecorder} to record all the records sent to and received from the
+   * terminal server.
+   * <p>
+   * The same recorder can be shared by any number of clients, each connection being recorded as a
+   * different session. Recordings can be read with {@link
+   * com.bytezone.dm3270.session.SessionReader}.
+   *
+   * @param sessionRecorder the recorder to use, or null to stop recording. Applies from the next
+   * connection on.
+   */
+  public void setSessionRecorder(SessionRecorder sessionRecorder) {
+    this.sessionRecorder = sessionRecorder;
+  }
+
+  /**
+   * Sets the {@link SessionMetrics} to report the protocol activity and processing times of the
+   * session to.
+   * <p>
+   * The same instance can be shared by any number of clients, for example an {@link
+   * com.bytezone.dm3270.metrics.AggregateSessionMetrics} to add up all of them.
+   *
+   * @param sessionMetrics the metrics to report to, or null to stop reporting. Applies from the
+   * next connection on. By default nothing is reported.
+   */
+  public void setSessionMetrics(SessionMetrics sessionMetrics) {
+    this.sessionMetrics = sessionMetrics == null ? SessionMetrics.NO_OP : sessionMetrics;
+  }
+
+  /**
+   * Gets the host response times measured in this client, in one histogram per AID key.
+   * <p>
+   * Each response time is measured in nanos, from the Action ID being written to the socket to
+   * the socket read containing the record which restores the keyboard (or the TN3270E response to
+   * the Action ID), so it does not include the time spent by the client processing the screen.
+   *
+   * @return the response times, which keep being updated while the client is used. They can be
+   * merged with those of other clients with {@link ResponseTimes#merge(ResponseTimes)}.
+   */
+  public ResponseTimes getResponseTimes() {
+    return screen.getTelnetState().getResponseTimer().getResponseTimes();
+  }
+
+  /**
+   * Sets where to record the host response times measured in this client.
+   *
+   * @param responseTimes the response times to record into, which can be shared by any number of
+   * clients. By default each client has its own.
+   * @see #getResponseTimes()
+   */
+  public void setResponseTimes(ResponseTimes responseTimes) {
+    screen.getTelnetState().getResponseTimer().setResponseTimes(responseTimes);
+  }
+
+  /**
+   * Sets a {@link RecordTracer} to break down the time taken to process each record received from
+   * the terminal server: telnet framing, command parsing, screen update, screen watcher checks and
+   * listeners.
+   * <p>
+   * The tracer keeps one histogram per stage and the breakdown of the last records in a ring
+   * buffer allocated when it is created, so tracing adds no allocation per record. It can also
+   * pass each breakdown to a {@link com.bytezone.dm3270.metrics.RecordTraceListener}.
+   *
+   * @param recordTracer the tracer to use, which must not be shared with other clients, or null to
+   * stop tracing. By default records are not traced. Applies immediately.
+   */
+  public void setRecordTracer(RecordTracer recordTracer) {
+    screen.getTelnetState().setRecordTracer(recordTracer);
+  }
+
+  /**
+   * Sets a {@link CommandCache} to parse each distinct screen received from the terminal server
+   * only once.
+   * <p>
+   * The cache is meant to be shared by many clients receiving the same screens, for example in
+   * load tests, so a record already parsed by any of them is only applied to the screen. Records
+   * are compared byte by byte, so a screen with different data is parsed again.
+   *
+   * @param commandCache the cache to use, or null to parse every record. By default records are
+   * not cached. Applies immediately.
+   */
+  public void setCommandCache(CommandCache commandCache) {
+    screen.getTelnetState().setCommandCache(commandCache);
+  }
+
+  /**
+   * Sets a {@link FieldLayoutCache} to derive the fields of each distinct screen layout only
+   * once.
+   * <p>
+   * Like {@link #setCommandCache(CommandCache)}, the cache is meant to be shared by many clients.
+   * Screens with the same start fields (position and attributes) as one already seen by any of
+   * them reuse its field boundaries, links between fields and default contexts, and only bind
+   * the screen contents to them.
+   *
+   * @param fieldLayoutCache the cache to use, or null to derive the fields of every screen. By
+   * default layouts are not cached. Applies from the next screen received.
+   */
+  public void setFieldLayoutCache(FieldLayoutCache fieldLayoutCache) {
+    screen.getFieldManager().setFieldLayoutCache(fieldLayoutCache);
+  }
+
+  /**
+   * Sets a {@link RowBlockTable} to share the screen rows with other clients.
+   * <p>
+   * Like {@link #setCommandCache(CommandCache)}, the table is meant to be shared by many clients,
+   * which then keep a single copy of each row shown by any of them instead of one each, so the
+   * heap taken by screens grows with the distinct rows rather than with the clients. A client
+   * copies a shared row before changing it, when the terminal server writes to it or when field
+   * text is set. Screen positions got from the client must then only be read.
+   *
+   * @param rowBlockTable the table to use, or null to keep rows apart. By default rows are not
+   * shared. Applies from the next screen received.
+   */
+  public void setRowBlockTable(RowBlockTable rowBlockTable) {
+    screen.setRowBlockTable(rowBlockTable);
+  }
+
+  /**
+   * Sets the EBCDIC code page used by the host, to translate the screen text and the text set in
+   * fields.
+   *
+   * @param codePage the code page number: 37, 273, 285, 297, 500, 1047 or 1140 to 1149 (the euro
+   * variants of the first ones). By default is 1047. Applies immediately.
+   * @throws IllegalArgumentException if the code page is not supported.
+   */
+  public void setCodePage(int codePage) {
+    screen.setCodec(EbcdicCodec.forCodePage(codePage));
+  }
+
+  /**
+   * Sets the largest record exchanged with the host in IND$FILE file transfers.
+   * <p>
+   * The size is offered to the host in the reply to its query, and the host sends downloaded
+   * files in records up to that size, while uploaded files are sent in records of that size. So
+   * bigger records take less round trips to transfer a file, and only one record is kept in
+   * memory at a time.
+   *
+   * @param fileTransferBufferSize number of bytes, between 256 and 32,767. By default is 32,767,
+   * the largest allowed. Applies from the next query of the host (usually on connection).
+   * @throws IllegalArgumentException if the size is out of range.
+   */
+  public void setFileTransferBufferSize(int fileTransferBufferSize) {
+    if (fileTransferBufferSize < FileTransfer.MIN_BUFFER_SIZE
+        || fileTransferBufferSize > FileTransfer.MAX_BUFFER_SIZE) {
+      throw new IllegalArgumentException("File transfer buffer size must be between "
+          + FileTransfer.MIN_BUFFER_SIZE + " and " + FileTransfer.MAX_BUFFER_SIZE + ": "
+          + fileTransferBufferSize);
+    }
+    screen.getTelnetState().setFileTransferBufferSize(fileTransferBufferSize);
+  }
+
+  /**
+   * Prepares the client to receive the file of the next IND$FILE transfer started by the host.
+   * <p>
+   * The transfer is then started by sending the IND$FILE command with the field and Action ID
+   * methods, for example setting "IND$FILE GET 'USER.DATA' ASCII CRLF" in the TSO command line
+   * and sending Enter. Only DFT mode transfers are supported, and the bytes received are written
+   * as they are, so any translation is left to the host (ASCII and CRLF options).
+   *
+   * @param target where to write the file, one record at a time. It is not closed.
+   * @return a future completed with the number of bytes received when the host reports the
+   * transfer complete, or exceptionally when the host reports an error (with its message), the
+   * target can't be written or the connection is closed. Cancelling it makes the client reject
+   * the transfer.
+   * @throws IllegalStateException if another transfer is pending.
+   */
+  public CompletableFuture<Long> downloadFile(WritableByteChannel target) {
+    return startFileTransfer(FileTransfer.download(target, getFileTransferBufferSize()));
+  }
+
+  /**
+   * Prepares the client to receive the file of the next IND$FILE transfer started by the host.
+   *
+   * @param target where to write the file, one record at a time. It is not closed.
+   * @return a future completed with the number of bytes received.
+   * @throws IllegalStateException if another transfer is pending.
+   * @see #downloadFile(WritableByteChannel)
+   */
+  public CompletableFuture<Long> downloadFile(OutputStream target) {
+    return downloadFile(Channels.newChannel(target));
+  }
+
+  /**
+   * Prepares the client to send a file in the next IND$FILE transfer started by the host.
+   * <p>
+   * As with {@link #downloadFile(WritableByteChannel)}, the transfer is started by sending the
+   * IND$FILE command (for example "IND$FILE PUT 'USER.DATA' ASCII CRLF"), and the bytes are sent
+   * as they are read.
+   *
+   * @param source where to read the file from, one record at a time, up to its end. It is not
+   * closed.
+   * @return a future completed with the number of bytes sent when the host reports the transfer
+   * complete, or exceptionally when the host reports an error (with its message), the source
+   * can't be read or the connection is closed. Cancelling it makes the client reject the
+   * transfer.
+   * @throws IllegalStateException if another transfer is pending.
+   */
+  public CompletableFuture<Long> uploadFile(ReadableByteChannel source) {
+    return startFileTransfer(FileTransfer.upload(source, getFileTransferBufferSize()));
+  }
+
+  /**
+   * Prepares the client to send a file in the next IND$FILE transfer started by the host.
+   *
+   * @param source where to read the file from, one record at a time, up to its end. It is not
+   * closed.
+   * @return a future completed with the number of bytes sent.
+   * @throws IllegalStateException if another transfer is pending.
+   * @see #uploadFile(ReadableByteChannel)
+   */
+  public CompletableFuture<Long> uploadFile(InputStream source) {
+    return uploadFile(Channels.newChannel(source));
+  }
+
+  private int getFileTransferBufferSize() {
+    return screen.getTelnetState().getFileTransferBufferSize();
+  }
+
+  private CompletableFuture<Long> startFileTransfer(FileTransfer transfer) {
+    TelnetState telnetState = screen.getTelnetState();
+    synchronized (telnetState) {
+      FileTransfer pending = telnetState.getFileTransfer();
+      if (pending != null && !pending.isDone()) {
+        throw new IllegalStateException("Another file transfer is pending");
+      }
+      telnetState.setFileTransfer(transfer);
+    }
+    return transfer.getDone();
+  }
+
+  /**
+   * Makes the client a 3287 printer, which prints the jobs sent by the host instead of showing
+   * screens.
+   * <p>
+   * Printer sessions always use the extended protocol, which lets the host bind them as LU1
+   * (SCS) or LU3 (3270 data stream) printers, and mark the end of each job. Each record is
+   * acknowledged as soon as it is formatted, and the text is written to the output from another
+   * thread. Lines end with a new line, and pages with a form feed when the host asks for one.
+   *
+   * @param luName name of the printer LU to connect to, usually the one associated to a terminal
+   * LU, or null to let the server pick one.
+   * @param output where to write the text printed, flushed at the end of each job and when the
+   * session ends, but never closed. Null makes the client a terminal again. Applies from the next
+   * connection on.
+   */
+  public void setPrinterSession(String luName, Writer output) {
+    this.printerLuName = luName;
+    this.printerOutput = output;
+  }
+
   /**
    * Connect to a terminal server.
    *
@@ -91,11 +400,58 @@ public class TerminalClient {
    * @param port port where the terminal server is listening for connections.
    */
   public void connect(String host, int port) {
+    createConsolePane(host, port).connect();
+  }
+
+  /**
+   * Connect to a terminal server without blocking, trying the given host name on all its
+   * addresses.
+   *
+   * @param host host name of the terminal server.
+   * @param port port where the terminal server is listening for connections.
+   * @return a future completed when the connection to the server has been established and telnet
+   * negotiations are over.
+   * @see #connectAsync(List)
+   */
+  public CompletableFuture<Void> connectAsync(String host, int port) {
+    return connectAsync(Collections.singletonList(InetSocketAddress.createUnresolved(host, port)));
+  }
+
+  /**
+   * Connect to one of a list of terminal servers without blocking.
+   * <p>
+   * Connection attempts are started in the given order, each one after {@link
+   * #setConnectionAttemptDelayMillis(long)} or as soon as the previous one fails, and the first
+   * one to succeed is used. Unresolved addresses are expanded to all the addresses of the host
+   * name, and resolutions are cached and shared by all the clients.
+   *
+   * @param addresses addresses of the terminal servers, in order of preference.
+   * @return a future completed when the connection to a server has been established and telnet
+   * negotiations are over, or completed exceptionally when no server could be reached or the
+   * connection was closed before that. Cancelling it aborts pending connection attempts.
+   */
+  public CompletableFuture<Void> connectAsync(List<InetSocketAddress> addresses) {
+    if (addresses.isEmpty()) {
+      throw new IllegalArgumentException("At least one address is required");
+    }
+    InetSocketAddress first = addresses.get(0);
+    ConsolePane pane = createConsolePane(first.getHostString(), first.getPort());
+    pane.setConnectionAttemptDelayMillis(connectionAttemptDelayMillis);
+    return pane.connectAsync(addresses);
+  }
+
+  private ConsolePane createConsolePane(String host, int port) {
     screen.lockKeyboard("connect");
-    consolePane = new ConsolePane(screen, new Site(host, port, usesExtended3270), socketFactory);
+    screen.getTelnetState().setSessionRecorder(sessionRecorder);
+    screen.getTelnetState().setSessionMetrics(sessionMetrics);
+    screen.getTelnetState().setPrinter(
+        printerOutput == null ? null : new Printer(printerLuName, printerOutput));
+    consolePane = new ConsolePane(screen,
+        new Site(host, port, usesExtended3270 || printerOutput != null), socketFactory);
     consolePane.setConnectionTimeoutMillis(connectionTimeoutMillis);
     consolePane.setConnectionListener(connectionListener);
-    consolePane.connect();
+    consolePane.setTypeAheadEnabled(typeAheadEnabled);
+    return consolePane;
   }
 
   /**
@@ -106,6 +462,18 @@ public class TerminalClient {
    * @param text the text to set on the field.
    */
   public void setFieldTextByCoord(int row, int column, String text) {
+    submit(() -> doSetFieldTextByCoord(row, column, text));
+  }
+
+  private void submit(Runnable action) {
+    if (consolePane == null) {
+      action.run();
+    } else {
+      consolePane.submit(action);
+    }
+  }
+
+  private void doSetFieldTextByCoord(int row, int column, String text) {
     int linearPosition = (row - 1) * screen.getScreenDimensions().columns + column - 1;
     if (screen.getFieldManager().getFields().isEmpty()) {
       screen.setPositionText(linearPosition, text);
@@ -121,7 +489,7 @@ public class TerminalClient {
 
   private int findFieldNextPosition(String text) {
     int pos = text.length() - 1;
-    while (text.charAt(pos) == '\u0000' || text.charAt(pos) == ' ') {
+    while (pos >= 0 && (text.charAt(pos) == '\u0000' || text.charAt(pos) == ' ')) {
       pos--;
     }
     return pos + 1;
@@ -129,29 +497,32 @@ public class TerminalClient {
 
   private void setFieldText(Field field, String text) {
     field.setText(text);
-    int nextPosition = findFieldNextPosition(text);
-    int cursorPosition =
-        field.getDisplayLength() > nextPosition ? field.getFirstLocation() + nextPosition
-            : field.getNextUnprotectedField().getFirstLocation();
+    screen.getScreenCursor().moveTo(getCursorPositionAfter(field, text));
+  }
 
-    screen.getScreenCursor().moveTo(cursorPosition);
+  private int getCursorPositionAfter(Field field, String text) {
+    int nextPosition = findFieldNextPosition(text);
+    return field.getDisplayLength() > nextPosition ? field.getFirstLocation() + nextPosition
+        : field.getNextUnprotectedField().getFirstLocation();
   }
 
   public void setFieldTextByLabel(String lbl, String text) {
-    Field field = findFieldPositionByLabel(lbl);
-    if (field == null) {
-      throw new IllegalArgumentException("Invalid field label: " + lbl);
-    }
-    setFieldText(field, text);
+    submit(() -> doSetFieldTextByLabel(lbl, text));
   }
 
-  private Field findFieldPositionByLabel(String label) {
-    Field labelField = findLabelField(label);
-    return (labelField != null) ? labelField.getNextUnprotectedField() : null;
+  private void doSetFieldTextByLabel(String lbl, String text) {
+    setFieldText(findFieldByLabel(lbl, getScreenText()), text);
   }
 
-  private Field findLabelField(String label) {
-    String screenText = getScreenText();
+  private Field findFieldByLabel(String label, String screenText) {
+    Field labelField = findLabelField(label, screenText);
+    if (labelField == null) {
+      throw new IllegalArgumentException("Invalid field label: " + label);
+    }
+    return labelField.getNextUnprotectedField();
+  }
+
+  private Field findLabelField(String label, String screenText) {
     int pos = 0;
     Field fallbackLabelField = null;
     while (pos != -1) {
@@ -185,7 +556,78 @@ public class TerminalClient {
    * @param name Name of the action sent.
    */
   public void sendAID(byte aid, String name) {
-    consolePane.sendAID(aid, name);
+    consolePane.submit(() -> consolePane.sendAID(aid, name));
+  }
+
+  /**
+   * Sets the field values of a transaction, moves the cursor and sends its Action ID, as a single
+   * operation.
+   * <p>
+   * It has the same effect as setting each field text and then sending the Action ID, but labels
+   * are all looked up in the same screen text, the cursor is only moved (and {@link
+   * CursorMoveListener}s notified) once, and when a field can't be found nothing is changed nor
+   * sent. With the type-ahead buffer enabled the transaction is queued as a whole.
+   * <p>
+   * Fields are looked up on the screen the transaction is applied to. When it is queued in the
+   * type-ahead buffer that screen is not known yet, so a field that can't be found is not thrown
+   * to the caller but notified to the {@link ConnectionListener}, as with any other queued
+   * action.
+   *
+   * @param transaction the field values and Action ID to send.
+   * @throws IllegalArgumentException if any of the fields can't be found in the screen, when the
+   * transaction is applied right away.
+   */
+  public void send(FieldTransaction transaction) {
+    consolePane.submit(() -> doSend(transaction));
+  }
+
+  private void doSend(FieldTransaction transaction) {
+    List<FieldTransaction.FieldInput> inputs = transaction.getInputs();
+    FieldManager fieldManager = screen.getFieldManager();
+    int columns = screen.getScreenDimensions().columns;
+    boolean formatted = !fieldManager.getFields().isEmpty();
+
+    // resolve and encode everything first, so a missing field leaves the screen untouched
+    Field[] fields = new Field[inputs.size()];
+    byte[][] values = new byte[inputs.size()][];
+    String screenText = null;
+    for (int i = 0; i < fields.length; i++) {
+      FieldTransaction.FieldInput input = inputs.get(i);
+      if (input.getLabel() != null) {
+        if (screenText == null) {
+          screenText = getScreenText();
+        }
+        fields[i] = findFieldByLabel(input.getLabel(), screenText);
+      } else if (formatted) {
+        int position = (input.getRow() - 1) * columns + input.getColumn() - 1;
+        fields[i] = fieldManager.getFieldAt(position).orElseThrow(
+            () -> new IllegalArgumentException(
+                "Invalid field position " + input.getRow() + "," + input.getColumn()));
+      }
+      values[i] = screen.getCodec().encode(input.getText());
+    }
+
+    int cursorPosition = -1;
+    for (int i = 0; i < fields.length; i++) {
+      FieldTransaction.FieldInput input = inputs.get(i);
+      if (fields[i] != null) {
+        fields[i].erase();
+        fields[i].setText(values[i]);
+        cursorPosition = getCursorPositionAfter(fields[i], input.getText());
+      } else {
+        int position = (input.getRow() - 1) * columns + input.getColumn() - 1;
+        screen.setPositionText(position, values[i]);
+        cursorPosition = position + findFieldNextPosition(input.getText());
+      }
+    }
+    if (transaction.hasCursor()) {
+      cursorPosition = (transaction.getCursorRow() - 1) * columns
+          + transaction.getCursorColumn() - 1;
+    }
+    if (cursorPosition >= 0) {
+      screen.getScreenCursor().moveTo(cursorPosition);
+    }
+    consolePane.sendAID(transaction.getAid(), transaction.getAidName());
   }
 
   /**
@@ -194,23 +636,34 @@ public class TerminalClient {
    * @return The screen text with newlines separating each row.
    */
   public String getScreenText() {
-    StringBuilder text = new StringBuilder();
+    ScreenDimensions screenDimensions = screen.getScreenDimensions();
+    int columns = screenDimensions.columns;
+    int positionsCount = columns * screenDimensions.rows;
+    StringBuilder text = new StringBuilder(positionsCount + screenDimensions.rows);
+    // each row is decoded in one call, into the same chars
+    byte[] row = new byte[columns];
+    char[] chars = new char[columns];
     int pos = 0;
     boolean visible = true;
     Iterator<ScreenPosition> positionsIterator = screen.getPen().iterator();
-    ScreenDimensions screenDimensions = screen.getScreenDimensions();
-    int positionsCount = screenDimensions.columns * screenDimensions.rows;
+    EbcdicCodec codec = screen.getCodec();
     while (pos < positionsCount && positionsIterator.hasNext()) {
       ScreenPosition sp = positionsIterator.next();
       if (sp.isStartField()) {
         visible = sp.getStartFieldAttribute().isVisible();
       }
-      text.append(visible ? sp.getChar() : ' ');
+      row[pos % columns] = visible ? sp.getDisplayByte(codec) : ScreenPosition.SPACE;
       ++pos;
-      if (pos % screenDimensions.columns == 0) {
-        text.append("\n");
+      if (pos % columns == 0) {
+        codec.decode(row, 0, columns, chars, 0);
+        text.append(chars).append('\n');
       }
     }
+    int remaining = pos % columns;
+    if (remaining > 0) {
+      codec.decode(row, 0, remaining, chars, 0);
+      text.append(chars, 0, remaining);
+    }
     return text.toString();
   }
 
@@ -1,22 +1,42 @@
 package com.bytezone.dm3270.application;
 
 import com.bytezone.dm3270.ConnectionListener;
-import com.bytezone.dm3270.commands.Command;
+import com.bytezone.dm3270.buffers.RecordEncoder;
+import com.bytezone.dm3270.commands.AIDCommand;
 import com.bytezone.dm3270.display.CursorMoveListener;
 import com.bytezone.dm3270.display.Field;
 import com.bytezone.dm3270.display.FieldChangeListener;
 import com.bytezone.dm3270.display.Screen;
-import com.bytezone.dm3270.extended.CommandHeader;
-import com.bytezone.dm3270.extended.TN3270ExtendedCommand;
+import com.bytezone.dm3270.metrics.SessionInfo;
+import com.bytezone.dm3270.streams.SocketConnector;
 import com.bytezone.dm3270.streams.TelnetListener;
 import com.bytezone.dm3270.streams.TelnetState;
 import com.bytezone.dm3270.streams.TerminalServer;
-import com.bytezone.dm3270.utilities.Dm3270Utility;
+import com.bytezone.dm3270.telnet.TN3270ExtendedSubcommand;
 import com.bytezone.dm3270.utilities.Site;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 import javax.net.SocketFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ConsolePane implements FieldChangeListener, CursorMoveListener,
-    KeyboardStatusListener {
+    KeyboardStatusListener, ConnectionListener, SessionInfo {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConsolePane.class);
+
+  private static final byte TN3270_DATA = 0x00;
+  private static final byte SSCP_LU_DATA = 0x07;
+  // AID replies are usually small, the encoder of a larger one is dropped after use
+  private static final int REPLY_CAPACITY = 512;
+  private static final int RETAINED_REPLY_CAPACITY = 4096;
 
   private final Screen screen;
 
@@ -24,16 +44,26 @@ public class ConsolePane implements FieldChangeListener, CursorMoveListener,
   private final Site server;
   private final SocketFactory socketFactory;
 
+  private final TypeAheadBuffer typeAheadBuffer;
+  // own lock, so a write blocked on the socket doesn't keep disconnect from closing it
+  private final Object encoderLock = new Object();
+  private RecordEncoder encoder;                // allocated on the first AID sent
+
   private TerminalServer terminalServer;
   private Thread terminalServerThread;
   private int connectionTimeoutMillis;
+  private long connectionAttemptDelayMillis = SocketConnector.DEFAULT_ATTEMPT_DELAY_MILLIS;
   private ConnectionListener connectionListener;
+  private CompletableFuture<Socket> pendingConnection;
+  private final AtomicBoolean connecting = new AtomicBoolean();
+  private final AtomicBoolean connected = new AtomicBoolean();
 
   public ConsolePane(Screen screen, Site server, SocketFactory socketFactory) {
     this.screen = screen;
     this.telnetState = screen.getTelnetState();
     this.server = server;
     this.socketFactory = socketFactory;
+    this.typeAheadBuffer = new TypeAheadBuffer(screen, this::onException);
 
     screen.setConsolePane(this);
     screen.getScreenCursor().addFieldChangeListener(this);
@@ -44,10 +74,23 @@ public class ConsolePane implements FieldChangeListener, CursorMoveListener,
     this.connectionTimeoutMillis = connectionTimeoutMillis;
   }
 
+  public void setConnectionAttemptDelayMillis(long connectionAttemptDelayMillis) {
+    this.connectionAttemptDelayMillis = connectionAttemptDelayMillis;
+  }
+
   public void setConnectionListener(ConnectionListener connectionListener) {
     this.connectionListener = connectionListener;
   }
 
+  public void setTypeAheadEnabled(boolean typeAheadEnabled) {
+    typeAheadBuffer.setEnabled(typeAheadEnabled);
+  }
+
+  // runs the action now, or once the host restores the keyboard when type-ahead is on
+  public void submit(Runnable action) {
+    typeAheadBuffer.submit(action);
+  }
+
   public void sendAID(byte aid, String name) {
     if (screen.isInsertMode()) {
       screen.toggleInsertMode();
@@ -56,25 +99,31 @@ public class ConsolePane implements FieldChangeListener, CursorMoveListener,
     screen.lockKeyboard(name);
     screen.setAID(aid);
 
-    Command command = screen.readModifiedFields();
-    sendAID(command);
+    sendAID(AIDCommand.getKeyName(aid));
   }
 
-  private void sendAID(Command command) {
+  // header, AID reply and telnet framing are packed in one pass into the session encoder
+  private void sendAID(String key) {
     assert telnetState != null;
 
-    if (telnetState.does3270Extended()) {
-      byte[] buffer = new byte[5];
-      if (screen.isSscpLuData()) {
-        buffer[0] = 0x07;
+    synchronized (encoderLock) {
+      if (encoder == null) {
+        encoder = new RecordEncoder(REPLY_CAPACITY, true);
+      }
+      encoder.startRecord();
+      int seq = -1;
+      if (telnetState.does3270Extended()) {
+        seq = telnetState.nextCommandHeaderSeq() & 0xFFFF;
+        encoder.putHeader(screen.isSscpLuData() ? SSCP_LU_DATA : TN3270_DATA, seq);
+      }
+      screen.packModifiedFields(encoder);
+      encoder.endRecord();
+      telnetState.getResponseTimer().aidSending(key, seq);
+      telnetState.write(encoder.getBuffer(), encoder.getLength());
+      telnetState.getResponseTimer().aidSent();
+      if (encoder.getBuffer().length > RETAINED_REPLY_CAPACITY) {
+        encoder = null;
       }
-      Dm3270Utility.packUnsignedShort(telnetState.nextCommandHeaderSeq(), buffer, 3);
-      CommandHeader header = new CommandHeader(buffer);
-      TN3270ExtendedCommand extendedCommand = new TN3270ExtendedCommand(header, command,
-          telnetState);
-      telnetState.write(extendedCommand.getTelnetData());
-    } else {
-      telnetState.write(command.getTelnetData());
     }
   }
 
@@ -83,15 +132,63 @@ public class ConsolePane implements FieldChangeListener, CursorMoveListener,
       throw new IllegalArgumentException("Server must not be null");
     }
 
+    telnetState.startNegotiation();
+    reportConnecting();
+    startTerminalServer(
+        new TerminalServer(server.getURL(), server.getPort(), socketFactory, createListener()));
+  }
+
+  // the future completes when negotiations are over, or when the connection fails
+  public CompletableFuture<Void> connectAsync(List<InetSocketAddress> addresses) {
+    if (server == null) {
+      throw new IllegalArgumentException("Server must not be null");
+    }
+
+    CompletableFuture<Void> negotiation = telnetState.startNegotiation();
+    reportConnecting();
+    SocketConnector connector =
+        new SocketConnector(socketFactory, connectionTimeoutMillis, connectionAttemptDelayMillis);
+    CompletableFuture<Socket> connection = connector.connect(addresses);
+    pendingConnection = connection;
+
+    connection.whenComplete((socket, ex) -> {
+      if (ex == null) {
+        startTerminalServer(new TerminalServer(socket, createListener()));
+      } else if (!(ex instanceof CancellationException)) {
+        onException(ex instanceof Exception ? (Exception) ex : new IOException(ex));
+      }
+    });
+
+    // cancelling the negotiation also aborts the connection attempts
+    negotiation.whenComplete((result, ex) -> {
+      if (ex instanceof CancellationException) {
+        connection.cancel(false);
+      }
+    });
+    return negotiation;
+  }
+
+  private void reportConnecting() {
+    connecting.set(true);
+    telnetState.getSessionMetrics().connecting(telnetState.hasConnected());
+  }
+
+  private TelnetListener createListener() {
     // set preferences for this session
     telnetState.setDo3270Extended(server.getExtended());
     telnetState.setDoTerminalType(true);
 
     TelnetListener telnetListener = new TelnetListener(screen, telnetState);
-    terminalServer =
-        new TerminalServer(server.getURL(), server.getPort(), socketFactory, telnetListener);
+    telnetListener.setTypeAheadBuffer(typeAheadBuffer);
+    return telnetListener;
+  }
+
+  private synchronized void startTerminalServer(TerminalServer terminalServer) {
+    this.terminalServer = terminalServer;
     terminalServer.setConnectionTimeoutMillis(connectionTimeoutMillis);
-    terminalServer.setConnectionListener(connectionListener);
+    terminalServer.setConnectionListener(this);
+    terminalServer.setSessionMetrics(telnetState.getSessionMetrics());
+    terminalServer.setResponseTimer(telnetState.getResponseTimer());
     telnetState.setTerminalServer(terminalServer);
 
     terminalServerThread = new Thread(terminalServer);
@@ -99,16 +196,108 @@ public class ConsolePane implements FieldChangeListener, CursorMoveListener,
   }
 
   public void disconnect() throws InterruptedException {
+    typeAheadBuffer.clear();
+    if (pendingConnection != null) {
+      pendingConnection.cancel(false);
+    }
     telnetState.close();
+    telnetState.setFileTransferFailed(new IOException("Disconnected from terminal server"));
+
+    Thread thread;
+    synchronized (this) {
+      if (terminalServer != null) {
+        terminalServer.close();
+      }
+      thread = terminalServerThread;
+    }
 
-    if (terminalServer != null) {
-      terminalServer.close();
+    if (thread != null) {
+      thread.interrupt();
+      thread.join();
     }
+    reportDisconnected();
+  }
 
-    if (terminalServerThread != null) {
-      terminalServerThread.interrupt();
-      terminalServerThread.join();
+  private void reportDisconnected() {
+    if (connecting.compareAndSet(true, false)) {
+      telnetState.getSessionMetrics().connectFailed();
     }
+    if (connected.compareAndSet(true, false)) {
+      telnetState.getSessionMetrics().disconnected(this);
+    }
+  }
+
+  @Override
+  public void onConnection() {
+    connecting.set(false);
+    connected.set(true);
+    telnetState.getSessionMetrics().connected(this);
+    if (connectionListener != null) {
+      connectionListener.onConnection();
+    }
+  }
+
+  @Override
+  public void onException(Exception ex) {
+    telnetState.setNegotiationFailed(ex);
+    telnetState.getSessionMetrics().exceptionNotified(ex);
+    if (connecting.compareAndSet(true, false)) {
+      telnetState.getSessionMetrics().connectFailed();
+    }
+    if (connectionListener != null) {
+      connectionListener.onException(ex);
+    } else {
+      LOG.error("Problem with the terminal session", ex);
+    }
+  }
+
+  @Override
+  public void onConnectionClosed() {
+    telnetState.setNegotiationFailed(new IOException("Connection closed by terminal server"));
+    telnetState.setFileTransferFailed(new IOException("Connection closed by terminal server"));
+    telnetState.closePrinter();
+    reportDisconnected();
+    if (connectionListener != null) {
+      connectionListener.onConnectionClosed();
+    }
+  }
+
+  @Override
+  public String getHost() {
+    return server.getURL();
+  }
+
+  @Override
+  public int getPort() {
+    return server.getPort();
+  }
+
+  @Override
+  public boolean isExtended() {
+    return telnetState.does3270Extended();
+  }
+
+  @Override
+  public String getModel() {
+    String deviceType = telnetState.getDeviceType();
+    return deviceType.isEmpty() ? telnetState.getTerminal() : deviceType;
+  }
+
+  @Override
+  public List<String> getFunctions() {
+    List<TN3270ExtendedSubcommand.Function> functions = telnetState.getFunctions();
+    return functions == null ? Collections.emptyList()
+        : functions.stream().map(Enum::name).collect(Collectors.toList());
+  }
+
+  @Override
+  public long getLastAccessMillis() {
+    return telnetState.getLastAccess();
+  }
+
+  @Override
+  public boolean isKeyboardLocked() {
+    return screen.isKeyboardLocked();
   }
 
   @Override
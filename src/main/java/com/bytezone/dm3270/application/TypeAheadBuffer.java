@@ -0,0 +1,76 @@
+package com.bytezone.dm3270.application;
+
+import com.bytezone.dm3270.display.Screen;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.Consumer;
+
+/*
+ * Keeps the actions (field fills and AIDs) typed while the keyboard is locked, the
+ * way a real terminal does. Queued actions are run on the session's thread as soon as
+ * a record that restores the keyboard has been completely processed, so they always
+ * see the new screen. Running stops again when one of them locks the keyboard (an AID).
+ */
+public class TypeAheadBuffer {
+
+  private final Screen screen;
+  private final Queue<Runnable> actions = new ArrayDeque<>();
+  private final Consumer<RuntimeException> exceptionHandler;
+
+  private boolean enabled;
+  private boolean held;              // a record is being processed
+
+  public TypeAheadBuffer(Screen screen, Consumer<RuntimeException> exceptionHandler) {
+    this.screen = screen;
+    this.exceptionHandler = exceptionHandler;
+  }
+
+  public synchronized void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    if (!enabled) {
+      actions.clear();
+    }
+  }
+
+  public synchronized boolean isEnabled() {
+    return enabled;
+  }
+
+  // runs the action now when possible, otherwise keeps it until the keyboard is restored
+  public synchronized void submit(Runnable action) {
+    if (enabled && (held || screen.isKeyboardLocked() || !actions.isEmpty())) {
+      actions.add(action);
+    } else {
+      action.run();
+    }
+  }
+
+  // called by the TelnetListener before a record is applied to the screen
+  public synchronized void hold() {
+    held = true;
+  }
+
+  // called by the TelnetListener once the record (and its reply) has been processed
+  public synchronized void release() {
+    held = false;
+
+    while (!actions.isEmpty() && !screen.isKeyboardLocked()) {
+      try {
+        actions.remove().run();
+      } catch (RuntimeException ex) {
+        // the remaining actions were typed for a screen we are not on
+        actions.clear();
+        exceptionHandler.accept(ex);
+      }
+    }
+  }
+
+  public synchronized int size() {
+    return actions.size();
+  }
+
+  public synchronized void clear() {
+    actions.clear();
+  }
+
+}
@@ -36,6 +36,14 @@ public class StartFieldAttribute extends Attribute {
     isHighIntensity = display == 2;
   }
 
+  // screens get their own copy, as the MDT set by the user must not change the parsed order
+  public StartFieldAttribute copy() {
+    StartFieldAttribute copy = new StartFieldAttribute(attributeValue);
+    copy.isExtended = isExtended;
+    copy.userModified = userModified;
+    return copy;
+  }
+
   public void setExtended() {
     isExtended = true;
   }
@@ -86,7 +94,7 @@ public class StartFieldAttribute extends Attribute {
 
     Color color = isHighIntensity ? isProtected ? WHITE : RED : isProtected ? BLUE : GREEN;
 
-    return new ScreenContext(color, BLACK, (byte) 0, isHighIntensity);
+    return ScreenContext.of(color, BLACK, (byte) 0, isHighIntensity);
   }
 
   private String getColorName() {
@@ -0,0 +1,91 @@
+package com.bytezone.dm3270.buffers;
+
+import com.bytezone.dm3270.orders.BufferAddress;
+import com.bytezone.dm3270.telnet.TelnetCommand;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
+
+/*
+ * Builds an outbound record in a reusable array, in a single pass. When telnet framing is on
+ * every IAC is doubled as it is written and the record is closed with IAC EOR, so the array can
+ * be written to the socket as is, without the intermediate copies getTelnetData() makes. Without
+ * framing it holds the plain record data, as needed to build a Command.
+ *
+ * The contents are only valid until the next record is started.
+ */
+public final class RecordEncoder {
+
+  private final boolean telnetFraming;
+  private byte[] buffer;
+  private int length;
+
+  public RecordEncoder(int capacity, boolean telnetFraming) {
+    this.buffer = new byte[capacity];
+    this.telnetFraming = telnetFraming;
+  }
+
+  public RecordEncoder startRecord() {
+    length = 0;
+    return this;
+  }
+
+  // the 5 byte TN3270E header, with no request or response flags
+  public void putHeader(byte dataType, int seq) {
+    put(dataType);
+    put((byte) 0);
+    put((byte) 0);
+    put((byte) (seq >> 8));
+    put((byte) seq);
+  }
+
+  public void put(byte value) {
+    if (length + 2 > buffer.length) {
+      grow();
+    }
+    buffer[length++] = value;
+    if (value == TelnetCommand.IAC && telnetFraming) {
+      buffer[length++] = value;
+    }
+  }
+
+  public void put(byte[] values, int offset, int count) {
+    for (int i = 0; i < count; i++) {
+      put(values[offset + i]);
+    }
+  }
+
+  public void putAddress(int location) {
+    put(BufferAddress.ADDRESS[location >> 6]);
+    put(BufferAddress.ADDRESS[location & 0x3F]);
+  }
+
+  public void endRecord() {
+    if (telnetFraming) {
+      if (length + 2 > buffer.length) {
+        grow();
+      }
+      buffer[length++] = TelnetCommand.IAC;
+      buffer[length++] = TelnetProcessor.EOR;
+    }
+  }
+
+  private void grow() {
+    byte[] newBuffer = new byte[buffer.length * 2];
+    System.arraycopy(buffer, 0, newBuffer, 0, length);
+    buffer = newBuffer;
+  }
+
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  public byte[] toByteArray() {
+    byte[] data = new byte[length];
+    System.arraycopy(buffer, 0, data, 0, length);
+    return data;
+  }
+
+}
@@ -114,7 +114,7 @@ public class AIDCommand extends Command implements BufferAddressSource, Iterable
     }
   }
 
-  private int findKey(byte keyCommand) {
+  private static int findKey(byte keyCommand) {
     // starts at offset 1
     for (int i = 1; i < keys.length; i++) {
       if (keys[i] == keyCommand) {
@@ -124,6 +124,11 @@ public class AIDCommand extends Command implements BufferAddressSource, Iterable
     return 0;
   }
 
+  // short name of an AID key, for example ENTR or PF3
+  public static String getKeyName(byte keyCommand) {
+    return keyNames[findKey(keyCommand)];
+  }
+
   // copy modified fields back to the screen - only used in Replay mode
   // Normally an AID is a reply command (which never has process() called)
   // Testing out whether the plugin reply should pass through here.
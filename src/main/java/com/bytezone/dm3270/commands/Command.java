@@ -79,7 +79,7 @@ public abstract class Command extends AbstractTN3270Command {
    *    2) ReadPartitionSF - one of RB/RM/RMA, or a Query command
    *    3) SetReplyModeSF  - field/extended field/character mode
    *    4) EraseResetSF
-   *    5) FileTransferOutbound - IND$FILE
+   *    5) FileTransferOutboundSF - IND$FILE (DFT mode)
    *
    *    process ()  : calls process () on each command
    *    getReply () : calls getReply () on each command
@@ -0,0 +1,141 @@
+package com.bytezone.dm3270.commands;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Write commands already parsed, shared by any number of sessions so records received over
+ * and over (logon banners, menus, the same inquiry screen) are parsed once. Entries are found
+ * by a hash of the record bytes and verified against the bytes kept by the command, so a
+ * collision is only a miss.
+ *
+ * It is a direct mapped table of a fixed number of slots: a new record takes the slot of its
+ * hash, replacing whatever was there. Lookups and updates never lock, and memory is bounded by
+ * the slots and the largest record cached.
+ *
+ * Only Write, Erase Write and Erase Write Alternate commands are cached: processing them never
+ * changes them (each screen gets its own copy of the start field attributes), while reads and
+ * structured fields build replies from the screen they are processed on.
+ */
+public class CommandCache {
+
+  public static final int DEFAULT_SLOTS = 1024;
+  public static final int DEFAULT_MAX_RECORD_LENGTH = 16 * 1024;
+
+  private final AtomicReferenceArray<Entry> slots;
+  private final int mask;
+  private final int maxRecordLength;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public CommandCache() {
+    this(DEFAULT_SLOTS, DEFAULT_MAX_RECORD_LENGTH);
+  }
+
+  // slots are rounded up to a power of 2, longer records are parsed without being cached
+  public CommandCache(int slots, int maxRecordLength) {
+    if (slots <= 0) {
+      throw new IllegalArgumentException("Slots must be positive: " + slots);
+    }
+    int size = Integer.highestOneBit(slots);
+    if (size < slots) {
+      size <<= 1;
+    }
+    this.slots = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+    this.maxRecordLength = maxRecordLength;
+  }
+
+  // the command for the record, parsed only if it is not cached
+  public Command getCommand(byte[] buffer, int offset, int length) {
+    if (!isCacheable(buffer, offset, length)) {
+      return Command.getCommand(buffer, offset, length);
+    }
+
+    long hash = hash(buffer, offset, length);
+    int slot = (int) (hash ^ (hash >>> 32)) & mask;
+    Entry entry = slots.get(slot);
+    if (entry != null && entry.matches(hash, buffer, offset, length)) {
+      hits.increment();
+      return entry.command;
+    }
+
+    misses.increment();
+    Command command = Command.getCommand(buffer, offset, length);
+    slots.set(slot, new Entry(hash, command));
+    return command;
+  }
+
+  private boolean isCacheable(byte[] buffer, int offset, int length) {
+    if (length <= 0 || length > maxRecordLength) {
+      return false;
+    }
+    switch (buffer[offset]) {
+      case Command.WRITE_F1:
+      case Command.WRITE_01:
+      case Command.ERASE_WRITE_F5:
+      case Command.ERASE_WRITE_05:
+      case Command.ERASE_WRITE_ALTERNATE_7E:
+      case Command.ERASE_WRITE_ALTERNATE_0D:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  // FNV-1a, 64 bit
+  private static long hash(byte[] buffer, int offset, int length) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = offset, max = offset + length; i < max; i++) {
+      hash ^= buffer[i] & 0xFF;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public void clear() {
+    for (int i = 0; i < slots.length(); i++) {
+      slots.set(i, null);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("slots ........... %,d%n", slots.length())
+        + String.format("hits/misses ..... %,d / %,d", getHitCount(), getMissCount());
+  }
+
+  private static final class Entry {
+
+    private final long hash;
+    private final Command command;
+
+    private Entry(long hash, Command command) {
+      this.hash = hash;
+      this.command = command;
+    }
+
+    private boolean matches(long hash, byte[] buffer, int offset, int length) {
+      byte[] data = command.getData();                // a copy of the record
+      if (this.hash != hash || data.length != length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (data[i] != buffer[offset + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+}
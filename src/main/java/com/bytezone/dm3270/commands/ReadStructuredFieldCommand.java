@@ -4,6 +4,7 @@ import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.display.ScreenDimensions;
 import com.bytezone.dm3270.replyfield.CharacterSets;
 import com.bytezone.dm3270.replyfield.Color;
+import com.bytezone.dm3270.replyfield.DistributedDataManagement;
 import com.bytezone.dm3270.replyfield.Highlight;
 import com.bytezone.dm3270.replyfield.ImplicitPartition;
 import com.bytezone.dm3270.replyfield.QueryReplyField;
@@ -16,6 +17,8 @@ import com.bytezone.dm3270.structuredfields.StructuredField;
 import com.bytezone.dm3270.utilities.Dm3270Utility;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,12 +29,13 @@ public class ReadStructuredFieldCommand extends Command {
   private static final String SEPARATOR =
       "\n-------------------------------------------------------------------------";
 
-  private final List<StructuredField> structuredFields = new ArrayList<>();
+  // replies only depend on the screen size and file transfer buffer, so each one is built once
+  private static final Map<Long, byte[]> REPLIES = new ConcurrentHashMap<>();
 
-  private ScreenDimensions screenDimensions;
+  private List<StructuredField> structuredFields;      // parsed when first shown
 
   public ReadStructuredFieldCommand(TelnetState telnetState) {
-    this(buildReply(telnetState));
+    this(getReply(telnetState.getSecondary(), telnetState.getFileTransferBufferSize()));
   }
 
   private ReadStructuredFieldCommand(byte[] buffer) {
@@ -42,6 +46,14 @@ public class ReadStructuredFieldCommand extends Command {
     super(buffer, offset, length);
 
     assert data[0] == AIDCommand.AID_STRUCTURED_FIELD;
+  }
+
+  // the reply fields are only needed to show the command, so they are not loaded before
+  private List<StructuredField> getStructuredFields() {
+    if (structuredFields != null) {
+      return structuredFields;
+    }
+    structuredFields = new ArrayList<>();
 
     int ptr = 1;
     int max = data.length;
@@ -65,21 +77,23 @@ public class ReadStructuredFieldCommand extends Command {
       ptr += size;
     }
 
-    if (replies.size() > 0) {
-      for (QueryReplyField reply : replies) {
-        reply.addReplyFields(replies);         // allow each QRF to see all the others
-        if (screenDimensions == null && reply instanceof UsableArea) {
-          screenDimensions = ((UsableArea) reply).getScreenDimensions();
-        }
-      }
+    for (QueryReplyField reply : replies) {
+      reply.addReplyFields(replies);         // allow each QRF to see all the others
     }
+    return structuredFields;
+  }
+
+  private static byte[] getReply(ScreenDimensions screenDimensions, int fileTransferBufferSize) {
+    long key = (long) fileTransferBufferSize << 32 | screenDimensions.rows << 16
+        | screenDimensions.columns;
+    return REPLIES.computeIfAbsent(key, k -> buildReply(screenDimensions, fileTransferBufferSize));
   }
 
-  private static byte[] buildReply(TelnetState telnetState) {
+  private static byte[] buildReply(ScreenDimensions screenDimensions,
+      int fileTransferBufferSize) {
     Highlight highlight = new Highlight();
     Color color = new Color();
 
-    ScreenDimensions screenDimensions = telnetState.getSecondary();
     ImplicitPartition partition =
         new ImplicitPartition(screenDimensions.rows, screenDimensions.columns);
 
@@ -91,6 +105,7 @@ public class ReadStructuredFieldCommand extends Command {
     replyFields.add(partition);
     replyFields.add(new ReplyModes());
     replyFields.add(new CharacterSets());
+    replyFields.add(new DistributedDataManagement(fileTransferBufferSize));
 
     // calculate the size of the reply record
     int replyLength = 1;
@@ -125,6 +140,7 @@ public class ReadStructuredFieldCommand extends Command {
 
   @Override
   public String toString() {
+    List<StructuredField> structuredFields = getStructuredFields();
     StringBuilder text =
         new StringBuilder(String.format("RSF (%d):", structuredFields.size()));
 
@@ -80,13 +80,6 @@ public class WriteCommand extends Command {
       }
     }
 
-    // should check for suppressDisplay
-    if (!screen.isKeyboardLocked() && screen.getFieldManager().size() > 0) {
-      if (orders.size() > 0 || !writeControlCharacter.isResetModified()) {
-        setReply(null);
-      }
-    }
-
     if (screenDrawRequired) {
       screen.draw();
     }
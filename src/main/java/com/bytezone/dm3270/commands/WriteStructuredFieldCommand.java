@@ -3,6 +3,7 @@ package com.bytezone.dm3270.commands;
 import com.bytezone.dm3270.buffers.Buffer;
 import com.bytezone.dm3270.buffers.MultiBuffer;
 import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.filetransfer.FileTransferOutboundSF;
 import com.bytezone.dm3270.structuredfields.DefaultStructuredField;
 import com.bytezone.dm3270.structuredfields.EraseResetSF;
 import com.bytezone.dm3270.structuredfields.Outbound3270DS;
@@ -70,6 +71,11 @@ public class WriteStructuredFieldCommand extends Command {
           structuredFields.add(new EraseResetSF(buffer, ptr, size));
           break;
 
+        // IND$FILE in DFT mode
+        case StructuredField.FILE_TRANSFER:
+          structuredFields.add(new FileTransferOutboundSF(buffer, ptr, size));
+          break;
+
         default:
           structuredFields.add(new DefaultStructuredField(buffer, ptr, size));
           break;
@@ -64,7 +64,7 @@ public class Cursor {
         currentField.push(start, end);
       }
 
-      screen.getScreenPosition(currentPosition).setChar(value);
+      screen.getWritablePosition(currentPosition).setChar(value);
       currentField.setModified(true);
 
       int newPosition = screen.validate(currentPosition + 1);
@@ -1,11 +1,15 @@
 package com.bytezone.dm3270.display;
 
+import com.bytezone.dm3270.utilities.EbcdicCodec;
+
 public interface DisplayScreen {
 
   Pen getPen();
 
   ScreenDimensions getScreenDimensions();
 
+  EbcdicCodec getCodec();
+
   ScreenPosition getScreenPosition(int position);
 
   int validate(int position);
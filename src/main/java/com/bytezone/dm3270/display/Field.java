@@ -1,11 +1,10 @@
 package com.bytezone.dm3270.display;
 
 import com.bytezone.dm3270.attributes.StartFieldAttribute;
-
-import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,23 +19,58 @@ public class Field implements Iterable<ScreenPosition> {
   private final int endPosition;          // last data position of this field
   // unprotected fields
   private Field next;
+  private int ordinal = -1;               // index in the FieldManager that built it
 
-  private final StartFieldAttribute startFieldAttribute;
-  private final List<ScreenPosition> screenPositions;
+  private final StartFieldAttribute startFieldAttribute;   // as built, see getStartField()
+  private final ScreenRows screenRows;
+  private final int offset;               // of the StartFieldAttribute in screenRows
   private final ScreenDimensions screenDimensions;
-  
+
   public Field(Screen screen, List<ScreenPosition> positions) {
+    this(screen, new ScreenRows(positions.toArray(new ScreenPosition[0]), positions.size()), 0,
+        positions.get(0).getPosition(), positions.get(positions.size() - 1).getPosition());
+  }
+
+  // built by FieldManager on the screen positions
+  Field(Screen screen, int startPosition, int endPosition) {
+    this(screen, screen.getScreenRows(), startPosition, startPosition, endPosition);
+  }
+
+  private Field(Screen screen, ScreenRows screenRows, int offset, int startPosition,
+      int endPosition) {
     this.screen = screen;
     this.screenDimensions = screen.getScreenDimensions();
+    this.screenRows = screenRows;
+    this.offset = offset;
+    this.startPosition = startPosition;
+    this.endPosition = endPosition;
+    startFieldAttribute = screenRows.get(offset).getStartFieldAttribute();
+  }
+
+  // the attribute moves to a new position when its row is copied from a shared one, a field from
+  // a previous screen keeps the one it was built with
+  private StartFieldAttribute getStartField() {
+    return isOnScreen() ? screenRows.get(offset).getStartFieldAttribute() : startFieldAttribute;
+  }
+
+  private boolean isOnScreen() {
+    return ordinal < 0 || screen.getFieldManager().isCurrent(this);
+  }
+
+  private ScreenPosition getPosition(int index) {
+    return screenRows.get(offset + index);
+  }
 
-    ScreenPosition firstScreenPosition = positions.get(0);
-    ScreenPosition lastScreenPosition = positions.get(positions.size() - 1);
+  private ScreenPosition getWritablePosition(int index) {
+    return screenRows.getWritable(offset + index);
+  }
 
-    screenPositions = new ArrayList<>(positions);
-    startFieldAttribute = firstScreenPosition.getStartFieldAttribute();
+  void setOrdinal(int ordinal) {
+    this.ordinal = ordinal;
+  }
 
-    startPosition = firstScreenPosition.getPosition();
-    endPosition = lastScreenPosition.getPosition();
+  int getOrdinal() {
+    return ordinal;
   }
 
   // link two unprotected fields to each other
@@ -56,7 +90,11 @@ public class Field implements Iterable<ScreenPosition> {
   }
 
   public int getDisplayLength() {
-    return screenPositions.size() - 1;
+    return endPosition - startPosition;
+  }
+
+  int getStartPosition() {
+    return startPosition;
   }
 
   public int getFirstLocation() {
@@ -72,27 +110,37 @@ public class Field implements Iterable<ScreenPosition> {
   }
 
   public boolean isHidden() {
-    return startFieldAttribute.isHidden();
+    return getStartField().isHidden();
   }
 
   public boolean isProtected() {
-    return startFieldAttribute.isProtected();
+    return getStartField().isProtected();
   }
 
   public boolean isUnprotected() {
-    return !startFieldAttribute.isProtected();
+    return !getStartField().isProtected();
   }
 
   public boolean isModified() {
-    return startFieldAttribute.isModified();
+    return getStartField().isModified();
   }
 
   public boolean isVisible() {
-    return startFieldAttribute.isVisible();
+    return getStartField().isVisible();
   }
 
   public void setModified(boolean modified) {
-    startFieldAttribute.setModified(modified);
+    StartFieldAttribute attribute = getStartField();
+    if (attribute.isModified() != modified) {
+      if (isOnScreen()) {
+        // the attribute of a shared row is never changed, the row is copied first
+        attribute = getWritablePosition(0).getStartFieldAttribute();
+      }
+      attribute.setModified(modified);
+    }
+    if (ordinal >= 0) {
+      screen.getFieldManager().modifiedChanged(this);
+    }
   }
 
   public boolean contains(int position) {
@@ -103,8 +151,8 @@ public class Field implements Iterable<ScreenPosition> {
   }
 
   public void erase() {
-    for (int i = 1; i < screenPositions.size(); i++) {
-      screenPositions.get(i).setChar((byte) 0);
+    for (int i = 1; i <= getDisplayLength(); i++) {
+      getWritablePosition(i).setChar((byte) 0);
     }
     setModified(true);
   }
@@ -115,17 +163,17 @@ public class Field implements Iterable<ScreenPosition> {
       setModified(true);
     }
 
-    for (int i = 1; i < screenPositions.size(); i++) {
-      screenPositions.get(i).setChar((byte) 0);         // leave screenContext
+    for (int i = 1; i <= getDisplayLength(); i++) {
+      getWritablePosition(i).setChar((byte) 0);         // leave screenContext
     }
   }
 
   // overwrites each position with the position to its left (insert)
   // called from Cursor.typeChar()
   public void push(int first, int last) {
-    ScreenPosition spLast = screenPositions.get(last);
+    ScreenPosition spLast = getWritablePosition(last);
     while (first < last) {
-      ScreenPosition sp = screenPositions.get(--last);
+      ScreenPosition sp = getWritablePosition(--last);
       spLast.setChar(sp.getByte());
       spLast.setScreenContext(sp.getScreenContext());
       spLast = sp;
@@ -133,7 +181,7 @@ public class Field implements Iterable<ScreenPosition> {
   }
 
   public byte getByteAt(int position) {
-    return screenPositions.get(position).getByte();
+    return getPosition(position).getByte();
   }
 
   public String getText() {
@@ -141,37 +189,35 @@ public class Field implements Iterable<ScreenPosition> {
       return "";
     }
 
-    char[] buffer = new char[getDisplayLength()];
+    byte[] buffer = new byte[getDisplayLength()];
     int ptr = 0;
+    EbcdicCodec codec = screen.getCodec();
 
-    for (ScreenPosition screenPosition : screenPositions) {
+    for (int i = 0; i <= getDisplayLength(); i++) {
+      ScreenPosition screenPosition = getPosition(i);
       // skip the start field attribute
       if (!screenPosition.isStartField()) {
         if (ptr < buffer.length) {
-          buffer[ptr++] = screenPosition.getChar();
+          buffer[ptr++] = screenPosition.getDisplayByte(codec);
         } else {
           LOG.warn("Too long: {}", ptr);
         }
       }
     }
 
-    return new String(buffer);
+    return codec.decode(buffer, 0, buffer.length);
   }
 
   public void setText(String text) {
-    try {
-      erase();                                     // sets the field to modified
-      setText(text.getBytes("CP1047"));
-    } catch (UnsupportedEncodingException e) {
-      e.printStackTrace();
-    }
+    erase();                                       // sets the field to modified
+    setText(screen.getCodec().encode(text));
   }
 
   public void setText(byte[] buffer) {
     int ptr = 1;
     for (byte b : buffer) {
-      if (ptr < screenPositions.size()) {
-        screenPositions.get(ptr++).setChar(b);
+      if (ptr <= getDisplayLength()) {
+        getWritablePosition(ptr++).setChar(b);
       } else {
         LOG.warn("Buffer overrun");
         break;
@@ -182,7 +228,7 @@ public class Field implements Iterable<ScreenPosition> {
   @Override
   public String toString() {
     return String.format("%04d-%04d %s [%s]", startPosition, endPosition,
-        startFieldAttribute.getAcronym(), getText());
+        getStartField().getAcronym(), getText());
   }
 
   @Override
@@ -196,18 +242,34 @@ public class Field implements Iterable<ScreenPosition> {
     Field that = (Field) o;
     return startPosition == that.startPosition &&
         endPosition == that.endPosition &&
-        startFieldAttribute.getAcronym().equals(that.startFieldAttribute.getAcronym()) && 
+        getStartField().getAcronym().equals(that.getStartField().getAcronym()) &&
         getText().equals(that.getText());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(startPosition, endPosition, startFieldAttribute.getAcronym(), getText());
+    return Objects.hash(startPosition, endPosition, getStartField().getAcronym(), getText());
   }
 
+  // the positions are read only, as those of Screen.getScreenPosition()
   @Override
   public Iterator<ScreenPosition> iterator() {
-    return screenPositions.iterator();
+    return new Iterator<ScreenPosition>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index <= getDisplayLength();
+      }
+
+      @Override
+      public ScreenPosition next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return getPosition(index++);
+      }
+    };
   }
 
 }
@@ -0,0 +1,96 @@
+package com.bytezone.dm3270.display;
+
+import com.bytezone.dm3270.attributes.StartFieldAttribute;
+
+/*
+ * What FieldManager derives from the start fields of a screen: where each field starts and
+ * ends, the unprotected field the cursor moves to from each one, and the default context of
+ * their positions. It only depends on the position and the attribute byte of each start field,
+ * so it is immutable and can be shared by every screen with the same layout.
+ */
+final class FieldLayout {
+
+  private final int screenSize;
+  // position << 9 | extended << 8 | attribute byte, of each start field in screen order
+  private final int[] startFields;
+  private final int[] nextUnprotected;            // -1 when there are no unprotected fields
+  private final ScreenContext[] defaultContexts;
+
+  FieldLayout(int screenSize, int[] startFields, int count) {
+    this.screenSize = screenSize;
+    this.startFields = new int[count];
+    System.arraycopy(startFields, 0, this.startFields, 0, count);
+
+    defaultContexts = new ScreenContext[count];
+    boolean[] unprotected = new boolean[count];
+    int firstUnprotected = -1;
+    for (int i = 0; i < count; i++) {
+      StartFieldAttribute startFieldAttribute =
+          new StartFieldAttribute((byte) startFields[i]);
+      defaultContexts[i] = startFieldAttribute.process(null, null);
+      unprotected[i] = !startFieldAttribute.isProtected();
+      if (unprotected[i] && firstUnprotected < 0) {
+        firstUnprotected = i;
+      }
+    }
+
+    // each field moves to the next unprotected one, wrapping to the first
+    nextUnprotected = new int[count];
+    int next = firstUnprotected;
+    for (int i = count - 1; i >= 0; i--) {
+      nextUnprotected[i] = next;
+      if (unprotected[i]) {
+        next = i;
+      }
+    }
+  }
+
+  static int packStartField(int position, StartFieldAttribute startFieldAttribute) {
+    return position << 9 | (startFieldAttribute.isExtended() ? 1 << 8 : 0)
+        | startFieldAttribute.getAttributeValue() & 0xFF;
+  }
+
+  // FNV-1a, 64 bit
+  static long hash(int screenSize, int[] startFields, int count) {
+    long hash = 0xcbf29ce484222325L ^ screenSize;
+    for (int i = 0; i < count; i++) {
+      hash ^= startFields[i];
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  boolean matches(int screenSize, int[] startFields, int count) {
+    if (this.screenSize != screenSize || this.startFields.length != count) {
+      return false;
+    }
+    for (int i = 0; i < count; i++) {
+      if (this.startFields[i] != startFields[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  int size() {
+    return startFields.length;
+  }
+
+  int getStart(int field) {
+    return startFields[field] >>> 9;
+  }
+
+  // the last field ends with the screen, positions before the first field are in none
+  int getEnd(int field) {
+    return field + 1 < startFields.length ? getStart(field + 1) - 1 : screenSize - 1;
+  }
+
+  int getNextUnprotected(int field) {
+    return nextUnprotected[field];
+  }
+
+  ScreenContext getDefaultContext(int field) {
+    return defaultContexts[field];
+  }
+
+}
@@ -0,0 +1,76 @@
+package com.bytezone.dm3270.display;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Field layouts already derived, shared by any number of sessions so screens with a layout
+ * seen before (by any of them) only bind their positions to it. Layouts are found by a hash of
+ * the start fields and verified against them, and the least recently used one is dropped when
+ * the cache is full.
+ */
+public class FieldLayoutCache {
+
+  public static final int DEFAULT_CAPACITY = 256;
+
+  private final Map<Long, FieldLayout> layouts;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public FieldLayoutCache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public FieldLayoutCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    layouts = new LinkedHashMap<Long, FieldLayout>(capacity * 4 / 3 + 1, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, FieldLayout> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  FieldLayout getLayout(int screenSize, int[] startFields, int count) {
+    long hash = FieldLayout.hash(screenSize, startFields, count);
+    FieldLayout layout;
+    synchronized (layouts) {
+      layout = layouts.get(hash);
+    }
+    if (layout != null && layout.matches(screenSize, startFields, count)) {
+      hits.increment();
+      return layout;
+    }
+
+    misses.increment();
+    layout = new FieldLayout(screenSize, startFields, count);
+    synchronized (layouts) {
+      layouts.put(hash, layout);
+    }
+    return layout;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public int size() {
+    synchronized (layouts) {
+      return layouts.size();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("layouts ......... %,d%n", size())
+        + String.format("hits/misses ..... %,d / %,d", getHitCount(), getMissCount());
+  }
+
+}
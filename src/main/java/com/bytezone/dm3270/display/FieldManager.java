@@ -1,8 +1,11 @@
 package com.bytezone.dm3270.display;
 
 import com.bytezone.dm3270.attributes.Attribute;
-import com.bytezone.dm3270.attributes.StartFieldAttribute;
+import com.bytezone.dm3270.metrics.RecordStage;
+import com.bytezone.dm3270.metrics.RecordTracer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -10,12 +13,22 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class FieldManager {
 
+  // screens rarely have more start fields, larger scratch arrays are dropped after use
+  private static final int RETAINED_START_FIELDS = 256;
+  private static final int[] NO_START_FIELDS = new int[0];
+
   private final Screen screen;
   private ScreenWatcher screenWatcher;
   private ScreenDimensions screenDimensions;
 
+  private int[] startFields = NO_START_FIELDS;     // scratch for the layout cache key
+
   private final List<Field> fields = new ArrayList<>();
   private final List<Field> unprotectedFields = new ArrayList<>();
+  // ordinals of the modified fields, so replies and MDT resets don't scan every field
+  private final BitSet modifiedFields = new BitSet();
+
+  private volatile FieldLayoutCache fieldLayoutCache;
 
   private final Set<ScreenChangeListener> screenChangeListeners = ConcurrentHashMap.newKeySet();
 
@@ -30,62 +43,106 @@ public class FieldManager {
     screenWatcher = new ScreenWatcher(this, screenDimensions);
   }
 
+  public void setFieldLayoutCache(FieldLayoutCache fieldLayoutCache) {
+    this.fieldLayoutCache = fieldLayoutCache;
+  }
+
   public void reset() {
     fields.clear();
     unprotectedFields.clear();
+    modifiedFields.clear();
   }
 
   // this is called after the pen and screen positions have been modified
   public void buildFields(ScreenPosition[] screenPositions) {
     reset();
 
-    for (List<ScreenPosition> protoField : divide(screenPositions)) {
-      addField(new Field(screen, protoField));
-      setContexts(protoField);
+    FieldLayout layout = getLayout(screenPositions);
+    ScreenRows screenRows = screen.getScreenRows();
+    for (int i = 0; i < layout.size(); i++) {
+      addField(new Field(screen, layout.getStart(i), layout.getEnd(i)));
+      setContexts(layout.getDefaultContext(i), screenRows, layout.getStart(i), layout.getEnd(i));
     }
 
-    // link uprotected fields
-    Field previousUnprotectedField = null;
-
-    for (Field field : fields) {
+    // link unprotected fields to each other, and protected fields to the next unprotected one
+    for (int i = 0; i < fields.size(); i++) {
+      int next = layout.getNextUnprotected(i);
+      if (next < 0) {
+        break;
+      }
+      Field field = fields.get(i);
       if (field.isUnprotected()) {
         unprotectedFields.add(field);
-        if (previousUnprotectedField != null) {
-          previousUnprotectedField.linkToNext(field);
-        }
-        previousUnprotectedField = field;
-      }
-    }
-
-    if (unprotectedFields.size() > 0) {
-      // link first unprotected field to the last one
-      Field firstField = unprotectedFields.get(0);
-      Field lastField = unprotectedFields.get(unprotectedFields.size() - 1);
-      lastField.linkToNext(firstField);
-
-      // link protected fields to unprotected fields
-      Field next = firstField;
-
-      for (Field field : fields) {
-        if (field.isProtected()) {
-          field.setNext(next);
-        } else {
-          next = field.getNextUnprotectedField();
-        }
+        field.linkToNext(fields.get(next));
+      } else {
+        field.setNext(fields.get(next));
       }
     }
 
+    traceStage(RecordStage.APPLYING);
     screenWatcher.check();
+    traceStage(RecordStage.SCREEN_CHECK);
     fireScreenChanged(screenWatcher);
+    traceStage(RecordStage.LISTENERS);
+  }
+
+  private void traceStage(RecordStage stage) {
+    RecordTracer recordTracer = screen.getTelnetState().getRecordTracer();
+    if (recordTracer != null) {
+      recordTracer.stageCompleted(stage);
+    }
   }
 
   private void addField(Field field) {
+    field.setOrdinal(fields.size());
+    if (field.isModified()) {
+      modifiedFields.set(fields.size());          // MDT set by the host, or kept from before
+    }
     fields.add(field);
   }
 
-  // should this be indexed?
+  // fields from a previous screen are no longer tracked
+  void modifiedChanged(Field field) {
+    if (isCurrent(field)) {
+      modifiedFields.set(field.getOrdinal(), field.isModified());
+    }
+  }
+
+  boolean isCurrent(Field field) {
+    int ordinal = field.getOrdinal();
+    return ordinal >= 0 && ordinal < fields.size() && fields.get(ordinal) == field;
+  }
+
+  BitSet getModifiedFields() {
+    return modifiedFields;
+  }
+
+  // clears the MDT of the modified unprotected fields, protected ones keep it
+  public void resetModified() {
+    for (int i = modifiedFields.nextSetBit(0); i >= 0; i = modifiedFields.nextSetBit(i + 1)) {
+      Field field = fields.get(i);
+      if (field.isUnprotected()) {
+        field.setModified(false);
+      }
+    }
+  }
+
+  // fields are in screen order and don't wrap, so the last one starting before is the candidate
   public Optional<Field> getFieldAt(int position) {
-    return fields.parallelStream().filter(f -> f.contains(position)).findAny();
+    int low = 0;
+    int high = fields.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (fields.get(mid).getStartPosition() <= position) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    if (high < 0 || !fields.get(high).contains(position)) {
+      return Optional.empty();
+    }
+    return Optional.of(fields.get(high));
   }
 
   public List<Field> getUnprotectedFields() {
@@ -100,8 +157,9 @@ public class FieldManager {
     return fields.size();
   }
 
+  // in turn, as fields in the same shared row would copy it together
   public Optional<Field> eraseAllUnprotected() {
-    unprotectedFields.parallelStream().forEach(f -> f.clearData(true));
+    unprotectedFields.forEach(f -> f.clearData(true));
 
     return unprotectedFields.stream().findFirst();
   }
@@ -124,7 +182,9 @@ public class FieldManager {
 
   private List<Field> getFieldsInRange(int firstLocation, int lastLocation) {
     List<Field> rowFields = new ArrayList<>();
-    for (Field field : fields) {
+    // fields starting before the previous position have their first location before the range
+    for (int i = indexOfFieldFrom(firstLocation - 1); i < fields.size(); i++) {
+      Field field = fields.get(i);
       int location = field.getFirstLocation();
       if (location < firstLocation) {
         continue;
@@ -139,6 +199,21 @@ public class FieldManager {
     return rowFields;
   }
 
+  // index of the first field starting at or after the position
+  private int indexOfFieldFrom(int position) {
+    int low = 0;
+    int high = fields.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (fields.get(mid).getStartPosition() < position) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
   public boolean textMatches(int fieldNo, String text) {
     return text.equals(fields.get(fieldNo).getText());
   }
@@ -191,69 +266,65 @@ public class FieldManager {
   // Divide the ScreenPositions into fields
   // ---------------------------------------------------------------------------------//
 
-  private static List<List<ScreenPosition>> divide(ScreenPosition[] screenPositions) {
-    List<List<ScreenPosition>> components = new ArrayList<>();
-    List<ScreenPosition> positions = new ArrayList<>();
-
-    boolean inField = false;
-    int ptr = 0;
-
-    while (ptr < screenPositions.length) {
-      ScreenPosition screenPosition = screenPositions[ptr++];
-
-      // check for the start of a new field
+  // start fields of the screen, packed in a scratch array as the layout cache key
+  private FieldLayout getLayout(ScreenPosition[] screenPositions) {
+    int count = 0;
+    for (ScreenPosition screenPosition : screenPositions) {
       if (screenPosition.isStartField()) {
-        if (inField) {
-          components.add(new ArrayList<>(positions));
-          positions.clear();
+        if (count == startFields.length) {
+          startFields = Arrays.copyOf(startFields, Math.max(count * 2, 32));
         }
-        inField = true;
-      }
-
-      if (inField) {
-        positions.add(screenPosition);
+        startFields[count++] = FieldLayout.packStartField(screenPosition.getPosition(),
+            screenPosition.getStartFieldAttribute());
       }
     }
 
-    if (inField && !positions.isEmpty()) {
-      components.add(new ArrayList<>(positions));
+    FieldLayoutCache cache = fieldLayoutCache;
+    FieldLayout layout = cache != null ? cache.getLayout(screenPositions.length, startFields, count)
+        : new FieldLayout(screenPositions.length, startFields, count);
+    if (startFields.length > RETAINED_START_FIELDS) {
+      startFields = NO_START_FIELDS;
     }
-
-    return components;
+    return layout;
   }
 
   // ---------------------------------------------------------------------------------//
   // Process a field's ScreenPositions
   // ---------------------------------------------------------------------------------//
 
-  private void setContexts(List<ScreenPosition> positions) {
-    StartFieldAttribute startFieldAttribute = positions.get(0).getStartFieldAttribute();
-    ScreenContext defaultContext = startFieldAttribute.process(null, null);
-
-    if (startFieldAttribute.isExtended()) {
-      setExtendedContext(defaultContext, positions);
+  private void setContexts(ScreenContext defaultContext, ScreenRows screenRows, int start,
+      int end) {
+    if (screenRows.get(start).getStartFieldAttribute().isExtended()) {
+      setExtendedContext(defaultContext, screenRows, start, end);
     } else {
-      positions.forEach(sp -> sp.setScreenContext(defaultContext));
+      for (int i = start; i <= end; i++) {
+        setContext(screenRows, i, defaultContext);
+      }
     }
-
   }
 
-  private void setExtendedContext(ScreenContext defaultContext,
-      List<ScreenPosition> positions) {
-    boolean first = true;
+  private void setExtendedContext(ScreenContext defaultContext, ScreenRows screenRows, int start,
+      int end) {
     ScreenContext currentContext = defaultContext;
 
-    for (ScreenPosition screenPosition : positions) {
-      for (Attribute attribute : screenPosition.getAttributes()) {
+    for (int i = start; i <= end; i++) {
+      for (Attribute attribute : screenRows.get(i).getAttributes()) {
         currentContext =
             attribute.process(defaultContext, currentContext);
       }
 
-      if (first) {
-        first = false;
+      if (i == start) {
         defaultContext = currentContext;
       }
-      screenPosition.setScreenContext(currentContext);
+      setContext(screenRows, i, currentContext);
+    }
+  }
+
+  // shared rows are only copied when a context changes
+  private static void setContext(ScreenRows screenRows, int position,
+      ScreenContext screenContext) {
+    if (!screenContext.equals(screenRows.get(position).getScreenContext())) {
+      screenRows.getWritable(position).setScreenContext(screenContext);
     }
   }
 
@@ -5,8 +5,8 @@ import com.bytezone.dm3270.attributes.StartFieldAttribute;
 
 public interface Pen extends Iterable<ScreenPosition> {
 
-  static Pen getInstance(ScreenPosition[] screenPositions, ScreenDimensions screenDimensions) {
-    return new PenType1(screenPositions, screenDimensions);
+  static Pen getInstance(ScreenRows screenRows, ScreenDimensions screenDimensions) {
+    return new PenType1(screenRows, screenDimensions);
   }
 
   void clearScreen();
@@ -17,6 +17,9 @@ public interface Pen extends Iterable<ScreenPosition> {
 
   int getPosition();
 
+  // positions written by orders since the pen was created
+  int getPositionsWritten();
+
   void writeGraphics(byte b);
 
   void write(byte b);
@@ -13,29 +13,28 @@ class PenType1 implements Pen {
 
   private static final Logger LOG = LoggerFactory.getLogger(PenType1.class);
 
-  private final ScreenPosition[] screenPositions;   // owned by Screen
+  private final ScreenRows screenRows;              // owned by Screen
+  private final ScreenPosition[] screenPositions;   // read only, changed through screenRows
 
   private int currentPosition;
+  private int positionsWritten;
   private boolean formattedScreen;
   private ScreenDimensions screenDimensions;
 
   private final List<Attribute> pendingAttributes = new ArrayList<>();
 
   // created by Screen and HistoryScreen
-  PenType1(ScreenPosition[] screenPositions, ScreenDimensions screenDimensions) {
-    this.screenPositions = screenPositions;
+  PenType1(ScreenRows screenRows, ScreenDimensions screenDimensions) {
+    this.screenRows = screenRows;
+    this.screenPositions = screenRows.getPositions();
     this.screenDimensions = screenDimensions;
-
-    for (int i = 0; i < screenPositions.length; i++) {
-      screenPositions[i] = new ScreenPosition(i, ScreenContext.DEFAULT_CONTEXT);
-    }
   }
 
   @Override
   public void clearScreen() {
     currentPosition = 0;
-    for (ScreenPosition screenPosition : screenPositions) {
-      screenPosition.reset();
+    for (int i = 0; i < screenPositions.length; i++) {
+      screenRows.getWritable(i).reset();
     }
 
     formattedScreen = false;
@@ -45,10 +44,11 @@ class PenType1 implements Pen {
   public void startField(StartFieldAttribute startFieldAttribute) {
     formattedScreen = true;
 
-    ScreenPosition screenPosition = screenPositions[currentPosition];
+    ScreenPosition screenPosition = screenRows.getWritable(currentPosition);
 
     screenPosition.reset();
     screenPosition.setStartField(startFieldAttribute);
+    positionsWritten++;
 
     // sometimes a reset attribute is overwritten by a new SFA
     if (pendingAttributes.size() > 0) {
@@ -66,23 +66,31 @@ class PenType1 implements Pen {
     return currentPosition;
   }
 
+  @Override
+  public int getPositionsWritten() {
+    return positionsWritten;
+  }
+
   @Override
   public void writeGraphics(byte b) {
-    ScreenPosition screenPosition = screenPositions[currentPosition];
+    ScreenPosition screenPosition = screenRows.getWritable(currentPosition);
     screenPosition.reset();
     screenPosition.setGraphicsChar(b);
+    positionsWritten++;
     moveRight();
   }
 
   @Override
   public void write(byte b) {
-    ScreenPosition screenPosition = screenPositions[currentPosition];
+    ScreenPosition screenPosition = screenRows.getWritable(currentPosition);
     screenPosition.reset();
     screenPosition.setChar(b);
+    positionsWritten++;
     moveRight();
   }
 
-  private void applyAttributes(ScreenPosition screenPosition) {
+  private void applyAttributes(int position) {
+    ScreenPosition screenPosition = screenRows.getWritable(position);
     for (Attribute attribute : pendingAttributes) {
       screenPosition.addAttribute(attribute);
     }
@@ -92,7 +100,7 @@ class PenType1 implements Pen {
   @Override
   public void moveRight() {
     if (pendingAttributes.size() > 0) {
-      applyAttributes(screenPositions[currentPosition]);
+      applyAttributes(currentPosition);
     }
 
     currentPosition = validate(currentPosition + 1);
@@ -101,7 +109,7 @@ class PenType1 implements Pen {
   @Override
   public void moveToNextLine() {
     if (pendingAttributes.size() > 0) {
-      applyAttributes(screenPositions[currentPosition]);
+      applyAttributes(currentPosition);
     }
     int currentRow = (currentPosition / screenDimensions.columns);
     currentPosition = validate((currentRow + 1) * screenDimensions.columns);
@@ -115,11 +123,11 @@ class PenType1 implements Pen {
     }
 
     while (true) {
-      ScreenPosition screenPosition = screenPositions[currentPosition];
-      if (screenPosition.isStartField()) {
+      if (screenPositions[currentPosition].isStartField()) {
         break;
       }
-      screenPosition.setChar((byte) 0);
+      screenRows.getWritable(currentPosition).setChar((byte) 0);
+      positionsWritten++;
       moveRight();
     }
   }
@@ -158,7 +166,7 @@ class PenType1 implements Pen {
         }
         LOG.debug("Unapplied attributes at {}: {}", currentPosition, attrs);
       }
-      applyAttributes(screenPositions[currentPosition]);
+      applyAttributes(currentPosition);
     }
     currentPosition = validate(position);
   }
@@ -227,6 +235,7 @@ class PenType1 implements Pen {
   // Debugging
   // ---------------------------------------------------------------------------------//
 
+  // the positions are read only, as those of Screen.getScreenPosition()
   @Override
   public Iterator<ScreenPosition> iterator() {
     return new Iterator<ScreenPosition>() {
@@ -0,0 +1,159 @@
+package com.bytezone.dm3270.display;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Screen rows shared by any number of sessions, so sessions showing the same screens (logon
+ * panels, menus) keep one copy of each row instead of one each, and their heap grows with the
+ * distinct rows shown rather than with the sessions. Rows are found by a hash of their contents
+ * and verified against them. The table only holds rows weakly, a row is dropped once no session
+ * shows it.
+ *
+ * Shared positions are never changed: a session copies a shared row back to positions of its own
+ * before changing any of them (see ScreenRows).
+ */
+public class RowBlockTable {
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private final ReferenceQueue<RowBlock> droppedBlocks = new ReferenceQueue<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private Entry[] entries = new Entry[INITIAL_CAPACITY];
+  private int size;
+
+  // the shared row with the same contents as these positions, which become the shared row when
+  // there is none yet
+  synchronized RowBlock intern(ScreenPosition[] positions, int offset, int length) {
+    expungeDroppedBlocks();
+
+    int hash = RowBlock.hash(positions, offset, length);
+    int index = hash & (entries.length - 1);
+    for (Entry entry = entries[index]; entry != null; entry = entry.next) {
+      RowBlock block = entry.get();
+      if (entry.hash == hash && block != null && block.matches(positions, offset, length)) {
+        hits.increment();
+        return block;
+      }
+    }
+
+    misses.increment();
+    RowBlock block = new RowBlock(Arrays.copyOfRange(positions, offset, offset + length));
+    entries[index] = new Entry(block, hash, entries[index], droppedBlocks);
+    if (++size > entries.length * 3 / 4) {
+      resize();
+    }
+    return block;
+  }
+
+  private void expungeDroppedBlocks() {
+    for (Reference<? extends RowBlock> dropped = droppedBlocks.poll(); dropped != null;
+        dropped = droppedBlocks.poll()) {
+      Entry entry = (Entry) dropped;
+      int index = entry.hash & (entries.length - 1);
+      Entry previous = null;
+      for (Entry e = entries[index]; e != null; previous = e, e = e.next) {
+        if (e == entry) {
+          if (previous == null) {
+            entries[index] = e.next;
+          } else {
+            previous.next = e.next;
+          }
+          size--;
+          break;
+        }
+      }
+    }
+  }
+
+  private void resize() {
+    Entry[] resized = new Entry[entries.length * 2];
+    for (Entry first : entries) {
+      Entry entry = first;
+      while (entry != null) {
+        Entry next = entry.next;
+        int index = entry.hash & (resized.length - 1);
+        entry.next = resized[index];
+        resized[index] = entry;
+        entry = next;
+      }
+    }
+    entries = resized;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  // rows not yet found dropped are still counted
+  public synchronized int size() {
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("rows ............ %,d%n", size())
+        + String.format("hits/misses ..... %,d / %,d", getHitCount(), getMissCount());
+  }
+
+  // positions of a row, never changed once shared
+  static final class RowBlock {
+
+    private final ScreenPosition[] positions;
+
+    private RowBlock(ScreenPosition[] positions) {
+      this.positions = positions;
+      for (ScreenPosition position : positions) {
+        position.setShared();
+      }
+    }
+
+    ScreenPosition get(int index) {
+      return positions[index];
+    }
+
+    private static int hash(ScreenPosition[] positions, int offset, int length) {
+      int hash = length;
+      for (int i = offset; i < offset + length; i++) {
+        hash = 31 * hash + positions[i].contentHash();
+      }
+      return hash ^ (hash >>> 16);
+    }
+
+    private boolean matches(ScreenPosition[] positions, int offset, int length) {
+      if (this.positions.length != length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (!this.positions[i].hasSameContent(positions[offset + i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+  private static final class Entry extends WeakReference<RowBlock> {
+
+    private final int hash;
+    private Entry next;
+
+    private Entry(RowBlock block, int hash, Entry next, ReferenceQueue<RowBlock> queue) {
+      super(block, queue);
+      this.hash = hash;
+      this.next = next;
+    }
+
+  }
+
+}
@@ -4,13 +4,14 @@ import com.bytezone.dm3270.application.ConsolePane;
 import com.bytezone.dm3270.application.KeyboardStatusChangedEvent;
 import com.bytezone.dm3270.application.KeyboardStatusListener;
 import com.bytezone.dm3270.attributes.Attribute;
+import com.bytezone.dm3270.buffers.RecordEncoder;
 import com.bytezone.dm3270.commands.AIDCommand;
 import com.bytezone.dm3270.commands.Command;
 import com.bytezone.dm3270.orders.BufferAddress;
 import com.bytezone.dm3270.streams.TelnetState;
 import com.bytezone.dm3270.structuredfields.SetReplyModeSF;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 
-import java.io.UnsupportedEncodingException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -25,7 +26,8 @@ public class Screen implements DisplayScreen {
       {Attribute.XA_HIGHLIGHTING, Attribute.XA_FGCOLOR, Attribute.XA_CHARSET,
           Attribute.XA_BGCOLOR, Attribute.XA_TRANSPARENCY};
 
-  private final ScreenPosition[] screenPositions;
+  private final ScreenRows screenRows;
+  private final ScreenPosition[] screenPositions;   // read only, changed through screenRows
   private final FieldManager fieldManager;
   private final ScreenPacker screenPacker;
 
@@ -45,9 +47,10 @@ public class Screen implements DisplayScreen {
   private byte[] replyTypes = new byte[0];
 
   private int insertedCursorPosition = -1;
-  private boolean keyboardLocked;
+  private volatile boolean keyboardLocked;
   private boolean insertMode;
   private boolean readModifiedAll = false;
+  private volatile EbcdicCodec codec = EbcdicCodec.getDefault();
 
   private final Set<KeyboardStatusListener> keyboardChangeListeners = ConcurrentHashMap.newKeySet();
 
@@ -68,8 +71,9 @@ public class Screen implements DisplayScreen {
 
     fieldManager = new FieldManager(this, screenDimensions);
 
-    screenPositions = new ScreenPosition[screenDimensions.size];
-    pen = Pen.getInstance(screenPositions, screenDimensions);
+    screenRows = new ScreenRows(screenDimensions.size, screenDimensions.columns);
+    screenPositions = screenRows.getPositions();
+    pen = Pen.getInstance(screenRows, screenDimensions);
 
     screenPacker = new ScreenPacker(pen, fieldManager);
 
@@ -89,6 +93,7 @@ public class Screen implements DisplayScreen {
     ScreenDimensions screenDimensions = getScreenDimensions();
 
     pen.setScreenDimensions(screenDimensions);
+    screenRows.setColumns(screenDimensions.columns);
     fieldManager.setScreenDimensions(screenDimensions);
 
     BufferAddress.setScreenWidth(screenDimensions.columns);
@@ -148,6 +153,21 @@ public class Screen implements DisplayScreen {
 
   public void buildFields() {
     fieldManager.buildFields(screenPositions);        // what about resetModified?
+    screenRows.share();
+  }
+
+  // see TerminalClient.setRowBlockTable()
+  public void setRowBlockTable(RowBlockTable rowBlockTable) {
+    screenRows.setRowBlockTable(rowBlockTable);
+  }
+
+  ScreenRows getScreenRows() {
+    return screenRows;
+  }
+
+  // a position which can be changed, see ScreenRows
+  ScreenPosition getWritablePosition(int position) {
+    return screenRows.getWritable(position);
   }
 
   public void checkRecording() {
@@ -174,23 +194,32 @@ public class Screen implements DisplayScreen {
     this.replyTypes = replyTypes;
   }
 
+  @Override
+  public EbcdicCodec getCodec() {
+    return codec;
+  }
+
+  public void setCodec(EbcdicCodec codec) {
+    this.codec = codec;
+  }
+
   public void setFieldText(Field field, String text) {
     field.setText(getTextBytes(text));
     field.setModified(true);
   }
 
   private byte[] getTextBytes(String text) {
-    try {
-      return text.getBytes("CP1047");
-    } catch (UnsupportedEncodingException e) {
-      throw new RuntimeException(e);
-    }
+    return codec.encode(text);
   }
 
   public void setPositionText(int position, String text) {
-    byte[] bytes = getTextBytes(text);
+    setPositionText(position, getTextBytes(text));
+  }
+
+  // text already encoded with the codec of the screen
+  public void setPositionText(int position, byte[] bytes) {
     for (int i = 0; i < bytes.length && position + i < screenPositions.length; i++) {
-      screenPositions[position + i].setChar(bytes[i]);
+      screenRows.getWritable(position + i).setChar(bytes[i]);
     }
   }
 
@@ -203,6 +232,8 @@ public class Screen implements DisplayScreen {
     return pen;
   }
 
+  // Read only: with a RowBlockTable set, the position may be shared by other sessions and then
+  // throws IllegalStateException when changed (see ScreenPosition.isShared()).
   @Override
   public ScreenPosition getScreenPosition(int position) {
     return screenPositions[position];
@@ -253,6 +284,12 @@ public class Screen implements DisplayScreen {
     return null;
   }
 
+  // packs the AID reply straight into the encoder, see ScreenPacker.packModifiedFields
+  public void packModifiedFields(RecordEncoder encoder) {
+    screenPacker.packModifiedFields(encoder, currentAID, getScreenCursor().getLocation(),
+        readModifiedAll, sscpLuData);
+  }
+
   public AIDCommand readBuffer() {
     return screenPacker.readBuffer(currentAID, getScreenCursor().getLocation(),
         replyMode, replyTypes);
@@ -280,6 +317,7 @@ public class Screen implements DisplayScreen {
     setAID(AIDCommand.NO_AID_SPECIFIED);
     cursor.setVisible(true);
     keyboardLocked = false;
+    telnetState.getResponseTimer().keyboardRestored();
     fireKeyboardStatusChange("");
   }
 
@@ -290,7 +328,7 @@ public class Screen implements DisplayScreen {
   }
 
   public void resetModified() {
-    fieldManager.getUnprotectedFields().forEach(f -> f.setModified(false));
+    fieldManager.resetModified();
   }
 
   public boolean isKeyboardLocked() {
@@ -2,16 +2,25 @@ package com.bytezone.dm3270.display;
 
 import com.bytezone.dm3270.attributes.ColorAttribute;
 import java.awt.Color;
+import java.util.Objects;
 
 public class ScreenContext {
 
   public static final ScreenContext DEFAULT_CONTEXT = new ScreenContext(ColorAttribute.COLORS[0],
       ColorAttribute.COLORS[8], (byte) 0, false);
 
+  // there are only a few hundred combinations, so every session shares the same instances. The
+  // open addressing table is replaced by a larger copy when one is added, so lookups of existing
+  // ones neither lock nor allocate.
+  private static final Object LOCK = new Object();
+  private static volatile ScreenContext[] contexts = add(new ScreenContext[16], DEFAULT_CONTEXT);
+  private static int count = 1;
+
   public final Color foregroundColor;
   public final Color backgroundColor;
   public final byte highlight;
   public final boolean highIntensity;
+  private final int hash;
 
   public ScreenContext(Color foregroundColor, Color backgroundColor, byte highlight,
       boolean highIntensity) {
@@ -19,18 +28,105 @@ public class ScreenContext {
     this.backgroundColor = backgroundColor;
     this.highlight = highlight;
     this.highIntensity = highIntensity;
+    hash = hash(foregroundColor, backgroundColor, highlight, highIntensity);
+  }
+
+  // the shared instance with these values
+  public static ScreenContext of(Color foregroundColor, Color backgroundColor, byte highlight,
+      boolean highIntensity) {
+    int hash = hash(foregroundColor, backgroundColor, highlight, highIntensity);
+    ScreenContext shared =
+        find(contexts, hash, foregroundColor, backgroundColor, highlight, highIntensity);
+    if (shared != null) {
+      return shared;
+    }
+
+    synchronized (LOCK) {
+      ScreenContext[] current = contexts;
+      shared = find(current, hash, foregroundColor, backgroundColor, highlight, highIntensity);
+      if (shared != null) {
+        return shared;
+      }
+      shared = new ScreenContext(foregroundColor, backgroundColor, highlight, highIntensity);
+      int length = ++count * 2 > current.length ? current.length * 2 : current.length;
+      ScreenContext[] copy = new ScreenContext[length];
+      for (ScreenContext screenContext : current) {
+        if (screenContext != null) {
+          add(copy, screenContext);
+        }
+      }
+      contexts = add(copy, shared);
+      return shared;
+    }
+  }
+
+  private static ScreenContext find(ScreenContext[] table, int hash, Color foregroundColor,
+      Color backgroundColor, byte highlight, boolean highIntensity) {
+    int mask = table.length - 1;
+    for (int i = hash & mask; table[i] != null; i = (i + 1) & mask) {
+      ScreenContext screenContext = table[i];
+      if (screenContext.hash == hash
+          && screenContext.matches(foregroundColor, backgroundColor, highlight, highIntensity)) {
+        return screenContext;
+      }
+    }
+    return null;
+  }
+
+  private static ScreenContext[] add(ScreenContext[] table, ScreenContext screenContext) {
+    int mask = table.length - 1;
+    int i = screenContext.hash & mask;
+    while (table[i] != null) {
+      i = (i + 1) & mask;
+    }
+    table[i] = screenContext;
+    return table;
+  }
+
+  private static int hash(Color foregroundColor, Color backgroundColor, byte highlight,
+      boolean highIntensity) {
+    int hash = Objects.hashCode(foregroundColor);
+    hash = 31 * hash + Objects.hashCode(backgroundColor);
+    hash = 31 * hash + highlight;
+    hash = 31 * hash + (highIntensity ? 1 : 0);
+    return hash ^ (hash >>> 16);
+  }
+
+  private boolean matches(Color foregroundColor, Color backgroundColor, byte highlight,
+      boolean highIntensity) {
+    return this.highlight == highlight && this.highIntensity == highIntensity
+        && Objects.equals(this.foregroundColor, foregroundColor)
+        && Objects.equals(this.backgroundColor, backgroundColor);
   }
 
   public ScreenContext withBackgroundColor(Color color) {
-    return new ScreenContext(foregroundColor, color, highlight, highIntensity);
+    return of(foregroundColor, color, highlight, highIntensity);
   }
 
   public ScreenContext withHighlight(byte highlight) {
-    return new ScreenContext(foregroundColor, backgroundColor, highlight, highIntensity);
+    return of(foregroundColor, backgroundColor, highlight, highIntensity);
   }
 
   public ScreenContext withForeground(Color color) {
-    return new ScreenContext(color, backgroundColor, highlight, highIntensity);
+    return of(color, backgroundColor, highlight, highIntensity);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ScreenContext that = (ScreenContext) o;
+    return hash == that.hash
+        && matches(that.foregroundColor, that.backgroundColor, that.highlight, that.highIntensity);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
   }
 
   @Override
@@ -2,6 +2,7 @@ package com.bytezone.dm3270.display;
 
 import com.bytezone.dm3270.attributes.Attribute;
 import com.bytezone.dm3270.attributes.StartFieldAttribute;
+import com.bytezone.dm3270.buffers.RecordEncoder;
 import com.bytezone.dm3270.commands.AIDCommand;
 import com.bytezone.dm3270.commands.Command;
 import com.bytezone.dm3270.extended.SscpLuDataCommand;
@@ -9,14 +10,19 @@ import com.bytezone.dm3270.orders.BufferAddress;
 import com.bytezone.dm3270.orders.Order;
 import com.bytezone.dm3270.structuredfields.SetReplyModeSF;
 
+import java.util.BitSet;
 import java.util.List;
 
 public class ScreenPacker {
 
-  private final byte[] buffer = new byte[8192];
+  // Read Modified replies are usually small, the encoder of a larger one is dropped after use
+  private static final int REPLY_CAPACITY = 512;
+  private static final int RETAINED_REPLY_CAPACITY = 4096;
+  private static final int READ_BUFFER_CAPACITY = 8192;
 
   private Pen pen;
   private final FieldManager fieldManager;
+  private RecordEncoder encoder;              // allocated on the first reply
 
   public ScreenPacker(Pen pen, FieldManager fieldManager) {
     this.pen = pen;
@@ -25,62 +31,73 @@ public class ScreenPacker {
 
   public Command readModifiedFields(byte currentAID, int cursorLocation,
       boolean readModifiedAll, boolean sscpLuData) {
+    if (encoder == null) {
+      encoder = new RecordEncoder(REPLY_CAPACITY, false);
+    }
+    packModifiedFields(encoder.startRecord(), currentAID, cursorLocation, readModifiedAll,
+        sscpLuData);
+    byte[] buffer = encoder.getBuffer();
+    int length = encoder.getLength();
+    Command command = sscpLuData ? new SscpLuDataCommand(buffer, 0, length)
+        : new AIDCommand(buffer, 0, length);
+    if (buffer.length > RETAINED_REPLY_CAPACITY) {
+      encoder = null;
+    }
+    return command;
+  }
+
+  // packs the AID reply into the encoder, after whatever it already holds
+  public void packModifiedFields(RecordEncoder encoder, byte currentAID, int cursorLocation,
+      boolean readModifiedAll, boolean sscpLuData) {
     // pack the AID
-    int ptr = 0;
     if (!sscpLuData) {
-      buffer[ptr++] = currentAID;               // whatever key was pressed
+      encoder.put(currentAID);                  // whatever key was pressed
     }
 
     // PA keys and the CLR key only return the AID byte
     if (!readModifiedAll) {
       if (currentAID == AIDCommand.AID_PA1 || currentAID == AIDCommand.AID_PA2
           || currentAID == AIDCommand.AID_PA3 || currentAID == AIDCommand.AID_CLEAR) {
-        return new AIDCommand(buffer, 0, ptr);
+        return;
       }
     }
 
     if (!sscpLuData) {
-      // pack the cursor address
-      BufferAddress ba = new BufferAddress(cursorLocation);
-      ptr = ba.packAddress(buffer, ptr);
+      encoder.putAddress(cursorLocation);       // pack the cursor address
     }
 
-    if (!fieldManager.getFields().isEmpty()) {
+    List<Field> fields = fieldManager.getFields();
+    if (!fields.isEmpty()) {
       // pack all modified fields
-      for (Field field : fieldManager.getFields()) {
-        if (field.isModified()) {
-          ptr = packField(field, buffer, ptr);
-        }
+      BitSet modifiedFields = fieldManager.getModifiedFields();
+      for (int i = modifiedFields.nextSetBit(0); i >= 0; i = modifiedFields.nextSetBit(i + 1)) {
+        packField(fields.get(i), encoder);
       }
     } else {
       for (ScreenPosition sp : pen.fromCurrentPosition()) {
         if (!sp.isNull()) {
-          buffer[ptr++] = sp.getByte();
+          encoder.put(sp.getByte());
         }
       }
     }
-
-    return sscpLuData ? new SscpLuDataCommand(buffer, 0, ptr) : new AIDCommand(buffer, 0, ptr);
   }
 
-  private int packField(Field field, byte[] buffer, int ptr) {
+  private void packField(Field field, RecordEncoder encoder) {
     assert field.isModified();
 
     for (ScreenPosition sp : field) {
       if (sp.isStartField()) {
-        buffer[ptr++] = Order.SET_BUFFER_ADDRESS;
-        BufferAddress ba = new BufferAddress(field.getFirstLocation());
-        ptr = ba.packAddress(buffer, ptr);
+        encoder.put(Order.SET_BUFFER_ADDRESS);
+        encoder.putAddress(field.getFirstLocation());
       } else if (!sp.isNull()) {
-        buffer[ptr++] = sp.getByte();                  // suppress nulls
+        encoder.put(sp.getByte());                     // suppress nulls
       }
     }
-
-    return ptr;
   }
 
   public AIDCommand readBuffer(byte currentAID, int cursorLocation, byte replyMode,
       byte[] replyTypes) {
+    byte[] buffer = new byte[READ_BUFFER_CAPACITY];   // rarely asked for, so not kept
     // pack the AID
     int ptr = 0;
     buffer[ptr++] = currentAID;
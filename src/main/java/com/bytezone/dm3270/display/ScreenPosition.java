@@ -3,12 +3,16 @@ package com.bytezone.dm3270.display;
 import com.bytezone.dm3270.attributes.Attribute;
 import com.bytezone.dm3270.attributes.StartFieldAttribute;
 import com.bytezone.dm3270.utilities.Dm3270Utility;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public final class ScreenPosition {
 
+  public static final byte SPACE = 0x40;
+
   // GraphicsEscape characters
   private static final byte TOP_LEFT = (byte) 0xC5;
   private static final byte TOP_RIGHT = (byte) 0xD5;
@@ -17,27 +21,15 @@ public final class ScreenPosition {
   private static final byte HORIZONTAL_LINE = (byte) 0xA2;
   private static final byte VERTICAL_LINE = (byte) 0x85;
 
-  private static final String[] SCREEN_DISPLAY_CHARS = new String[256];
-
   private final int position;
 
   private StartFieldAttribute startFieldAttribute;
-  private final List<Attribute> attributes = new ArrayList<>();
+  private List<Attribute> attributes = Collections.emptyList();   // most positions have none
 
   private byte value;
   private boolean isGraphics;
   private ScreenContext screenContext;
-
-  static {
-    // build strings to use in the screen-drawing routine
-    String space = " ";
-    for (int i = 0; i < 33; i++) {
-      SCREEN_DISPLAY_CHARS[i] = space;
-    }
-    for (int i = 33; i < 256; i++) {
-      SCREEN_DISPLAY_CHARS[i] = (char) i + "";
-    }
-  }
+  private boolean shared;                 // by sessions, see RowBlockTable
 
   public ScreenPosition(int position, ScreenContext screenContext) {
     this.position = position;
@@ -46,6 +38,7 @@ public final class ScreenPosition {
   }
 
   public void reset() {
+    checkWritable();
     value = 0;
     isGraphics = false;
     startFieldAttribute = null;
@@ -53,11 +46,13 @@ public final class ScreenPosition {
   }
 
   public void setChar(byte value) {
+    checkWritable();
     this.value = value;
     isGraphics = false;
   }
 
   public void setGraphicsChar(byte value) {
+    checkWritable();
     this.value = value;
     isGraphics = true;
   }
@@ -67,6 +62,7 @@ public final class ScreenPosition {
   }
 
   public void setStartField(StartFieldAttribute startFieldAttribute) {
+    checkWritable();
     if (startFieldAttribute == null) {
       if (this.startFieldAttribute != null) {
         attributes.clear();
@@ -76,6 +72,10 @@ public final class ScreenPosition {
   }
 
   public void addAttribute(Attribute attribute) {
+    checkWritable();
+    if (attributes.isEmpty() && !(attributes instanceof ArrayList)) {
+      attributes = new ArrayList<>(2);
+    }
     attributes.add(attribute);
   }
 
@@ -89,6 +89,7 @@ public final class ScreenPosition {
 
   // All the colour and highlight options
   public void setScreenContext(ScreenContext screenContext) {
+    checkWritable();
     if (screenContext == null) {
       throw new IllegalArgumentException("ScreenContext cannot be null");
     }
@@ -108,25 +109,34 @@ public final class ScreenPosition {
   }
 
   public char getChar() {
+    return getChar(EbcdicCodec.getDefault());
+  }
+
+  public char getChar(EbcdicCodec codec) {
+    return codec.toChar(getDisplayByte(codec));
+  }
+
+  // the byte the codec decodes to the char shown, so rows and fields can be decoded in one call
+  public byte getDisplayByte(EbcdicCodec codec) {
     if (value == 0) {
-      return '\u0000';
+      return 0;
     }
     if ((value & 0xC0) == 0) {
-      return ' ';
+      return SPACE;
     }
 
     if (isGraphics) {
       switch (value) {
         case HORIZONTAL_LINE:
-          return '-';
+          return codec.toByte('-');
         case VERTICAL_LINE:
-          return '|';
+          return codec.toByte('|');
         default:
-          return '*';
+          return codec.toByte('*');
       }
     }
 
-    return (char) Dm3270Utility.EBC_2_ASC[value & 0xFF];
+    return value;
   }
 
   public String getCharString() {
@@ -150,7 +160,9 @@ public final class ScreenPosition {
       }
     }
 
-    return SCREEN_DISPLAY_CHARS[Dm3270Utility.EBC_2_ASC[value & 0xFF]];
+    // only used to show positions, so strings are not worth a table built at startup
+    char c = (char) Dm3270Utility.EBC_2_ASC[value & 0xFF];
+    return c < 33 ? " " : String.valueOf(c);
   }
 
   public byte getByte() {
@@ -161,6 +173,82 @@ public final class ScreenPosition {
     return value == 0;
   }
 
+  // ---------------------------------------------------------------------------------//
+  // Shared rows (see RowBlockTable)
+  // ---------------------------------------------------------------------------------//
+
+  // once shared the position is read only, sessions change a copy of it instead
+  void setShared() {
+    shared = true;
+    if (!attributes.isEmpty()) {
+      attributes = Collections.unmodifiableList(attributes);
+    }
+  }
+
+  public boolean isShared() {
+    return shared;
+  }
+
+  private void checkWritable() {
+    if (shared) {
+      throw new IllegalStateException("Position " + position + " is shared by other sessions");
+    }
+  }
+
+  // a position of its own for a session changing a shared one
+  ScreenPosition copy() {
+    ScreenPosition copy = new ScreenPosition(position, screenContext);
+    copy.value = value;
+    copy.isGraphics = isGraphics;
+    if (startFieldAttribute != null) {
+      copy.startFieldAttribute = startFieldAttribute.copy();
+    }
+    if (!attributes.isEmpty()) {
+      copy.attributes = new ArrayList<>(attributes);
+    }
+    return copy;
+  }
+
+  boolean hasSameContent(ScreenPosition other) {
+    if (position != other.position || value != other.value || isGraphics != other.isGraphics
+        || !screenContext.equals(other.screenContext)
+        || !hasSameStartField(other.startFieldAttribute)
+        || attributes.size() != other.attributes.size()) {
+      return false;
+    }
+    for (int i = 0; i < attributes.size(); i++) {
+      Attribute attribute = attributes.get(i);
+      Attribute otherAttribute = other.attributes.get(i);
+      if (attribute.getAttributeType() != otherAttribute.getAttributeType()
+          || attribute.getAttributeValue() != otherAttribute.getAttributeValue()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean hasSameStartField(StartFieldAttribute other) {
+    if (startFieldAttribute == null || other == null) {
+      return startFieldAttribute == other;
+    }
+    return startFieldAttribute.getAttributeValue() == other.getAttributeValue()
+        && startFieldAttribute.isExtended() == other.isExtended()
+        && startFieldAttribute.isModified() == other.isModified();
+  }
+
+  int contentHash() {
+    int hash = 31 * position + value;
+    hash = 31 * hash + screenContext.hashCode();
+    if (startFieldAttribute != null) {
+      hash = 31 * hash + startFieldAttribute.getAttributeValue();
+      hash = 31 * hash + (startFieldAttribute.isModified() ? 1 : 0);
+    }
+    for (Attribute attribute : attributes) {
+      hash = 31 * hash + attribute.getAttributeValue();
+    }
+    return hash;
+  }
+
   @Override
   public String toString() {
     StringBuilder text = new StringBuilder();
@@ -0,0 +1,107 @@
+package com.bytezone.dm3270.display;
+
+import com.bytezone.dm3270.display.RowBlockTable.RowBlock;
+
+/*
+ * The positions of a screen, owned by Screen. With a RowBlockTable set, the rows are shared with
+ * other sessions after each screen received, and a shared row is copied back to positions of its
+ * own before any of them is changed. So positions are read with get() and only changed through
+ * getWritable().
+ */
+final class ScreenRows {
+
+  private static final RowBlock[] NO_ROWS = new RowBlock[0];
+
+  private final ScreenPosition[] positions;
+  private int columns;
+
+  private volatile RowBlockTable rowBlockTable;
+  private RowBlock[] sharedRows = NO_ROWS;     // by row, null when the row is not shared
+  private int sharedCount;
+
+  ScreenRows(int size, int columns) {
+    this(new ScreenPosition[size], columns);
+    for (int i = 0; i < size; i++) {
+      positions[i] = new ScreenPosition(i, ScreenContext.DEFAULT_CONTEXT);
+    }
+  }
+
+  // positions not shown on a screen, like those of a Field built on its own
+  ScreenRows(ScreenPosition[] positions, int columns) {
+    this.positions = positions;
+    this.columns = columns;
+  }
+
+  ScreenPosition[] getPositions() {
+    return positions;
+  }
+
+  int size() {
+    return positions.length;
+  }
+
+  ScreenPosition get(int position) {
+    return positions[position];
+  }
+
+  ScreenPosition getWritable(int position) {
+    if (sharedCount > 0) {
+      int row = position / columns;
+      if (sharedRows[row] != null) {
+        unshare(row);
+      }
+    }
+    return positions[position];
+  }
+
+  void setColumns(int columns) {
+    if (columns == this.columns) {
+      return;
+    }
+    for (int row = 0; sharedCount > 0; row++) {
+      if (sharedRows[row] != null) {
+        unshare(row);
+      }
+    }
+    this.columns = columns;
+    sharedRows = NO_ROWS;
+  }
+
+  void setRowBlockTable(RowBlockTable rowBlockTable) {
+    this.rowBlockTable = rowBlockTable;
+  }
+
+  // called once the fields are built, rows already shared are still the same
+  void share() {
+    RowBlockTable table = rowBlockTable;
+    if (table == null) {
+      return;
+    }
+    if (sharedRows.length == 0) {
+      sharedRows = new RowBlock[(positions.length + columns - 1) / columns];
+    }
+    for (int row = 0; row < sharedRows.length; row++) {
+      if (sharedRows[row] == null) {
+        int offset = row * columns;
+        int length = Math.min(columns, positions.length - offset);
+        RowBlock block = table.intern(positions, offset, length);
+        for (int i = 0; i < length; i++) {
+          positions[offset + i] = block.get(i);
+        }
+        sharedRows[row] = block;
+        sharedCount++;
+      }
+    }
+  }
+
+  private void unshare(int row) {
+    int offset = row * columns;
+    int end = Math.min(offset + columns, positions.length);
+    for (int i = offset; i < end; i++) {
+      positions[i] = positions[i].copy();
+    }
+    sharedRows[row] = null;
+    sharedCount--;
+  }
+
+}
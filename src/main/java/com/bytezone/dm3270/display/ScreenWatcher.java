@@ -25,9 +25,6 @@ public class ScreenWatcher {
       + ".  .  .  .  .  .  .  .  .  .  .  .  .  .";
   private static final String EXCLUDE_LINE = "-  -  -  -  -  -  -  -  -  -  -  -";
   private static final String SEGMENT = "[A-Z@#$][-A-Z0-9@#$]{0,7}";
-  private static final Pattern DATASET_NAME_PATTERN =
-      Pattern.compile(SEGMENT + "(\\." + SEGMENT + "){0,21}");
-  private static final Pattern MEMBER_NAME_PATTERN = Pattern.compile(SEGMENT);
 
   private static final String ISPF_SCREEN = "ISPF Primary Option Menu";
   private static final String ZOS_SCREEN = "z/OS Primary Option Menu";
@@ -308,7 +305,7 @@ public class ScreenWatcher {
         break;
       }
 
-      if (DATASET_NAME_PATTERN.matcher(datasetName).matches()) {
+      if (NamePatterns.DATASET_NAME.matcher(datasetName).matches()) {
         addDataset(datasetName, screenType, rowFields);
       } else {
         // check for excluded datasets
@@ -366,7 +363,7 @@ public class ScreenWatcher {
           setDates(dataset, rowFields.get(5).getText());
 
           String catalog = rowFields.get(6).getText().trim();
-          if (DATASET_NAME_PATTERN.matcher(catalog).matches()) {
+          if (NamePatterns.DATASET_NAME.matcher(catalog).matches()) {
             dataset.setCatalog(catalog);
           }
         }
@@ -498,7 +495,7 @@ public class ScreenWatcher {
       }
 
       String memberName = rowFields.get(1).getText().trim();
-      Matcher matcher = MEMBER_NAME_PATTERN.matcher(memberName);
+      Matcher matcher = NamePatterns.MEMBER_NAME.matcher(memberName);
       if (!matcher.matches()) {
         LOG.warn("Invalid member name: {}", memberName);
         break;
@@ -571,7 +568,7 @@ public class ScreenWatcher {
       }
 
       String memberName = rowFields.get(1).getText().trim();
-      Matcher matcher = MEMBER_NAME_PATTERN.matcher(memberName);
+      Matcher matcher = NamePatterns.MEMBER_NAME.matcher(memberName);
       if (!matcher.matches()) {
         LOG.warn("Invalid member name: {}", memberName);
         break;
@@ -661,7 +658,7 @@ public class ScreenWatcher {
             memberName = datasetName.substring(pos1 + 1, datasetName.length() - 1);
             datasetName = datasetName.substring(0, pos1);
           }
-          Matcher matcher = DATASET_NAME_PATTERN.matcher(datasetName);
+          Matcher matcher = NamePatterns.DATASET_NAME.matcher(datasetName);
           if (matcher.matches()) {
             singleDataset = datasetName;
             if (!memberName.isEmpty()) {
@@ -715,4 +712,13 @@ public class ScreenWatcher {
     return text.toString();
   }
 
+  // only ISPF screens need them, so they are compiled when the first one is seen
+  private static final class NamePatterns {
+
+    private static final Pattern DATASET_NAME =
+        Pattern.compile(SEGMENT + "(\\." + SEGMENT + "){0,21}");
+    private static final Pattern MEMBER_NAME = Pattern.compile(SEGMENT);
+
+  }
+
 }
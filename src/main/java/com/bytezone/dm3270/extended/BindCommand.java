@@ -1,6 +1,7 @@
 package com.bytezone.dm3270.extended;
 
 import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.printer.Printer;
 import com.bytezone.dm3270.utilities.Dm3270Utility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -130,6 +131,14 @@ public class BindCommand extends AbstractExtendedCommand {
       }
     } else {
       LOG.debug("profile: {}", psProfile);
+      // LU3 printers get their buffer size as LU2 terminals do
+      if (psProfile == 3 && data.length > 24) {
+        primaryRows = data[20] & 0xFF;
+        primaryColumns = data[21] & 0xFF;
+        alternateRows = data[22] & 0xFF;
+        alternateColumns = data[23] & 0xFF;
+        presentationSpace = data[24] & 0xFF;
+      }
       privateOptions = 0;
       sessionOptions = 0;
       sessionOptionsLength = 0;
@@ -140,6 +149,24 @@ public class BindCommand extends AbstractExtendedCommand {
 
   @Override
   public void process(Screen screen) {
+    Printer printer = screen.getTelnetState().getPrinter();
+    if (printer != null) {
+      printer.bind(getLuType(), getRows(), getColumns());
+    }
+  }
+
+  // the presentation space profile, which is the LU type (1 and 3 for printers, 2 for terminals)
+  public int getLuType() {
+    return psProfile;
+  }
+
+  // 0 when not given, 0x7F selects the alternate size
+  public int getRows() {
+    return presentationSpace == 0x7F ? alternateRows : primaryRows;
+  }
+
+  public int getColumns() {
+    return presentationSpace == 0x7F ? alternateColumns : primaryColumns;
   }
 
   @Override
@@ -57,6 +57,7 @@ public class CommandHeader extends AbstractReplyBuffer {
     switch (dataType) {
       case TN3270_DATA:
       case SCS_DATA:
+      case PRINT_EOJ:
       case BID:
         switch (data[2]) {
           case RQ_NO_RESPONSE:
@@ -106,9 +107,6 @@ public class CommandHeader extends AbstractReplyBuffer {
       case SSCP_LU_DATA:
         break;
 
-      case PRINT_EOJ:
-        break;
-
       default:
         throw new UnsupportedOperationException("Unsupported data type " + dataType);
     }
@@ -120,6 +118,10 @@ public class CommandHeader extends AbstractReplyBuffer {
     return dataType;
   }
 
+  public int getCommandSeq() {
+    return commandSeq;
+  }
+
   @Override
   public void process(Screen screen) {
     if (responseType == ResponseType.ALWAYS_RESPONSE) {
@@ -2,6 +2,7 @@ package com.bytezone.dm3270.extended;
 
 import com.bytezone.dm3270.buffers.Buffer;
 import com.bytezone.dm3270.buffers.MultiBuffer;
+import com.bytezone.dm3270.buffers.RecordEncoder;
 import com.bytezone.dm3270.commands.Command;
 import com.bytezone.dm3270.display.Screen;
 
@@ -81,18 +82,14 @@ public class TN3270ExtendedCommand extends AbstractExtendedCommand {
     return Optional.of(multiBuffer);
   }
 
+  // header and command are expanded in one pass, instead of copying each and joining them
   @Override
   public byte[] getTelnetData() {
-    byte[] headerTelnetBuffer = commandHeader.getTelnetData();
-    byte[] commandTelnetBuffer = command.getTelnetData();
-
-    int length = headerTelnetBuffer.length + commandTelnetBuffer.length;
-    byte[] returnBuffer = new byte[length];
-    System.arraycopy(headerTelnetBuffer, 0, returnBuffer, 0, headerTelnetBuffer.length);
-    System.arraycopy(commandTelnetBuffer, 0, returnBuffer, headerTelnetBuffer.length,
-        commandTelnetBuffer.length);
-
-    return returnBuffer;
+    RecordEncoder encoder = new RecordEncoder(size() + 16, true);
+    encoder.put(commandHeader.getData(), 0, commandHeader.size());
+    encoder.put(command.getData(), 0, command.size());
+    encoder.endRecord();
+    return encoder.toByteArray();
   }
 
   @Override
@@ -1,5 +1,8 @@
 package com.bytezone.dm3270.extended;
 
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.printer.Printer;
+
 public class UnbindCommand extends AbstractExtendedCommand {
 
   public UnbindCommand(CommandHeader commandHeader, byte[] buffer, int offset,
@@ -7,6 +10,15 @@ public class UnbindCommand extends AbstractExtendedCommand {
     super(commandHeader, buffer, offset, length);
   }
 
+  @Override
+  public void process(Screen screen) {
+    super.process(screen);
+    Printer printer = screen.getTelnetState().getPrinter();
+    if (printer != null) {
+      printer.unbind();
+    }
+  }
+
   @Override
   public String getName() {
     return "Unbind";
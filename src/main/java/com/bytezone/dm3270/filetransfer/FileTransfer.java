@@ -0,0 +1,281 @@
+package com.bytezone.dm3270.filetransfer;
+
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.structuredfields.StructuredField;
+import com.bytezone.dm3270.utilities.Dm3270Utility;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * An IND$FILE transfer in DFT mode, driven by the host with D0 structured fields: it opens the
+ * data file (FT:DATA), inserts records into it (download) or gets them (upload) and closes it,
+ * and then does the same with a message file (FT:MSG) holding the result.
+ *
+ * Records are written to (or read from) the channel as they come, so only one record is held at
+ * a time. Uploads are read in records as big as the buffer size offered to the host in the DDM
+ * query reply. The bytes are not translated, as the host does it (ASCII CRLF options).
+ */
+public class FileTransfer {
+
+  public static final int MIN_BUFFER_SIZE = 256;
+  public static final int MAX_BUFFER_SIZE = 32_767;
+
+  // requests from the host, following the D0 structured field id
+  private static final int OPEN_REQUEST = 0x0012;
+  private static final int CLOSE_REQUEST = 0x4112;
+  private static final int SET_CURSOR_REQUEST = 0x4511;
+  private static final int GET_REQUEST = 0x4611;
+  private static final int INSERT_REQUEST = 0x4711;
+  private static final int DATA_INSERT = 0x4704;
+
+  // replies to the host
+  private static final int OPEN_REPLY = 0x0009;
+  private static final int CLOSE_REPLY = 0x4109;
+  private static final int GET_REPLY = 0x4605;
+  private static final int INSERT_REPLY = 0x4705;
+  private static final byte ERROR_REPLY = 0x08;
+  private static final int RECORD_NUMBER_HEADER = 0x6306;
+  private static final int ERROR_HEADER = 0x6904;
+  private static final int NOT_COMPRESSED = 0xC080;
+  private static final byte BEGIN_DATA = 0x61;
+  private static final int ERROR_END_OF_FILE = 0x2200;
+  private static final int ERROR_COMMAND = 0x0100;
+
+  private static final int DATA_OFFSET = 8;           // D0, request, C080, 61, length
+  private static final int GET_REPLY_HEADER = 17;     // AID, length, D0 ... data length
+  private static final byte[] MESSAGE_FILE = "FT:MSG".getBytes(StandardCharsets.US_ASCII);
+  private static final String TRANSFER_COMPLETE = "TRANS03";
+
+  private static final Logger LOG = LoggerFactory.getLogger(FileTransfer.class);
+
+  private final ReadableByteChannel source;           // null for downloads
+  private final WritableByteChannel target;           // null for uploads
+  private final int bufferSize;
+  private final CompletableFuture<Long> done = new CompletableFuture<>();
+
+  private final StringBuilder message = new StringBuilder();
+
+  private boolean messageFile;
+  private int recordNumber;
+  private long bytesTransferred;
+  private boolean endOfFile;
+
+  private FileTransfer(ReadableByteChannel source, WritableByteChannel target,
+      int bufferSize) {
+    if (bufferSize < MIN_BUFFER_SIZE || bufferSize > MAX_BUFFER_SIZE) {
+      throw new IllegalArgumentException("Buffer size must be between " + MIN_BUFFER_SIZE
+          + " and " + MAX_BUFFER_SIZE + ": " + bufferSize);
+    }
+    this.source = source;
+    this.target = target;
+    this.bufferSize = bufferSize;
+  }
+
+  // the channel is not closed once done
+  public static FileTransfer download(WritableByteChannel target, int bufferSize) {
+    return new FileTransfer(null, target, bufferSize);
+  }
+
+  public static FileTransfer upload(ReadableByteChannel source, int bufferSize) {
+    return new FileTransfer(source, null, bufferSize);
+  }
+
+  // completed with the bytes transferred when the host reports the transfer complete
+  public CompletableFuture<Long> getDone() {
+    return done;
+  }
+
+  public boolean isDone() {
+    return done.isDone();
+  }
+
+  public void fail(Exception cause) {
+    done.completeExceptionally(cause);
+  }
+
+  // the reply to a D0 structured field, null when none is expected
+  byte[] process(byte[] request, EbcdicCodec codec) {
+    int requestType = Dm3270Utility.unsignedShort(request, 1);
+    switch (requestType) {
+      case OPEN_REQUEST:
+        messageFile = contains(request, MESSAGE_FILE);
+        message.setLength(0);
+        recordNumber = 1;
+        endOfFile = false;
+        return buildReply(OPEN_REPLY);
+
+      case SET_CURSOR_REQUEST:
+      case INSERT_REQUEST:
+        return null;
+
+      case DATA_INSERT:
+        return insert(request, codec);
+
+      case GET_REQUEST:
+        return get();
+
+      case CLOSE_REQUEST:
+        if (messageFile) {
+          finish();
+        }
+        return buildReply(CLOSE_REPLY);
+
+      default:
+        LOG.warn("Unsupported file transfer request: {}", String.format("%04X", requestType));
+        return buildErrorReply(requestType, ERROR_COMMAND);
+    }
+  }
+
+  // replies to requests received while no transfer is expected, so the host gives up
+  static byte[] reject(byte[] request) {
+    int requestType = Dm3270Utility.unsignedShort(request, 1);
+    return requestType == SET_CURSOR_REQUEST || requestType == INSERT_REQUEST ? null
+        : buildErrorReply(requestType, ERROR_COMMAND);
+  }
+
+  private byte[] insert(byte[] request, EbcdicCodec codec) {
+    int length = request.length < DATA_OFFSET ? 0
+        : Math.min(Dm3270Utility.unsignedShort(request, DATA_OFFSET - 2) - 5,
+            request.length - DATA_OFFSET);
+    if (messageFile) {
+      message.append(decodeMessage(request, length, codec));
+    } else if (target == null) {
+      LOG.warn("Host sent data for an upload");
+      fail(new IOException("Host sent data for an upload"));
+      return buildErrorReply(DATA_INSERT, ERROR_COMMAND);
+    } else {
+      try {
+        ByteBuffer buffer = ByteBuffer.wrap(request, DATA_OFFSET, Math.max(length, 0));
+        while (buffer.hasRemaining()) {
+          target.write(buffer);
+        }
+      } catch (IOException ex) {
+        fail(ex);
+        return buildErrorReply(DATA_INSERT, ERROR_COMMAND);
+      }
+      bytesTransferred += length;
+    }
+
+    byte[] reply = new byte[12];
+    int ptr = packHeader(reply, INSERT_REPLY);
+    ptr = Dm3270Utility.packUnsignedShort(RECORD_NUMBER_HEADER, reply, ptr);
+    packRecordNumber(reply, ptr);
+    return reply;
+  }
+
+  private byte[] get() {
+    if (source == null || endOfFile) {
+      if (source == null) {
+        LOG.warn("Host asked for data for a download");
+      }
+      return buildErrorReply(GET_REQUEST, ERROR_END_OF_FILE);
+    }
+
+    byte[] reply = new byte[bufferSize];
+    ByteBuffer buffer = ByteBuffer.wrap(reply, GET_REPLY_HEADER, bufferSize - GET_REPLY_HEADER);
+    try {
+      while (buffer.hasRemaining()) {
+        if (source.read(buffer) < 0) {
+          endOfFile = true;
+          break;
+        }
+      }
+    } catch (IOException ex) {
+      fail(ex);
+      return buildErrorReply(GET_REQUEST, ERROR_COMMAND);
+    }
+    int length = buffer.position() - GET_REPLY_HEADER;
+    if (length == 0) {
+      return buildErrorReply(GET_REQUEST, ERROR_END_OF_FILE);
+    }
+    if (buffer.hasRemaining()) {
+      reply = Arrays.copyOf(reply, GET_REPLY_HEADER + length);     // last record
+    }
+    bytesTransferred += length;
+
+    int ptr = packHeader(reply, GET_REPLY);
+    ptr = Dm3270Utility.packUnsignedShort(RECORD_NUMBER_HEADER, reply, ptr);
+    ptr = packRecordNumber(reply, ptr);
+    ptr = Dm3270Utility.packUnsignedShort(NOT_COMPRESSED, reply, ptr);
+    reply[ptr++] = BEGIN_DATA;
+    Dm3270Utility.packUnsignedShort(length + 5, reply, ptr);
+    return reply;
+  }
+
+  private void finish() {
+    String text = message.toString().trim();
+    if (text.startsWith(TRANSFER_COMPLETE)) {
+      LOG.debug("File transfer complete: {}", text);
+      done.complete(bytesTransferred);
+    } else {
+      fail(new IOException("File transfer failed: " + text));
+    }
+  }
+
+  // messages come in ASCII from IND$FILE, but in EBCDIC from some hosts
+  private static String decodeMessage(byte[] request, int length, EbcdicCodec codec) {
+    boolean ascii = true;
+    for (int i = DATA_OFFSET; i < DATA_OFFSET + length; i++) {
+      if ((request[i] & 0x80) != 0) {
+        ascii = false;
+        break;
+      }
+    }
+    String text = ascii ? new String(request, DATA_OFFSET, Math.max(length, 0),
+        StandardCharsets.US_ASCII) : codec.decode(request, DATA_OFFSET, length);
+    return text.replace('\0', ' ');
+  }
+
+  private int packRecordNumber(byte[] buffer, int ptr) {
+    int number = recordNumber++;
+    buffer[ptr++] = (byte) (number >> 24);
+    buffer[ptr++] = (byte) (number >> 16);
+    buffer[ptr++] = (byte) (number >> 8);
+    buffer[ptr++] = (byte) number;
+    return ptr;
+  }
+
+  private static byte[] buildReply(int replyType) {
+    byte[] reply = new byte[6];
+    packHeader(reply, replyType);
+    return reply;
+  }
+
+  private static byte[] buildErrorReply(int requestType, int error) {
+    byte[] reply = new byte[10];
+    int ptr = packHeader(reply, requestType & 0xFF00 | ERROR_REPLY);
+    ptr = Dm3270Utility.packUnsignedShort(ERROR_HEADER, reply, ptr);
+    Dm3270Utility.packUnsignedShort(error, reply, ptr);
+    return reply;
+  }
+
+  // AID, structured field length, D0 and the reply type
+  private static int packHeader(byte[] reply, int replyType) {
+    reply[0] = AIDCommand.AID_STRUCTURED_FIELD;
+    int ptr = Dm3270Utility.packUnsignedShort(reply.length - 1, reply, 1);
+    reply[ptr++] = StructuredField.FILE_TRANSFER;
+    return Dm3270Utility.packUnsignedShort(replyType, reply, ptr);
+  }
+
+  private static boolean contains(byte[] buffer, byte[] text) {
+    for (int i = 0; i + text.length <= buffer.length; i++) {
+      int j = 0;
+      while (j < text.length && buffer[i + j] == text[j]) {
+        j++;
+      }
+      if (j == text.length) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,35 @@
+package com.bytezone.dm3270.filetransfer;
+
+import com.bytezone.dm3270.commands.ReadStructuredFieldCommand;
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.structuredfields.StructuredField;
+import com.bytezone.dm3270.utilities.Dm3270Utility;
+
+public class FileTransferOutboundSF extends StructuredField {
+
+  public FileTransferOutboundSF(byte[] buffer, int offset, int length) {
+    super(buffer, offset, length);
+
+    assert data[0] == StructuredField.FILE_TRANSFER;
+  }
+
+  @Override
+  public void process(Screen screen) {
+    if (data.length < 3) {
+      setReply(null);
+      return;
+    }
+
+    FileTransfer transfer = screen.getTelnetState().getFileTransfer();
+    byte[] reply = transfer == null || transfer.isDone() ? FileTransfer.reject(data)
+        : transfer.process(data, screen.getCodec());
+    setReply(reply == null ? null : new ReadStructuredFieldCommand(reply, 0, reply.length));
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Struct Field : D0 File Transfer%n")
+        + Dm3270Utility.toHex(data, 0, Math.min(data.length, 32));
+  }
+
+}
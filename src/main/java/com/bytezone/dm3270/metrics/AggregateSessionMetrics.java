@@ -0,0 +1,230 @@
+package com.bytezone.dm3270.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * SessionMetrics adding up every session it is set on. Counters are LongAdders and times
+ * go to LatencyHistograms, so sessions never contend on a lock (or on a single cache line)
+ * to report, and a snapshot can be read at any time while they run.
+ */
+public class AggregateSessionMetrics implements SessionMetrics {
+
+  private final Set<SessionInfo> activeSessions = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger connectingSessions = new AtomicInteger();
+  private final LongAdder sessions = new LongAdder();
+  private final LongAdder reconnections = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder bytesIn = new LongAdder();
+  private final LongAdder bytesOut = new LongAdder();
+  private final LongAdder recordsIn = new LongAdder();
+  private final LongAdder recordsOut = new LongAdder();
+  private final LongAdder negotiations = new LongAdder();
+  private final LongAdder keepAlives = new LongAdder();
+  private final Map<String, LongAdder> recordTypes = new ConcurrentHashMap<>();
+  private final LatencyHistogram decodeTimes = new LatencyHistogram();
+  private final LatencyHistogram applyTimes = new LatencyHistogram();
+  private final LatencyHistogram dispatchTimes = new LatencyHistogram();
+  private final LongAccumulator maxWriteQueueDepth = new LongAccumulator(Math::max, 0);
+
+  @Override
+  public void connecting(boolean reconnection) {
+    connectingSessions.incrementAndGet();
+    if (reconnection) {
+      reconnections.increment();
+    }
+  }
+
+  @Override
+  public void connected(SessionInfo session) {
+    connectingSessions.decrementAndGet();
+    sessions.increment();
+    activeSessions.add(session);
+  }
+
+  @Override
+  public void connectFailed() {
+    connectingSessions.decrementAndGet();
+  }
+
+  @Override
+  public void disconnected(SessionInfo session) {
+    activeSessions.remove(session);
+  }
+
+  @Override
+  public void exceptionNotified(Exception ex) {
+    errors.increment();
+  }
+
+  @Override
+  public void bytesReceived(int bytes) {
+    bytesIn.add(bytes);
+  }
+
+  @Override
+  public void bytesSent(int bytes) {
+    bytesOut.add(bytes);
+  }
+
+  @Override
+  public void listenerDispatched(long nanos) {
+    dispatchTimes.record(nanos);
+  }
+
+  @Override
+  public void writeQueued(int depth) {
+    maxWriteQueueDepth.accumulate(depth);
+  }
+
+  @Override
+  public void recordReceived(String type, int bytes, long decodeNanos, long applyNanos) {
+    recordsIn.increment();
+    recordTypes.computeIfAbsent(type, t -> new LongAdder()).increment();
+    decodeTimes.record(decodeNanos);
+    applyTimes.record(applyNanos);
+  }
+
+  @Override
+  public void recordSent(int bytes) {
+    recordsOut.increment();
+  }
+
+  @Override
+  public void telnetNegotiationReceived() {
+    negotiations.increment();
+  }
+
+  @Override
+  public void keepAliveSent() {
+    keepAlives.increment();
+  }
+
+  public int getActiveSessions() {
+    return activeSessions.size();
+  }
+
+  public int getConnectingSessions() {
+    return connectingSessions.get();
+  }
+
+  // active sessions waiting for the terminal server
+  public int getLockedSessions() {
+    int locked = 0;
+    for (SessionInfo session : activeSessions) {
+      if (session.isKeyboardLocked()) {
+        locked++;
+      }
+    }
+    return locked;
+  }
+
+  public List<SessionInfo> getSessionInfos() {
+    return new ArrayList<>(activeSessions);
+  }
+
+  public long getSessions() {
+    return sessions.sum();
+  }
+
+  public long getReconnections() {
+    return reconnections.sum();
+  }
+
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  public long getBytesReceived() {
+    return bytesIn.sum();
+  }
+
+  public long getBytesSent() {
+    return bytesOut.sum();
+  }
+
+  public long getRecordsReceived() {
+    return recordsIn.sum();
+  }
+
+  public long getRecordsSent() {
+    return recordsOut.sum();
+  }
+
+  // records received by command name, sorted by name
+  public Map<String, Long> getRecordsReceivedByType() {
+    Map<String, Long> counts = new TreeMap<>();
+    recordTypes.forEach((type, count) -> counts.put(type, count.sum()));
+    return counts;
+  }
+
+  public long getTelnetNegotiations() {
+    return negotiations.sum();
+  }
+
+  public long getKeepAlivesSent() {
+    return keepAlives.sum();
+  }
+
+  // nanos
+  public LatencyHistogram getDecodeTimes() {
+    return decodeTimes;
+  }
+
+  // nanos
+  public LatencyHistogram getApplyTimes() {
+    return applyTimes;
+  }
+
+  // nanos
+  public LatencyHistogram getDispatchTimes() {
+    return dispatchTimes;
+  }
+
+  public long getMaxWriteQueueDepth() {
+    return maxWriteQueueDepth.get();
+  }
+
+  public void reset() {
+    sessions.reset();
+    reconnections.reset();
+    errors.reset();
+    bytesIn.reset();
+    bytesOut.reset();
+    recordsIn.reset();
+    recordsOut.reset();
+    negotiations.reset();
+    keepAlives.reset();
+    recordTypes.clear();
+    decodeTimes.reset();
+    applyTimes.reset();
+    dispatchTimes.reset();
+    maxWriteQueueDepth.reset();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("sessions ........ %,d (%d active, %d connecting, %d locked)%n",
+        getSessions(), getActiveSessions(), getConnectingSessions(), getLockedSessions())
+        + String.format("reconnections ... %,d%n", getReconnections())
+        + String.format("errors .......... %,d%n", getErrors())
+        + String.format("bytes in/out .... %,d / %,d%n", getBytesReceived(), getBytesSent())
+        + String.format("records in/out .. %,d / %,d%n", getRecordsReceived(),
+        getRecordsSent())
+        + String.format("record types .... %s%n", getRecordsReceivedByType())
+        + String.format("negotiations .... %,d%n", getTelnetNegotiations())
+        + String.format("keep alives ..... %,d%n", getKeepAlivesSent())
+        + String.format("max write queue . %d%n", getMaxWriteQueueDepth())
+        + String.format("decode .......... %s%n", decodeTimes)
+        + String.format("apply ........... %s%n", applyTimes)
+        + String.format("dispatch ........ %s", dispatchTimes);
+  }
+
+}
@@ -0,0 +1,123 @@
+package com.bytezone.dm3270.metrics;
+
+/*
+ * Optional JDK Flight Recorder events of the session stages: socket reads, record decoding,
+ * screen updates, replies and keep alives, so dm3270 work can be told apart (and correlated
+ * with GC and CPU spikes) in a recording.
+ *
+ * JFR is not part of the Java 8 API, so its classes are only touched from JfrRecorder and
+ * JfrEvents, which are compiled apart (src/main/jfr) and loaded by name only when the running
+ * JVM has JFR. So the library still builds for and runs on JVMs without it. Events are not even
+ * loaded (which initializes part of JFR) until the recorder is, and when no recording has them
+ * enabled, begin methods return null and nothing else is done.
+ */
+public final class FlightRecorderEvents {
+
+  private static final Recorder RECORDER =
+      (Recorder) load("com.bytezone.dm3270.metrics.JfrRecorder");
+
+  private FlightRecorderEvents() {
+  }
+
+  // null when the JVM has no JFR
+  private static Object load(String className) {
+    ClassLoader loader = FlightRecorderEvents.class.getClassLoader();
+    try {
+      Class.forName("jdk.jfr.Event", false, loader);
+      return Class.forName(className, true, loader).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError ex) {
+      return null;
+    }
+  }
+
+  private static boolean isRecording() {
+    return RECORDER != null && RECORDER.isInitialized() && Loaded.EVENTS != null;
+  }
+
+  public static Object beginSocketRead() {
+    return isRecording() ? Loaded.EVENTS.beginSocketRead() : null;
+  }
+
+  public static void endSocketRead(Object event, int bytes) {
+    if (event != null) {
+      Loaded.EVENTS.endSocketRead(event, bytes);
+    }
+  }
+
+  public static Object beginRecordDecode() {
+    return isRecording() ? Loaded.EVENTS.beginRecordDecode() : null;
+  }
+
+  public static void endRecordDecode(Object event, String command, int bytes) {
+    if (event != null) {
+      Loaded.EVENTS.endRecordDecode(event, command, bytes);
+    }
+  }
+
+  public static Object beginScreenApply() {
+    return isRecording() ? Loaded.EVENTS.beginScreenApply() : null;
+  }
+
+  public static void endScreenApply(Object event, String command, int fields,
+      int positionsWritten) {
+    if (event != null) {
+      Loaded.EVENTS.endScreenApply(event, command, fields, positionsWritten);
+    }
+  }
+
+  public static Object beginReplyWrite() {
+    return isRecording() ? Loaded.EVENTS.beginReplyWrite() : null;
+  }
+
+  public static void endReplyWrite(Object event, int bytes) {
+    if (event != null) {
+      Loaded.EVENTS.endReplyWrite(event, bytes);
+    }
+  }
+
+  public static void keepAliveSent() {
+    if (isRecording()) {
+      Loaded.EVENTS.keepAliveSent();
+    }
+  }
+
+  // implemented by JfrRecorder: set once a recording is created, from the command line, jcmd
+  // or the API
+  interface Recorder {
+
+    boolean isInitialized();
+
+  }
+
+  // implemented by JfrEvents, events are handed around as Object so JFR types stay there
+  interface Events {
+
+    Object beginSocketRead();
+
+    void endSocketRead(Object event, int bytes);
+
+    Object beginRecordDecode();
+
+    void endRecordDecode(Object event, String command, int bytes);
+
+    Object beginScreenApply();
+
+    void endScreenApply(Object event, String command, int fields, int positionsWritten);
+
+    Object beginReplyWrite();
+
+    void endReplyWrite(Object event, int bytes);
+
+    void keepAliveSent();
+
+  }
+
+  // loads the events on first use, which is only once the recorder is initialized
+  private static final class Loaded {
+
+    private static final Events EVENTS =
+        (Events) load("com.bytezone.dm3270.metrics.JfrEvents");
+
+  }
+
+}
@@ -0,0 +1,17 @@
+package com.bytezone.dm3270.metrics;
+
+/*
+ * Stages an inbound record goes through, in order. The first one starts when the socket
+ * read completing the record returns (the host and network time before it is measured by
+ * the response times), and each one ends at a boundary stamped by the RecordTracer.
+ * Records not building screen fields (no orders, BIND, responses ...) report their whole
+ * processing as COMPLETING.
+ */
+public enum RecordStage {
+  FRAMING,          // telnet unescaping until the record is complete
+  PARSING,          // Command.getCommand decoding the command and its orders
+  APPLYING,         // command processing until the screen fields are built
+  SCREEN_CHECK,     // ScreenWatcher.check
+  LISTENERS,        // screen change listeners
+  COMPLETING        // rest of the processing: keyboard restore and listeners, reply
+}
@@ -0,0 +1,56 @@
+package com.bytezone.dm3270.metrics;
+
+/*
+ * View of one record kept in the ring buffer of a RecordTracer. It holds no timestamps of
+ * its own, so it is only valid until the ring wraps around to the same slot.
+ */
+public final class RecordTrace {
+
+  private final RecordTracer tracer;
+  private long sequence;
+  private int slot;
+
+  RecordTrace(RecordTracer tracer) {
+    this.tracer = tracer;
+  }
+
+  RecordTrace moveTo(long sequence) {
+    this.sequence = sequence;
+    slot = tracer.slotOf(sequence);
+    return this;
+  }
+
+  // number of records traced before this one
+  public long getSequence() {
+    return sequence;
+  }
+
+  // command name or TN3270E data type
+  public String getType() {
+    return tracer.getType(slot);
+  }
+
+  // System.nanoTime() of the socket read completing the record
+  public long getReadNanos() {
+    return tracer.getTimestamp(slot, 0);
+  }
+
+  public long getNanos(RecordStage stage) {
+    return tracer.getTimestamp(slot, stage.ordinal() + 1)
+        - tracer.getTimestamp(slot, stage.ordinal());
+  }
+
+  public long getTotalNanos() {
+    return tracer.getTimestamp(slot, RecordTracer.BOUNDARIES - 1) - getReadNanos();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder(String.format("%6d %-12s", sequence, getType()));
+    for (RecordStage stage : RecordTracer.STAGES) {
+      text.append(String.format(" %s=%,d", stage.name().toLowerCase(), getNanos(stage)));
+    }
+    return text.append(String.format(" total=%,dns", getTotalNanos())).toString();
+  }
+
+}
@@ -0,0 +1,12 @@
+package com.bytezone.dm3270.metrics;
+
+/*
+ * Receives the stage breakdown of each record traced by a RecordTracer, in the session
+ * reader thread. The trace is reused for the next record, so it must not be kept.
+ */
+@FunctionalInterface
+public interface RecordTraceListener {
+
+  void recordTraced(RecordTrace trace);
+
+}
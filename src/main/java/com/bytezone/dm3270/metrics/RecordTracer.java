@@ -0,0 +1,161 @@
+package com.bytezone.dm3270.metrics;
+
+import java.util.Arrays;
+
+/*
+ * Optional per-record tracing of one session: timestamps the boundary of every RecordStage
+ * of each inbound record, adds the stage times to one LatencyHistogram per stage and
+ * passes the breakdown to a RecordTraceListener. Timestamps are kept in a ring buffer
+ * allocated up front with the last capacity records, so tracing allocates nothing per
+ * record.
+ *
+ * Boundaries are stamped by the session reader thread, so a tracer must not be shared by
+ * sessions (merge their histograms instead), and the ring is only consistent when read
+ * from the listener or once the session is over.
+ */
+public class RecordTracer {
+
+  public static final int DEFAULT_CAPACITY = 256;
+
+  static final RecordStage[] STAGES = RecordStage.values();
+  static final int BOUNDARIES = STAGES.length + 1;
+
+  private final int capacity;
+  private final long[] timestamps;
+  private final String[] types;
+  private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+  private final LatencyHistogram total = new LatencyHistogram();
+  private final RecordTrace trace = new RecordTrace(this);
+  private volatile RecordTraceListener listener;
+
+  private long readNanos;
+  private int current = -1;             // first timestamp of the record being traced
+  private volatile long sequence;       // records traced
+
+  public RecordTracer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public RecordTracer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    this.capacity = capacity;
+    timestamps = new long[capacity * BOUNDARIES];
+    types = new String[capacity];
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+  }
+
+  public void setListener(RecordTraceListener listener) {
+    this.listener = listener;
+  }
+
+  // called by the reader thread as soon as data is read
+  public void dataRead(long nanos) {
+    readNanos = nanos;
+  }
+
+  public void recordFramed() {
+    current = slotOf(sequence) * BOUNDARIES;
+    timestamps[current] = readNanos;
+    timestamps[current + 1] = System.nanoTime();
+    for (int i = 2; i < BOUNDARIES; i++) {
+      timestamps[current + i] = 0;
+    }
+  }
+
+  // stamps the end of a stage of the record being traced, ignored between records
+  public void stageCompleted(RecordStage stage) {
+    if (current >= 0) {
+      timestamps[current + stage.ordinal() + 1] = System.nanoTime();
+    }
+  }
+
+  public void recordCompleted(String type) {
+    if (current < 0) {
+      return;
+    }
+    timestamps[current + BOUNDARIES - 1] = System.nanoTime();
+    for (int i = 1; i < BOUNDARIES; i++) {            // stages not reached took no time
+      if (timestamps[current + i] < timestamps[current + i - 1]) {
+        timestamps[current + i] = timestamps[current + i - 1];
+      }
+    }
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i].record(timestamps[current + i + 1] - timestamps[current + i]);
+    }
+    total.record(timestamps[current + BOUNDARIES - 1] - timestamps[current]);
+    types[current / BOUNDARIES] = type;
+    current = -1;
+
+    long traced = sequence;
+    sequence = traced + 1;
+    RecordTraceListener recordListener = listener;
+    if (recordListener != null) {
+      recordListener.recordTraced(trace.moveTo(traced));
+    }
+  }
+
+  int slotOf(long sequence) {
+    return (int) (sequence % capacity);
+  }
+
+  long getTimestamp(int slot, int boundary) {
+    return timestamps[slot * BOUNDARIES + boundary];
+  }
+
+  String getType(int slot) {
+    return types[slot];
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public long getCount() {
+    return sequence;
+  }
+
+  public LatencyHistogram getHistogram(RecordStage stage) {
+    return histograms[stage.ordinal()];
+  }
+
+  // from the socket read to the end of the processing
+  public LatencyHistogram getTotal() {
+    return total;
+  }
+
+  // records still in the ring, oldest first
+  public void forEachTrace(RecordTraceListener action) {
+    long last = sequence;
+    RecordTrace view = new RecordTrace(this);
+    for (long i = Math.max(0, last - capacity); i < last; i++) {
+      action.recordTraced(view.moveTo(i));
+    }
+  }
+
+  // clears the histograms and the ring, like the listener or the session end it must not
+  // race the reader thread
+  public void reset() {
+    for (LatencyHistogram histogram : histograms) {
+      histogram.reset();
+    }
+    total.reset();
+    Arrays.fill(timestamps, 0);
+    Arrays.fill(types, null);
+    current = -1;
+    sequence = 0;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    for (RecordStage stage : STAGES) {
+      text.append(String.format("%-12s %s%n", stage, getHistogram(stage)));
+    }
+    return text.append(String.format("%-12s %s%n", "TOTAL", total)).toString();
+  }
+
+}
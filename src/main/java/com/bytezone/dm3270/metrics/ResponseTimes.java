@@ -0,0 +1,61 @@
+package com.bytezone.dm3270.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Host response times (nanos from an AID being written to the socket, to the read of the
+ * record restoring the keyboard) in one LatencyHistogram per AID key. Recording and merging
+ * never lock once a key has been seen, so sessions can record into a shared instance or keep
+ * their own and merge them when reporting.
+ */
+public class ResponseTimes {
+
+  private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+  public void record(String key, long nanos) {
+    getOrCreate(key).record(nanos);
+  }
+
+  private LatencyHistogram getOrCreate(String key) {
+    LatencyHistogram histogram = histograms.get(key);
+    return histogram != null ? histogram
+        : histograms.computeIfAbsent(key, k -> new LatencyHistogram());
+  }
+
+  // null when no response was recorded for the key
+  public LatencyHistogram getHistogram(String key) {
+    return histograms.get(key);
+  }
+
+  // sorted by key
+  public Map<String, LatencyHistogram> getHistograms() {
+    return new TreeMap<>(histograms);
+  }
+
+  // all keys together
+  public LatencyHistogram getTotal() {
+    LatencyHistogram total = new LatencyHistogram();
+    histograms.values().forEach(total::merge);
+    return total;
+  }
+
+  public void merge(ResponseTimes other) {
+    other.histograms.forEach((key, histogram) -> getOrCreate(key).merge(histogram));
+  }
+
+  public void reset() {
+    histograms.values().forEach(LatencyHistogram::reset);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    getHistograms().forEach((key, histogram) ->
+        text.append(String.format("%-8s %s%n", key, histogram)));
+    return text.toString();
+  }
+
+}
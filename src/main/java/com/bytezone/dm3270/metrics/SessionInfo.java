@@ -0,0 +1,65 @@
+package com.bytezone.dm3270.metrics;
+
+import java.util.List;
+
+/**
+ * Live view of a terminal session, passed to {@link SessionMetrics} when it connects and
+ * disconnects.
+ * <p>
+ * Getters read the current state of the session without locking it, so they can be invoked
+ * from any thread at any time while the session runs.
+ */
+public interface SessionInfo {
+
+  /**
+   * Gets the terminal server host name.
+   *
+   * @return the host name, as given to connect.
+   */
+  String getHost();
+
+  /**
+   * Gets the terminal server port.
+   *
+   * @return the port number.
+   */
+  int getPort();
+
+  /**
+   * Gets whether the session negotiated TN3270E.
+   *
+   * @return true when using TN3270E, false for plain TN3270.
+   */
+  boolean isExtended();
+
+  /**
+   * Gets the terminal model of the session.
+   *
+   * @return the device type agreed with the terminal server, like IBM-3278-2-E, or the
+   * terminal type sent when not using TN3270E.
+   */
+  String getModel();
+
+  /**
+   * Gets the TN3270E functions agreed with the terminal server.
+   *
+   * @return the function names, empty when not using TN3270E.
+   */
+  List<String> getFunctions();
+
+  /**
+   * Gets the last time data was exchanged with the terminal server.
+   *
+   * @return the time in millis since the epoch.
+   */
+  long getLastAccessMillis();
+
+  /**
+   * Gets whether the keyboard is locked, which usually means the session waits for the
+   * terminal server.
+   *
+   * @return true when the keyboard is locked.
+   */
+  boolean isKeyboardLocked();
+
+}
@@ -0,0 +1,126 @@
+package com.bytezone.dm3270.metrics;
+
+/**
+ * Interface to be invoked with what a terminal session does on the wire and how long it takes
+ * to process it.
+ * <p>
+ * Methods are invoked from the session threads (the one reading from the terminal server, the
+ * keep alive one and those sending Action IDs) while they do their work, so implementations
+ * must be thread safe and must not block. All methods do nothing by default.
+ */
+public interface SessionMetrics {
+
+  /**
+   * Implementation which ignores everything, used when no other one is set.
+   */
+  SessionMetrics NO_OP = new SessionMetrics() {
+  };
+
+  /**
+   * Method invoked when the session starts connecting to the terminal server, which is followed
+   * by {@link #connected(SessionInfo)} or {@link #connectFailed()}.
+   *
+   * @param reconnection true when the session was connected before.
+   */
+  default void connecting(boolean reconnection) {
+  }
+
+  /**
+   * Method invoked when the session connects to the terminal server.
+   *
+   * @param session the connected session, which keeps reporting its current state until it is
+   * disconnected.
+   */
+  default void connected(SessionInfo session) {
+  }
+
+  /**
+   * Method invoked when the session could not connect to the terminal server, or gave up
+   * connecting.
+   */
+  default void connectFailed() {
+  }
+
+  /**
+   * Method invoked when the session is disconnected, either by the client or the terminal
+   * server.
+   *
+   * @param session the same session passed to {@link #connected(SessionInfo)}.
+   */
+  default void disconnected(SessionInfo session) {
+  }
+
+  /**
+   * Method invoked for every exception notified to the {@link
+   * com.bytezone.dm3270.ConnectionListener} of the session.
+   *
+   * @param ex the exception notified.
+   */
+  default void exceptionNotified(Exception ex) {
+  }
+
+  /**
+   * Method invoked for every read from the terminal server socket.
+   *
+   * @param bytes number of bytes read.
+   */
+  default void bytesReceived(int bytes) {
+  }
+
+  /**
+   * Method invoked for every write to the terminal server socket.
+   *
+   * @param bytes number of bytes written.
+   */
+  default void bytesSent(int bytes) {
+  }
+
+  /**
+   * Method invoked after the bytes of a socket read have been handed to the telnet listener,
+   * which decodes them and applies them to the screen.
+   *
+   * @param nanos time taken by the listener.
+   */
+  default void listenerDispatched(long nanos) {
+  }
+
+  /**
+   * Method invoked before every write to the terminal server socket.
+   *
+   * @param depth number of writes in progress or waiting for the socket, including this one.
+   */
+  default void writeQueued(int depth) {
+  }
+
+  /**
+   * Method invoked for every 3270 (or TN3270E) record received.
+   *
+   * @param type name of the command in the record. For example Erase Write.
+   * @param bytes size of the record.
+   * @param decodeNanos time taken to decode the command.
+   * @param applyNanos time taken to apply the command to the screen and send its reply.
+   */
+  default void recordReceived(String type, int bytes, long decodeNanos, long applyNanos) {
+  }
+
+  /**
+   * Method invoked for every 3270 (or TN3270E) record sent, like Action IDs and query replies.
+   *
+   * @param bytes size of the record.
+   */
+  default void recordSent(int bytes) {
+  }
+
+  /**
+   * Method invoked for every telnet command or subcommand received while negotiating.
+   */
+  default void telnetNegotiationReceived() {
+  }
+
+  /**
+   * Method invoked every time a no-op is sent to keep the connection alive.
+   */
+  default void keepAliveSent() {
+  }
+
+}
@@ -0,0 +1,75 @@
+package com.bytezone.dm3270.metrics;
+
+import java.util.List;
+
+/**
+ * Management interface of {@link SessionsMonitor}, with the live state of all the sessions
+ * reporting to an {@link AggregateSessionMetrics}.
+ * <p>
+ * Counts are since the metrics were created or reset, rates are per second over the last
+ * second (or more, when polled less often) and times are in millis.
+ */
+public interface SessionsMXBean {
+
+  int getActiveSessions();
+
+  int getConnectingSessions();
+
+  /**
+   * Gets the number of active sessions whose keyboard is locked.
+   *
+   * @return the sessions waiting for the terminal server.
+   */
+  int getLockedSessions();
+
+  long getTotalSessions();
+
+  long getReconnections();
+
+  /**
+   * Gets the number of exceptions notified to the sessions connection listeners.
+   *
+   * @return the number of errors.
+   */
+  long getErrors();
+
+  long getKeepAlivesSent();
+
+  long getBytesReceived();
+
+  long getBytesSent();
+
+  long getRecordsReceived();
+
+  long getRecordsSent();
+
+  double getBytesReceivedPerSecond();
+
+  double getBytesSentPerSecond();
+
+  double getRecordsReceivedPerSecond();
+
+  double getRecordsSentPerSecond();
+
+  long getResponseCount();
+
+  double getResponseTimeMeanMillis();
+
+  double getResponseTimeP50Millis();
+
+  double getResponseTimeP90Millis();
+
+  double getResponseTimeP99Millis();
+
+  double getResponseTimeP999Millis();
+
+  double getResponseTimeMaxMillis();
+
+  /**
+   * Gets the detail of every active session, read when invoked.
+   *
+   * @return host, model, TN3270E functions and last access of the sessions.
+   */
+  List<SessionInfo> getSessions();
+
+}
@@ -0,0 +1,250 @@
+package com.bytezone.dm3270.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * MBean publishing the state of all the sessions sharing an {@link AggregateSessionMetrics}
+ * (and optionally a {@link ResponseTimes}), to watch a running load from JConsole or any JMX
+ * client.
+ * <p>
+ * Attributes are computed when read from the counters the sessions already update without
+ * locking, so polling never blocks nor slows down the sessions.
+ */
+public class SessionsMonitor implements SessionsMXBean {
+
+  /**
+   * Object name used by {@link #register()}.
+   */
+  public static final String DEFAULT_OBJECT_NAME = "com.bytezone.dm3270:type=Sessions";
+
+  private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final AggregateSessionMetrics metrics;
+  private final ResponseTimes responseTimes;
+  private final Rate bytesReceivedRate;
+  private final Rate bytesSentRate;
+  private final Rate recordsReceivedRate;
+  private final Rate recordsSentRate;
+  private ObjectName objectName;
+
+  /**
+   * Creates a monitor of the given metrics.
+   *
+   * @param metrics the metrics set to all the monitored clients with {@link
+   * com.bytezone.dm3270.TerminalClient#setSessionMetrics(SessionMetrics)}.
+   * @param responseTimes the response times set to all the monitored clients with {@link
+   * com.bytezone.dm3270.TerminalClient#setResponseTimes(ResponseTimes)}, or null to not publish
+   * response times.
+   */
+  public SessionsMonitor(AggregateSessionMetrics metrics, ResponseTimes responseTimes) {
+    this.metrics = metrics;
+    this.responseTimes = responseTimes == null ? new ResponseTimes() : responseTimes;
+    bytesReceivedRate = new Rate(metrics::getBytesReceived);
+    bytesSentRate = new Rate(metrics::getBytesSent);
+    recordsReceivedRate = new Rate(metrics::getRecordsReceived);
+    recordsSentRate = new Rate(metrics::getRecordsSent);
+  }
+
+  /**
+   * Registers the monitor in the platform MBean server with {@link #DEFAULT_OBJECT_NAME}.
+   *
+   * @throws JMException when there is already an MBean with the same name.
+   */
+  public void register() throws JMException {
+    register(new ObjectName(DEFAULT_OBJECT_NAME));
+  }
+
+  /**
+   * Registers the monitor in the platform MBean server, to publish several monitors (for
+   * example one per host) under different names.
+   *
+   * @param objectName the name to register with.
+   * @throws JMException when there is already an MBean with the same name.
+   */
+  public synchronized void register(ObjectName objectName) throws JMException {
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    this.objectName = objectName;
+  }
+
+  /**
+   * Removes the monitor from the platform MBean server, if registered.
+   *
+   * @throws JMException when the monitor was already removed by other means.
+   */
+  public synchronized void unregister() throws JMException {
+    if (objectName != null) {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      server.unregisterMBean(objectName);
+      objectName = null;
+    }
+  }
+
+  @Override
+  public int getActiveSessions() {
+    return metrics.getActiveSessions();
+  }
+
+  @Override
+  public int getConnectingSessions() {
+    return metrics.getConnectingSessions();
+  }
+
+  @Override
+  public int getLockedSessions() {
+    return metrics.getLockedSessions();
+  }
+
+  @Override
+  public long getTotalSessions() {
+    return metrics.getSessions();
+  }
+
+  @Override
+  public long getReconnections() {
+    return metrics.getReconnections();
+  }
+
+  @Override
+  public long getErrors() {
+    return metrics.getErrors();
+  }
+
+  @Override
+  public long getKeepAlivesSent() {
+    return metrics.getKeepAlivesSent();
+  }
+
+  @Override
+  public long getBytesReceived() {
+    return metrics.getBytesReceived();
+  }
+
+  @Override
+  public long getBytesSent() {
+    return metrics.getBytesSent();
+  }
+
+  @Override
+  public long getRecordsReceived() {
+    return metrics.getRecordsReceived();
+  }
+
+  @Override
+  public long getRecordsSent() {
+    return metrics.getRecordsSent();
+  }
+
+  @Override
+  public double getBytesReceivedPerSecond() {
+    return bytesReceivedRate.get();
+  }
+
+  @Override
+  public double getBytesSentPerSecond() {
+    return bytesSentRate.get();
+  }
+
+  @Override
+  public double getRecordsReceivedPerSecond() {
+    return recordsReceivedRate.get();
+  }
+
+  @Override
+  public double getRecordsSentPerSecond() {
+    return recordsSentRate.get();
+  }
+
+  @Override
+  public long getResponseCount() {
+    return responseTimes.getTotal().getCount();
+  }
+
+  @Override
+  public double getResponseTimeMeanMillis() {
+    return responseTimes.getTotal().getMean() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getResponseTimeP50Millis() {
+    return getResponseTimePercentile(50);
+  }
+
+  @Override
+  public double getResponseTimeP90Millis() {
+    return getResponseTimePercentile(90);
+  }
+
+  @Override
+  public double getResponseTimeP99Millis() {
+    return getResponseTimePercentile(99);
+  }
+
+  @Override
+  public double getResponseTimeP999Millis() {
+    return getResponseTimePercentile(99.9);
+  }
+
+  private double getResponseTimePercentile(double percentile) {
+    return (double) responseTimes.getTotal().getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getResponseTimeMaxMillis() {
+    return (double) responseTimes.getTotal().getMax() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public List<SessionInfo> getSessions() {
+    return metrics.getSessionInfos();
+  }
+
+  // per second change of a counter, between samples at least a second apart
+  private static class Rate {
+
+    private static final long MIN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongSupplier counter;
+    private final AtomicReference<Sample> last;
+    private volatile double rate;
+
+    private Rate(LongSupplier counter) {
+      this.counter = counter;
+      last = new AtomicReference<>(new Sample(System.nanoTime(), counter.getAsLong()));
+    }
+
+    private double get() {
+      Sample previous = last.get();
+      long now = System.nanoTime();
+      long elapsed = now - previous.nanos;
+      if (elapsed >= MIN_INTERVAL_NANOS) {
+        Sample current = new Sample(now, counter.getAsLong());
+        if (last.compareAndSet(previous, current)) {
+          rate = (double) (current.value - previous.value) * TimeUnit.SECONDS.toNanos(1)
+              / elapsed;
+        }
+      }
+      return rate;
+    }
+
+  }
+
+  private static class Sample {
+
+    private final long nanos;
+    private final long value;
+
+    private Sample(long nanos, long value) {
+      this.nanos = nanos;
+      this.value = value;
+    }
+
+  }
+
+}
@@ -2,7 +2,7 @@ package com.bytezone.dm3270.orders;
 
 import com.bytezone.dm3270.display.DisplayScreen;
 import com.bytezone.dm3270.display.Pen;
-import com.bytezone.dm3270.utilities.Dm3270Utility;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 
 public class RepeatToAddressOrder extends Order {
 
@@ -16,27 +16,28 @@ public class RepeatToAddressOrder extends Order {
     stopAddress = new BufferAddress(buffer[offset + 1], buffer[offset + 2]);
 
     if (buffer[offset + 3] == Order.GRAPHICS_ESCAPE) {
-      repeatCharacter = (char) Dm3270Utility.EBC_2_ASC[buffer[offset + 4] & 0xFF];
       // offset + 5 can be used, but I haven't seen one yet
       rptChar = buffer[offset + 4];
 
       this.buffer = new byte[6];
     } else {
-      repeatCharacter = (char) Dm3270Utility.EBC_2_ASC[buffer[offset + 3] & 0xFF];
       rptChar = buffer[offset + 3];
 
       this.buffer = new byte[4];
     }
 
     System.arraycopy(buffer, offset, this.buffer, 0, this.buffer.length);
+    setRepeatCharacter(EbcdicCodec.getDefault());
+  }
 
-    if (rptChar == 0) {
-      repeatCharacter = ' ';
-    }
+  // only shown by toString, decoded again with the code page of the screen once processed
+  private void setRepeatCharacter(EbcdicCodec codec) {
+    repeatCharacter = rptChar == 0 ? ' ' : codec.toChar(rptChar);
   }
 
   @Override
   public void process(DisplayScreen screen) {
+    setRepeatCharacter(screen.getCodec());
     int stopLocation = stopAddress.getLocation();
 
     Pen pen = screen.getPen();
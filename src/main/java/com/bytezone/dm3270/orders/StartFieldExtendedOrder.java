@@ -13,7 +13,6 @@ public class StartFieldExtendedOrder extends Order {
 
   private StartFieldAttribute startFieldAttribute;
   private final List<Attribute> attributes = new ArrayList<>();
-  private int location = -1;
 
   public StartFieldExtendedOrder(byte[] buffer, int offset) {
     assert buffer[offset] == Order.START_FIELD_EXTENDED;
@@ -49,8 +48,7 @@ public class StartFieldExtendedOrder extends Order {
   @Override
   public void process(DisplayScreen screen) {
     Pen pen = screen.getPen();
-    location = pen.getPosition();
-    pen.startField(startFieldAttribute);
+    pen.startField(startFieldAttribute.copy());
 
     for (Attribute attribute : attributes) {
       pen.addAttribute(attribute);
@@ -62,8 +60,7 @@ public class StartFieldExtendedOrder extends Order {
   @Override
   public String toString() {
     StringBuilder text = new StringBuilder();
-    String locationText = location >= 0 ? String.format("(%04d)", location) : "";
-    text.append(String.format("SFE : %s %s", startFieldAttribute, locationText));
+    text.append(String.format("SFE : %s", startFieldAttribute));
 
     for (Attribute attr : attributes) {
       text.append(String.format("\n      %-34s", attr));
@@ -7,7 +7,6 @@ import com.bytezone.dm3270.display.Pen;
 public class StartFieldOrder extends Order {
 
   private final StartFieldAttribute startFieldAttribute;
-  private int location = -1;
 
   public StartFieldOrder(byte[] buffer, int offset) {
     assert buffer[offset] == Order.START_FIELD;
@@ -22,14 +21,13 @@ public class StartFieldOrder extends Order {
   @Override
   public void process(DisplayScreen screen) {
     Pen pen = screen.getPen();
-    location = pen.getPosition();
-    pen.startField(startFieldAttribute);
+    pen.startField(startFieldAttribute.copy());
     pen.moveRight();
   }
 
   @Override
   public String toString() {
-    return String.format("SF  : %s (%04d)", startFieldAttribute, location);
+    return String.format("SF  : %s", startFieldAttribute);
   }
 
 }
@@ -0,0 +1,252 @@
+package com.bytezone.dm3270.printer;
+
+import com.bytezone.dm3270.commands.Command;
+import com.bytezone.dm3270.orders.BufferAddress;
+import com.bytezone.dm3270.orders.Order;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
+import java.util.Arrays;
+
+/*
+ * Formats LU3 print records (3270 data stream) into text. Writes fill a print buffer of the size
+ * agreed in the BIND, as they would fill a screen, and the buffer is printed when a write asks
+ * to start the printer. Attribute positions and nondisplay fields are printed as blanks, and
+ * lines are printed without their trailing blanks.
+ *
+ * The buffer is printed in lines of the length set in the WCC, or when it is unformatted, in
+ * lines of the buffer width broken by the new line, carriage return and form feed orders and
+ * ended by the end of message order.
+ */
+class DataStreamFormatter {
+
+  private static final byte START_PRINTER = 0x08;
+  private static final int[] LINE_LENGTHS = {0, 40, 64, 80};
+  private static final byte NONDISPLAY = 0x0C;
+  private static final byte FIELD_ATTRIBUTE = (byte) 0xC0;
+
+  private int columns = 80;
+  private byte[] buffer = new byte[24 * 80];
+  private boolean[] attributes = new boolean[buffer.length];
+  private int address;
+  private int cursor;
+
+  void setSize(int rows, int columns) {
+    this.columns = columns;
+    buffer = new byte[rows * columns];
+    attributes = new boolean[buffer.length];
+    address = 0;
+    cursor = 0;
+  }
+
+  // the text printed, empty unless the write started the printer
+  String format(byte[] data, int offset, int length, EbcdicCodec codec) {
+    if (length < 2) {
+      return "";
+    }
+    switch (data[offset]) {
+      case Command.ERASE_WRITE_F5:
+      case Command.ERASE_WRITE_05:
+      case Command.ERASE_WRITE_ALTERNATE_7E:
+      case Command.ERASE_WRITE_ALTERNATE_0D:
+        Arrays.fill(buffer, (byte) 0);
+        Arrays.fill(attributes, false);
+        cursor = 0;
+        break;
+
+      case Command.WRITE_F1:
+      case Command.WRITE_01:
+        break;
+
+      default:
+        return "";
+    }
+
+    byte wcc = data[offset + 1];
+    write(data, offset + 2, offset + length);
+    return (wcc & START_PRINTER) == 0 ? "" : print(LINE_LENGTHS[(wcc & 0x30) >> 4], codec);
+  }
+
+  private void write(byte[] data, int start, int max) {
+    address = cursor;
+    int ptr = start;
+    while (ptr < max) {
+      byte value = data[ptr++];
+      switch (value) {
+        case Order.SET_BUFFER_ADDRESS:
+          if (ptr + 1 < max) {
+            address = location(data[ptr], data[ptr + 1]);
+          }
+          ptr += 2;
+          break;
+
+        case Order.START_FIELD:
+          if (ptr < max) {
+            setAttribute(data[ptr]);
+          }
+          ptr++;
+          break;
+
+        case Order.START_FIELD_EXTENDED:
+          int pairs = ptr < max ? data[ptr] & 0xFF : 0;
+          byte attribute = 0;
+          for (int i = 0, p = ptr + 1; i < pairs && p + 1 < max; i++, p += 2) {
+            if (data[p] == FIELD_ATTRIBUTE) {
+              attribute = data[p + 1];
+            }
+          }
+          setAttribute(attribute);
+          ptr += 1 + 2 * pairs;
+          break;
+
+        case Order.SET_ATTRIBUTE:
+          ptr += 2;
+          break;
+
+        case Order.MODIFY_FIELD:
+          ptr += 1 + 2 * (ptr < max ? data[ptr] & 0xFF : 0);
+          break;
+
+        case Order.INSERT_CURSOR:
+          cursor = address;
+          break;
+
+        case Order.PROGRAM_TAB:
+          programTab();
+          break;
+
+        case Order.REPEAT_TO_ADDRESS:
+          if (ptr + 2 < max) {
+            int stop = location(data[ptr], data[ptr + 1]);
+            ptr += 2;
+            if (data[ptr] == Order.GRAPHICS_ESCAPE && ptr + 1 < max) {
+              ptr++;
+            }
+            fill(stop, data[ptr++]);
+          } else {
+            ptr = max;
+          }
+          break;
+
+        case Order.ERASE_UNPROTECTED:
+          if (ptr + 1 < max) {
+            fill(location(data[ptr], data[ptr + 1]), (byte) 0);
+          }
+          ptr += 2;
+          break;
+
+        case Order.GRAPHICS_ESCAPE:
+          if (ptr < max) {
+            put(data[ptr]);
+          }
+          ptr++;
+          break;
+
+        default:
+          put(value);           // text and format control orders
+      }
+    }
+  }
+
+  private int location(byte b1, byte b2) {
+    return new BufferAddress(b1, b2).getLocation() % buffer.length;
+  }
+
+  private void put(byte value) {
+    buffer[address] = value;
+    attributes[address] = false;
+    address = (address + 1) % buffer.length;
+  }
+
+  private void setAttribute(byte attribute) {
+    buffer[address] = attribute;
+    attributes[address] = true;
+    address = (address + 1) % buffer.length;
+  }
+
+  // fills up to the stop address, or the whole buffer when it is the current one
+  private void fill(int stop, byte value) {
+    do {
+      if (!attributes[address]) {
+        buffer[address] = value;
+      }
+      address = (address + 1) % buffer.length;
+    } while (address != stop);
+  }
+
+  // to the first position after the next attribute, fields are not told apart by protection
+  private void programTab() {
+    for (int i = address; i < buffer.length; i++) {
+      if (attributes[i]) {
+        address = (i + 1) % buffer.length;
+        return;
+      }
+    }
+    address = 0;
+  }
+
+  private String print(int lineLength, EbcdicCodec codec) {
+    StringBuilder text = new StringBuilder(buffer.length + 64);
+    StringBuilder line = new StringBuilder(columns);
+    int blankLines = 0;
+    boolean hidden = isHiddenAtStart();
+    int width = lineLength == 0 ? columns : lineLength;
+    for (int i = 0; i < buffer.length; i++) {
+      byte value = buffer[i];
+      if (attributes[i]) {
+        hidden = (value & NONDISPLAY) == NONDISPLAY;
+        line.append(' ');
+      } else if (lineLength == 0 && value == Order.FCO_END_OF_MEDIUM) {
+        break;
+      } else if (lineLength == 0 && value == Order.FCO_NEWLINE) {
+        blankLines = endLine(text, line, blankLines, "\n");
+        continue;
+      } else if (lineLength == 0 && value == Order.FCO_CARRIAGE_RETURN) {
+        blankLines = endLine(text, line, blankLines, "\r");
+        continue;
+      } else if (lineLength == 0 && value == Order.FCO_FORM_FEED) {
+        blankLines = endLine(text, line, blankLines, "\f");
+        continue;
+      } else if (lineLength == 0 && value == Order.FCO_NULL) {
+        continue;
+      } else {
+        line.append(hidden || (value & 0xFF) < 0x40 ? ' ' : codec.toChar(value));
+      }
+      if (line.length() == width) {
+        blankLines = endLine(text, line, blankLines, "\n");
+      }
+    }
+    if (line.length() > 0) {
+      endLine(text, line, blankLines, "\n");
+    }
+    return text.toString();
+  }
+
+  // blank lines are held back until a printed line follows, so the trailing ones are dropped
+  private static int endLine(StringBuilder text, StringBuilder line, int blankLines,
+      String end) {
+    int length = line.length();
+    while (length > 0 && line.charAt(length - 1) == ' ') {
+      length--;
+    }
+    if (length == 0 && "\n".equals(end)) {
+      line.setLength(0);
+      return blankLines + 1;
+    }
+    for (int i = 0; i < blankLines; i++) {
+      text.append('\n');
+    }
+    text.append(line, 0, length).append(end);
+    line.setLength(0);
+    return 0;
+  }
+
+  // the field wrapping around from the end of the buffer
+  private boolean isHiddenAtStart() {
+    for (int i = buffer.length - 1; i >= 0; i--) {
+      if (attributes[i]) {
+        return (buffer[i] & NONDISPLAY) == NONDISPLAY;
+      }
+    }
+    return false;
+  }
+
+}
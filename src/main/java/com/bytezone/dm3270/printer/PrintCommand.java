@@ -0,0 +1,56 @@
+package com.bytezone.dm3270.printer;
+
+import com.bytezone.dm3270.commands.Command;
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.utilities.Dm3270Utility;
+
+/*
+ * A record sent to a printer session, printed by the Printer of the session instead of being
+ * drawn on the screen. Its acknowledgement is sent by the TN3270ExtendedCommand wrapping it.
+ */
+public class PrintCommand extends Command {
+
+  private final Format format;
+
+  public enum Format {
+    DATA_STREAM, SCS, END_OF_JOB
+  }
+
+  public PrintCommand(Format format, byte[] buffer, int offset, int length) {
+    super(buffer, offset, length);
+    this.format = format;
+  }
+
+  @Override
+  public void process(Screen screen) {
+    Printer printer = screen.getTelnetState().getPrinter();
+    if (printer == null) {
+      return;
+    }
+    switch (format) {
+      case DATA_STREAM:
+        printer.printDataStream(data, 0, data.length, screen.getCodec());
+        break;
+      case SCS:
+        printer.printScs(data, 0, data.length, screen.getCodec());
+        break;
+      case END_OF_JOB:
+        printer.endOfJob();
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public String getName() {
+    return format == Format.END_OF_JOB ? "Print EOJ" : "Print " + format;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("PRT: %s%n", format) + Dm3270Utility.toHex(data, 0,
+        Math.min(data.length, 32));
+  }
+
+}
@@ -0,0 +1,109 @@
+package com.bytezone.dm3270.printer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Writes the text printed by a Printer from its own thread, so the session acknowledges each
+ * record as soon as it is formatted, however slow the output is. The output is flushed at the
+ * end of each job and whenever everything printed so far has been written. When it fails, the
+ * rest is dropped, and the session keeps acknowledging records.
+ */
+class PrintSink {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PrintSink.class);
+
+  private static final int QUEUE_CAPACITY = 1024;
+  // compared by identity, so printed text is never taken for them
+  private static final String END_OF_JOB = new String("end of job");
+  private static final String CLOSE = new String("close");
+
+  private final Writer output;
+  private final BlockingQueue<String> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+  private final Thread thread;
+  private boolean failed;
+
+  PrintSink(Writer output) {
+    this.output = new BufferedWriter(output);
+    thread = new Thread(this::write, "dm3270-printer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  // only waits when the output is a whole queue behind
+  void print(String text) {
+    if (!text.isEmpty()) {
+      put(text);
+    }
+  }
+
+  void endOfJob() {
+    put(END_OF_JOB);
+  }
+
+  private void put(String text) {
+    try {
+      queue.put(text);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void write() {
+    try {
+      while (true) {
+        String text = queue.poll();
+        if (text == null) {
+          flush();
+          text = queue.take();
+        }
+        if (text == CLOSE) {
+          flush();
+          return;
+        }
+        if (text == END_OF_JOB) {
+          flush();
+        } else if (!failed) {
+          try {
+            output.write(text);
+          } catch (IOException ex) {
+            fail(ex);
+          }
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void flush() {
+    if (!failed) {
+      try {
+        output.flush();
+      } catch (IOException ex) {
+        fail(ex);
+      }
+    }
+  }
+
+  private void fail(IOException ex) {
+    LOG.error("Could not write to the printer output, dropping the rest of the output", ex);
+    failed = true;
+  }
+
+  // writes everything printed before, the output is flushed but not closed
+  void close() {
+    put(CLOSE);
+    try {
+      thread.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
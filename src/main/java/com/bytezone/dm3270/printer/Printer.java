@@ -0,0 +1,100 @@
+package com.bytezone.dm3270.printer;
+
+import com.bytezone.dm3270.utilities.EbcdicCodec;
+import java.io.Writer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 3287 printer emulated by a printer session, printing the jobs sent by the host as text.
+ * <p>
+ * LU1 sessions are printed from their SCS records and LU3 sessions from their 3270 data stream,
+ * as selected by the host in the BIND. Each record is formatted as it arrives and handed to a
+ * thread which writes it to the output, so the host gets its acknowledgement without waiting
+ * for the output. The output is flushed at the end of each job, and when everything received
+ * has been written.
+ */
+public class Printer {
+
+  public static final String DEVICE_TYPE = "IBM-3287-1";
+
+  private static final Logger LOG = LoggerFactory.getLogger(Printer.class);
+
+  private static final int LU_TYPE_1 = 1;
+  private static final int LU_TYPE_3 = 3;
+
+  private final String luName;
+  private final PrintSink sink;
+  private final ScsFormatter scsFormatter = new ScsFormatter();
+  private final DataStreamFormatter dataStreamFormatter = new DataStreamFormatter();
+  private int luType;
+  private volatile boolean closed;
+
+  /**
+   * Creates a printer writing to the given output.
+   *
+   * @param luName name of the printer LU to connect to, or null to let the server pick one.
+   * @param output where to write the text printed. It is flushed at the end of each job but
+   * never closed.
+   */
+  public Printer(String luName, Writer output) {
+    this.luName = luName;
+    this.sink = new PrintSink(output);
+  }
+
+  public String getLuName() {
+    return luName;
+  }
+
+  // 0 until the host binds the session
+  public int getLuType() {
+    return luType;
+  }
+
+  public void bind(int luType, int rows, int columns) {
+    LOG.debug("Bound as LU{}, {}x{}", luType, rows, columns);
+    if (luType != LU_TYPE_1 && luType != LU_TYPE_3) {
+      LOG.warn("Unsupported printer LU type: {}", luType);
+    }
+    this.luType = luType;
+    if (rows > 0 && columns > 0) {
+      dataStreamFormatter.setSize(rows, columns);
+    }
+    scsFormatter.reset();
+  }
+
+  // ends the job in progress
+  public void unbind() {
+    endOfJob();
+    luType = 0;
+  }
+
+  public void printDataStream(byte[] buffer, int offset, int length, EbcdicCodec codec) {
+    print(dataStreamFormatter.format(buffer, offset, length, codec));
+  }
+
+  public void printScs(byte[] buffer, int offset, int length, EbcdicCodec codec) {
+    print(scsFormatter.format(buffer, offset, length, codec));
+  }
+
+  private void print(String text) {
+    if (!closed) {
+      sink.print(text);
+    }
+  }
+
+  public void endOfJob() {
+    if (!closed) {
+      sink.endOfJob();
+    }
+  }
+
+  // writes and flushes what was printed, then stops printing
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      sink.close();
+    }
+  }
+
+}
@@ -0,0 +1,173 @@
+package com.bytezone.dm3270.printer;
+
+import com.bytezone.dm3270.utilities.EbcdicCodec;
+
+/*
+ * Formats LU1 print records (SNA Character String) into text. Line and page controls become
+ * newlines and form feeds, presentation positions and tabs become spaces, and format controls
+ * (page and line settings, fonts, attributes) are skipped with their parameters. A graphic
+ * escape prints a space, as the alternate character set is not known. The column is kept across
+ * records, as a line may continue in the next one.
+ */
+class ScsFormatter {
+
+  private static final byte VERTICAL_CHANNEL_SELECT = 0x04;
+  private static final byte HORIZONTAL_TAB = 0x05;
+  private static final byte GRAPHIC_ESCAPE = 0x08;
+  private static final byte FORM_FEED = 0x0C;
+  private static final byte CARRIAGE_RETURN = 0x0D;
+  private static final byte NEW_LINE = 0x15;
+  private static final byte INTERCHANGE_RECORD_SEPARATOR = 0x1E;
+  private static final byte LINE_FEED = 0x25;
+  private static final byte SET_ATTRIBUTE = 0x28;
+  private static final byte VERTICAL_TAB = 0x0B;
+  private static final byte FORMAT_CONTROL = 0x2B;
+  private static final byte PRESENTATION_POSITION = 0x34;
+  private static final byte TRANSPARENT = 0x35;
+
+  private static final byte ABSOLUTE_HORIZONTAL = (byte) 0xC0;
+  private static final byte ABSOLUTE_VERTICAL = (byte) 0xC4;
+  private static final byte RELATIVE_HORIZONTAL = (byte) 0xC8;
+  private static final byte RELATIVE_VERTICAL = 0x4C;
+
+  private static final int TAB_SIZE = 8;
+
+  private int column;
+
+  String format(byte[] buffer, int offset, int length, EbcdicCodec codec) {
+    StringBuilder text = new StringBuilder(length + 16);
+    int ptr = offset;
+    int max = offset + length;
+    while (ptr < max) {
+      byte value = buffer[ptr++];
+      switch (value) {
+        case NEW_LINE:
+        case INTERCHANGE_RECORD_SEPARATOR:
+        case VERTICAL_TAB:
+          newLine(text);
+          break;
+
+        case LINE_FEED:
+          text.append('\n');
+          pad(text, column);
+          break;
+
+        case CARRIAGE_RETURN:
+          text.append('\r');
+          column = 0;
+          break;
+
+        case FORM_FEED:
+          text.append('\f');
+          column = 0;
+          break;
+
+        case HORIZONTAL_TAB:
+          pad(text, (column / TAB_SIZE + 1) * TAB_SIZE - column);
+          break;
+
+        case VERTICAL_CHANNEL_SELECT:
+          ptr++;                    // channel
+          break;
+
+        case GRAPHIC_ESCAPE:
+          if (ptr < max) {
+            pad(text, 1);
+          }
+          ptr++;
+          break;
+
+        case SET_ATTRIBUTE:
+          ptr += 2;                 // type and value
+          break;
+
+        case FORMAT_CONTROL:
+          // class, then a count which includes itself
+          if (ptr + 1 < max) {
+            ptr += 1 + Math.max(buffer[ptr + 1] & 0xFF, 1);
+          } else {
+            ptr = max;
+          }
+          break;
+
+        case PRESENTATION_POSITION:
+          if (ptr + 1 < max) {
+            position(text, buffer[ptr], buffer[ptr + 1] & 0xFF);
+          }
+          ptr += 2;
+          break;
+
+        case TRANSPARENT:
+          int count = ptr < max ? Math.min(buffer[ptr] & 0xFF, max - ptr - 1) : 0;
+          append(text, buffer, ptr + 1, count, codec);
+          ptr += 1 + count;
+          break;
+
+        default:
+          if ((value & 0xFF) >= 0x40) {
+            int start = ptr - 1;
+            while (ptr < max && (buffer[ptr] & 0xFF) >= 0x40) {
+              ptr++;
+            }
+            append(text, buffer, start, ptr - start, codec);
+          }
+          // other controls (bell, backspace, enable/inhibit presentation) are not printed
+      }
+    }
+    return text.toString();
+  }
+
+  private void newLine(StringBuilder text) {
+    text.append('\n');
+    column = 0;
+  }
+
+  private void position(StringBuilder text, byte type, int value) {
+    switch (type) {
+      case ABSOLUTE_HORIZONTAL:
+        if (value - 1 < column) {
+          text.append('\r');
+          column = 0;
+        }
+        pad(text, value - 1 - column);
+        break;
+
+      case RELATIVE_HORIZONTAL:
+        pad(text, value);
+        break;
+
+      case ABSOLUTE_VERTICAL:
+        newLine(text);              // the page position is not known
+        break;
+
+      case RELATIVE_VERTICAL:
+        for (int i = 0; i < value; i++) {
+          newLine(text);
+        }
+        break;
+
+      default:
+        break;
+    }
+  }
+
+  private void pad(StringBuilder text, int count) {
+    for (int i = 0; i < count; i++) {
+      text.append(' ');
+    }
+    column += Math.max(count, 0);
+  }
+
+  private void append(StringBuilder text, byte[] buffer, int offset, int length,
+      EbcdicCodec codec) {
+    if (length > 0) {
+      text.append(codec.decode(buffer, offset, length));
+      column += length;
+    }
+  }
+
+  void reset() {
+    column = 0;
+  }
+
+}
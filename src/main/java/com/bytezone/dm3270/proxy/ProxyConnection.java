@@ -0,0 +1,204 @@
+package com.bytezone.dm3270.proxy;
+
+import com.bytezone.dm3270.streams.TelnetSocket;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.nio.channels.UnsupportedAddressTypeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// One terminal relayed by a RecordingProxy to its host, only used from the proxy's selector
+// thread. Each direction has its own buffer, and while one can't be fully written its source
+// is not read, so a slow side slows its partner instead of filling the proxy's memory. When a
+// side ends its output, its partner's output is shut down once what was read is written, and
+// the other direction is still relayed until it ends too.
+class ProxyConnection {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ProxyConnection.class);
+
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  private final RecordingProxy proxy;
+  private final int sessionId;
+  private final SocketChannel client;
+  private final SocketChannel server;
+  private final SelectionKey clientKey;
+  private final SelectionKey serverKey;
+  private final ByteBuffer toServer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final ByteBuffer toClient = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final ProxyRecorder recorder;           // null when not recording
+  private boolean recording;
+  private boolean clientEnded;
+  private boolean serverEnded;
+  private boolean closed;
+
+  ProxyConnection(RecordingProxy proxy, int sessionId, Selector selector, SocketChannel client,
+      ProxyRecorder recorder) throws IOException {
+    this.proxy = proxy;
+    this.sessionId = sessionId;
+    this.client = client;
+    this.recorder = recorder;
+    recording = recorder != null;
+
+    // the client is not read until there is a server to write to
+    server = SocketChannel.open();
+    try {
+      server.configureBlocking(false);
+      server.socket().setTcpNoDelay(true);
+      clientKey = client.register(selector, 0, this);
+      serverKey = server.register(selector, 0, this);
+    } catch (IOException ex) {
+      closeQuietly(server);
+      throw ex;
+    }
+  }
+
+  // an address that can't be connected to only closes this connection
+  void connect(InetSocketAddress target) {
+    try {
+      if (server.connect(target)) {
+        connected();
+      } else {
+        serverKey.interestOps(SelectionKey.OP_CONNECT);
+      }
+    } catch (IOException | UnresolvedAddressException | UnsupportedAddressTypeException ex) {
+      LOG.warn("Could not connect session {} to {}", sessionId, target, ex);
+      close();
+    }
+  }
+
+  int getSessionId() {
+    return sessionId;
+  }
+
+  void ready(SelectionKey key) {
+    try {
+      if (key.isConnectable()) {
+        if (!server.finishConnect()) {
+          return;
+        }
+        connected();
+        return;
+      }
+      if (key.isWritable()) {
+        drain(key);
+      }
+      if (key.isValid() && key.isReadable()) {
+        relay(key);
+      }
+    } catch (IOException ex) {
+      LOG.debug("Closing session {}", sessionId, ex);
+      close();
+    }
+  }
+
+  private void connected() {
+    serverKey.interestOps(SelectionKey.OP_READ);
+    clientKey.interestOps(SelectionKey.OP_READ);
+  }
+
+  private void relay(SelectionKey from) throws IOException {
+    boolean fromClient = from == clientKey;
+    ByteBuffer buffer = fromClient ? toServer : toClient;
+    int bytesRead = ((SocketChannel) from.channel()).read(buffer);
+    if (bytesRead < 0) {
+      ended(from);
+      return;
+    }
+    if (bytesRead == 0) {
+      return;
+    }
+
+    buffer.flip();
+    if (recording) {
+      byte[] data = new byte[bytesRead];
+      buffer.get(data);
+      buffer.rewind();
+      if (!recorder.received(sessionId,
+          fromClient ? TelnetSocket.Source.CLIENT : TelnetSocket.Source.SERVER, data)) {
+        LOG.warn("Recording queue full, session {} is not recorded any more", sessionId);
+        recording = false;
+      }
+    }
+    proxy.relayed(bytesRead);
+
+    SelectionKey to = fromClient ? serverKey : clientKey;
+    ((SocketChannel) to.channel()).write(buffer);
+    if (buffer.hasRemaining()) {
+      from.interestOps(from.interestOps() & ~SelectionKey.OP_READ);
+      to.interestOps(to.interestOps() | SelectionKey.OP_WRITE);
+    } else {
+      buffer.clear();
+    }
+  }
+
+  // writes what its partner couldn't, and then reads the partner again
+  private void drain(SelectionKey to) throws IOException {
+    boolean toServer = to == serverKey;
+    ByteBuffer buffer = toServer ? this.toServer : toClient;
+    ((SocketChannel) to.channel()).write(buffer);
+    if (buffer.hasRemaining()) {
+      return;
+    }
+    buffer.clear();
+    to.interestOps(to.interestOps() & ~SelectionKey.OP_WRITE);
+    SelectionKey from = toServer ? clientKey : serverKey;
+    if (toServer ? clientEnded : serverEnded) {
+      shutdownOutput(to);
+    } else {
+      from.interestOps(from.interestOps() | SelectionKey.OP_READ);
+    }
+  }
+
+  // the side read has no more to send, its partner is told once it has everything read before
+  private void ended(SelectionKey from) throws IOException {
+    boolean fromClient = from == clientKey;
+    if (fromClient) {
+      clientEnded = true;
+    } else {
+      serverEnded = true;
+    }
+    from.interestOps(from.interestOps() & ~SelectionKey.OP_READ);
+    SelectionKey to = fromClient ? serverKey : clientKey;
+    if ((to.interestOps() & SelectionKey.OP_WRITE) == 0) {
+      shutdownOutput(to);
+    }
+  }
+
+  private void shutdownOutput(SelectionKey to) throws IOException {
+    if (clientEnded && serverEnded) {
+      close();
+    } else {
+      ((SocketChannel) to.channel()).shutdownOutput();
+    }
+  }
+
+  void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    clientKey.cancel();
+    serverKey.cancel();
+    closeQuietly(client);
+    closeQuietly(server);
+    if (recorder != null) {
+      recorder.closed(sessionId);
+    }
+    proxy.disconnected(this);
+  }
+
+  private static void closeQuietly(SocketChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException ex) {
+      LOG.debug("Error closing {}", channel, ex);
+    }
+  }
+
+}
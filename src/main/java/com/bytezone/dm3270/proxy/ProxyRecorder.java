@@ -0,0 +1,220 @@
+package com.bytezone.dm3270.proxy;
+
+import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
+import com.bytezone.dm3270.session.SessionRecorder;
+import com.bytezone.dm3270.streams.TelnetSocket;
+import com.bytezone.dm3270.telnet.TelnetCommandProcessor;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
+import com.bytezone.dm3270.telnet.TelnetSubcommand;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Splits the bytes relayed by a RecordingProxy into telnet records and hands them to a
+ * SessionRecorder, so the recording reads and replays like one made by a TerminalClient.
+ *
+ * The relay thread only copies what it read into a bounded queue, and this thread does the
+ * framing, keeping a TelnetProcessor per session and direction. Records are stamped with the
+ * time their last chunk was read. When the queue is full the chunk is dropped, and as the rest
+ * of that session could not be framed, it is not recorded any more (the relay goes on).
+ */
+class ProxyRecorder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ProxyRecorder.class);
+
+  private static final int DRAIN_BATCH = 1024;
+  private static final byte WILL = (byte) 0xFB;
+  private static final byte WONT = (byte) 0xFC;
+
+  private final SessionRecorder sessionRecorder;
+  private final BlockingQueue<Chunk> queue;
+  private final Queue<Integer> closedSessions = new ConcurrentLinkedQueue<>();
+  private final Map<Integer, RecordedSession> sessions = new HashMap<>();
+  private final LongAdder dropped = new LongAdder();
+  private final Thread thread;
+
+  private volatile boolean running = true;
+
+  ProxyRecorder(SessionRecorder sessionRecorder, int queueCapacity) {
+    this.sessionRecorder = sessionRecorder;
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+    thread = new Thread(this::frameChunks, "dm3270-proxy-recorder");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  int newSessionId() {
+    return sessionRecorder.newSessionId();
+  }
+
+  // called from the relay thread with the bytes just read, never waits
+  boolean received(int sessionId, TelnetSocket.Source source, byte[] data) {
+    if (queue.offer(new Chunk(sessionId, source, System.nanoTime(), data))) {
+      return true;
+    }
+    dropped.increment();
+    return false;
+  }
+
+  // the session is forgotten once its chunks are framed, when the queue is full it waits for
+  // the queue to be emptied
+  void closed(int sessionId) {
+    if (!queue.offer(new Chunk(sessionId, null, 0, null))) {
+      closedSessions.add(sessionId);
+    }
+  }
+
+  long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  private void frameChunks() {
+    List<Chunk> batch = new ArrayList<>(DRAIN_BATCH);
+    try {
+      while (running || !queue.isEmpty()) {
+        Chunk first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first != null) {
+          batch.add(first);
+          queue.drainTo(batch, DRAIN_BATCH - 1);
+          for (Chunk chunk : batch) {
+            frame(chunk);
+          }
+          batch.clear();
+        }
+        while (queue.isEmpty() && !closedSessions.isEmpty()) {
+          sessions.remove(closedSessions.poll());
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void frame(Chunk chunk) {
+    if (chunk.data == null) {
+      sessions.remove(chunk.sessionId);
+      return;
+    }
+    RecordedSession session =
+        sessions.computeIfAbsent(chunk.sessionId, RecordedSession::new);
+    try {
+      session.listen(chunk);
+    } catch (RuntimeException ex) {
+      // a session that can't be framed is not recorded any more, the relay goes on
+      LOG.warn("Could not frame session {}, stop recording it", chunk.sessionId, ex);
+      sessions.put(chunk.sessionId, new RecordedSession(chunk.sessionId, false));
+    }
+  }
+
+  // writes the chunks already queued
+  void close() {
+    running = false;
+    try {
+      thread.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private final class RecordedSession {
+
+    private final int sessionId;
+    private final boolean recording;
+    private final TelnetProcessor fromClient;
+    private final TelnetProcessor fromServer;
+    private boolean extended;                 // the client agreed to TN3270E
+    private long nanoTime;
+
+    private RecordedSession(int sessionId) {
+      this(sessionId, true);
+    }
+
+    private RecordedSession(int sessionId, boolean recording) {
+      this.sessionId = sessionId;
+      this.recording = recording;
+      fromClient = new TelnetProcessor(new Framer(TelnetSocket.Source.CLIENT));
+      fromServer = new TelnetProcessor(new Framer(TelnetSocket.Source.SERVER));
+    }
+
+    private void listen(Chunk chunk) {
+      if (!recording) {
+        return;
+      }
+      nanoTime = chunk.nanoTime;
+      (chunk.source == TelnetSocket.Source.CLIENT ? fromClient : fromServer)
+          .listen(chunk.data);
+    }
+
+    private void record(TelnetSocket.Source source, SessionRecordType type, byte[] buffer,
+        int length) {
+      sessionRecorder.recordDecoded(sessionId, source, type, nanoTime, buffer, length);
+    }
+
+    private final class Framer implements TelnetCommandProcessor {
+
+      private final TelnetSocket.Source source;
+
+      private Framer(TelnetSocket.Source source) {
+        this.source = source;
+      }
+
+      @Override
+      public void processData(byte[] buffer, int length) {
+        LOG.debug("Session {} {} sent non telnet data, not recorded", sessionId, source);
+      }
+
+      @Override
+      public void processRecord(byte[] buffer, int length) {
+        record(source, extended ? SessionRecordType.TN3270E : SessionRecordType.TN3270, buffer,
+            length);
+      }
+
+      @Override
+      public void processTelnetCommand(byte[] buffer, int length) {
+        if (source == TelnetSocket.Source.CLIENT && length == 3
+            && buffer[2] == TelnetSubcommand.TN3270E) {
+          if (buffer[1] == WILL) {
+            extended = true;
+          } else if (buffer[1] == WONT) {
+            extended = false;
+          }
+        }
+        record(source, SessionRecordType.TELNET, buffer, length);
+      }
+
+      @Override
+      public void processTelnetSubcommand(byte[] buffer, int length) {
+        record(source, SessionRecordType.TELNET, buffer, length);
+      }
+
+    }
+
+  }
+
+  private static final class Chunk {
+
+    private final int sessionId;
+    private final TelnetSocket.Source source;
+    private final long nanoTime;
+    private final byte[] data;                // null once the session is closed
+
+    private Chunk(int sessionId, TelnetSocket.Source source, long nanoTime, byte[] data) {
+      this.sessionId = sessionId;
+      this.source = source;
+      this.nanoTime = nanoTime;
+      this.data = data;
+    }
+
+  }
+
+}
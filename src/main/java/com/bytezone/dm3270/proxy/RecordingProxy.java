@@ -0,0 +1,300 @@
+package com.bytezone.dm3270.proxy;
+
+import com.bytezone.dm3270.session.SessionRecorder;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * TN3270 proxy relaying terminals to a host, and optionally recording their sessions, to build
+ * load scripts from real user traffic.
+ * <p>
+ * A single NIO thread relays every connection, byte for byte and without looking into them,
+ * through direct buffers. When recording, it only hands a copy of what it read to a recorder
+ * thread, which splits it into telnet records and writes them to a {@link SessionRecorder}, so
+ * the files can be read and replayed as the ones recorded by a {@link
+ * com.bytezone.dm3270.TerminalClient}. Recording never slows down the relay: when the recorder
+ * can't keep up, the sessions affected stop being recorded while they are still relayed.
+ * <p>
+ * TLS connections are relayed as well, but can't be recorded.
+ */
+public class RecordingProxy implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RecordingProxy.class);
+
+  private static final int DEFAULT_QUEUE_CAPACITY = 65_536;
+
+  private final InetSocketAddress target;
+  private final SessionRecorder sessionRecorder;
+  private final AtomicInteger sessions = new AtomicInteger();
+  private final AtomicInteger sessionIds = new AtomicInteger();
+  private final LongAdder relayedBytes = new LongAdder();
+
+  private String bindAddress = "localhost";
+  private int port;
+  private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+  private InetSocketAddress address;
+  private ProxyRecorder recorder;
+  private Selector selector;
+  private ServerSocketChannel serverChannel;
+  private Thread thread;
+  private volatile boolean running;
+
+  /**
+   * Creates a proxy to the given terminal server.
+   *
+   * @param host host name of the terminal server.
+   * @param port port where the terminal server is listening for connections.
+   * @param sessionRecorder the recorder to write the sessions relayed to, or null to only relay
+   * them.
+   */
+  public RecordingProxy(String host, int port, SessionRecorder sessionRecorder) {
+    this.target = InetSocketAddress.createUnresolved(host, port);
+    this.sessionRecorder = sessionRecorder;
+  }
+
+  // usage: RecordingProxy host port [--port 2323] [--bind 0.0.0.0] [--record file]
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      throw new IllegalArgumentException("usage: RecordingProxy host port [--port port] "
+          + "[--bind address] [--record file]");
+    }
+    String listenAddress = "localhost";
+    int listenPort = 2323;
+    SessionRecorder sessionRecorder = null;
+    for (int i = 2; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--port":
+          listenPort = Integer.parseInt(args[i + 1]);
+          break;
+        case "--bind":
+          listenAddress = args[i + 1];
+          break;
+        case "--record":
+          sessionRecorder = new SessionRecorder(Paths.get(args[i + 1]));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    RecordingProxy proxy =
+        new RecordingProxy(args[0], Integer.parseInt(args[1]), sessionRecorder);
+    proxy.setBindAddress(listenAddress);
+    proxy.setPort(listenPort);
+    SessionRecorder recorder = sessionRecorder;
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        proxy.close();
+        if (recorder != null) {
+          recorder.close();
+        }
+      } catch (IOException ex) {
+        LOG.error("Could not close the proxy", ex);
+      }
+    }));
+    proxy.start();
+    LOG.info("Relaying {}:{} to {}:{}", listenAddress, proxy.getPort(), args[0], args[1]);
+  }
+
+  /**
+   * Sets the address to listen on.
+   *
+   * @param bindAddress host name or IP address of the interface to listen on, or "0.0.0.0" for
+   * all of them. By default is "localhost", so only local terminals can connect.
+   */
+  public void setBindAddress(String bindAddress) {
+    this.bindAddress = bindAddress;
+  }
+
+  /**
+   * Sets the port to listen on.
+   *
+   * @param port the port number. By default is 0, which picks any free port (see {@link
+   * #getPort()}).
+   */
+  public void setPort(int port) {
+    this.port = port;
+  }
+
+  /**
+   * Sets how many reads can be waiting to be recorded.
+   *
+   * @param queueCapacity number of reads (of up to 16KB each) waiting for the recorder thread.
+   * By default is 65,536. Sessions with reads that don't fit stop being recorded.
+   */
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Starts listening for terminals.
+   *
+   * @throws IOException when the port can't be bound.
+   */
+  public void start() throws IOException {
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(new InetSocketAddress(bindAddress, port), 1024);
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    port = serverChannel.socket().getLocalPort();
+    // resolved once, so the relay thread never waits for a name lookup
+    address = new InetSocketAddress(target.getHostString(), target.getPort());
+    if (sessionRecorder != null) {
+      recorder = new ProxyRecorder(sessionRecorder, queueCapacity);
+    }
+
+    running = true;
+    thread = new Thread(this::run, "dm3270-recording-proxy");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Gets the port the proxy listens on.
+   *
+   * @return the port number, which is only known after {@link #start()} when it was 0.
+   */
+  public int getPort() {
+    return port;
+  }
+
+  /**
+   * Gets the number of terminals currently relayed.
+   *
+   * @return the number of connected terminals.
+   */
+  public int getSessionCount() {
+    return sessions.get();
+  }
+
+  /**
+   * Gets the number of bytes relayed, in both directions, since the proxy started.
+   *
+   * @return the number of bytes relayed.
+   */
+  public long getRelayedBytes() {
+    return relayedBytes.sum();
+  }
+
+  /**
+   * Gets the number of reads that could not be recorded because the recorder was behind.
+   *
+   * @return the number of reads not recorded, always 0 when not recording.
+   */
+  public long getDroppedCount() {
+    return recorder == null ? 0 : recorder.getDroppedCount();
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        selector.select();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+          } else {
+            ((ProxyConnection) key.attachment()).ready(key);
+          }
+        }
+      } catch (IOException ex) {
+        if (running) {
+          LOG.error("Recording proxy stopped", ex);
+        }
+        running = false;
+      }
+    }
+  }
+
+  // a connection that fails is closed on its own, without stopping the relay of the others
+  private void accept() {
+    while (true) {
+      SocketChannel channel;
+      try {
+        channel = serverChannel.accept();
+      } catch (IOException ex) {
+        LOG.warn("Could not accept a connection", ex);
+        return;
+      }
+      if (channel == null) {
+        return;
+      }
+      int sessionId = recorder != null ? recorder.newSessionId() : sessionIds.incrementAndGet();
+      ProxyConnection connection;
+      try {
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        // closes the upstream channel it opened when it can't be registered
+        connection = new ProxyConnection(this, sessionId, selector, channel, recorder);
+      } catch (IOException ex) {
+        LOG.warn("Could not relay session {}", sessionId, ex);
+        try {
+          channel.close();
+        } catch (IOException closeEx) {
+          LOG.debug("Error closing session {}", sessionId, closeEx);
+        }
+        continue;
+      }
+      sessions.incrementAndGet();
+      connection.connect(address);            // closes the connection when it can't connect
+    }
+  }
+
+  void relayed(int bytes) {
+    relayedBytes.add(bytes);
+  }
+
+  void disconnected(ProxyConnection connection) {
+    sessions.decrementAndGet();
+  }
+
+  /**
+   * Stops the proxy, closing all the connections and recording what was already relayed.
+   * <p>
+   * The {@link SessionRecorder} is not closed.
+   *
+   * @throws IOException when there is a problem closing the connections.
+   */
+  @Override
+  public void close() throws IOException {
+    if (selector == null || !selector.isOpen()) {
+      return;
+    }
+    running = false;
+    selector.wakeup();
+    try {
+      thread.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    for (SelectionKey key : selector.keys()) {
+      if (key.attachment() instanceof ProxyConnection) {
+        ((ProxyConnection) key.attachment()).close();
+      }
+    }
+    serverChannel.close();
+    selector.close();
+    if (recorder != null) {
+      recorder.close();
+    }
+  }
+
+}
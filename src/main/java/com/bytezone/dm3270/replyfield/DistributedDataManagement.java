@@ -10,6 +10,20 @@ public class DistributedDataManagement extends QueryReplyField {
   private int subsets;
   private byte ddmSubset;
 
+  // DFT file transfers (IND$FILE) in both directions, up to bufferSize bytes per record
+  public DistributedDataManagement(int bufferSize) {
+    super(DISTRIBUTED_DATA_MANAGEMENT_REPLY);
+    int ptr = createReply(8);
+
+    ptr = Dm3270Utility.packUnsignedShort(0, reply, ptr);             // flags
+    ptr = Dm3270Utility.packUnsignedShort(bufferSize, reply, ptr);    // limit in
+    ptr = Dm3270Utility.packUnsignedShort(bufferSize, reply, ptr);    // limit out
+    reply[ptr++] = 0x01;                                              // subsets
+    reply[ptr++] = 0x01;                                              // DDM subset 1
+
+    checkDataLength(ptr);
+  }
+
   public DistributedDataManagement(byte[] buffer) {
     super(buffer);
     assert data[1] == DISTRIBUTED_DATA_MANAGEMENT_REPLY;
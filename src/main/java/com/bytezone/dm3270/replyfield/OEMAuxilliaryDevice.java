@@ -1,8 +1,7 @@
 package com.bytezone.dm3270.replyfield;
 
 import com.bytezone.dm3270.structuredfields.StructuredField;
-
-import java.io.UnsupportedEncodingException;
+import com.bytezone.dm3270.utilities.Dm3270Utility;
 
 public class OEMAuxilliaryDevice extends QueryReplyField {
 
@@ -17,14 +16,10 @@ public class OEMAuxilliaryDevice extends QueryReplyField {
     assert data[0] == StructuredField.QUERY_REPLY;
     assert data[1] == QueryReplyField.OEM_AUXILLIARY_DEVICE_REPLY;
 
-    try {
-      flags = data[2];
-      refID = data[3];
-      deviceType = new String(data, 4, 8, "CP1047").trim();
-      userName = new String(data, 12, 8, "CP1047").trim();
-    } catch (UnsupportedEncodingException e) {
-      e.printStackTrace();
-    }
+    flags = data[2];
+    refID = data[3];
+    deviceType = Dm3270Utility.getString(data, 4, 8).trim();
+    userName = Dm3270Utility.getString(data, 12, 8).trim();
   }
 
   @Override
@@ -2,8 +2,6 @@ package com.bytezone.dm3270.replyfield;
 
 import com.bytezone.dm3270.utilities.Dm3270Utility;
 
-import java.io.UnsupportedEncodingException;
-
 public class RPQNames extends QueryReplyField {
 
   private String deviceType;
@@ -14,17 +12,13 @@ public class RPQNames extends QueryReplyField {
     super(buffer);
     assert data[1] == RPQ_NAMES_REPLY;
 
-    try {
-      deviceType = new String(data, 2, 4, "CP1047");
-      model = Dm3270Utility.unsignedLong(data, 6);
-      int len = (data[10] & 0xFF) - 1;
-      if (len > 0) {
-        rpqName = new String(data, 11, len, "CP1047");
-      } else {
-        rpqName = "";
-      }
-    } catch (UnsupportedEncodingException e) {
-      e.printStackTrace();
+    deviceType = Dm3270Utility.getString(data, 2, 4);
+    model = Dm3270Utility.unsignedLong(data, 6);
+    int len = (data[10] & 0xFF) - 1;
+    if (len > 0) {
+      rpqName = Dm3270Utility.getString(data, 11, len);
+    } else {
+      rpqName = "";
     }
   }
 
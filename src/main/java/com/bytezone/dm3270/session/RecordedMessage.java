@@ -0,0 +1,53 @@
+package com.bytezone.dm3270.session;
+
+import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
+import com.bytezone.dm3270.streams.TelnetSocket;
+
+/*
+ * A telnet record read from a session recording, as it travelled on the wire.
+ */
+public class RecordedMessage {
+
+  private final int sessionId;
+  private final TelnetSocket.Source source;
+  private final SessionRecordType type;
+  private final long nanos;
+  private final byte[] data;
+
+  public RecordedMessage(int sessionId, TelnetSocket.Source source, SessionRecordType type,
+      long nanos, byte[] data) {
+    this.sessionId = sessionId;
+    this.source = source;
+    this.type = type;
+    this.nanos = nanos;
+    this.data = data;
+  }
+
+  public int getSessionId() {
+    return sessionId;
+  }
+
+  public TelnetSocket.Source getSource() {
+    return source;
+  }
+
+  public SessionRecordType getType() {
+    return type;
+  }
+
+  // nanos since the recording was started
+  public long getNanos() {
+    return nanos;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d %s %s %,d : %d bytes", sessionId, source, type, nanos,
+        data.length);
+  }
+
+}
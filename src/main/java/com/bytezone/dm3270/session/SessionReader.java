@@ -0,0 +1,138 @@
+package com.bytezone.dm3270.session;
+
+import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
+import com.bytezone.dm3270.streams.TelnetSocket;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/*
+ * Reads the files written by a SessionRecorder. A trailing partial record (the
+ * recorder was not closed) is ignored.
+ */
+public class SessionReader implements Iterator<RecordedMessage>, Closeable {
+
+  private static final TelnetSocket.Source[] SOURCES = TelnetSocket.Source.values();
+  private static final SessionRecordType[] TYPES = SessionRecordType.values();
+
+  private final FileChannel channel;
+  private final long startMillis;
+  private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+  private RecordedMessage next;
+
+  public SessionReader(Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    buffer.flip();
+
+    if (!fill(SessionRecorder.HEADER_SIZE)) {
+      channel.close();
+      throw new EOFException("Not a session recording: " + file);
+    }
+    byte[] magic = new byte[SessionRecorder.MAGIC.length];
+    buffer.get(magic);
+    short version = buffer.getShort();
+    if (!Arrays.equals(magic, SessionRecorder.MAGIC) || version != SessionRecorder.VERSION) {
+      channel.close();
+      throw new IOException("Not a session recording (version " + SessionRecorder.VERSION
+          + "): " + file);
+    }
+    startMillis = buffer.getLong();
+  }
+
+  // reads a whole recording, grouping the records by session
+  public static Map<Integer, List<RecordedMessage>> readSessions(Path file) throws IOException {
+    Map<Integer, List<RecordedMessage>> sessions = new LinkedHashMap<>();
+    try (SessionReader reader = new SessionReader(file)) {
+      while (reader.hasNext()) {
+        RecordedMessage message = reader.next();
+        sessions.computeIfAbsent(message.getSessionId(), id -> new ArrayList<>()).add(message);
+      }
+    }
+    return sessions;
+  }
+
+  public long getStartMillis() {
+    return startMillis;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      try {
+        next = read();
+      } catch (IOException ex) {
+        throw new IllegalStateException("Could not read session recording", ex);
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public RecordedMessage next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    RecordedMessage message = next;
+    next = null;
+    return message;
+  }
+
+  private RecordedMessage read() throws IOException {
+    if (!fill(SessionRecorder.RECORD_HEADER_SIZE)) {
+      return null;
+    }
+    buffer.mark();
+    int length = buffer.getInt();
+    int sessionId = buffer.getInt();
+    int source = buffer.get();
+    int type = buffer.get();
+    long nanos = buffer.getLong();
+
+    buffer.reset();
+    if (!fill(SessionRecorder.RECORD_HEADER_SIZE + length)) {
+      return null;
+    }
+    buffer.position(buffer.position() + SessionRecorder.RECORD_HEADER_SIZE);
+    byte[] data = new byte[length];
+    buffer.get(data);
+    return new RecordedMessage(sessionId, SOURCES[source], TYPES[type], nanos, data);
+  }
+
+  // makes sure that the buffer has at least size bytes remaining
+  private boolean fill(int size) throws IOException {
+    if (buffer.remaining() >= size) {
+      return true;
+    }
+    if (buffer.capacity() < size) {
+      ByteBuffer bigger = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+      bigger.put(buffer);
+      buffer = bigger;
+    } else {
+      buffer.compact();
+    }
+    while (buffer.position() < size) {
+      if (channel.read(buffer) < 0) {
+        break;
+      }
+    }
+    buffer.flip();
+    return buffer.remaining() >= size;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+}
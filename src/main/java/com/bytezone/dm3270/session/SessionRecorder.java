@@ -0,0 +1,252 @@
+package com.bytezone.dm3270.session;
+
+import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
+import com.bytezone.dm3270.streams.TelnetSocket;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Records the telnet records sent and received by any number of sessions in a single
+ * file. Sessions only copy the record into a bounded queue (records are dropped and
+ * counted when it is full, sessions never wait for the disk), and a single writer
+ * thread encodes them into a direct buffer which is appended to the file in batches.
+ *
+ * File format (big endian):
+ *   header : magic "DM3270SR", version (short), start time (epoch millis, long)
+ *   record : payload length (int), session id (int), source (byte), type (byte),
+ *            nanos since the start time (long), payload
+ * Payloads are stored as they travel on the wire (with IAC bytes doubled), so a
+ * session can be replayed by feeding them back into a TelnetProcessor.
+ * See SessionReader.
+ */
+public class SessionRecorder implements Closeable {
+
+  public static final byte[] MAGIC = "DM3270SR".getBytes(StandardCharsets.US_ASCII);
+  public static final short VERSION = 1;
+  public static final int HEADER_SIZE = MAGIC.length + 2 + 8;
+  public static final int RECORD_HEADER_SIZE = 4 + 4 + 1 + 1 + 8;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SessionRecorder.class);
+
+  private static final int DEFAULT_QUEUE_CAPACITY = 65_536;
+  private static final int WRITE_BUFFER_SIZE = 1 << 20;
+  private static final int DRAIN_BATCH = 1024;
+  private static final byte IAC = (byte) 0xFF;
+  private static final byte SB = (byte) 0xFA;
+
+  private final FileChannel channel;
+  private final BlockingQueue<PendingRecord> queue;
+  private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+  private final long startNanos = System.nanoTime();
+  private final AtomicInteger sessionIds = new AtomicInteger();
+  private final LongAdder recorded = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final Thread writer;
+
+  private volatile boolean running = true;
+
+  public SessionRecorder(Path file) throws IOException {
+    this(file, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  public SessionRecorder(Path file, int queueCapacity) throws IOException {
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+
+    writeBuffer.put(MAGIC).putShort(VERSION).putLong(System.currentTimeMillis());
+    flush();
+
+    writer = new Thread(this::writeRecords, "dm3270-session-recorder");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  public int newSessionId() {
+    return sessionIds.incrementAndGet();
+  }
+
+  // the buffer contains the record as it travels on the wire
+  public void record(int sessionId, TelnetSocket.Source source, SessionRecordType type,
+      byte[] buffer, int length) {
+    enqueue(sessionId, source, type, System.nanoTime(), buffer, length, true);
+  }
+
+  // the buffer contains the record as decoded by the TelnetProcessor (IACs not doubled)
+  public void recordDecoded(int sessionId, TelnetSocket.Source source, SessionRecordType type,
+      byte[] buffer, int length) {
+    recordDecoded(sessionId, source, type, System.nanoTime(), buffer, length);
+  }
+
+  // for records decoded after the fact, nanoTime is System.nanoTime() when they were received
+  public void recordDecoded(int sessionId, TelnetSocket.Source source, SessionRecordType type,
+      long nanoTime, byte[] buffer, int length) {
+    enqueue(sessionId, source, type, nanoTime, buffer, length, false);
+  }
+
+  private void enqueue(int sessionId, TelnetSocket.Source source, SessionRecordType type,
+      long nanoTime, byte[] buffer, int length, boolean escaped) {
+    if (!running) {
+      return;
+    }
+    byte[] data = new byte[length];
+    System.arraycopy(buffer, 0, data, 0, length);
+    if (queue.offer(new PendingRecord(sessionId, source, type, nanoTime - startNanos, data,
+        escaped))) {
+      recorded.increment();
+    } else {
+      dropped.increment();
+    }
+  }
+
+  public long getRecordedCount() {
+    return recorded.sum();
+  }
+
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  private void writeRecords() {
+    List<PendingRecord> batch = new ArrayList<>(DRAIN_BATCH);
+    try {
+      while (running || !queue.isEmpty()) {
+        PendingRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first != null) {
+          batch.add(first);
+          queue.drainTo(batch, DRAIN_BATCH - 1);
+          for (PendingRecord pendingRecord : batch) {
+            encode(pendingRecord);
+          }
+          batch.clear();
+        }
+        // write whatever we have when the sessions are quiet
+        if (queue.isEmpty()) {
+          flush();
+        }
+      }
+    } catch (IOException ex) {
+      LOG.error("Could not write session recording, stop recording", ex);
+      running = false;
+      queue.clear();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void encode(PendingRecord pendingRecord) throws IOException {
+    byte[] data = pendingRecord.data;
+    int from = 0;
+    int to = 0;
+    if (!pendingRecord.escaped) {
+      // data IACs between the telnet command bytes must be doubled again
+      if (pendingRecord.type != SessionRecordType.TELNET) {
+        to = Math.max(0, data.length - 2);              // IAC EOR
+      } else if (data.length >= 4 && data[1] == SB) {
+        from = 2;                                       // IAC SB ... IAC SE
+        to = data.length - 2;
+      }
+    }
+
+    int length = data.length;
+    for (int i = from; i < to; i++) {
+      if (data[i] == IAC) {
+        length++;
+      }
+    }
+
+    if (writeBuffer.remaining() < RECORD_HEADER_SIZE + length) {
+      flush();
+    }
+    if (writeBuffer.remaining() < RECORD_HEADER_SIZE + length) {
+      // record bigger than the whole buffer
+      ByteBuffer big = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+      put(big, pendingRecord, length, from, to);
+      big.flip();
+      while (big.hasRemaining()) {
+        channel.write(big);
+      }
+      return;
+    }
+    put(writeBuffer, pendingRecord, length, from, to);
+  }
+
+  private static void put(ByteBuffer buffer, PendingRecord pendingRecord, int length, int from,
+      int to) {
+    byte[] data = pendingRecord.data;
+    buffer.putInt(length)
+        .putInt(pendingRecord.sessionId)
+        .put((byte) pendingRecord.source.ordinal())
+        .put((byte) pendingRecord.type.ordinal())
+        .putLong(pendingRecord.nanos);
+
+    if (from == to) {
+      buffer.put(data);
+      return;
+    }
+    buffer.put(data, 0, from);
+    for (int i = from; i < to; i++) {
+      buffer.put(data[i]);
+      if (data[i] == IAC) {
+        buffer.put(IAC);
+      }
+    }
+    buffer.put(data, to, data.length - to);
+  }
+
+  private void flush() throws IOException {
+    writeBuffer.flip();
+    while (writeBuffer.hasRemaining()) {
+      channel.write(writeBuffer);
+    }
+    writeBuffer.clear();
+  }
+
+  // writes the records already queued and closes the file
+  @Override
+  public void close() throws IOException {
+    running = false;
+    try {
+      writer.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    channel.close();
+  }
+
+  private static final class PendingRecord {
+
+    private final int sessionId;
+    private final TelnetSocket.Source source;
+    private final SessionRecordType type;
+    private final long nanos;
+    private final byte[] data;
+    private final boolean escaped;
+
+    private PendingRecord(int sessionId, TelnetSocket.Source source, SessionRecordType type,
+        long nanos, byte[] data, boolean escaped) {
+      this.sessionId = sessionId;
+      this.source = source;
+      this.type = type;
+      this.nanos = nanos;
+      this.data = data;
+      this.escaped = escaped;
+    }
+
+  }
+
+}
@@ -0,0 +1,265 @@
+package com.bytezone.dm3270.session;
+
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.metrics.LatencyHistogram;
+import com.bytezone.dm3270.streams.TelnetListener;
+import com.bytezone.dm3270.streams.TelnetSocket;
+import com.bytezone.dm3270.streams.TelnetState;
+import com.bytezone.dm3270.telnet.TelnetCommand;
+import com.bytezone.dm3270.telnet.TelnetSubcommand;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Replays the server side of recorded sessions (see SessionRecorder) through the same
+ * TelnetProcessor -> TelnetListener -> Screen path used by a connected client, without
+ * sockets. Each session gets its own Screen, and sessions are replayed in parallel on
+ * a fixed pool (one thread per core by default), never a thread per session. Records
+ * are replayed as fast as possible, or at the pace they were recorded.
+ *
+ * Each session is replayed with the terminal type its client negotiated, so its alternate
+ * screen has the dimensions of the recorded model. The model and dimensions given to the
+ * replayer are only used for sessions recorded without their negotiation.
+ */
+public class SessionReplayer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SessionReplayer.class);
+
+  private static final byte TERMINAL_TYPE_IS = 0x00;
+  private static final byte DEVICE_TYPE = 0x02;
+  private static final byte REQUEST = 0x07;
+  private static final byte CONNECT = 0x01;
+
+  private final int model;
+  private final ScreenDimensions alternateScreenDimensions;
+  private boolean recordedTiming;
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+
+  public SessionReplayer(int model, ScreenDimensions alternateScreenDimensions) {
+    this.model = model;
+    this.alternateScreenDimensions = alternateScreenDimensions;
+  }
+
+  public void setRecordedTiming(boolean recordedTiming) {
+    this.recordedTiming = recordedTiming;
+  }
+
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  // recordings are read completely before replaying them, so the disk is not measured
+  public ReplayReport replayRecordings(List<Path> recordings)
+      throws IOException, InterruptedException {
+    List<List<RecordedMessage>> sessions = new ArrayList<>();
+    for (Path recording : recordings) {
+      sessions.addAll(SessionReader.readSessions(recording).values());
+    }
+    return replay(sessions);
+  }
+
+  public ReplayReport replay(Collection<List<RecordedMessage>> sessions)
+      throws InterruptedException {
+    List<ReplaySession> replaySessions = new ArrayList<>(sessions.size());
+    for (List<RecordedMessage> messages : sessions) {
+      replaySessions.add(new ReplaySession(messages));
+    }
+
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(parallelism);
+    CountDownLatch finished = new CountDownLatch(replaySessions.size());
+    long start = System.nanoTime();
+    try {
+      for (ReplaySession replaySession : replaySessions) {
+        replaySession.start(executor, start, finished);
+      }
+      finished.await();
+    } finally {
+      executor.shutdownNow();
+    }
+    long elapsed = System.nanoTime() - start;
+
+    ReplayReport report = new ReplayReport(replaySessions.size(), elapsed);
+    for (ReplaySession replaySession : replaySessions) {
+      report.add(replaySession);
+    }
+    return report;
+  }
+
+  private class ReplaySession implements Runnable {
+
+    private final List<RecordedMessage> messages = new ArrayList<>();
+    private final TelnetListener telnetListener;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private ScheduledThreadPoolExecutor executor;
+    private CountDownLatch finished;
+    private long start;
+    private long firstNanos;
+    private int next;
+    private boolean failed;
+
+    private ReplaySession(List<RecordedMessage> recordedMessages) {
+      boolean extended = false;
+      for (RecordedMessage message : recordedMessages) {
+        if (message.getSource() == TelnetSocket.Source.SERVER) {
+          messages.add(message);
+          extended |= message.getType() == SessionRecord.SessionRecordType.TN3270E;
+        }
+      }
+      int recordedModel = getRecordedModel(recordedMessages);
+      // no TerminalServer, so replies (and keep alives) go nowhere
+      TelnetState telnetState = new TelnetState();
+      telnetState.setDoDeviceType(recordedModel != 0 ? recordedModel : model);
+      telnetState.setDo3270Extended(extended);      // negotiate as the recorded client did
+      Screen screen = new Screen(new ScreenDimensions(24, 80), recordedModel != 0
+          ? TelnetState.getAlternateScreenDimensions(recordedModel)
+          : alternateScreenDimensions, telnetState);
+      telnetListener = new TelnetListener(screen, telnetState);
+    }
+
+    private void start(ScheduledThreadPoolExecutor executor, long start,
+        CountDownLatch finished) {
+      this.executor = executor;
+      this.start = start;
+      this.finished = finished;
+      if (messages.isEmpty()) {
+        finished.countDown();
+        return;
+      }
+      firstNanos = messages.get(0).getNanos();
+      executor.execute(this);
+    }
+
+    @Override
+    public void run() {
+      while (next < messages.size()) {
+        RecordedMessage message = messages.get(next);
+        if (recordedTiming) {
+          long delay = message.getNanos() - firstNanos - (System.nanoTime() - start);
+          if (delay > 0) {
+            executor.schedule(this, delay, TimeUnit.NANOSECONDS);
+            return;
+          }
+        }
+
+        next++;
+        long before = System.nanoTime();
+        try {
+          telnetListener.listen(TelnetSocket.Source.SERVER, message.getData(), null, true);
+        } catch (RuntimeException ex) {
+          LOG.warn("Session {} failed replaying {}", message.getSessionId(), message, ex);
+          failed = true;
+          break;
+        }
+        latencies.record(System.nanoTime() - before);
+      }
+      finished.countDown();
+    }
+
+  }
+
+  // model of the terminal type negotiated by the client, or 0 when it wasn't recorded
+  static int getRecordedModel(List<RecordedMessage> messages) {
+    for (RecordedMessage message : messages) {
+      if (message.getSource() == TelnetSocket.Source.CLIENT
+          && message.getType() == SessionRecord.SessionRecordType.TELNET) {
+        String terminalType = getTerminalType(message.getData());
+        if (terminalType != null) {
+          return TelnetState.getModel(terminalType);
+        }
+      }
+    }
+    return 0;
+  }
+
+  // terminal type sent in TERMINAL-TYPE IS or TN3270E DEVICE-TYPE REQUEST
+  private static String getTerminalType(byte[] data) {
+    for (int i = 0; i + 4 < data.length; i++) {
+      if (data[i] != TelnetCommand.IAC || data[i + 1] != TelnetCommand.SB) {
+        continue;
+      }
+      int start;
+      if (data[i + 2] == TelnetSubcommand.TERMINAL_TYPE && data[i + 3] == TERMINAL_TYPE_IS) {
+        start = i + 4;
+      } else if (data[i + 2] == TelnetSubcommand.TN3270E && data[i + 3] == DEVICE_TYPE
+          && data[i + 4] == REQUEST) {
+        start = i + 5;
+      } else {
+        continue;
+      }
+      int end = start;
+      while (end < data.length && data[end] != TelnetCommand.IAC && data[end] != CONNECT) {
+        end++;
+      }
+      return new String(data, start, end - start, StandardCharsets.US_ASCII);
+    }
+    return null;
+  }
+
+  public static class ReplayReport {
+
+    private final int sessions;
+    private final long elapsedNanos;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private long records;
+    private int failedSessions;
+
+    private ReplayReport(int sessions, long elapsedNanos) {
+      this.sessions = sessions;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    private void add(ReplaySession replaySession) {
+      latencies.merge(replaySession.latencies);
+      records += replaySession.latencies.getCount();
+      if (replaySession.failed) {
+        failedSessions++;
+      }
+    }
+
+    public int getSessions() {
+      return sessions;
+    }
+
+    public int getFailedSessions() {
+      return failedSessions;
+    }
+
+    public long getRecords() {
+      return records;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public double getRecordsPerSecond() {
+      return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+    }
+
+    // nanos taken by each record to be decoded and applied to the screen
+    public LatencyHistogram getLatencies() {
+      return latencies;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("sessions ........ %,d (%d failed)%n", sessions, getFailedSessions())
+          + String.format("records ......... %,d%n", getRecords())
+          + String.format("elapsed ......... %,d ms%n", elapsedNanos / 1_000_000)
+          + String.format("records/sec ..... %,.0f%n", getRecordsPerSecond())
+          + String.format("latency ......... %s", latencies);
+    }
+
+  }
+
+}
@@ -0,0 +1,126 @@
+package com.bytezone.dm3270.streams;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/*
+ * Resolves host names to all of their addresses, and caches the result for every
+ * client in the JVM. Concurrent lookups of the same name share a single DNS query.
+ * Failed lookups are not cached.
+ */
+public final class HostResolver {
+
+  private static final ConcurrentMap<String, CachedLookup> CACHE = new ConcurrentHashMap<>();
+
+  private static volatile long timeToLiveMillis = 30_000;
+
+  private HostResolver() {
+  }
+
+  public static void setTimeToLiveMillis(long millis) {
+    timeToLiveMillis = millis;
+  }
+
+  public static void clear() {
+    CACHE.clear();
+  }
+
+  // addresses are interleaved by family (IPv6, IPv4, IPv6 ...) as suggested by RFC 8305
+  public static List<InetAddress> resolve(String host) throws UnknownHostException {
+    long now = System.currentTimeMillis();
+    CachedLookup lookup = CACHE.compute(host,
+        (key, cached) -> cached == null || cached.hasExpired(now) ? new CachedLookup(now) : cached);
+
+    if (lookup.claim()) {
+      try {
+        lookup.complete(interleave(InetAddress.getAllByName(host)));
+      } catch (UnknownHostException | RuntimeException ex) {
+        CACHE.remove(host, lookup);
+        lookup.fail(ex);
+      }
+    }
+
+    try {
+      return lookup.addresses.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new UnknownHostException(host + ": interrupted while resolving");
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof UnknownHostException) {
+        throw (UnknownHostException) ex.getCause();
+      }
+      UnknownHostException unknown = new UnknownHostException(host);
+      unknown.initCause(ex.getCause());
+      throw unknown;
+    }
+  }
+
+  private static List<InetAddress> interleave(InetAddress[] addresses) {
+    List<InetAddress> ipv6 = new ArrayList<>();
+    List<InetAddress> ipv4 = new ArrayList<>();
+    for (InetAddress address : addresses) {
+      (address instanceof Inet6Address ? ipv6 : ipv4).add(address);
+    }
+
+    if (ipv6.isEmpty() || ipv4.isEmpty()) {
+      return Collections.unmodifiableList(Arrays.asList(addresses));
+    }
+
+    // keep the family of the first (preferred) address first
+    List<InetAddress> first = addresses[0] instanceof Inet6Address ? ipv6 : ipv4;
+    List<InetAddress> second = first == ipv6 ? ipv4 : ipv6;
+    List<InetAddress> result = new ArrayList<>(addresses.length);
+    for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+      if (i < first.size()) {
+        result.add(first.get(i));
+      }
+      if (i < second.size()) {
+        result.add(second.get(i));
+      }
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  private static final class CachedLookup {
+
+    private final long createdMillis;
+    private final CompletableFuture<List<InetAddress>> addresses = new CompletableFuture<>();
+    private boolean claimed;
+
+    private CachedLookup(long createdMillis) {
+      this.createdMillis = createdMillis;
+    }
+
+    private boolean hasExpired(long now) {
+      return addresses.isDone() && now - createdMillis > timeToLiveMillis;
+    }
+
+    // only the first caller performs the lookup, the rest wait for its result
+    private synchronized boolean claim() {
+      if (claimed) {
+        return false;
+      }
+      claimed = true;
+      return true;
+    }
+
+    private void complete(List<InetAddress> result) {
+      addresses.complete(result);
+    }
+
+    private void fail(Exception ex) {
+      addresses.completeExceptionally(ex);
+    }
+
+  }
+
+}
@@ -0,0 +1,87 @@
+package com.bytezone.dm3270.streams;
+
+import com.bytezone.dm3270.metrics.ResponseTimes;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Times the host response to each AID of a session. The AID is stamped once the socket write
+ * returns, and the response when the socket read containing it returns, so neither encoding,
+ * decoding, listeners nor thread scheduling are included. An AID is answered by the first
+ * record restoring the keyboard, or by the TN3270E response to its sequence number.
+ */
+public class ResponseTimer {
+
+  private final AtomicReference<PendingAid> pendingAid = new AtomicReference<>();
+  private volatile ResponseTimes responseTimes = new ResponseTimes();
+  private volatile long lastReadNanos;
+
+  public ResponseTimes getResponseTimes() {
+    return responseTimes;
+  }
+
+  public void setResponseTimes(ResponseTimes responseTimes) {
+    this.responseTimes = responseTimes;
+  }
+
+  // sequenceNumber is -1 when not using TN3270E. Called before the write, so a response read
+  // right after it still finds the AID
+  public void aidSending(String key, int sequenceNumber) {
+    pendingAid.set(new PendingAid(key, sequenceNumber, System.nanoTime()));
+  }
+
+  // called once the AID was written, which is when its response time starts
+  public void aidSent() {
+    PendingAid aid = pendingAid.get();
+    if (aid != null) {
+      aid.nanos = System.nanoTime();
+    }
+  }
+
+  // called by the TerminalServer as soon as the socket read returns
+  public void dataRead(long nanos) {
+    lastReadNanos = nanos;
+  }
+
+  // 0 when no data was read from a socket, like in replays
+  public long getLastReadNanos() {
+    return lastReadNanos;
+  }
+
+  public void keyboardRestored() {
+    complete(pendingAid.get());
+  }
+
+  public void responseReceived(int sequenceNumber) {
+    PendingAid aid = pendingAid.get();
+    if (aid != null && aid.sequenceNumber == sequenceNumber) {
+      complete(aid);
+    }
+  }
+
+  private void complete(PendingAid aid) {
+    long readNanos = lastReadNanos;
+    // a restore read before the AID was sent is not its response
+    if (aid != null && readNanos - aid.sendingNanos >= 0
+        && pendingAid.compareAndSet(aid, null)) {
+      // the read may race the stamp taken when the write returns
+      responseTimes.record(aid.key, Math.max(readNanos - aid.nanos, 0));
+    }
+  }
+
+  private static class PendingAid {
+
+    private final String key;
+    private final int sequenceNumber;
+    private final long sendingNanos;
+    private volatile long nanos;
+
+    private PendingAid(String key, int sequenceNumber, long nanos) {
+      this.key = key;
+      this.sequenceNumber = sequenceNumber;
+      this.sendingNanos = nanos;
+      this.nanos = nanos;
+    }
+
+  }
+
+}
@@ -0,0 +1,202 @@
+package com.bytezone.dm3270.streams;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.SocketFactory;
+
+/*
+ * Connects to the first reachable address of a list, Happy Eyeballs style (RFC 8305).
+ * Host names are expanded to all of their addresses (see HostResolver), and an attempt
+ * is started every attemptDelayMillis, or as soon as the previous one fails, without
+ * waiting for slow or dead addresses. The first socket connected wins and the rest are
+ * closed. Blocking connects run on a thread pool shared by every client.
+ */
+public class SocketConnector {
+
+  public static final long DEFAULT_ATTEMPT_DELAY_MILLIS = 250;
+
+  private static final ExecutorService CONNECT_EXECUTOR =
+      Executors.newCachedThreadPool(daemonThreadFactory("dm3270-connect"));
+  private static final ScheduledExecutorService SCHEDULER =
+      Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("dm3270-connect-timer"));
+
+  private final SocketFactory socketFactory;
+  private final int connectionTimeoutMillis;
+  private final long attemptDelayMillis;
+
+  public SocketConnector(SocketFactory socketFactory, int connectionTimeoutMillis,
+      long attemptDelayMillis) {
+    this.socketFactory = socketFactory;
+    this.connectionTimeoutMillis = connectionTimeoutMillis;
+    this.attemptDelayMillis = attemptDelayMillis;
+  }
+
+  private static ThreadFactory daemonThreadFactory(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  // cancelling the returned future aborts the pending attempts
+  public CompletableFuture<Socket> connect(List<InetSocketAddress> addresses) {
+    if (addresses.isEmpty()) {
+      throw new IllegalArgumentException("At least one address is required");
+    }
+
+    CompletableFuture<Socket> result = new CompletableFuture<>();
+    CompletableFuture
+        .supplyAsync(() -> resolve(addresses), CONNECT_EXECUTOR)
+        .whenComplete((resolved, ex) -> {
+          if (ex != null) {
+            result.completeExceptionally(ex instanceof CompletionException ? ex.getCause() : ex);
+          } else {
+            new Race(resolved, result).startNextAttempt();
+          }
+        });
+    return result;
+  }
+
+  private static List<InetSocketAddress> resolve(List<InetSocketAddress> addresses) {
+    List<InetSocketAddress> resolved = new ArrayList<>();
+    for (InetSocketAddress address : addresses) {
+      if (!address.isUnresolved() && address.getAddress() != null) {
+        resolved.add(address);
+        continue;
+      }
+      try {
+        for (InetAddress inetAddress : HostResolver.resolve(address.getHostString())) {
+          resolved.add(new InetSocketAddress(inetAddress, address.getPort()));
+        }
+      } catch (IOException ex) {
+        // the other addresses may still be reachable
+        if (addresses.size() == 1) {
+          throw new CompletionException(ex);
+        }
+      }
+    }
+    if (resolved.isEmpty()) {
+      throw new CompletionException(new IOException("No address could be resolved: " + addresses));
+    }
+    return resolved;
+  }
+
+  private class Race {
+
+    private final List<InetSocketAddress> addresses;
+    private final CompletableFuture<Socket> result;
+    private final List<Socket> pendingSockets = new ArrayList<>();
+    private final List<IOException> failures = new ArrayList<>();
+    private int nextAddress;
+    private ScheduledFuture<?> nextAttempt;
+
+    private Race(List<InetSocketAddress> addresses, CompletableFuture<Socket> result) {
+      this.addresses = addresses;
+      this.result = result;
+      result.whenComplete((socket, ex) -> abort());
+    }
+
+    private synchronized void startNextAttempt() {
+      if (nextAttempt != null) {
+        nextAttempt.cancel(false);
+        nextAttempt = null;
+      }
+      if (result.isDone() || nextAddress == addresses.size()) {
+        return;
+      }
+
+      InetSocketAddress address = addresses.get(nextAddress++);
+      Socket socket;
+      try {
+        socket = socketFactory.createSocket();
+      } catch (IOException ex) {
+        attemptFailed(null, ex);
+        return;
+      }
+      pendingSockets.add(socket);
+      CONNECT_EXECUTOR.execute(() -> attempt(socket, address));
+
+      if (nextAddress < addresses.size()) {
+        nextAttempt = SCHEDULER
+            .schedule(this::startNextAttempt, attemptDelayMillis, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    private void attempt(Socket socket, InetSocketAddress address) {
+      try {
+        socket.connect(address, connectionTimeoutMillis);
+      } catch (IOException ex) {
+        attemptFailed(socket, new IOException("Could not connect to " + address, ex));
+        return;
+      }
+      attemptSucceeded(socket);
+    }
+
+    private void attemptSucceeded(Socket socket) {
+      synchronized (this) {
+        pendingSockets.remove(socket);
+      }
+      if (!result.complete(socket)) {
+        closeQuietly(socket);
+      }
+    }
+
+    private void attemptFailed(Socket socket, IOException ex) {
+      boolean lost;
+      synchronized (this) {
+        pendingSockets.remove(socket);
+        failures.add(ex);
+        lost = pendingSockets.isEmpty() && nextAddress == addresses.size();
+      }
+
+      if (lost) {
+        IOException failure = failures.get(failures.size() - 1);
+        for (IOException previous : failures.subList(0, failures.size() - 1)) {
+          failure.addSuppressed(previous);
+        }
+        result.completeExceptionally(failure);
+      } else {
+        // don't wait for the delay when the previous attempt already failed
+        startNextAttempt();
+      }
+    }
+
+    // closes the losers, or every socket when the caller cancelled the connection
+    private void abort() {
+      List<Socket> sockets;
+      synchronized (this) {
+        if (nextAttempt != null) {
+          nextAttempt.cancel(false);
+        }
+        sockets = new ArrayList<>(pendingSockets);
+        pendingSockets.clear();
+      }
+      sockets.forEach(SocketConnector::closeQuietly);
+    }
+
+  }
+
+  private static void closeQuietly(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException ex) {
+      // nothing to do, the socket is not used anymore
+    }
+  }
+
+}
@@ -1,15 +1,22 @@
 package com.bytezone.dm3270.streams;
 
+import com.bytezone.dm3270.application.TypeAheadBuffer;
 import com.bytezone.dm3270.buffers.Buffer;
 import com.bytezone.dm3270.buffers.ReplyBuffer;
 import com.bytezone.dm3270.commands.Command;
+import com.bytezone.dm3270.commands.CommandCache;
 import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.extended.AbstractExtendedCommand;
 import com.bytezone.dm3270.extended.BindCommand;
 import com.bytezone.dm3270.extended.CommandHeader;
 import com.bytezone.dm3270.extended.ResponseCommand;
 import com.bytezone.dm3270.extended.SscpLuDataCommand;
 import com.bytezone.dm3270.extended.TN3270ExtendedCommand;
 import com.bytezone.dm3270.extended.UnbindCommand;
+import com.bytezone.dm3270.metrics.FlightRecorderEvents;
+import com.bytezone.dm3270.metrics.RecordStage;
+import com.bytezone.dm3270.metrics.RecordTracer;
+import com.bytezone.dm3270.printer.PrintCommand;
 import com.bytezone.dm3270.session.SessionRecord;
 import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
 import com.bytezone.dm3270.telnet.TN3270ExtendedSubcommand;
@@ -34,6 +41,7 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
   private final Screen screen;
 
   private final TelnetProcessor telnetProcessor = new TelnetProcessor(this);
+  private TypeAheadBuffer typeAheadBuffer;
 
   // Use this when not recording the session and running in TERMINAL mode.
   public TelnetListener(Screen screen, TelnetState telnetState) {
@@ -43,6 +51,10 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
     this.source = TelnetSocket.Source.SERVER;                  // listening to a server
   }
 
+  public void setTypeAheadBuffer(TypeAheadBuffer typeAheadBuffer) {
+    this.typeAheadBuffer = typeAheadBuffer;
+  }
+
   // This method is always called with a copy of the original buffer. It can be
   // called from a background thread, so any GUI calls must be placed on the EDT.
   // Converts buffer arrays to Messages.
@@ -53,6 +65,12 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
     assert source == this.source : "Incorrect source: " + source + ", expecting: "
         + this.source;
 
+    RecordTracer recordTracer = telnetState.getRecordTracer();
+    if (recordTracer != null) {
+      // the TerminalServer stamps the socket read before copying the data it passes here
+      long readNanos = telnetState.getResponseTimer().getLastReadNanos();
+      recordTracer.dataRead(readNanos != 0 ? readNanos : System.nanoTime());
+    }
     telnetProcessor.listen(buffer);     // will call one of the processXXX routines
 
     telnetState.setLastAccess();
@@ -69,6 +87,12 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
 
   @Override
   public void processRecord(byte[] data, int dataPtr) {
+    long start = System.nanoTime();
+    RecordTracer recordTracer = telnetState.getRecordTracer();
+    if (recordTracer != null) {
+      recordTracer.recordFramed();
+    }
+    Object decodeEvent = FlightRecorderEvents.beginRecordDecode();
     int offset;
     int length;
     CommandHeader.DataType dataType;
@@ -85,6 +109,8 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
       currentCommandHeader = null;
       dataType = CommandHeader.DataType.TN3270_DATA;
     }
+    telnetState.record(currentCommandHeader == null ? SessionRecordType.TN3270
+        : SessionRecordType.TN3270E, data, dataPtr);
 
     switch (dataType) {
       case TN3270_DATA:
@@ -92,8 +118,13 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
         if (length <= 0) {
           command = currentCommandHeader;
         } else {
-          if (source == TelnetSocket.Source.SERVER) {
-            command = Command.getCommand(data, offset, length);
+          if (source == TelnetSocket.Source.SERVER && telnetState.getPrinter() != null
+              && isWrite(data[offset])) {
+            command = new PrintCommand(PrintCommand.Format.DATA_STREAM, data, offset, length);
+          } else if (source == TelnetSocket.Source.SERVER) {
+            CommandCache commandCache = telnetState.getCommandCache();
+            command = commandCache == null ? Command.getCommand(data, offset, length)
+                : commandCache.getCommand(data, offset, length);
           } else {
             command = Command.getReply(data, offset, length);
           }
@@ -103,45 +134,78 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
           }
         }
 
-        addDataRecord(command, SessionRecord.SessionRecordType.TN3270);
+        addRecord(command, dataType, dataPtr, start, decodeEvent);
         break;
 
       case BIND_IMAGE:
         BindCommand bindCommand =
             new BindCommand(currentCommandHeader, data, offset, length);
-        addDataRecord(bindCommand, SessionRecord.SessionRecordType.TN3270E);
+        addRecord(bindCommand, dataType, dataPtr, start, decodeEvent);
         break;
 
       case UNBIND:
         UnbindCommand unbindCommand =
             new UnbindCommand(currentCommandHeader, data, offset, length);
-        addDataRecord(unbindCommand, SessionRecord.SessionRecordType.TN3270E);
+        addRecord(unbindCommand, dataType, dataPtr, start, decodeEvent);
         break;
 
       case RESPONSE:
+        telnetState.getResponseTimer().responseReceived(currentCommandHeader.getCommandSeq());
         ResponseCommand responseCommand =
             new ResponseCommand(currentCommandHeader, data, offset, length);
-        addDataRecord(responseCommand, SessionRecord.SessionRecordType.TN3270E);
+        addRecord(responseCommand, dataType, dataPtr, start, decodeEvent);
         break;
 
       case SSCP_LU_DATA:
         ReplyBuffer extCommand = new TN3270ExtendedCommand(currentCommandHeader,
             new SscpLuDataCommand(data, offset, length), telnetState);
-        addDataRecord(extCommand, SessionRecord.SessionRecordType.TN3270E);
+        addRecord(extCommand, dataType, dataPtr, start, decodeEvent);
         break;
 
       case BID:
-        addDataRecord(currentCommandHeader, SessionRecordType.TN3270E);
+        addRecord(currentCommandHeader, dataType, dataPtr, start, decodeEvent);
+        break;
+
+      case SCS_DATA:
+        ReplyBuffer scsCommand = new TN3270ExtendedCommand(currentCommandHeader,
+            new PrintCommand(PrintCommand.Format.SCS, data, offset, length), telnetState);
+        addRecord(scsCommand, dataType, dataPtr, start, decodeEvent);
+        break;
+
+      case PRINT_EOJ:
+        ReplyBuffer eojCommand = new TN3270ExtendedCommand(currentCommandHeader,
+            new PrintCommand(PrintCommand.Format.END_OF_JOB, data, offset, 0), telnetState);
+        addRecord(eojCommand, dataType, dataPtr, start, decodeEvent);
         break;
 
       default:
         LOG.warn("Data type not written: {}, {}", dataType,
             Dm3270Utility.toHex(data, offset, length));
     }
+
+    // telnet negotiations are over once the host sends 3270 records
+    telnetState.setNegotiationComplete();
+  }
+
+  // printer sessions print writes, while queries and other commands are processed as usual
+  private static boolean isWrite(byte command) {
+    switch (command) {
+      case Command.WRITE_F1:
+      case Command.WRITE_01:
+      case Command.ERASE_WRITE_F5:
+      case Command.ERASE_WRITE_05:
+      case Command.ERASE_WRITE_ALTERNATE_7E:
+      case Command.ERASE_WRITE_ALTERNATE_0D:
+        return true;
+      default:
+        return false;
+    }
   }
 
   @Override
   public void processTelnetCommand(byte[] data, int dataPtr) {
+    telnetState.record(SessionRecordType.TELNET, data, dataPtr);
+    telnetState.getSessionMetrics().telnetNegotiationReceived();
     TelnetCommand telnetCommand = new TelnetCommand(telnetState, data, dataPtr);
     addDataRecord(telnetCommand, SessionRecord.SessionRecordType.TELNET);
     telnetCommand.process(screen);       // updates TelnetState
@@ -149,6 +213,8 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
 
   @Override
   public void processTelnetSubcommand(byte[] data, int dataPtr) {
+    telnetState.record(SessionRecordType.TELNET, data, dataPtr);
+    telnetState.getSessionMetrics().telnetNegotiationReceived();
     TelnetSubcommand subcommand = null;
 
     if (data[2] == TelnetSubcommand.TERMINAL_TYPE) {
@@ -162,6 +228,38 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
     addDataRecord(subcommand, SessionRecord.SessionRecordType.TELNET);
   }
 
+  // processes a decoded 3270 record, reporting how long decoding and applying it took
+  private void addRecord(ReplyBuffer message, CommandHeader.DataType dataType, int length,
+      long start, Object decodeEvent) {
+    long decoded = System.nanoTime();
+    RecordTracer recordTracer = telnetState.getRecordTracer();
+    if (recordTracer != null) {
+      recordTracer.stageCompleted(RecordStage.PARSING);
+    }
+    String type = getRecordType(message, dataType);
+    FlightRecorderEvents.endRecordDecode(decodeEvent, type, length);
+    Object applyEvent = FlightRecorderEvents.beginScreenApply();
+    int positionsWritten = screen.getPen().getPositionsWritten();
+    addDataRecord(message, SessionRecordType.TN3270);
+    FlightRecorderEvents.endScreenApply(applyEvent, type, screen.getFieldManager().size(),
+        screen.getPen().getPositionsWritten() - positionsWritten);
+    telnetState.getSessionMetrics().recordReceived(type, length, decoded - start,
+        System.nanoTime() - decoded);
+    if (recordTracer != null) {
+      recordTracer.recordCompleted(type);
+    }
+  }
+
+  private static String getRecordType(ReplyBuffer message, CommandHeader.DataType dataType) {
+    if (message instanceof Command) {
+      return ((Command) message).getName();
+    }
+    if (message instanceof AbstractExtendedCommand) {
+      return ((AbstractExtendedCommand) message).getName();
+    }
+    return dataType.name();
+  }
+
   private void addDataRecord(ReplyBuffer message,
       SessionRecord.SessionRecordType sessionRecordType) {
     // no gui involved
@@ -174,9 +272,18 @@ public class TelnetListener implements BufferListener, TelnetCommandProcessor {
   }
 
   private void processMessage(ReplyBuffer message) {
-    message.process(screen);
-    Optional<Buffer> reply = message.getReply();
-    reply.ifPresent(buffer -> telnetState.write(buffer.getTelnetData()));
+    if (typeAheadBuffer != null) {
+      typeAheadBuffer.hold();
+    }
+    try {
+      message.process(screen);
+      Optional<Buffer> reply = message.getReply();
+      reply.ifPresent(buffer -> telnetState.write(buffer.getTelnetData()));
+    } finally {
+      if (typeAheadBuffer != null) {
+        typeAheadBuffer.release();        // send anything typed while the keyboard was locked
+      }
+    }
   }
 
 }
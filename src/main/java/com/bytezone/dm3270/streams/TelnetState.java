@@ -1,9 +1,21 @@
 package com.bytezone.dm3270.streams;
 
+import com.bytezone.dm3270.commands.CommandCache;
 import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.filetransfer.FileTransfer;
+import com.bytezone.dm3270.metrics.FlightRecorderEvents;
+import com.bytezone.dm3270.metrics.RecordTracer;
+import com.bytezone.dm3270.metrics.SessionMetrics;
+import com.bytezone.dm3270.printer.Printer;
+import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
+import com.bytezone.dm3270.session.SessionRecorder;
 import com.bytezone.dm3270.telnet.TN3270ExtendedSubcommand;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +29,19 @@ public class TelnetState implements Runnable {
   private static final String[] TERMINAL_TYPES =
       {"", "", "IBM-3278-2-E", "IBM-3278-3-E", "IBM-3278-4-E", "IBM-3278-5-E"};
 
+  private static final long KEEP_ALIVE_MILLIS = 120_000;
+  // a single thread keeps every connection alive, instead of a sleeping thread per session
+  private static final ScheduledThreadPoolExecutor KEEP_ALIVE_SCHEDULER =
+      new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "dm3270-keep-alive");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  static {
+    KEEP_ALIVE_SCHEDULER.setRemoveOnCancelPolicy(true);
+  }
+
   // preferences
   private boolean do3270Extended;
   private int commandHeaderCount;
@@ -26,20 +51,31 @@ public class TelnetState implements Runnable {
   private String doDeviceType;
 
   // current status
-  private boolean does3270Extended;
+  private volatile boolean does3270Extended;
   private boolean doesEOR;
   private boolean doesBinary;
   private boolean doesTerminalType;
-  private String deviceType = "";
-  private List<TN3270ExtendedSubcommand.Function> functions;
+  private volatile String deviceType = "";
+  private volatile List<TN3270ExtendedSubcommand.Function> functions;
 
-  private String terminal = "";
+  private volatile String terminal = "";
   private TerminalServer terminalServer;
+  private boolean connectedBefore;
+  private volatile CompletableFuture<Void> negotiation = new CompletableFuture<>();
+  private SessionRecorder sessionRecorder;
+  private int recordedSessionId;
+  private SessionMetrics sessionMetrics = SessionMetrics.NO_OP;
+  private final ResponseTimer responseTimer = new ResponseTimer();
+  private volatile RecordTracer recordTracer;
+  private volatile CommandCache commandCache;
+  private volatile int fileTransferBufferSize = FileTransfer.MAX_BUFFER_SIZE;
+  private volatile FileTransfer fileTransfer;
+  private volatile Printer printer;
 
   // IO
   private AtomicLong lastAccess;
   private volatile boolean running = false;
-  private Thread thread;
+  private ScheduledFuture<?> keepAlive;
 
   private ScreenDimensions secondary = new ScreenDimensions(24, 80);
 
@@ -55,18 +91,158 @@ public class TelnetState implements Runnable {
 
   public void setTerminalServer(TerminalServer terminalServer) {
     this.terminalServer = terminalServer;
-    thread = new Thread(this);
-    thread.start();
+    connectedBefore = true;
+    synchronized (this) {
+      cancelKeepAlive();
+      running = true;
+      keepAlive = KEEP_ALIVE_SCHEDULER.schedule(this::checkKeepAlive, 0, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  // completed when the first 3270 record arrives, which means negotiations are over
+  public CompletableFuture<Void> startNegotiation() {
+    negotiation = new CompletableFuture<>();
+    return negotiation;
+  }
+
+  public void setNegotiationComplete() {
+    if (!negotiation.isDone()) {
+      negotiation.complete(null);
+    }
+  }
+
+  public void setNegotiationFailed(Throwable ex) {
+    negotiation.completeExceptionally(ex);
+  }
+
+  // every connection is recorded as a new session
+  public void setSessionRecorder(SessionRecorder sessionRecorder) {
+    this.sessionRecorder = sessionRecorder;
+    if (sessionRecorder != null) {
+      recordedSessionId = sessionRecorder.newSessionId();
+    }
+  }
+
+  // records a message received from the server, as decoded by the TelnetProcessor
+  public void record(SessionRecordType type, byte[] buffer, int length) {
+    if (sessionRecorder != null) {
+      sessionRecorder.recordDecoded(recordedSessionId, TelnetSocket.Source.SERVER, type, buffer,
+          length);
+    }
+  }
+
+  public void setSessionMetrics(SessionMetrics sessionMetrics) {
+    this.sessionMetrics = sessionMetrics;
+  }
+
+  public SessionMetrics getSessionMetrics() {
+    return sessionMetrics;
+  }
+
+  public ResponseTimer getResponseTimer() {
+    return responseTimer;
+  }
+
+  // null when records are not traced
+  public RecordTracer getRecordTracer() {
+    return recordTracer;
+  }
+
+  public void setRecordTracer(RecordTracer recordTracer) {
+    this.recordTracer = recordTracer;
+  }
+
+  public CommandCache getCommandCache() {
+    return commandCache;
+  }
+
+  public void setCommandCache(CommandCache commandCache) {
+    this.commandCache = commandCache;
+  }
+
+  // offered to the host in the DDM query reply
+  public int getFileTransferBufferSize() {
+    return fileTransferBufferSize;
+  }
+
+  public void setFileTransferBufferSize(int fileTransferBufferSize) {
+    this.fileTransferBufferSize = fileTransferBufferSize;
+  }
+
+  // the IND$FILE transfer expected (or running), null when there is none
+  public FileTransfer getFileTransfer() {
+    return fileTransfer;
+  }
+
+  public void setFileTransfer(FileTransfer fileTransfer) {
+    this.fileTransfer = fileTransfer;
+  }
+
+  public void setFileTransferFailed(Exception ex) {
+    FileTransfer transfer = fileTransfer;
+    if (transfer != null) {
+      transfer.fail(ex);
+    }
+  }
+
+  // null unless this is a printer session
+  public Printer getPrinter() {
+    return printer;
+  }
+
+  public void setPrinter(Printer printer) {
+    Printer previous = this.printer;
+    this.printer = printer;
+    if (previous != null && previous != printer) {
+      previous.close();
+    }
+  }
+
+  // flushes what was printed, once the connection is over
+  public void closePrinter() {
+    Printer current = printer;
+    if (current != null) {
+      current.close();
+    }
   }
 
   public void setLastAccess() {
     lastAccess.set(System.currentTimeMillis());
   }
 
+  public long getLastAccess() {
+    return lastAccess.get();
+  }
+
+  // whether a terminal server was set before, so a new connection is a reconnection
+  public boolean hasConnected() {
+    return connectedBefore;
+  }
+
   public void write(byte[] buffer) {
+    write(buffer, buffer.length);
+  }
+
+  // writes the first length bytes, so callers can reuse a larger buffer
+  public void write(byte[] buffer, int length) {
+    boolean record = length > 0 && buffer[0] != (byte) 0xFF;
+    Object writeEvent = record ? FlightRecorderEvents.beginReplyWrite() : null;
+    if (record) {
+      sessionMetrics.recordSent(length);
+    }
+    if (sessionRecorder != null) {
+      SessionRecordType type = does3270Extended ? SessionRecordType.TN3270E
+          : SessionRecordType.TN3270;
+      if (length > 0 && buffer[0] == (byte) 0xFF) {               // IAC
+        type = SessionRecordType.TELNET;
+      }
+      sessionRecorder.record(recordedSessionId, TelnetSocket.Source.CLIENT, type, buffer,
+          length);
+    }
     if (terminalServer != null) {
-      terminalServer.write(buffer);
+      terminalServer.write(buffer, length);
     }
+    FlightRecorderEvents.endReplyWrite(writeEvent, length);
 
     lastAccess.set(System.currentTimeMillis());
   }
@@ -75,46 +251,64 @@ public class TelnetState implements Runnable {
     return commandHeaderCount++;
   }
 
-  // This thread exists simply to keep the connection alive. It sleeps for a
-  // certain period, and when it wakes it issues a NOOP if nothing else has
-  // communicated with the server.
-
+  /**
+   * Sends a keep alive NO-OP when one is due.
+   *
+   * @deprecated keep alives are scheduled on a shared thread once the terminal server is set,
+   * so this no longer has to run on a thread of its own and returns after a single check.
+   */
+  @Deprecated
   @Override
   public void run() {
-    long lastTimeIChecked;
-    running = true;
-    long limit = 120;      // seconds to wait
-
-    while (running) {
-      try {
-        lastTimeIChecked = lastAccess.get();
-        long delay = (System.currentTimeMillis() - lastTimeIChecked) / 1000;
-        long sleep = limit - delay;
-
-        if (sleep > 1) {
-          Thread.sleep(sleep * 1000);
-        }
-
-        if (lastTimeIChecked == lastAccess.get()) {
-          write(NO_OP);
-        }
-      } catch (InterruptedException e) {
-        if (running) {
-          LOG.debug("TelnetState was interrupted.");
-        }
-        close();
-        return;
+    sendKeepAliveIfDue();
+  }
+
+  // Keeps the connection alive: issues a NOOP when nothing else has communicated with
+  // the server for a certain period, and checks again when it would have expired.
+  private void checkKeepAlive() {
+    long delay = sendKeepAliveIfDue();
+    synchronized (this) {
+      if (running) {
+        keepAlive = KEEP_ALIVE_SCHEDULER.schedule(this::checkKeepAlive, delay,
+            TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  // The scheduler thread is shared by every session, so the NO-OP is skipped rather than
+  // queued behind a write in progress, which may be blocked on a peer that stopped reading.
+  // A write in progress already keeps the connection alive.
+  private long sendKeepAliveIfDue() {
+    long delay = KEEP_ALIVE_MILLIS - (System.currentTimeMillis() - lastAccess.get());
+    if (delay > 1000) {
+      return delay;
+    }
+    TerminalServer server = terminalServer;
+    if (server != null && server.tryWrite(NO_OP)) {
+      if (sessionRecorder != null) {
+        sessionRecorder.record(recordedSessionId, TelnetSocket.Source.CLIENT,
+            SessionRecordType.TELNET, NO_OP, NO_OP.length);
       }
+      lastAccess.set(System.currentTimeMillis());
+      sessionMetrics.keepAliveSent();
+      FlightRecorderEvents.keepAliveSent();
     }
+    return KEEP_ALIVE_MILLIS;
   }
 
-  public void close() {
-    if (thread != null) {
-      running = false;
-      thread.interrupt();
+  private void cancelKeepAlive() {
+    if (keepAlive != null) {
+      keepAlive.cancel(false);
+      keepAlive = null;
     }
   }
 
+  public synchronized void close() {
+    running = false;
+    cancelKeepAlive();
+    closePrinter();
+  }
+
   public ScreenDimensions getSecondary() {
     return secondary;
   }
@@ -152,30 +346,33 @@ public class TelnetState implements Runnable {
     LOG.debug("Device Type: {}", deviceType);
     this.deviceType = deviceType;
 
-    int modelNo = 0;
+    int modelNo = getModel(deviceType);
+    if (modelNo == 0) {
+      LOG.debug("Model not found: {}", deviceType);
+    }
+    secondary = getAlternateScreenDimensions(modelNo);
+  }
+
+  // model of a terminal type (e.g. 4 for IBM-3278-4-E), or 0 when it is not a known one
+  public static int getModel(String terminalType) {
     for (int i = 2; i <= 5; i++) {
-      if (TERMINAL_TYPES[i].equals(deviceType)) {
-        modelNo = i;
-        break;
+      if (TERMINAL_TYPES[i].equals(terminalType)) {
+        return i;
       }
     }
+    return 0;
+  }
 
+  public static ScreenDimensions getAlternateScreenDimensions(int modelNo) {
     switch (modelNo) {
-      case 2:
-        secondary = new ScreenDimensions(24, 80);
-        break;
       case 3:
-        secondary = new ScreenDimensions(32, 80);
-        break;
+        return new ScreenDimensions(32, 80);
       case 4:
-        secondary = new ScreenDimensions(43, 80);
-        break;
+        return new ScreenDimensions(43, 80);
       case 5:
-        secondary = new ScreenDimensions(27, 132);
-        break;
+        return new ScreenDimensions(27, 132);
       default:
-        secondary = new ScreenDimensions(24, 80);
-        LOG.debug("Model not found: {}", deviceType);
+        return new ScreenDimensions(24, 80);
     }
   }
 
@@ -184,6 +381,19 @@ public class TelnetState implements Runnable {
     this.functions = functions;
   }
 
+  public String getTerminal() {
+    return terminal;
+  }
+
+  public String getDeviceType() {
+    return deviceType;
+  }
+
+  // null until agreed with the server
+  public List<TN3270ExtendedSubcommand.Function> getFunctions() {
+    return functions;
+  }
+
   // ---------------------------------------------------------------------------------//
   // Ask actual
   // ---------------------------------------------------------------------------------//
@@ -225,7 +435,7 @@ public class TelnetState implements Runnable {
   }
 
   public String doDeviceType() {
-    return doDeviceType;
+    return printer != null ? Printer.DEVICE_TYPE : doDeviceType;
   }
 
   // ---------------------------------------------------------------------------------//
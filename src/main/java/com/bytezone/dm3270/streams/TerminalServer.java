@@ -1,12 +1,16 @@
 package com.bytezone.dm3270.streams;
 
 import com.bytezone.dm3270.ConnectionListener;
+import com.bytezone.dm3270.metrics.FlightRecorderEvents;
+import com.bytezone.dm3270.metrics.SessionMetrics;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.net.SocketFactory;
 
 public class TerminalServer implements Runnable {
@@ -16,6 +20,10 @@ public class TerminalServer implements Runnable {
   private final SocketFactory socketFactory;
   private int connectionTimeoutMillis;
   private ConnectionListener connectionListener;
+  private SessionMetrics sessionMetrics = SessionMetrics.NO_OP;
+  private final AtomicInteger pendingWrites = new AtomicInteger();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private ResponseTimer responseTimer;
 
   private Socket serverSocket;
   private OutputStream serverOut;
@@ -33,6 +41,12 @@ public class TerminalServer implements Runnable {
     this.telnetListener = listener;
   }
 
+  // uses a socket already connected, for example by a SocketConnector
+  public TerminalServer(Socket socket, BufferListener listener) {
+    this(socket.getInetAddress().getHostAddress(), socket.getPort(), null, listener);
+    this.serverSocket = socket;
+  }
+
   public void setConnectionTimeoutMillis(int connectionTimeoutMillis) {
     this.connectionTimeoutMillis = connectionTimeoutMillis;
   }
@@ -41,12 +55,23 @@ public class TerminalServer implements Runnable {
     this.connectionListener = connectionListener;
   }
 
+  public void setSessionMetrics(SessionMetrics sessionMetrics) {
+    this.sessionMetrics = sessionMetrics;
+  }
+
+  public void setResponseTimer(ResponseTimer responseTimer) {
+    this.responseTimer = responseTimer;
+  }
+
   @Override
   public void run() {
     try {
       try {
-        serverSocket = socketFactory.createSocket();
-        serverSocket.connect(new InetSocketAddress(serverURL, serverPort), connectionTimeoutMillis);
+        if (serverSocket == null) {
+          serverSocket = socketFactory.createSocket();
+          serverSocket.connect(new InetSocketAddress(serverURL, serverPort),
+              connectionTimeoutMillis);
+        }
         if (connectionListener != null) {
           connectionListener.onConnection();
         }
@@ -61,6 +86,9 @@ public class TerminalServer implements Runnable {
       running = true;
       while (running) {
         int bytesRead = serverIn.read(buffer);
+        if (responseTimer != null) {
+          responseTimer.dataRead(System.nanoTime());
+        }
         if (bytesRead < 0) {
           close();
           if (connectionListener != null) {
@@ -69,9 +97,14 @@ public class TerminalServer implements Runnable {
           break;
         }
 
+        Object readEvent = FlightRecorderEvents.beginSocketRead();
+        sessionMetrics.bytesReceived(bytesRead);
         byte[] message = new byte[bytesRead];
         System.arraycopy(buffer, 0, message, 0, bytesRead);
+        long start = System.nanoTime();
         telnetListener.listen(TelnetSocket.Source.SERVER, message, LocalDateTime.now(), true);
+        sessionMetrics.listenerDispatched(System.nanoTime() - start);
+        FlightRecorderEvents.endSocketRead(readEvent, bytesRead);
       }
     } catch (IOException e) {
       if (running) {
@@ -89,15 +122,46 @@ public class TerminalServer implements Runnable {
     }
   }
 
-  public synchronized void write(byte[] buffer) {
+  public void write(byte[] buffer) {
+    write(buffer, buffer.length);
+  }
+
+  // the buffer can be reused once this returns
+  public void write(byte[] buffer, int length) {
     // the no-op may come here if socket is closed from remote end and client has not been closed
     if (!running && buffer == TelnetState.NO_OP) {
       return;
     }
 
+    sessionMetrics.writeQueued(pendingWrites.incrementAndGet());
+    writeLock.lock();
+    try {
+      send(buffer, length);
+    } finally {
+      writeLock.unlock();
+      pendingWrites.decrementAndGet();
+    }
+  }
+
+  // Writes the buffer only when no other write holds the socket, so a peer that has stopped
+  // reading can't block the caller. Returns whether the buffer was written.
+  public boolean tryWrite(byte[] buffer) {
+    if (!running || !writeLock.tryLock()) {
+      return false;
+    }
+    try {
+      send(buffer, buffer.length);
+      return true;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void send(byte[] buffer, int length) {
     try {
-      serverOut.write(buffer);
+      serverOut.write(buffer, 0, length);
       serverOut.flush();
+      sessionMetrics.bytesSent(length);
     } catch (IOException e) {
       handleException(e);
     }
@@ -14,6 +14,7 @@ public abstract class StructuredField extends AbstractTN3270Command {
   public static final byte OUTBOUND_3270DS = 0x40;
 
   public static final byte QUERY_REPLY = (byte) 0x81;
+  public static final byte FILE_TRANSFER = (byte) 0xD0;
 
   protected byte type;
 
@@ -1,7 +1,9 @@
 package com.bytezone.dm3270.telnet;
 
 import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.printer.Printer;
 import com.bytezone.dm3270.streams.TelnetState;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
@@ -16,7 +18,10 @@ public class TN3270ExtendedSubcommand extends TelnetSubcommand {
   private static final byte EXT_DEVICE_TYPE = 2;
   private static final byte EXT_FUNCTIONS = 3;
 
+  private static final byte EXT_CONNECT = 1;
   private static final byte EXT_IS = 4;
+  private static final byte EXT_REASON = 5;
+  private static final byte EXT_REJECT = 6;
   private static final byte EXT_REQUEST = 7;
   private static final byte EXT_SEND = 8;
 
@@ -26,11 +31,11 @@ public class TN3270ExtendedSubcommand extends TelnetSubcommand {
   private String functionsList = "";
 
   private enum SubType {
-    IS, REQUEST, DEVICE_TYPE
+    IS, REQUEST, DEVICE_TYPE, REJECT
   }
 
   public enum Function {
-    BIND_IMAGE, RESPONSES, SYSREQ, REASON
+    BIND_IMAGE, RESPONSES, SYSREQ, REASON, DATA_STREAM_CTL, SCS_CTL_CODES
   }
 
   public TN3270ExtendedSubcommand(byte[] buffer, int offset, int length,
@@ -63,6 +68,10 @@ public class TN3270ExtendedSubcommand extends TelnetSubcommand {
           if (value == null) {
             value = new String(buffer, 5, length - 5);
           }
+        } else if (buffer[4] == EXT_REJECT) {
+          subType = SubType.REJECT;
+          // the reason code follows REASON
+          value = buffer[5] == EXT_REASON && length > 8 ? String.format("%02X", buffer[6]) : "";
         }
         break;
 
@@ -91,9 +100,15 @@ public class TN3270ExtendedSubcommand extends TelnetSubcommand {
       if (buffer[ptr] == 0) {
         functions.add(Function.BIND_IMAGE);
         funcList.append("BIND, ");
+      } else if (buffer[ptr] == 1) {
+        functions.add(Function.DATA_STREAM_CTL);
+        funcList.append("DATA-STREAM-CTL, ");
       } else if (buffer[ptr] == 2) {
         functions.add(Function.RESPONSES);
         funcList.append("RESPONSES, ");
+      } else if (buffer[ptr] == 3) {
+        functions.add(Function.SCS_CTL_CODES);
+        funcList.append("SCS-CTL-CODES, ");
       } else if (buffer[ptr] == 4) {
         functions.add(Function.SYSREQ);
         funcList.append("SYSREQ, ");
@@ -115,26 +130,40 @@ public class TN3270ExtendedSubcommand extends TelnetSubcommand {
 
   @Override
   public void process(Screen screen) {
+    Printer printer = telnetState.getPrinter();
     if (type == SubcommandType.SEND && subType == SubType.DEVICE_TYPE) {
       byte[] header = {TelnetCommand.IAC, TelnetCommand.SB, TN3270E, EXT_DEVICE_TYPE,
           EXT_REQUEST};
       String terminalType = telnetState.doDeviceType();
       byte[] terminal = terminalType.getBytes(StandardCharsets.US_ASCII);
-      byte[] reply = new byte[header.length + terminal.length + 2];
+      // printers may ask for a given LU, usually the one associated to a terminal
+      String connect = printer == null ? null : printer.getLuName();
+      byte[] lu = connect == null || connect.isEmpty() ? new byte[0]
+          : connect.getBytes(StandardCharsets.US_ASCII);
+      int luLength = lu.length == 0 ? 0 : lu.length + 1;
+      byte[] reply = new byte[header.length + terminal.length + luLength + 2];
 
       System.arraycopy(header, 0, reply, 0, header.length);
       System.arraycopy(terminal, 0, reply, header.length, terminal.length);
+      if (luLength > 0) {
+        reply[header.length + terminal.length] = EXT_CONNECT;
+        System.arraycopy(lu, 0, reply, header.length + terminal.length + 1, lu.length);
+      }
       reply[reply.length - 2] = TelnetCommand.IAC;
       reply[reply.length - 1] = TelnetCommand.SE;
 
       setReply(new TN3270ExtendedSubcommand(reply, 0, reply.length, telnetState));
     }
 
-    // after the server assigns our device type, request these three functions
+    // after the server assigns our device type, request the functions for a terminal (bind
+    // image, responses, sysreq and reason), or for a printer (bind image, data stream and SCS
+    // control, and responses)
     if (type == SubcommandType.DEVICE_TYPE && subType == SubType.IS) {
-      byte[] reply =
-          {TelnetCommand.IAC, TelnetCommand.SB, TN3270E, EXT_FUNCTIONS, EXT_REQUEST,
-              0x00, 0x02, 0x04, 0x05, TelnetCommand.IAC, TelnetCommand.SE};
+      byte[] reply = printer == null
+          ? new byte[] {TelnetCommand.IAC, TelnetCommand.SB, TN3270E, EXT_FUNCTIONS, EXT_REQUEST,
+              0x00, 0x02, 0x04, 0x05, TelnetCommand.IAC, TelnetCommand.SE}
+          : new byte[] {TelnetCommand.IAC, TelnetCommand.SB, TN3270E, EXT_FUNCTIONS, EXT_REQUEST,
+              0x00, 0x01, 0x02, 0x03, TelnetCommand.IAC, TelnetCommand.SE};
       setReply(new TN3270ExtendedSubcommand(reply, 0, reply.length, telnetState));
     }
 
@@ -147,13 +176,14 @@ public class TN3270ExtendedSubcommand extends TelnetSubcommand {
           System.arraycopy(data, 0, reply, 0, data.length);
           reply[4] = EXT_IS;        // replace REQUEST with IS
           setReply(new TN3270ExtendedSubcommand(reply, 0, reply.length, telnetState));
+          setFunctionsAgreed(printer);
         }
         break;
 
       // if the server agrees to our request
       case IS:
         if (type == SubcommandType.FUNCTIONS) {
-          telnetState.setFunctions(functions);
+          setFunctionsAgreed(printer);
         } else if (type == SubcommandType.DEVICE_TYPE) {
           telnetState.setDeviceType(getValue());
         }
@@ -162,12 +192,28 @@ public class TN3270ExtendedSubcommand extends TelnetSubcommand {
       case DEVICE_TYPE:
         break;
 
+      // the server can't connect us as asked, for example to a printer LU which is in use
+      case REJECT:
+        LOG.warn("Device type {} rejected, reason: {}", telnetState.doDeviceType(), value);
+        telnetState.setNegotiationFailed(
+            new IOException("Device type rejected by server, reason code: " + value));
+        break;
+
       default:
         LOG.warn("Unknown subtype: {}", subType);
         break;
     }
   }
 
+  // printer sessions may not get any record until a job is printed, so negotiations are over
+  // once the functions are agreed
+  private void setFunctionsAgreed(Printer printer) {
+    telnetState.setFunctions(functions);
+    if (printer != null) {
+      telnetState.setNegotiationComplete();
+    }
+  }
+
   @Override
   public String toString() {
     switch (type) {
@@ -1,10 +1,16 @@
 package com.bytezone.dm3270.telnet;
 
+import java.util.Arrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 public class TelnetProcessor {
 
   // single-byte commands
   public static final byte EOR = (byte) 0xEF;   // End of record
 
+  private static final Logger LOG = LoggerFactory.getLogger(TelnetProcessor.class);
+
   // command prefix
   private static final byte IAC = (byte) 0xFF;
 
@@ -20,12 +26,21 @@ public class TelnetProcessor {
   private static final byte DO = (byte) 0xFD;
   private static final byte DONT = (byte) 0xFE;
 
+  // records are usually a few KB, so the buffer starts small and grows as needed. A buffer
+  // grown past the retained size is dropped after its record, and one reaching the maximum
+  // size (a host not ending its records) is discarded up to the next telnet command.
+  private static final int INITIAL_DATA_SIZE = 1024;
+  private static final int RETAINED_DATA_SIZE = 16 * 1024;
+  private static final int MAX_DATA_SIZE = 256 * 1024;
+  private static final byte[] NO_DATA = new byte[0];
+
   // state variables
-  private final byte[] data = new byte[16500];      // see also SessionReader
+  private byte[] data = NO_DATA;        // allocated on the first byte received
   private int dataPtr;
   private boolean pending;              // last byte was IAC, must check next byte
   private boolean weirdData;            // when stream starts with two IACs
   private byte command;                 // one of DO, DONT, WILL, WONT
+  private boolean discarding;           // the buffer overflowed, drop up to the next command
 
   // command processor
   private final TelnetCommandProcessor commandProcessor;
@@ -36,6 +51,9 @@ public class TelnetProcessor {
 
   public void listen(byte... buffer) {
     for (byte thisByte : buffer) {
+      if (dataPtr == data.length) {
+        growData();
+      }
       data[dataPtr++] = thisByte;           // store every byte we receive
 
       if (thisByte == IAC) {
@@ -59,16 +77,23 @@ public class TelnetProcessor {
 
         // first check for a valid 3270 data record
         if (thisByte == EOR) {
-          commandProcessor.processRecord(data, dataPtr);
+          if (!discarding) {
+            commandProcessor.processRecord(data, dataPtr);
+          }
           reset();
+          if (data.length > RETAINED_DATA_SIZE) {
+            data = NO_DATA;
+          }
           continue;
         }
 
         // next remove any non-telnet data
         // some non-telnet data is in the buffer
-        if (data[0] != IAC || weirdData) {
+        if (data[0] != IAC || weirdData || discarding) {
           dataPtr -= 2;                     // hide IAC and this byte
-          commandProcessor.processData(data, dataPtr);
+          if (!discarding) {
+            commandProcessor.processData(data, dataPtr);
+          }
           reset();
 
           data[dataPtr++] = IAC;            // drop through and process the new byte
@@ -108,10 +133,24 @@ public class TelnetProcessor {
     }
   }
 
+  private void growData() {
+    if (data.length < MAX_DATA_SIZE) {
+      data = Arrays.copyOf(data, Math.min(Math.max(INITIAL_DATA_SIZE, data.length * 2),
+          MAX_DATA_SIZE));
+    } else {
+      if (!discarding) {
+        LOG.warn("Discarding data received without end of record past {} bytes", MAX_DATA_SIZE);
+      }
+      discarding = true;
+      dataPtr = 0;
+    }
+  }
+
   private void reset() {
     dataPtr = 0;
     command = 0;
     weirdData = false;
+    discarding = false;
   }
 
 }
@@ -1,30 +1,16 @@
 package com.bytezone.dm3270.utilities;
 
-import java.io.UnsupportedEncodingException;
-
 public class Dm3270Utility {
 
   public static final int[] EBC_2_ASC = new int[256];
 
-  private static final String EBCDIC = "CP1047";
+  private static final EbcdicCodec EBCDIC = EbcdicCodec.getDefault();
 
   private static final int LINESIZE = 16;
 
   static {
-    byte[] values = new byte[256];
     for (int i = 0; i < 256; i++) {
-      values[i] = (byte) i;
-    }
-
-    try {
-      String s = new String(values, EBCDIC);
-      char[] chars = s.toCharArray();
-      for (int i = 0; i < 256; i++) {
-        int val = chars[i];
-        EBC_2_ASC[i] = val;
-      }
-    } catch (UnsupportedEncodingException e) {
-      e.printStackTrace();
+      EBC_2_ASC[i] = EBCDIC.toChar((byte) i);
     }
   }
 
@@ -33,15 +19,10 @@ public class Dm3270Utility {
   }
 
   public static String getString(byte[] buffer, int offset, int length) {
-    try {
-      if (offset + length > buffer.length) {
-        length = buffer.length - offset - 1;
-      }
-      return new String(buffer, offset, length, EBCDIC);
-    } catch (UnsupportedEncodingException e) {
-      e.printStackTrace();
-      return "FAIL";
+    if (offset + length > buffer.length) {
+      length = buffer.length - offset - 1;
     }
+    return EBCDIC.decode(buffer, offset, length);
   }
 
   public static String getSanitisedString(byte[] buffer, int offset, int length) {
@@ -87,35 +68,31 @@ public class Dm3270Utility {
   public static String toHex(byte[] b, int offset, int length, boolean ebcdic) {
     StringBuilder text = new StringBuilder();
 
-    try {
-      for (int ptr = offset, max = offset + length; ptr < max; ptr += LINESIZE) {
-        final StringBuilder hexLine = new StringBuilder();
-        final StringBuilder textLine = new StringBuilder();
-        for (int linePtr = 0; linePtr < LINESIZE; linePtr++) {
-          if (ptr + linePtr >= max) {
-            break;
-          }
+    for (int ptr = offset, max = offset + length; ptr < max; ptr += LINESIZE) {
+      final StringBuilder hexLine = new StringBuilder();
+      final StringBuilder textLine = new StringBuilder();
+      for (int linePtr = 0; linePtr < LINESIZE; linePtr++) {
+        if (ptr + linePtr >= max) {
+          break;
+        }
 
-          int val = b[ptr + linePtr] & 0xFF;
-          hexLine.append(String.format("%02X ", val));
+        int val = b[ptr + linePtr] & 0xFF;
+        hexLine.append(String.format("%02X ", val));
 
-          if (ebcdic) {
-            if (val < 0x40 || val == 0xFF) {
-              textLine.append('.');
-            } else {
-              textLine.append(new String(b, ptr + linePtr, 1, EBCDIC));
-            }
-          } else if (val < 0x20 || val >= 0xF0) {
+        if (ebcdic) {
+          if (val < 0x40 || val == 0xFF) {
             textLine.append('.');
           } else {
-            textLine.append(new String(b, ptr + linePtr, 1));
+            textLine.append(EBCDIC.toChar(b[ptr + linePtr]));
           }
+        } else if (val < 0x20 || val >= 0xF0) {
+          textLine.append('.');
+        } else {
+          textLine.append(new String(b, ptr + linePtr, 1));
         }
-        text.append(String.format("%04X  %-48s %s%n", ptr, hexLine.toString(),
-            textLine.toString()));
       }
-    } catch (UnsupportedEncodingException e) {
-      e.printStackTrace();
+      text.append(String.format("%04X  %-48s %s%n", ptr, hexLine.toString(),
+          textLine.toString()));
     }
 
     if (text.length() > 0) {
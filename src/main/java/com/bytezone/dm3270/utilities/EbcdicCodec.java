@@ -0,0 +1,174 @@
+package com.bytezone.dm3270.utilities;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Translates between an EBCDIC host code page and Java chars with tables built once per code
+ * page, so translating a byte is an array lookup instead of a charset looked up by name and a
+ * decoder created per call. Whole fields or rows can be translated array to array.
+ *
+ * Chars without a code point in the code page are encoded as SUB (0x3F), as the IBM charsets
+ * do.
+ */
+public final class EbcdicCodec {
+
+  public static final int DEFAULT_CODE_PAGE = 1047;
+
+  private static final int[] SUPPORTED_CODE_PAGES =
+      {37, 273, 285, 297, 500, 1047, 1140, 1141, 1142, 1143, 1144, 1145, 1146, 1147, 1148, 1149};
+  private static final Map<Integer, EbcdicCodec> CODECS = new ConcurrentHashMap<>();
+
+  // code page 1047 as decoded by the IBM1047 charset, so the default codec needs no charset
+  private static final char[] CP1047 = {
+    0x00, 0x01, 0x02, 0x03, 0x9C, 0x09, 0x86, 0x7F, 0x97, 0x8D, 0x8E, 0x0B, 0x0C, 0x0D, 0x0E, 0x0F,
+    0x10, 0x11, 0x12, 0x13, 0x9D, 0x0A, 0x08, 0x87, 0x18, 0x19, 0x92, 0x8F, 0x1C, 0x1D, 0x1E, 0x1F,
+    0x80, 0x81, 0x82, 0x83, 0x84, 0x85, 0x17, 0x1B, 0x88, 0x89, 0x8A, 0x8B, 0x8C, 0x05, 0x06, 0x07,
+    0x90, 0x91, 0x16, 0x93, 0x94, 0x95, 0x96, 0x04, 0x98, 0x99, 0x9A, 0x9B, 0x14, 0x15, 0x9E, 0x1A,
+    0x20, 0xA0, 0xE2, 0xE4, 0xE0, 0xE1, 0xE3, 0xE5, 0xE7, 0xF1, 0xA2, 0x2E, 0x3C, 0x28, 0x2B, 0x7C,
+    0x26, 0xE9, 0xEA, 0xEB, 0xE8, 0xED, 0xEE, 0xEF, 0xEC, 0xDF, 0x21, 0x24, 0x2A, 0x29, 0x3B, 0x5E,
+    0x2D, 0x2F, 0xC2, 0xC4, 0xC0, 0xC1, 0xC3, 0xC5, 0xC7, 0xD1, 0xA6, 0x2C, 0x25, 0x5F, 0x3E, 0x3F,
+    0xF8, 0xC9, 0xCA, 0xCB, 0xC8, 0xCD, 0xCE, 0xCF, 0xCC, 0x60, 0x3A, 0x23, 0x40, 0x27, 0x3D, 0x22,
+    0xD8, 0x61, 0x62, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69, 0xAB, 0xBB, 0xF0, 0xFD, 0xFE, 0xB1,
+    0xB0, 0x6A, 0x6B, 0x6C, 0x6D, 0x6E, 0x6F, 0x70, 0x71, 0x72, 0xAA, 0xBA, 0xE6, 0xB8, 0xC6, 0xA4,
+    0xB5, 0x7E, 0x73, 0x74, 0x75, 0x76, 0x77, 0x78, 0x79, 0x7A, 0xA1, 0xBF, 0xD0, 0x5B, 0xDE, 0xAE,
+    0xAC, 0xA3, 0xA5, 0xB7, 0xA9, 0xA7, 0xB6, 0xBC, 0xBD, 0xBE, 0xDD, 0xA8, 0xAF, 0x5D, 0xB4, 0xD7,
+    0x7B, 0x41, 0x42, 0x43, 0x44, 0x45, 0x46, 0x47, 0x48, 0x49, 0xAD, 0xF4, 0xF6, 0xF2, 0xF3, 0xF5,
+    0x7D, 0x4A, 0x4B, 0x4C, 0x4D, 0x4E, 0x4F, 0x50, 0x51, 0x52, 0xB9, 0xFB, 0xFC, 0xF9, 0xFA, 0xFF,
+    0x5C, 0xF7, 0x53, 0x54, 0x55, 0x56, 0x57, 0x58, 0x59, 0x5A, 0xB2, 0xD4, 0xD6, 0xD2, 0xD3, 0xD5,
+    0x30, 0x31, 0x32, 0x33, 0x34, 0x35, 0x36, 0x37, 0x38, 0x39, 0xB3, 0xDB, 0xDC, 0xD9, 0xDA, 0x9F
+  };
+  private static final byte SUBSTITUTE = 0x3F;
+
+  private final int codePage;
+  private final char[] toChar = new char[256];
+  private final byte[] fromLatin1 = new byte[256];        // chars below 256, most of them
+  private final Map<Character, Byte> fromOthers = new HashMap<>();
+
+  private EbcdicCodec(int codePage, char[] toChar) {
+    this.codePage = codePage;
+    System.arraycopy(toChar, 0, this.toChar, 0, 256);
+
+    Arrays.fill(fromLatin1, SUBSTITUTE);
+    for (int i = 255; i >= 0; i--) {                      // lowest byte wins on duplicates
+      char c = toChar[i];
+      if (c < 256) {
+        fromLatin1[c] = (byte) i;
+      } else {
+        fromOthers.put(c, (byte) i);
+      }
+    }
+  }
+
+  // the charset may encode chars it never decodes to, or pick other bytes on duplicates
+  private EbcdicCodec(int codePage, char[] toChar, Charset charset) {
+    this.codePage = codePage;
+    System.arraycopy(toChar, 0, this.toChar, 0, 256);
+
+    for (char c = 0; c < 256; c++) {
+      fromLatin1[c] = String.valueOf(c).getBytes(charset)[0];
+    }
+    for (char c : toChar) {
+      if (c >= 256) {
+        fromOthers.put(c, String.valueOf(c).getBytes(charset)[0]);
+      }
+    }
+  }
+
+  public static EbcdicCodec getDefault() {
+    return forCodePage(DEFAULT_CODE_PAGE);
+  }
+
+  // code page number as used by the host, e.g. 37 or 1140
+  public static EbcdicCodec forCodePage(int codePage) {
+    EbcdicCodec codec = CODECS.get(codePage);
+    if (codec == null) {
+      if (!isSupported(codePage)) {
+        throw new IllegalArgumentException("Unsupported code page: " + codePage);
+      }
+      codec = CODECS.computeIfAbsent(codePage, cp -> cp == DEFAULT_CODE_PAGE
+          ? new EbcdicCodec(cp, CP1047) : fromCharset(cp));
+    }
+    return codec;
+  }
+
+  private static boolean isSupported(int codePage) {
+    for (int supported : SUPPORTED_CODE_PAGES) {
+      if (supported == codePage) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static EbcdicCodec fromCharset(int codePage) {
+    Charset charset = Charset.forName(getCharsetName(codePage));
+    byte[] values = new byte[256];
+    for (int i = 0; i < 256; i++) {
+      values[i] = (byte) i;
+    }
+    char[] toChar = new String(values, charset).toCharArray();
+    return new EbcdicCodec(codePage, toChar, charset);
+  }
+
+  private static String getCharsetName(int codePage) {
+    return String.format(codePage >= 1140 ? "IBM%05d" : "IBM%03d", codePage);
+  }
+
+  public static int[] getSupportedCodePages() {
+    return SUPPORTED_CODE_PAGES.clone();
+  }
+
+  public int getCodePage() {
+    return codePage;
+  }
+
+  public char toChar(byte value) {
+    return toChar[value & 0xFF];
+  }
+
+  public byte toByte(char value) {
+    if (value < 256) {
+      return fromLatin1[value];
+    }
+    Byte b = fromOthers.get(value);
+    return b == null ? SUBSTITUTE : b;
+  }
+
+  public String decode(byte[] buffer, int offset, int length) {
+    char[] chars = new char[length];
+    decode(buffer, offset, length, chars, 0);
+    return new String(chars);
+  }
+
+  // returns the position in chars after the last one written
+  public int decode(byte[] buffer, int offset, int length, char[] chars, int charOffset) {
+    for (int i = 0; i < length; i++) {
+      chars[charOffset++] = toChar[buffer[offset + i] & 0xFF];
+    }
+    return charOffset;
+  }
+
+  public byte[] encode(CharSequence text) {
+    byte[] buffer = new byte[text.length()];
+    encode(text, buffer, 0);
+    return buffer;
+  }
+
+  // returns the position in buffer after the last byte written
+  public int encode(CharSequence text, byte[] buffer, int offset) {
+    for (int i = 0, max = text.length(); i < max; i++) {
+      buffer[offset++] = toByte(text.charAt(i));
+    }
+    return offset;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("EbcdicCodec [code page=%d]", codePage);
+  }
+
+}
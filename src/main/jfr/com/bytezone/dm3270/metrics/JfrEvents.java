@@ -0,0 +1,159 @@
+package com.bytezone.dm3270.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// only loaded (by name) by FlightRecorderEvents when the JVM supports JFR
+final class JfrEvents implements FlightRecorderEvents.Events {
+
+  private static final String CATEGORY = "dm3270";
+
+  // events are only created when enabled, and committed when over their threshold
+  private static <T extends Event> T begin(T event) {
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public Object beginSocketRead() {
+    return begin(new SocketReadEvent());
+  }
+
+  @Override
+  public void endSocketRead(Object event, int bytes) {
+    SocketReadEvent socketRead = (SocketReadEvent) event;
+    socketRead.end();
+    if (socketRead.shouldCommit()) {
+      socketRead.bytes = bytes;
+      socketRead.commit();
+    }
+  }
+
+  @Override
+  public Object beginRecordDecode() {
+    return begin(new RecordDecodeEvent());
+  }
+
+  @Override
+  public void endRecordDecode(Object event, String command, int bytes) {
+    RecordDecodeEvent recordDecode = (RecordDecodeEvent) event;
+    recordDecode.end();
+    if (recordDecode.shouldCommit()) {
+      recordDecode.command = command;
+      recordDecode.bytes = bytes;
+      recordDecode.commit();
+    }
+  }
+
+  @Override
+  public Object beginScreenApply() {
+    return begin(new ScreenApplyEvent());
+  }
+
+  @Override
+  public void endScreenApply(Object event, String command, int fields, int positionsWritten) {
+    ScreenApplyEvent screenApply = (ScreenApplyEvent) event;
+    screenApply.end();
+    if (screenApply.shouldCommit()) {
+      screenApply.command = command;
+      screenApply.fields = fields;
+      screenApply.positionsWritten = positionsWritten;
+      screenApply.commit();
+    }
+  }
+
+  @Override
+  public Object beginReplyWrite() {
+    return begin(new ReplyWriteEvent());
+  }
+
+  @Override
+  public void endReplyWrite(Object event, int bytes) {
+    ReplyWriteEvent replyWrite = (ReplyWriteEvent) event;
+    replyWrite.end();
+    if (replyWrite.shouldCommit()) {
+      replyWrite.bytes = bytes;
+      replyWrite.commit();
+    }
+  }
+
+  @Override
+  public void keepAliveSent() {
+    KeepAliveEvent keepAlive = new KeepAliveEvent();
+    if (keepAlive.isEnabled()) {
+      keepAlive.commit();
+    }
+  }
+
+  @Name("dm3270.SocketRead")
+  @Label("Socket Read")
+  @Category(CATEGORY)
+  @Description("Bytes read from the terminal server, lasting until they are processed")
+  static class SocketReadEvent extends Event {
+
+    @Label("Bytes")
+    @DataAmount
+    private int bytes;
+
+  }
+
+  @Name("dm3270.RecordDecode")
+  @Label("Record Decode")
+  @Category(CATEGORY)
+  @Description("3270 record received and decoded into a command")
+  static class RecordDecodeEvent extends Event {
+
+    @Label("Command")
+    private String command;
+
+    @Label("Bytes")
+    @DataAmount
+    private int bytes;
+
+  }
+
+  @Name("dm3270.ScreenApply")
+  @Label("Screen Apply")
+  @Category(CATEGORY)
+  @Description("Command applied to the screen, including sending its reply")
+  static class ScreenApplyEvent extends Event {
+
+    @Label("Command")
+    private String command;
+
+    @Label("Fields")
+    @Description("Fields in the screen once the command was applied")
+    private int fields;
+
+    @Label("Positions Written")
+    private int positionsWritten;
+
+  }
+
+  @Name("dm3270.ReplyWrite")
+  @Label("Reply Write")
+  @Category(CATEGORY)
+  @Description("3270 record (like an AID or a query reply) written to the terminal server")
+  static class ReplyWriteEvent extends Event {
+
+    @Label("Bytes")
+    @DataAmount
+    private int bytes;
+
+  }
+
+  @Name("dm3270.KeepAlive")
+  @Label("Keep Alive")
+  @Category(CATEGORY)
+  @Description("No-op sent to keep the connection alive")
+  static class KeepAliveEvent extends Event {
+  }
+
+}
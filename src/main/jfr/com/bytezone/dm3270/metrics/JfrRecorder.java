@@ -0,0 +1,13 @@
+package com.bytezone.dm3270.metrics;
+
+import jdk.jfr.FlightRecorder;
+
+// only loaded (by name) by FlightRecorderEvents when the JVM supports JFR
+final class JfrRecorder implements FlightRecorderEvents.Recorder {
+
+  @Override
+  public boolean isInitialized() {
+    return FlightRecorder.isInitialized();
+  }
+
+}
@@ -0,0 +1,182 @@
+package com.bytezone.dm3270;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import com.bytezone.dm3270.buffers.RecordEncoder;
+import com.bytezone.dm3270.display.Field;
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.host.HostScreenBuilder;
+import com.bytezone.dm3270.host.ScriptedApplication;
+import com.bytezone.dm3270.host.VirtualHost;
+import com.bytezone.dm3270.streams.TelnetListener;
+import com.bytezone.dm3270.streams.TelnetSocket;
+import com.bytezone.dm3270.streams.TelnetState;
+import com.bytezone.dm3270.telnet.TelnetCommand;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * Enforces how many bytes the steady state hot paths may allocate, so allocation regressions
+ * fail the build. Each path is warmed up (letting the JIT scalar replace what it can) and then
+ * measured as the average allocated by the current thread over many iterations. Budgets are
+ * the measured values plus about 10%, and should be lowered along with the allocations.
+ *
+ * Strings take one byte per char with compact strings (Java 9 on) and two on Java 8, so budgets
+ * count the chars of the strings built apart from the other bytes, and chars are weighed with
+ * what the running JVM takes for them.
+ */
+public class AllocationBudgetTest {
+
+  // Erase Write of a typical 24x80 screen: telnet framing, parsing, fields and screen watcher
+  private static final long INBOUND_SCREEN_BUDGET = 17_500;
+  private static final long INBOUND_SCREEN_CHARS_BUDGET = 320;
+  // Read Modified with two modified fields
+  private static final long READ_MODIFIED_FIELDS_BUDGET = 960;
+  // the same AID reply, framed for telnet into a reusable encoder
+  private static final long ENCODE_MODIFIED_FIELDS_BUDGET = 56;
+  // 24x80 screen text, built and then copied to a string
+  private static final long SCREEN_TEXT_BUDGET = 360;
+  private static final long SCREEN_TEXT_CHARS_BUDGET = 4_280;
+
+  private static final int WARMUP_ITERATIONS = 20_000;
+  private static final int ITERATIONS = 2_000;
+  private static final ScreenDimensions SCREEN_DIMENSIONS = new ScreenDimensions(24, 80);
+
+  private com.sun.management.ThreadMXBean threadBean;
+  private int charBytes;
+  private byte[] screenData;
+  private volatile String text;
+
+  @Before
+  public void setup() {
+    assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+    threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threadBean.isThreadAllocatedMemorySupported()
+        && threadBean.isThreadAllocatedMemoryEnabled());
+    charBytes = measureCharBytes();
+
+    HostScreenBuilder builder = new HostScreenBuilder(24, 80)
+        .highlightedText(1, 28, "CUSTOMER INFORMATION SYSTEM")
+        .text(2, 2, "Date: 2018-01-01");
+    String[] labels = {"Customer ID", "Name", "Address", "City", "State", "Zip code",
+        "Phone", "Email", "Account", "Balance", "Last payment", "Due date"};
+    for (int i = 0; i < labels.length; i++) {
+      builder.text(5 + i, 2, labels[i] + " ...")
+          .input(5 + i, 20, 30, i % 3 == 0 ? "VALUE" + i : "");
+    }
+    screenData = builder
+        .text(22, 2, "Command ===>")
+        .input(22, 15, 60)
+        .text(24, 2, "F1=Help  F3=Exit  F7=Up  F8=Down  F12=Cancel")
+        .cursor(5, 20)
+        .build();
+  }
+
+  private long measureAllocatedBytes(Runnable operation) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      operation.run();
+    }
+    long threadId = Thread.currentThread().getId();
+    long start = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < ITERATIONS; i++) {
+      operation.run();
+    }
+    return (threadBean.getThreadAllocatedBytes(threadId) - start) / ITERATIONS;
+  }
+
+  // 2 on Java 8, or when compact strings are disabled
+  private int measureCharBytes() {
+    char[] chars = new char[4096];
+    Arrays.fill(chars, 'A');
+    long allocated = measureAllocatedBytes(() -> text = new String(chars));
+    return allocated >= chars.length * 2 ? 2 : 1;
+  }
+
+  private long budget(long bytes, long chars) {
+    return bytes + chars * charBytes;
+  }
+
+  private Screen newScreen() {
+    return new Screen(SCREEN_DIMENSIONS, SCREEN_DIMENSIONS, new TelnetState());
+  }
+
+  // as received from the terminal server: IAC doubled and terminated by IAC EOR
+  private byte[] frame(byte[] data) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 16);
+    for (byte b : data) {
+      out.write(b);
+      if (b == TelnetCommand.IAC) {
+        out.write(b);
+      }
+    }
+    out.write(TelnetCommand.IAC);
+    out.write(TelnetProcessor.EOR);
+    return out.toByteArray();
+  }
+
+  @Test
+  public void shouldNotExceedBudgetWhenProcessingInboundScreen() {
+    Screen screen = newScreen();
+    TelnetListener listener = new TelnetListener(screen, screen.getTelnetState());
+    byte[] record = frame(screenData);
+    long allocated = measureAllocatedBytes(
+        () -> listener.listen(TelnetSocket.Source.SERVER, record, null, true));
+    assertThat(allocated)
+        .isLessThanOrEqualTo(budget(INBOUND_SCREEN_BUDGET, INBOUND_SCREEN_CHARS_BUDGET));
+  }
+
+  @Test
+  public void shouldNotExceedBudgetWhenReadingModifiedFields() {
+    Screen screen = newScreen();
+    new TelnetListener(screen, screen.getTelnetState())
+        .listen(TelnetSocket.Source.SERVER, frame(screenData), null, true);
+    Field name = screen.getFieldManager().getFieldAt(6 * 80 + 20).get();
+    name.setText("JOHN SMITH");
+    Field command = screen.getFieldManager().getFieldAt(21 * 80 + 15).get();
+    command.setText("UPDATE");
+    long allocated = measureAllocatedBytes(screen::readModifiedFields);
+    assertThat(allocated).isLessThanOrEqualTo(READ_MODIFIED_FIELDS_BUDGET);
+  }
+
+  @Test
+  public void shouldNotExceedBudgetWhenEncodingModifiedFields() {
+    Screen screen = newScreen();
+    new TelnetListener(screen, screen.getTelnetState())
+        .listen(TelnetSocket.Source.SERVER, frame(screenData), null, true);
+    screen.getFieldManager().getFieldAt(6 * 80 + 20).get().setText("JOHN SMITH");
+    screen.getFieldManager().getFieldAt(21 * 80 + 15).get().setText("UPDATE");
+    RecordEncoder encoder = new RecordEncoder(8192, true);
+    long allocated = measureAllocatedBytes(() -> {
+      encoder.startRecord().putHeader((byte) 0, 1);
+      screen.packModifiedFields(encoder);
+      encoder.endRecord();
+    });
+    assertThat(allocated).isLessThanOrEqualTo(ENCODE_MODIFIED_FIELDS_BUDGET);
+  }
+
+  @Test
+  public void shouldNotExceedBudgetWhenGettingScreenText() throws Exception {
+    try (VirtualHost host = new VirtualHost(
+        new ScriptedApplication(Collections.singletonList(screenData), 0))) {
+      host.start();
+      TerminalClient client = new TerminalClient(2, SCREEN_DIMENSIONS);
+      client.connectAsync("localhost", host.getPort()).get(10, TimeUnit.SECONDS);
+      try {
+        long allocated = measureAllocatedBytes(client::getScreenText);
+        assertThat(allocated)
+            .isLessThanOrEqualTo(budget(SCREEN_TEXT_BUDGET, SCREEN_TEXT_CHARS_BUDGET));
+      } finally {
+        client.disconnect();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,27 @@
+package com.bytezone.dm3270;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.host.VirtualHostRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class CodePageTest {
+
+  @Rule
+  public final VirtualHostRule virtualHost = new VirtualHostRule();
+
+  @Test
+  public void shouldEncodeFieldTextWithCodePageWhenSetCodePage() throws Exception {
+    TerminalClient client = virtualHost.getClient();
+    client.setCodePage(1140);
+    virtualHost.connect(true);
+    client.setFieldTextByCoord(10, 15, "\u20AC100");
+    client.sendAID(AIDCommand.AID_ENTER, "ENTER");
+    virtualHost.awaitScreenContains(VirtualHostRule.MAIN_MENU);
+    // the host decodes with code page 1047, where the euro sign of 1140 is the currency sign
+    assertThat(virtualHost.getInputs().get(0).getField(10, 15, 80)).isEqualTo("\u00A4100");
+  }
+
+}
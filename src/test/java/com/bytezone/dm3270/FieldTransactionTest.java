@@ -0,0 +1,44 @@
+package com.bytezone.dm3270;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.host.HostInput;
+import com.bytezone.dm3270.host.VirtualHostRule;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class FieldTransactionTest {
+
+  @Rule
+  public final VirtualHostRule virtualHost = new VirtualHostRule();
+
+  @Test
+  public void shouldReceiveFieldTextWhenSendTransaction() throws Exception {
+    virtualHost.connect(true);
+    virtualHost.getClient().send(new FieldTransaction(AIDCommand.AID_ENTER, "ENTER")
+        .setFieldTextByLabel("USERID ===>", "testusr")
+        .setCursor(10, 15));
+    virtualHost.awaitScreenContains(VirtualHostRule.MAIN_MENU);
+    List<HostInput> inputs = virtualHost.getInputs();
+    assertThat(inputs).hasSize(1);
+    assertThat(inputs.get(0).getField(10, 15, 80)).isEqualTo("testusr");
+    assertThat(inputs.get(0).getCursorLocation()).isEqualTo(9 * 80 + 14);
+  }
+
+  @Test
+  public void shouldNotChangeScreenWhenSendTransactionWithMissingField() throws Exception {
+    virtualHost.connect(true);
+    TerminalClient client = virtualHost.getClient();
+    FieldTransaction transaction = new FieldTransaction(AIDCommand.AID_ENTER, "ENTER")
+        .setFieldTextByCoord(10, 15, "testusr")
+        .setFieldTextByLabel("PASSWORD ===>", "secret");
+    assertThatThrownBy(() -> client.send(transaction))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(client.getScreenText()).doesNotContain("testusr");
+    assertThat(client.isKeyboardLocked()).isFalse();
+  }
+
+}
@@ -11,24 +11,47 @@ import com.bytezone.dm3270.display.Field;
 import com.bytezone.dm3270.display.Screen;
 import com.bytezone.dm3270.display.ScreenDimensions;
 import com.bytezone.dm3270.display.ScreenPosition;
+import com.bytezone.dm3270.metrics.AggregateSessionMetrics;
+import com.bytezone.dm3270.metrics.RecordStage;
+import com.bytezone.dm3270.metrics.RecordTracer;
+import com.bytezone.dm3270.session.RecordedMessage;
+import com.bytezone.dm3270.session.SessionReader;
+import com.bytezone.dm3270.session.SessionRecorder;
+import com.bytezone.dm3270.session.SessionReplayer;
+import com.bytezone.dm3270.session.SessionReplayer.ReplayReport;
+import com.bytezone.dm3270.streams.TelnetSocket;
+import com.bytezone.dm3270.utilities.EbcdicCodec;
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
 import java.awt.Point;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import javax.net.SocketFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
@@ -57,6 +80,7 @@ public class TerminalClientTest {
   private static final ScreenDimensions SCREEN_DIMENSIONS_M_FIVE = new ScreenDimensions(27, 132);
   private static final ScreenDimensions SCREEN_DIMENSIONS = new ScreenDimensions(24, 80);
   private static final long TIMEOUT_MILLIS = 10000;
+  private static final long CONNECTION_ATTEMPT_DELAY_MILLIS = 500;
   private static final String SERVICE_HOST = "localhost";
   @Rule
   public TestRule watchman = new TestWatcher() {
@@ -232,6 +256,16 @@ public class TerminalClientTest {
     client.sendAID(AIDCommand.AID_ENTER, "ENTER");
   }
 
+  @Test
+  public void shouldGetUserMenuScreenWhenSendUserFieldWithTypeAheadBeforeKeyboardUnlock()
+      throws Exception {
+    client.setTypeAheadEnabled(true);
+    sendUserFieldByCoord();
+    awaitKeyboardUnlock();
+    assertThat(getScreenText())
+        .isEqualTo(getFileContent("user-menu-screen.txt"));
+  }
+
   @Test
   public void shouldGetLoginSuccessScreenWhenSendPasswordFieldByProtectedLabel() throws Exception {
     awaitKeyboardUnlock();
@@ -336,6 +370,254 @@ public class TerminalClientTest {
     exceptionWaiter.awaitException();
   }
 
+  @Test
+  public void shouldGetWelcomeScreenWhenConnectAsyncWithUnreachableFirstAddress()
+      throws Exception {
+    awaitKeyboardUnlock();
+    teardown();
+    service.start();
+
+    client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+    client.setConnectionListener(exceptionWaiter);
+    client.connectAsync(Arrays.asList(new InetSocketAddress(SERVICE_HOST, 1),
+        InetSocketAddress.createUnresolved(SERVICE_HOST, service.getPort())))
+        .get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    awaitKeyboardUnlock();
+    assertThat(getScreenText())
+        .isEqualTo(getWelcomeScreen());
+  }
+
+  @Test
+  public void shouldConnectToSecondAddressAfterAttemptDelayWhenFirstAddressDoesNotAnswer()
+      throws Exception {
+    awaitKeyboardUnlock();
+    teardown();
+    service.start();
+
+    try (ServerSocket unanswered = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      List<Socket> backlog = fillBacklog(unanswered);
+      try {
+        List<Socket> attempts = new CopyOnWriteArrayList<>();
+        client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+        client.setConnectionListener(exceptionWaiter);
+        client.setConnectionTimeoutMillis(5000);
+        client.setConnectionAttemptDelayMillis(CONNECTION_ATTEMPT_DELAY_MILLIS);
+        client.setSocketFactory(new RecordingSocketFactory(attempts));
+        long start = System.nanoTime();
+        client.connectAsync(Arrays.asList(
+            new InetSocketAddress(unanswered.getInetAddress(), unanswered.getLocalPort()),
+            new InetSocketAddress(SERVICE_HOST, service.getPort())))
+            .get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        awaitKeyboardUnlock();
+
+        assertThat(getScreenText()).isEqualTo(getWelcomeScreen());
+        assertThat(elapsedMillis).isBetween(CONNECTION_ATTEMPT_DELAY_MILLIS, 4000L);
+        assertThat(attempts).hasSize(2);
+        assertThat(attempts.get(0).isClosed()).isTrue();
+        assertThat(attempts.get(1).isClosed()).isFalse();
+      } finally {
+        for (Socket socket : backlog) {
+          socket.close();
+        }
+      }
+    }
+  }
+
+  // once the backlog of a server socket that never accepts is full, new connections hang
+  private static List<Socket> fillBacklog(ServerSocket serverSocket) throws IOException {
+    List<Socket> sockets = new ArrayList<>();
+    while (sockets.size() < 16) {
+      Socket socket = new Socket();
+      try {
+        socket.connect(serverSocket.getLocalSocketAddress(), 500);
+      } catch (SocketTimeoutException ex) {
+        socket.close();
+        return sockets;
+      }
+      sockets.add(socket);
+    }
+    throw new IllegalStateException("Could not fill the backlog of " + serverSocket);
+  }
+
+  private static class RecordingSocketFactory extends SocketFactory {
+
+    private final SocketFactory delegate = SocketFactory.getDefault();
+    private final List<Socket> sockets;
+
+    private RecordingSocketFactory(List<Socket> sockets) {
+      this.sockets = sockets;
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+      return record(delegate.createSocket());
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+      return record(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+        throws IOException {
+      return record(delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+      return record(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+        int localPort) throws IOException {
+      return record(delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    private Socket record(Socket socket) {
+      sockets.add(socket);
+      return socket;
+    }
+
+  }
+
+  @Test
+  public void shouldReadRecordedServerAndClientRecordsWhenConnectWithSessionRecorder()
+      throws Exception {
+    Path recording = recordUserSession();
+    try {
+      Map<Integer, List<RecordedMessage>> sessions = SessionReader.readSessions(recording);
+      assertThat(sessions).hasSize(1);
+      assertThat(sessions.values().iterator().next())
+          .extracting(RecordedMessage::getSource)
+          .contains(TelnetSocket.Source.SERVER, TelnetSocket.Source.CLIENT);
+    } finally {
+      Files.delete(recording);
+    }
+  }
+
+  private Path recordUserSession() throws Exception {
+    awaitKeyboardUnlock();
+    teardown();
+    service.start();
+
+    Path recording = Files.createTempFile("dm3270", ".rec");
+    try (SessionRecorder recorder = new SessionRecorder(recording)) {
+      client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+      client.setSessionRecorder(recorder);
+      connectClient();
+      awaitKeyboardUnlock();
+      sendUserFieldByCoord();
+      awaitKeyboardUnlock();
+    }
+    return recording;
+  }
+
+  @Test
+  public void shouldReplayAllServerRecordsWhenReplayRecordedSession() throws Exception {
+    Path recording = recordUserSession();
+    try {
+      ReplayReport report = new SessionReplayer(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS)
+          .replayRecordings(Collections.singletonList(recording));
+      long serverRecords = SessionReader.readSessions(recording).values().iterator().next()
+          .stream()
+          .filter(m -> m.getSource() == TelnetSocket.Source.SERVER)
+          .count();
+      assertThat(report.getFailedSessions()).isZero();
+      assertThat(report.getRecords()).isEqualTo(serverRecords);
+    } finally {
+      Files.delete(recording);
+    }
+  }
+
+  @Test
+  public void shouldCountSentAndReceivedRecordsWhenConnectWithSessionMetrics()
+      throws Exception {
+    awaitKeyboardUnlock();
+    teardown();
+    service.start();
+
+    AggregateSessionMetrics metrics = new AggregateSessionMetrics();
+    client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+    client.setSessionMetrics(metrics);
+    connectClient();
+    awaitKeyboardUnlock();
+    sendUserFieldByCoord();
+    awaitKeyboardUnlock();
+
+    assertThat(metrics.getSessions()).isEqualTo(1);
+    assertThat(metrics.getTelnetNegotiations()).isPositive();
+    assertThat(metrics.getRecordsReceived()).isGreaterThanOrEqualTo(2);
+    assertThat(metrics.getRecordsSent()).isPositive();
+    assertThat(metrics.getBytesReceived()).isPositive();
+    assertThat(metrics.getDecodeTimes().getCount()).isEqualTo(metrics.getRecordsReceived());
+  }
+
+  @Test
+  public void shouldTraceRecordStagesWhenConnectWithRecordTracer() throws Exception {
+    awaitKeyboardUnlock();
+    teardown();
+    service.start();
+
+    RecordTracer tracer = new RecordTracer(2);
+    List<String> traced = new CopyOnWriteArrayList<>();
+    tracer.setListener(trace -> traced.add(trace.getType()));
+    client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+    client.setRecordTracer(tracer);
+    connectClient();
+    awaitKeyboardUnlock();
+    sendUserFieldByCoord();
+    awaitKeyboardUnlock();
+
+    // the welcome and user menu screens
+    assertThat(tracer.getCount()).isGreaterThanOrEqualTo(2);
+    assertThat(traced).hasSize((int) tracer.getCount()).doesNotContainNull();
+    for (RecordStage stage : RecordStage.values()) {
+      assertThat(tracer.getHistogram(stage).getCount()).as(stage.name())
+          .isEqualTo(tracer.getCount());
+      assertThat(tracer.getHistogram(stage).getMax()).as(stage.name()).isPositive();
+    }
+    List<Long> totals = new ArrayList<>();
+    tracer.forEachTrace(trace -> {
+      long stages = 0;
+      for (RecordStage stage : RecordStage.values()) {
+        assertThat(trace.getNanos(stage)).as(stage.name()).isNotNegative();
+        stages += trace.getNanos(stage);
+      }
+      assertThat(trace.getTotalNanos()).isEqualTo(stages);
+      totals.add(trace.getTotalNanos());
+    });
+    assertThat(totals).hasSize(2);
+  }
+
+  @Test
+  public void shouldPrintScsAndDataStreamRecordsWhenConnectAsPrinterSession()
+      throws Exception {
+    awaitKeyboardUnlock();
+    teardown();
+    setServiceFlowFromFile("/printer.yml");
+    service.start();
+
+    CountDownLatch printed = new CountDownLatch(1);
+    StringWriter output = new StringWriter() {
+      @Override
+      public void flush() {
+        if (toString().endsWith("LU3 PRINT\n")) {
+          printed.countDown();
+        }
+      }
+    };
+    client = new TerminalClient(TERMINAL_MODEL_TYPE_TWO, SCREEN_DIMENSIONS);
+    client.setPrinterSession("PRT00001", output);
+    client.connectAsync(SERVICE_HOST, service.getPort())
+        .get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+    assertThat(printed.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(output.toString()).isEqualTo("HELLO\nWORLD\nLU3 PRINT\n");
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void shouldThrowIllegalArgumentExceptionWhenSendIncorrectFieldPosition()
       throws Exception {
@@ -376,6 +658,7 @@ public class TerminalClientTest {
   public void shouldGetCorrectFieldsWhenGetFields() throws Exception {
     when(screenMock.validate(anyInt())).thenAnswer(
         (Answer<Integer>) invocationOnMock -> (Integer) invocationOnMock.getArguments()[0]);
+    when(screenMock.getCodec()).thenReturn(EbcdicCodec.getDefault());
     awaitKeyboardUnlock();
     sendUserFieldByCoord();
     awaitKeyboardUnlock();
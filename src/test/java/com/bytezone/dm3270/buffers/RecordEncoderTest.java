@@ -0,0 +1,77 @@
+package com.bytezone.dm3270.buffers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.orders.BufferAddress;
+import com.bytezone.dm3270.telnet.TelnetCommand;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
+import org.junit.Test;
+
+public class RecordEncoderTest {
+
+  private static final byte[] DATA = {0x7D, TelnetCommand.IAC, 0x40};
+
+  @Test
+  public void shouldDoubleIacAndEndWithEorWhenTelnetFraming() {
+    RecordEncoder encoder = new RecordEncoder(16, true).startRecord();
+    encoder.put(DATA, 0, DATA.length);
+    encoder.endRecord();
+
+    assertThat(encoder.toByteArray()).containsExactly(0x7D, TelnetCommand.IAC,
+        TelnetCommand.IAC, 0x40, TelnetCommand.IAC, TelnetProcessor.EOR);
+  }
+
+  @Test
+  public void shouldKeepPlainDataWhenNoTelnetFraming() {
+    RecordEncoder encoder = new RecordEncoder(16, false).startRecord();
+    encoder.put(DATA, 0, DATA.length);
+    encoder.endRecord();
+
+    assertThat(encoder.toByteArray()).isEqualTo(DATA);
+  }
+
+  @Test
+  public void shouldKeepDataWhenBufferGrows() {
+    RecordEncoder encoder = new RecordEncoder(2, true).startRecord();
+    for (int i = 0; i < 100; i++) {
+      encoder.put(DATA, 0, DATA.length);
+    }
+    encoder.endRecord();
+
+    assertThat(encoder.getLength()).isEqualTo(100 * 4 + 2);
+    assertThat(encoder.getBuffer().length).isGreaterThanOrEqualTo(encoder.getLength());
+    byte[] record = encoder.toByteArray();
+    assertThat(record[396]).isEqualTo((byte) 0x7D);
+    assertThat(record[397]).isEqualTo(TelnetCommand.IAC);
+    assertThat(record[398]).isEqualTo(TelnetCommand.IAC);
+    assertThat(record[399]).isEqualTo((byte) 0x40);
+  }
+
+  @Test
+  public void shouldEncodeTwelveBitAddressWhenPutAddress() {
+    RecordEncoder encoder = new RecordEncoder(16, false).startRecord();
+    encoder.putAddress(23 * 80 + 79);
+
+    assertThat(encoder.toByteArray()).containsExactly(BufferAddress.ADDRESS[29],
+        BufferAddress.ADDRESS[63]);
+  }
+
+  @Test
+  public void shouldWriteHeaderWithSequenceNumberWhenPutHeader() {
+    RecordEncoder encoder = new RecordEncoder(16, false).startRecord();
+    encoder.putHeader((byte) 0x00, 0x1234);
+
+    assertThat(encoder.toByteArray()).containsExactly(0x00, 0x00, 0x00, 0x12, 0x34);
+  }
+
+  @Test
+  public void shouldDropPreviousRecordWhenStartRecord() {
+    RecordEncoder encoder = new RecordEncoder(16, true).startRecord();
+    encoder.put(DATA, 0, DATA.length);
+    encoder.endRecord();
+    encoder.startRecord().put((byte) 0x7D);
+
+    assertThat(encoder.toByteArray()).containsExactly(0x7D);
+  }
+
+}
@@ -0,0 +1,204 @@
+package com.bytezone.dm3270.commands;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.TerminalClient;
+import com.bytezone.dm3270.display.Field;
+import com.bytezone.dm3270.display.Screen;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.host.HostScreenBuilder;
+import com.bytezone.dm3270.host.VirtualHostRule;
+import com.bytezone.dm3270.streams.TelnetListener;
+import com.bytezone.dm3270.streams.TelnetSocket;
+import com.bytezone.dm3270.streams.TelnetState;
+import com.bytezone.dm3270.telnet.TelnetCommand;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class CommandCacheTest {
+
+  private static final ScreenDimensions SCREEN_DIMENSIONS = new ScreenDimensions(24, 80);
+  private static final int ITERATIONS = 2_000;
+
+  @Rule
+  public final VirtualHostRule virtualHost = new VirtualHostRule();
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  private final byte[] welcomeScreen = new HostScreenBuilder(24, 80)
+      .highlightedText(1, 30, "WELCOME")
+      .text(10, 2, "USERID ===>")
+      .input(10, 14, 8)
+      .text(11, 2, "PASSWORD =>")
+      .hiddenInput(11, 14, 8)
+      .build();
+  private final byte[] menuScreen = new HostScreenBuilder(24, 80)
+      .highlightedText(1, 30, "MAIN MENU")
+      .text(5, 2, "OPTION ===>")
+      .input(5, 14, 2, "1")
+      .text(22, 2, "Command ===>")
+      .input(22, 15, 60)
+      .build();
+
+  @After
+  public void teardown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldKeepSessionsApartWhenApplyingSameCachedRecordsConcurrently()
+      throws Exception {
+    CommandCache commandCache = new CommandCache();
+    List<String> welcomeFields = describeFields(welcomeScreen);
+    List<String> menuFields = describeFields(menuScreen);
+    String welcomeCommand = commandCache.getCommand(welcomeScreen, 0, welcomeScreen.length)
+        .toString();
+    String menuCommand = commandCache.getCommand(menuScreen, 0, menuScreen.length).toString();
+
+    CyclicBarrier start = new CyclicBarrier(2);
+    List<Future<?>> sessions = new ArrayList<>();
+    for (int session = 0; session < 2; session++) {
+      boolean welcomeFirst = session == 0;
+      sessions.add(executor.submit(() -> {
+        Screen screen = newScreen(commandCache);
+        TelnetListener listener = new TelnetListener(screen, screen.getTelnetState());
+        start.await();
+        for (int i = 0; i < ITERATIONS; i++) {
+          boolean welcome = welcomeFirst == (i % 2 == 0);
+          listener.listen(TelnetSocket.Source.SERVER, frame(welcome ? welcomeScreen : menuScreen),
+              null, true);
+          assertThat(describeFields(screen)).isEqualTo(welcome ? welcomeFields : menuFields);
+        }
+        return null;
+      }));
+    }
+    for (Future<?> session : sessions) {
+      session.get(30, TimeUnit.SECONDS);
+    }
+
+    assertThat(commandCache.getMissCount()).isEqualTo(2);
+    assertThat(commandCache.getHitCount()).isEqualTo(2 * ITERATIONS);
+    assertThat(commandCache.getCommand(welcomeScreen, 0, welcomeScreen.length).toString())
+        .isEqualTo(welcomeCommand);
+    assertThat(commandCache.getCommand(menuScreen, 0, menuScreen.length).toString())
+        .isEqualTo(menuCommand);
+  }
+
+  @Test
+  public void shouldParseScreenOnceWhenClientsShareCommandCache() throws Exception {
+    CommandCache commandCache = new CommandCache();
+    TerminalClient client = virtualHost.getClient();
+    client.setCommandCache(commandCache);
+    virtualHost.connect(true);
+    TerminalClient other = new TerminalClient(2, SCREEN_DIMENSIONS);
+    other.setCommandCache(commandCache);
+    virtualHost.connectOther(other);
+
+    client.setFieldTextByCoord(10, 15, "testusr");
+    assertThat(commandCache.getHitCount()).isEqualTo(1);
+    assertThat(other.getScreenText()).contains(VirtualHostRule.WELCOME);
+    assertThat(other.getFields()).noneMatch(Field::isModified);
+  }
+
+  @Test
+  public void shouldParseEachRecordWhenRecordsTakeSameSlot() {
+    CommandCache commandCache = new CommandCache(1, CommandCache.DEFAULT_MAX_RECORD_LENGTH);
+    for (int i = 0; i < 3; i++) {
+      assertThat(commandCache.getCommand(welcomeScreen, 0, welcomeScreen.length).getData())
+          .isEqualTo(welcomeScreen);
+      assertThat(commandCache.getCommand(menuScreen, 0, menuScreen.length).getData())
+          .isEqualTo(menuScreen);
+    }
+    assertThat(commandCache.getHitCount()).isZero();
+    assertThat(commandCache.getMissCount()).isEqualTo(6);
+  }
+
+  @Test
+  public void shouldMissWhenRecordOfSameLengthInSameSlotDiffers() {
+    CommandCache commandCache = new CommandCache(1, CommandCache.DEFAULT_MAX_RECORD_LENGTH);
+    byte[] changed = Arrays.copyOf(welcomeScreen, welcomeScreen.length);
+    changed[changed.length - 1]++;
+    commandCache.getCommand(welcomeScreen, 0, welcomeScreen.length);
+    Command command = commandCache.getCommand(changed, 0, changed.length);
+
+    assertThat(command.getData()).isEqualTo(changed);
+    assertThat(commandCache.getMissCount()).isEqualTo(2);
+    assertThat(commandCache.getCommand(changed, 0, changed.length)).isSameAs(command);
+    assertThat(commandCache.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldHitWhenSameRecordAtOtherOffset() {
+    CommandCache commandCache = new CommandCache();
+    byte[] buffer = new byte[welcomeScreen.length + 3];
+    System.arraycopy(welcomeScreen, 0, buffer, 3, welcomeScreen.length);
+    Command command = commandCache.getCommand(buffer, 3, welcomeScreen.length);
+
+    assertThat(commandCache.getCommand(welcomeScreen, 0, welcomeScreen.length)).isSameAs(command);
+    assertThat(commandCache.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldNotCacheWhenRecordIsReadOrTooLong() {
+    CommandCache commandCache = new CommandCache(16, welcomeScreen.length - 1);
+    byte[] readBuffer = {Command.READ_BUFFER_F2};
+    commandCache.getCommand(readBuffer, 0, readBuffer.length);
+    commandCache.getCommand(readBuffer, 0, readBuffer.length);
+    commandCache.getCommand(welcomeScreen, 0, welcomeScreen.length);
+    commandCache.getCommand(welcomeScreen, 0, welcomeScreen.length);
+
+    assertThat(commandCache.getHitCount()).isZero();
+    assertThat(commandCache.getMissCount()).isZero();
+  }
+
+  private static List<String> describeFields(byte[] record) {
+    Screen screen = newScreen(null);
+    new TelnetListener(screen, screen.getTelnetState())
+        .listen(TelnetSocket.Source.SERVER, frame(record), null, true);
+    return describeFields(screen);
+  }
+
+  private static List<String> describeFields(Screen screen) {
+    return screen.getFieldManager().getFields().stream()
+        .map(CommandCacheTest::describeField)
+        .collect(Collectors.toList());
+  }
+
+  private static String describeField(Field field) {
+    return field.getFirstLocation() + (field.isUnprotected() ? " input " : " text ")
+        + field.getText();
+  }
+
+  private static Screen newScreen(CommandCache commandCache) {
+    TelnetState telnetState = new TelnetState();
+    telnetState.setCommandCache(commandCache);
+    return new Screen(SCREEN_DIMENSIONS, SCREEN_DIMENSIONS, telnetState);
+  }
+
+  // as received from the terminal server: IAC doubled and terminated by IAC EOR
+  private static byte[] frame(byte[] data) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 16);
+    for (byte b : data) {
+      out.write(b);
+      if (b == TelnetCommand.IAC) {
+        out.write(b);
+      }
+    }
+    out.write(TelnetCommand.IAC);
+    out.write(TelnetProcessor.EOR);
+    return out.toByteArray();
+  }
+
+}
@@ -0,0 +1,73 @@
+package com.bytezone.dm3270.display;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.TerminalClient;
+import com.bytezone.dm3270.attributes.StartFieldAttribute;
+import com.bytezone.dm3270.host.VirtualHostRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class FieldLayoutCacheTest {
+
+  private static final int SCREEN_SIZE = 24 * 80;
+
+  @Rule
+  public final VirtualHostRule virtualHost = new VirtualHostRule();
+
+  private final int[] startFields = {
+      FieldLayout.packStartField(0, new StartFieldAttribute((byte) 0x20)),
+      FieldLayout.packStartField(100, new StartFieldAttribute((byte) 0x00))};
+  private final int[] otherStartFields = {
+      FieldLayout.packStartField(0, new StartFieldAttribute((byte) 0x20))};
+
+  @Test
+  public void shouldReuseFieldLayoutWhenClientsShareFieldLayoutCache() throws Exception {
+    FieldLayoutCache fieldLayoutCache = new FieldLayoutCache();
+    TerminalClient client = virtualHost.getClient();
+    client.setFieldLayoutCache(fieldLayoutCache);
+    virtualHost.connect(true);
+    TerminalClient other = new TerminalClient(2, new ScreenDimensions(24, 80));
+    other.setFieldLayoutCache(fieldLayoutCache);
+    virtualHost.connectOther(other);
+
+    assertThat(fieldLayoutCache.getHitCount()).isGreaterThanOrEqualTo(1);
+    assertThat(other.getFields()).hasSameSizeAs(client.getFields());
+    virtualHost.sendUser(other);
+    virtualHost.awaitScreenContains(other, VirtualHostRule.MAIN_MENU);
+    assertThat(virtualHost.getInputs().get(0).getField(10, 15, 80)).isEqualTo("testusr");
+  }
+
+  @Test
+  public void shouldGetSameLayoutWhenSameStartFields() {
+    FieldLayoutCache cache = new FieldLayoutCache();
+    FieldLayout layout = cache.getLayout(SCREEN_SIZE, startFields, startFields.length);
+
+    assertThat(cache.getLayout(SCREEN_SIZE, startFields.clone(), startFields.length))
+        .isSameAs(layout);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldBuildLayoutWhenOtherScreenSize() {
+    FieldLayoutCache cache = new FieldLayoutCache();
+    FieldLayout layout = cache.getLayout(SCREEN_SIZE, startFields, startFields.length);
+
+    assertThat(cache.getLayout(27 * 132, startFields, startFields.length)).isNotSameAs(layout);
+    assertThat(cache.getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldDropLeastRecentlyUsedLayoutWhenFull() {
+    FieldLayoutCache cache = new FieldLayoutCache(1);
+    FieldLayout layout = cache.getLayout(SCREEN_SIZE, startFields, startFields.length);
+    cache.getLayout(SCREEN_SIZE, otherStartFields, otherStartFields.length);
+
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.getLayout(SCREEN_SIZE, startFields, startFields.length))
+        .isNotSameAs(layout);
+    assertThat(cache.getMissCount()).isEqualTo(3);
+  }
+
+}
@@ -0,0 +1,93 @@
+package com.bytezone.dm3270.display;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.attributes.ColorAttribute;
+import com.bytezone.dm3270.attributes.StartFieldAttribute;
+import org.junit.Test;
+
+public class FieldLayoutTest {
+
+  private static final int SCREEN_SIZE = 80;
+  private static final byte PROTECTED = 0x20;
+  private static final byte UNPROTECTED = 0x00;
+  private static final byte HIGH_INTENSITY = 0x08;
+
+  @Test
+  public void shouldEndEachFieldBeforeNextOneWhenBuilt() {
+    FieldLayout layout = layout(0, PROTECTED, 10, UNPROTECTED, 20, PROTECTED);
+
+    assertThat(layout.size()).isEqualTo(3);
+    assertThat(layout.getStart(1)).isEqualTo(10);
+    assertThat(layout.getEnd(0)).isEqualTo(9);
+    assertThat(layout.getEnd(1)).isEqualTo(19);
+    assertThat(layout.getEnd(2)).isEqualTo(SCREEN_SIZE - 1);
+  }
+
+  @Test
+  public void shouldLinkToNextUnprotectedFieldWrappingToFirstWhenBuilt() {
+    FieldLayout layout = layout(0, PROTECTED, 10, UNPROTECTED, 20, PROTECTED, 30, UNPROTECTED);
+
+    assertThat(layout.getNextUnprotected(0)).isEqualTo(1);
+    assertThat(layout.getNextUnprotected(1)).isEqualTo(3);
+    assertThat(layout.getNextUnprotected(2)).isEqualTo(3);
+    assertThat(layout.getNextUnprotected(3)).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldLinkToNoFieldWhenAllProtected() {
+    FieldLayout layout = layout(0, PROTECTED, 10, PROTECTED);
+
+    assertThat(layout.getNextUnprotected(0)).isEqualTo(-1);
+    assertThat(layout.getNextUnprotected(1)).isEqualTo(-1);
+  }
+
+  @Test
+  public void shouldGetBaseColorsAsDefaultContextWhenBuilt() {
+    FieldLayout layout = layout(0, PROTECTED, 10, (byte) (UNPROTECTED | HIGH_INTENSITY));
+
+    assertThat(layout.getDefaultContext(0).foregroundColor).isEqualTo(ColorAttribute.COLORS[1]);
+    assertThat(layout.getDefaultContext(1).foregroundColor).isEqualTo(ColorAttribute.COLORS[2]);
+    assertThat(layout.getDefaultContext(1).highIntensity).isTrue();
+  }
+
+  @Test
+  public void shouldMatchOnlySameStartFieldsAndScreenSize() {
+    int[] startFields = startFields(0, PROTECTED, 10, UNPROTECTED);
+    FieldLayout layout = new FieldLayout(SCREEN_SIZE, startFields, startFields.length);
+
+    assertThat(layout.matches(SCREEN_SIZE, startFields(0, PROTECTED, 10, UNPROTECTED), 2))
+        .isTrue();
+    assertThat(layout.matches(SCREEN_SIZE * 2, startFields, 2)).isFalse();
+    assertThat(layout.matches(SCREEN_SIZE, startFields(0, PROTECTED, 11, UNPROTECTED), 2))
+        .isFalse();
+    assertThat(layout.matches(SCREEN_SIZE, startFields(0, PROTECTED, 10, PROTECTED), 2))
+        .isFalse();
+    assertThat(layout.matches(SCREEN_SIZE, startFields, 1)).isFalse();
+  }
+
+  @Test
+  public void shouldPackExtendedStartFieldApartWhenSameAttribute() {
+    StartFieldAttribute extended = new StartFieldAttribute(PROTECTED);
+    extended.setExtended();
+
+    assertThat(FieldLayout.packStartField(10, extended))
+        .isNotEqualTo(FieldLayout.packStartField(10, new StartFieldAttribute(PROTECTED)));
+  }
+
+  // start fields as position and attribute byte pairs
+  private static FieldLayout layout(int... positionsAndAttributes) {
+    int[] startFields = startFields(positionsAndAttributes);
+    return new FieldLayout(SCREEN_SIZE, startFields, startFields.length);
+  }
+
+  private static int[] startFields(int... positionsAndAttributes) {
+    int[] startFields = new int[positionsAndAttributes.length / 2];
+    for (int i = 0; i < startFields.length; i++) {
+      startFields[i] = FieldLayout.packStartField(positionsAndAttributes[i * 2],
+          new StartFieldAttribute((byte) positionsAndAttributes[i * 2 + 1]));
+    }
+    return startFields;
+  }
+
+}
@@ -0,0 +1,154 @@
+package com.bytezone.dm3270.display;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bytezone.dm3270.host.HostScreenBuilder;
+import com.bytezone.dm3270.streams.TelnetListener;
+import com.bytezone.dm3270.streams.TelnetSocket;
+import com.bytezone.dm3270.streams.TelnetState;
+import com.bytezone.dm3270.telnet.TelnetCommand;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RowBlockTableTest {
+
+  private static final ScreenDimensions SCREEN_DIMENSIONS = new ScreenDimensions(24, 80);
+
+  private final byte[] welcomeScreen = new HostScreenBuilder(24, 80)
+      .highlightedText(1, 30, "WELCOME")
+      .text(10, 2, "USERID ===>")
+      .input(10, 14, 8)
+      .text(11, 2, "PASSWORD =>")
+      .hiddenInput(11, 14, 8)
+      .build();
+  private final byte[] menuScreen = new HostScreenBuilder(24, 80)
+      .highlightedText(1, 30, "MAIN MENU")
+      .text(5, 2, "OPTION ===>")
+      .input(5, 14, 2, "1")
+      .build();
+
+  private final RowBlockTable rowBlockTable = new RowBlockTable();
+  private Screen screen;
+  private Screen otherScreen;
+
+  @Before
+  public void setup() {
+    screen = newScreen(rowBlockTable);
+    otherScreen = newScreen(rowBlockTable);
+    apply(screen, welcomeScreen);
+    apply(otherScreen, welcomeScreen);
+  }
+
+  @Test
+  public void shouldSharePositionsWhenSessionsShowSameScreen() {
+    for (int i = 0; i < SCREEN_DIMENSIONS.size; i++) {
+      assertThat(otherScreen.getScreenPosition(i)).isSameAs(screen.getScreenPosition(i));
+    }
+    assertThat(rowBlockTable.getMissCount()).isEqualTo(SCREEN_DIMENSIONS.rows);
+    assertThat(rowBlockTable.getHitCount()).isEqualTo(SCREEN_DIMENSIONS.rows);
+  }
+
+  @Test
+  public void shouldKeepOtherSessionScreenWhenFieldTextSet() {
+    Field userField = getFieldAt(screen, 10, 14);
+    screen.setFieldText(userField, "testusr");
+
+    assertThat(userField.getText()).isEqualTo("testusr\u0000");
+    assertThat(userField.isModified()).isTrue();
+    Field otherUserField = getFieldAt(otherScreen, 10, 14);
+    assertThat(otherUserField.getText()).isEqualTo(new String(new char[8]));
+    assertThat(otherUserField.isModified()).isFalse();
+    assertThat(describeFields(otherScreen)).isEqualTo(describeFields(newScreen(welcomeScreen)));
+    // only the row of the field is copied
+    assertThat(otherScreen.getScreenPosition(location(10, 13)))
+        .isNotSameAs(screen.getScreenPosition(location(10, 13)));
+    assertThat(otherScreen.getScreenPosition(location(11, 13)))
+        .isSameAs(screen.getScreenPosition(location(11, 13)));
+  }
+
+  @Test
+  public void shouldKeepOtherSessionScreenWhenCharTyped() {
+    screen.getScreenCursor().moveTo(location(11, 14));
+    screen.getScreenCursor().typeChar((byte) 0xC1);
+
+    assertThat(getFieldAt(screen, 11, 14).getText()).startsWith("A");
+    assertThat(describeFields(otherScreen)).isEqualTo(describeFields(newScreen(welcomeScreen)));
+  }
+
+  @Test
+  public void shouldKeepOtherSessionScreenWhenHostWritesNewScreen() {
+    apply(screen, menuScreen);
+
+    assertThat(describeFields(screen)).isEqualTo(describeFields(newScreen(menuScreen)));
+    assertThat(describeFields(otherScreen)).isEqualTo(describeFields(newScreen(welcomeScreen)));
+  }
+
+  @Test
+  public void shouldShareRowsAgainWhenSameScreenReceived() {
+    screen.setFieldText(getFieldAt(screen, 10, 14), "testusr");
+    apply(screen, welcomeScreen);
+
+    assertThat(screen.getScreenPosition(location(10, 14)))
+        .isSameAs(otherScreen.getScreenPosition(location(10, 14)));
+  }
+
+  @Test
+  public void shouldNotChangeSharedPositionWhenSetThroughPublicAccessor() {
+    ScreenPosition position = screen.getScreenPosition(location(10, 14));
+    assertThatThrownBy(() -> position.setChar((byte) 0xC1))
+        .isInstanceOf(IllegalStateException.class);
+    assertThat(otherScreen.getScreenPosition(location(10, 14)).getByte()).isZero();
+  }
+
+  private static Field getFieldAt(Screen screen, int row, int column) {
+    return screen.getFieldManager().getFieldAt(location(row, column)).get();
+  }
+
+  // first data location of the field built at row and column by HostScreenBuilder
+  private static int location(int row, int column) {
+    return (row - 1) * SCREEN_DIMENSIONS.columns + column;
+  }
+
+  private static List<String> describeFields(Screen screen) {
+    return screen.getFieldManager().getFields().stream()
+        .map(f -> f.getFirstLocation() + (f.isModified() ? " modified " : " ") + f.getText())
+        .collect(Collectors.toList());
+  }
+
+  private static Screen newScreen(byte[] record) {
+    Screen screen = newScreen((RowBlockTable) null);
+    apply(screen, record);
+    return screen;
+  }
+
+  private static Screen newScreen(RowBlockTable rowBlockTable) {
+    Screen screen = new Screen(SCREEN_DIMENSIONS, SCREEN_DIMENSIONS, new TelnetState());
+    screen.setRowBlockTable(rowBlockTable);
+    return screen;
+  }
+
+  private static void apply(Screen screen, byte[] record) {
+    new TelnetListener(screen, screen.getTelnetState())
+        .listen(TelnetSocket.Source.SERVER, frame(record), null, true);
+  }
+
+  // as received from the terminal server: IAC doubled and terminated by IAC EOR
+  private static byte[] frame(byte[] data) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 16);
+    for (byte b : data) {
+      out.write(b);
+      if (b == TelnetCommand.IAC) {
+        out.write(b);
+      }
+    }
+    out.write(TelnetCommand.IAC);
+    out.write(TelnetProcessor.EOR);
+    return out.toByteArray();
+  }
+
+}
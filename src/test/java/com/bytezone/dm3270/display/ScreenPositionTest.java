@@ -0,0 +1,38 @@
+package com.bytezone.dm3270.display;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.utilities.EbcdicCodec;
+import org.junit.Test;
+
+public class ScreenPositionTest {
+
+  private final ScreenPosition position = new ScreenPosition(0, ScreenContext.DEFAULT_CONTEXT);
+
+  @Test
+  public void shouldDecodeGraphicsCharsWhenDecodingDisplayBytesInAnyCodePage() {
+    for (int codePage : EbcdicCodec.getSupportedCodePages()) {
+      EbcdicCodec codec = EbcdicCodec.forCodePage(codePage);
+      assertThat(decodeGraphics(codec, (byte) 0xA2)).isEqualTo("-");
+      assertThat(decodeGraphics(codec, (byte) 0x85)).isEqualTo("|");
+      assertThat(decodeGraphics(codec, (byte) 0xC5)).isEqualTo("*");
+    }
+  }
+
+  @Test
+  public void shouldDecodeSpaceWhenDisplayByteIsControlChar() {
+    position.setChar((byte) 0x15);
+    assertThat(position.getChar(EbcdicCodec.forCodePage(37))).isEqualTo(' ');
+  }
+
+  @Test
+  public void shouldDecodeNullWhenDisplayByteIsNull() {
+    assertThat(position.getChar(EbcdicCodec.forCodePage(273))).isEqualTo('\u0000');
+  }
+
+  private String decodeGraphics(EbcdicCodec codec, byte value) {
+    position.setGraphicsChar(value);
+    return codec.decode(new byte[] {position.getDisplayByte(codec)}, 0, 1);
+  }
+
+}
@@ -0,0 +1,180 @@
+package com.bytezone.dm3270.filetransfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.TerminalClient;
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.host.HostApplication;
+import com.bytezone.dm3270.host.HostInput;
+import com.bytezone.dm3270.host.HostScreenBuilder;
+import com.bytezone.dm3270.host.HostSession;
+import com.bytezone.dm3270.host.VirtualHostRule;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class FileTransferTest {
+
+  @Rule
+  public final VirtualHostRule virtualHost = new VirtualHostRule();
+
+  @Test
+  public void shouldReceiveFileWhenDownloadFileWithIndFile() throws Exception {
+    byte[] file = buildFile(1000);
+    virtualHost.setApplication(new IndFileApplication(file));
+    virtualHost.connect(true);
+    ByteArrayOutputStream received = new ByteArrayOutputStream();
+    CompletableFuture<Long> transfer = virtualHost.getClient().downloadFile(received);
+    sendIndFile("GET 'USER.DATA'");
+    assertThat(transfer.get(VirtualHostRule.TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+        .isEqualTo(file.length);
+    assertThat(received.toByteArray()).isEqualTo(file);
+  }
+
+  @Test
+  public void shouldSendFileInBufferSizedRecordsWhenUploadFileWithIndFile() throws Exception {
+    IndFileApplication application = new IndFileApplication(null);
+    virtualHost.setApplication(application);
+    virtualHost.getClient().setFileTransferBufferSize(256);
+    virtualHost.connect(true);
+    byte[] file = buildFile(1000);
+    CompletableFuture<Long> transfer = virtualHost.getClient()
+        .uploadFile(new ByteArrayInputStream(file));
+    sendIndFile("PUT 'USER.DATA'");
+    assertThat(transfer.get(VirtualHostRule.TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+        .isEqualTo(file.length);
+    assertThat(application.uploaded.toByteArray()).isEqualTo(file);
+    assertThat(application.records).isEqualTo(5);      // 4 of 239 bytes and the rest
+  }
+
+  private static byte[] buildFile(int length) {
+    byte[] file = new byte[length];
+    for (int i = 0; i < length; i++) {
+      file[i] = (byte) (i * 7);                 // includes 0xFF, which telnet escapes
+    }
+    return file;
+  }
+
+  private void sendIndFile(String arguments) {
+    TerminalClient client = virtualHost.getClient();
+    client.setFieldTextByCoord(10, 15, "IND$FILE " + arguments);
+    client.sendAID(AIDCommand.AID_ENTER, "ENTER");
+  }
+
+  // IND$FILE in DFT mode, sending a file in records of 100 bytes or getting one
+  private static class IndFileApplication implements HostApplication {
+
+    private static final int OPEN_REPLY = 0x0009;
+    private static final int CLOSE_REPLY = 0x4109;
+    private static final int GET_REPLY = 0x4605;
+    private static final int GET_ERROR_REPLY = 0x4608;
+    private static final int INSERT_REPLY = 0x4705;
+
+    private final byte[] download;
+    private final ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+    private int records;
+    private boolean messageFile;
+    private int sent;
+
+    private IndFileApplication(byte[] download) {
+      this.download = download;
+    }
+
+    @Override
+    public byte[] connect(HostSession session) {
+      return new HostScreenBuilder(24, 80)
+          .text(1, 2, "READY")
+          .input(10, 14, 60)
+          .build();
+    }
+
+    @Override
+    public byte[] respond(HostSession session, HostInput input) {
+      messageFile = false;
+      return open("FT:DATA");
+    }
+
+    @Override
+    public byte[] respondStructuredFields(HostSession session, byte[] record) {
+      switch ((record[4] & 0xFF) << 8 | record[5] & 0xFF) {
+        case OPEN_REPLY:
+          if (messageFile) {
+            return insert("TRANS03 File transfer complete".getBytes(StandardCharsets.US_ASCII));
+          }
+          return download == null ? request(0x4611) : insertNext();
+
+        case INSERT_REPLY:
+          return messageFile || sent == download.length ? request(0x4112) : insertNext();
+
+        case GET_REPLY:
+          records++;
+          uploaded.write(record, 17, record.length - 17);
+          return request(0x4611);
+
+        case GET_ERROR_REPLY:
+          return request(0x4112);
+
+        case CLOSE_REPLY:
+          if (messageFile) {
+            return new HostScreenBuilder(24, 80)
+                .text(1, 2, "TRANSFER DONE")
+                .build();
+          }
+          messageFile = true;
+          return open("FT:MSG ");
+
+        default:
+          throw new IllegalStateException("Unexpected reply " + Arrays.toString(record));
+      }
+    }
+
+    private byte[] insertNext() {
+      int length = Math.min(100, download.length - sent);
+      sent += length;
+      return insert(Arrays.copyOfRange(download, sent - length, sent));
+    }
+
+    private static byte[] open(String file) {
+      byte[] name = file.getBytes(StandardCharsets.US_ASCII);
+      byte[] body = new byte[12 + name.length];
+      System.arraycopy(name, 0, body, 12, name.length);
+      return structuredField(0x0012, body);
+    }
+
+    private static byte[] insert(byte[] data) {
+      byte[] body = new byte[5 + data.length];
+      body[0] = (byte) 0xC0;
+      body[1] = (byte) 0x80;
+      body[2] = 0x61;
+      body[3] = (byte) ((data.length + 5) >> 8);
+      body[4] = (byte) (data.length + 5);
+      System.arraycopy(data, 0, body, 5, data.length);
+      return structuredField(0x4704, body);
+    }
+
+    private static byte[] request(int type) {
+      return structuredField(type, new byte[0]);
+    }
+
+    // a Write Structured Field with a single D0 structured field
+    private static byte[] structuredField(int type, byte[] body) {
+      int length = 5 + body.length;
+      byte[] record = new byte[1 + length];
+      record[0] = (byte) 0xF3;
+      record[1] = (byte) (length >> 8);
+      record[2] = (byte) length;
+      record[3] = (byte) 0xD0;
+      record[4] = (byte) (type >> 8);
+      record[5] = (byte) type;
+      System.arraycopy(body, 0, record, 6, body.length);
+      return record;
+    }
+
+  }
+
+}
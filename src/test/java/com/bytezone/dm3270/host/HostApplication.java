@@ -0,0 +1,42 @@
+package com.bytezone.dm3270.host;
+
+/**
+ * Script run by a {@link VirtualHost} for each connected terminal.
+ * <p>
+ * Methods are invoked from the host's network thread, so they should only build (or pick) the
+ * screen to send. Screens are 3270 data streams as built by {@link HostScreenBuilder}.
+ */
+public interface HostApplication {
+
+  /**
+   * Invoked once the telnet negotiation with a new terminal is over.
+   *
+   * @param session the terminal session. Can be used to keep the state of the script.
+   * @return the first screen to send, or null to send nothing.
+   */
+  byte[] connect(HostSession session);
+
+  /**
+   * Invoked when the terminal sends an Action ID.
+   *
+   * @param session the terminal session.
+   * @param input the Action ID, cursor position and modified fields sent by the terminal.
+   * @return the screen to send in response (after the host response delay), or null to send
+   * nothing.
+   */
+  byte[] respond(HostSession session, HostInput input);
+
+  /**
+   * Invoked when the terminal sends structured fields, like the replies to an IND$FILE transfer.
+   *
+   * @param session the terminal session.
+   * @param record the 3270 data stream sent by the terminal, starting with the structured field
+   * AID (0x88).
+   * @return the record to send in response (right away), or null to send nothing. By default
+   * nothing is sent.
+   */
+  default byte[] respondStructuredFields(HostSession session, byte[] record) {
+    return null;
+  }
+
+}
@@ -0,0 +1,242 @@
+package com.bytezone.dm3270.host;
+
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.telnet.TelnetCommand;
+import com.bytezone.dm3270.telnet.TelnetCommandProcessor;
+import com.bytezone.dm3270.telnet.TelnetProcessor;
+import com.bytezone.dm3270.telnet.TelnetSubcommand;
+import com.bytezone.dm3270.utilities.Dm3270Utility;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// One terminal connected to a VirtualHost. Only the host's selector thread reads,
+// but screens may be sent from any thread.
+class HostConnection implements TelnetCommandProcessor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HostConnection.class);
+
+  private static final byte IAC = TelnetCommand.IAC;
+  private static final byte SB = TelnetCommand.SB;
+  private static final byte SE = TelnetCommand.SE;
+  private static final byte WILL = (byte) 0xFB;
+  private static final byte WONT = (byte) 0xFC;
+  private static final byte DO = (byte) 0xFD;
+  private static final byte EOR = TelnetProcessor.EOR;
+
+  // TN3270E subcommands (RFC 2355)
+  private static final byte CONNECT = 0x01;
+  private static final byte DEVICE_TYPE = 0x02;
+  private static final byte FUNCTIONS = 0x03;
+  private static final byte IS = 0x04;
+  private static final byte REQUEST = 0x07;
+  private static final byte SEND = 0x08;
+  private static final byte TERMINAL_TYPE_IS = 0x00;
+  private static final byte TERMINAL_TYPE_SEND = 0x01;
+  private static final byte DATA_TYPE_3270 = 0x00;
+
+  private final VirtualHost host;
+  private final SocketChannel channel;
+  private final SelectionKey key;
+  private final HostSession session;
+  private final TelnetProcessor telnetProcessor = new TelnetProcessor(this);
+  private final Queue<ByteBuffer> output = new ArrayDeque<>();
+  private boolean negotiated;
+  private int sequence;                   // guarded by output, so records go out in order
+  private boolean closed;
+
+  HostConnection(VirtualHost host, SocketChannel channel, SelectionKey key, int id) {
+    this.host = host;
+    this.channel = channel;
+    this.key = key;
+    this.session = new HostSession(id, this);
+  }
+
+  HostSession getSession() {
+    return session;
+  }
+
+  void start(boolean offerExtended) {
+    send(IAC, DO, offerExtended ? TelnetSubcommand.TN3270E : TelnetSubcommand.TERMINAL_TYPE);
+  }
+
+  void received(byte[] buffer) {
+    telnetProcessor.listen(buffer);
+  }
+
+  @Override
+  public void processData(byte[] buffer, int length) {
+    LOG.debug("Ignoring non telnet data: {}", Dm3270Utility.toHex(buffer, 0, length, false));
+  }
+
+  @Override
+  public void processTelnetCommand(byte[] buffer, int length) {
+    if (length != 3) {
+      return;                                   // NOP, IP
+    }
+    byte command = buffer[1];
+    byte option = buffer[2];
+
+    if (option == TelnetSubcommand.TN3270E) {
+      if (command == WILL) {
+        session.setExtended(true);
+        send(IAC, SB, TelnetSubcommand.TN3270E, SEND, DEVICE_TYPE, IAC, SE);
+      } else if (command == WONT) {
+        send(IAC, DO, TelnetSubcommand.TERMINAL_TYPE);     // fall back to plain TN3270
+      }
+    } else if (option == TelnetSubcommand.TERMINAL_TYPE && command == WILL) {
+      send(IAC, SB, TelnetSubcommand.TERMINAL_TYPE, TERMINAL_TYPE_SEND, IAC, SE);
+    }
+    // EOR and BINARY replies need no answer
+  }
+
+  @Override
+  public void processTelnetSubcommand(byte[] buffer, int length) {
+    byte option = buffer[2];
+    if (option == TelnetSubcommand.TERMINAL_TYPE && buffer[3] == TERMINAL_TYPE_IS) {
+      session.setDeviceType(new String(buffer, 4, length - 6, StandardCharsets.US_ASCII));
+      send(IAC, DO, TelnetSubcommand.EOR, IAC, WILL, TelnetSubcommand.EOR,
+          IAC, DO, TelnetSubcommand.BINARY, IAC, WILL, TelnetSubcommand.BINARY);
+      negotiationComplete();
+    } else if (option == TelnetSubcommand.TN3270E && buffer[4] == REQUEST) {
+      if (buffer[3] == DEVICE_TYPE) {
+        int end = 5;
+        while (end < length - 2 && buffer[end] != CONNECT) {
+          end++;
+        }
+        String deviceType = new String(buffer, 5, end - 5, StandardCharsets.US_ASCII);
+        String luName = host.getLuName(session.getId());
+        session.setDeviceType(deviceType);
+        session.setLuName(luName);
+
+        byte[] type = deviceType.getBytes(StandardCharsets.US_ASCII);
+        byte[] lu = luName.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer reply = ByteBuffer.allocate(type.length + lu.length + 8);
+        reply.put(IAC).put(SB).put(TelnetSubcommand.TN3270E).put(DEVICE_TYPE).put(IS)
+            .put(type).put(CONNECT).put(lu).put(IAC).put(SE);
+        send(reply.array());
+      } else if (buffer[3] == FUNCTIONS) {
+        // agree to whatever the terminal asks for
+        byte[] reply = new byte[length];
+        System.arraycopy(buffer, 0, reply, 0, length);
+        reply[4] = IS;
+        send(reply);
+        negotiationComplete();
+      }
+    }
+  }
+
+  private void negotiationComplete() {
+    negotiated = true;
+    host.connected(this);
+  }
+
+  @Override
+  public void processRecord(byte[] buffer, int length) {
+    int offset = 0;
+    int dataLength = length - 2;                // exclude IAC EOR
+    if (session.isExtended()) {
+      if (dataLength < 5 || buffer[0] != DATA_TYPE_3270) {
+        return;                                 // responses, SSCP-LU data ...
+      }
+      offset = 5;
+      dataLength -= 5;
+    }
+    if (!negotiated || dataLength <= 0) {
+      return;
+    }
+    if (buffer[offset] == AIDCommand.AID_STRUCTURED_FIELD) {
+      host.receivedStructuredFields(this, Arrays.copyOfRange(buffer, offset, offset + dataLength));
+    } else {
+      host.received(this, HostInput.parse(buffer, offset, dataLength));
+    }
+  }
+
+  // frames a 3270 data stream as a telnet record
+  void sendRecord(byte[] screen) {
+    int escapes = 0;
+    for (byte b : screen) {
+      if (b == IAC) {
+        escapes++;
+      }
+    }
+    int headerSize = session.isExtended() ? 5 : 0;
+    byte[] record = new byte[headerSize + screen.length + escapes + 2];
+    int ptr = 0;
+    if (session.isExtended()) {
+      record[0] = DATA_TYPE_3270;
+      ptr = headerSize;
+    }
+    for (byte b : screen) {
+      record[ptr++] = b;
+      if (b == IAC) {
+        record[ptr++] = IAC;
+      }
+    }
+    record[ptr++] = IAC;
+    record[ptr] = EOR;
+    synchronized (output) {
+      if (headerSize > 0) {
+        Dm3270Utility.packUnsignedShort(sequence++ & 0x7FFF, record, 3);
+      }
+      output.add(ByteBuffer.wrap(record));
+    }
+    host.flushLater(this);
+  }
+
+  private void send(byte... bytes) {
+    synchronized (output) {
+      output.add(ByteBuffer.wrap(bytes));
+    }
+    host.flushLater(this);
+  }
+
+  // only called by the selector thread, returns false when the connection was closed
+  boolean flush() {
+    synchronized (output) {
+      try {
+        while (!output.isEmpty()) {
+          ByteBuffer buffer = output.peek();
+          channel.write(buffer);
+          if (buffer.hasRemaining()) {
+            break;                              // the socket buffer is full
+          }
+          output.remove();
+        }
+      } catch (IOException ex) {
+        LOG.debug("Could not write to {}", session, ex);
+        close();
+        return false;
+      }
+      if (key.isValid()) {
+        key.interestOps(output.isEmpty() ? SelectionKey.OP_READ
+            : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+      }
+      return true;
+    }
+  }
+
+  void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    key.cancel();
+    try {
+      channel.close();
+    } catch (IOException ex) {
+      LOG.debug("Error closing {}", session, ex);
+    }
+    host.disconnected(this);
+  }
+
+}
@@ -0,0 +1,73 @@
+package com.bytezone.dm3270.host;
+
+import com.bytezone.dm3270.orders.BufferAddress;
+import com.bytezone.dm3270.orders.Order;
+import com.bytezone.dm3270.utilities.Dm3270Utility;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * An inbound 3270 record (Read Modified reply) received by a VirtualHost: the AID, the
+ * cursor address and the text of each modified field, keyed by the address of its
+ * first character.
+ */
+public class HostInput {
+
+  private final byte aid;
+  private final int cursorLocation;
+  private final Map<Integer, String> fields;
+
+  private HostInput(byte aid, int cursorLocation, Map<Integer, String> fields) {
+    this.aid = aid;
+    this.cursorLocation = cursorLocation;
+    this.fields = fields;
+  }
+
+  static HostInput parse(byte[] buffer, int offset, int length) {
+    byte aid = buffer[offset];
+    if (length < 3) {
+      return new HostInput(aid, -1, Collections.emptyMap());     // short read (PA, CLEAR)
+    }
+
+    int cursor = new BufferAddress(buffer[offset + 1], buffer[offset + 2]).getLocation();
+    Map<Integer, String> fields = new LinkedHashMap<>();
+    int ptr = offset + 3;
+    int max = offset + length;
+    while (ptr + 2 < max && buffer[ptr] == Order.SET_BUFFER_ADDRESS) {
+      int location = new BufferAddress(buffer[ptr + 1], buffer[ptr + 2]).getLocation();
+      int start = ptr + 3;
+      ptr = start;
+      while (ptr < max && buffer[ptr] != Order.SET_BUFFER_ADDRESS) {
+        ptr++;
+      }
+      fields.put(location, Dm3270Utility.getString(buffer, start, ptr - start));
+    }
+    return new HostInput(aid, cursor, Collections.unmodifiableMap(fields));
+  }
+
+  // see AIDCommand for the values
+  public byte getAid() {
+    return aid;
+  }
+
+  // -1 for a short read
+  public int getCursorLocation() {
+    return cursorLocation;
+  }
+
+  public Map<Integer, String> getFields() {
+    return fields;
+  }
+
+  // row and column start at 1, and refer to the first character of the field
+  public String getField(int row, int column, int columns) {
+    return fields.get((row - 1) * columns + column - 1);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("AID %02X, cursor %d, fields %s", aid, cursorLocation, fields);
+  }
+
+}
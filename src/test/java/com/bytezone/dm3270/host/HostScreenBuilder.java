@@ -0,0 +1,201 @@
+package com.bytezone.dm3270.host;
+
+import com.bytezone.dm3270.commands.Command;
+import com.bytezone.dm3270.orders.BufferAddress;
+import com.bytezone.dm3270.orders.Order;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/*
+ * Builds the 3270 data stream of a screen sent by a VirtualHost (a write command
+ * followed by its orders, without any telnet framing). Rows and columns start at 1,
+ * and every field occupies one extra position before its text for the attribute.
+ */
+public class HostScreenBuilder {
+
+  public static final byte WCC_RESET_MDT = 0x01;
+  public static final byte WCC_KEYBOARD_RESTORE = 0x02;
+
+  // field attribute bits
+  private static final int PROTECTED = 0x20;
+  private static final int NUMERIC = 0x10;
+  private static final int INTENSIFIED = 0x08;
+  private static final int HIDDEN = 0x0C;
+
+  // extended attribute types
+  private static final byte XA_BASIC = (byte) 0xC0;
+  private static final byte XA_HIGHLIGHTING = 0x41;
+  private static final byte XA_FOREGROUND = 0x42;
+
+  private static final Charset EBCDIC = Charset.forName("CP1047");
+
+  private final int rows;
+  private final int columns;
+  private final ByteArrayOutputStream orders = new ByteArrayOutputStream();
+  private byte command = Command.ERASE_WRITE_05;
+  private byte wcc = WCC_RESET_MDT | WCC_KEYBOARD_RESTORE;
+  private int cursor = -1;
+
+  public HostScreenBuilder(int rows, int columns) {
+    this.rows = rows;
+    this.columns = columns;
+  }
+
+  // Write (keeps the current screen) instead of Erase/Write
+  public HostScreenBuilder write() {
+    command = Command.WRITE_01;
+    return this;
+  }
+
+  // Erase/Write Alternate, to switch the terminal to its alternate screen size
+  public HostScreenBuilder eraseWriteAlternate() {
+    command = Command.ERASE_WRITE_ALTERNATE_0D;
+    return this;
+  }
+
+  public HostScreenBuilder keyboardRestore(boolean restore) {
+    wcc = (byte) (restore ? wcc | WCC_KEYBOARD_RESTORE : wcc & ~WCC_KEYBOARD_RESTORE);
+    return this;
+  }
+
+  // protected text
+  public HostScreenBuilder text(int row, int column, String text) {
+    return field(row, column, PROTECTED, text);
+  }
+
+  public HostScreenBuilder highlightedText(int row, int column, String text) {
+    return field(row, column, PROTECTED | INTENSIFIED, text);
+  }
+
+  // protected text with color (and highlighting) sent as a Start Field Extended
+  public HostScreenBuilder colorText(int row, int column, String text, byte color,
+      byte highlight) {
+    setBufferAddress(row, column);
+    orders.write(Order.START_FIELD_EXTENDED);
+    orders.write(3);
+    orders.write(XA_BASIC);
+    orders.write(BufferAddress.ADDRESS[PROTECTED]);
+    orders.write(XA_FOREGROUND);
+    orders.write(color);
+    orders.write(XA_HIGHLIGHTING);
+    orders.write(highlight);
+    writeText(text);
+    return this;
+  }
+
+  // changes the color of the following characters with a Set Attribute order
+  public HostScreenBuilder setColor(byte color) {
+    orders.write(Order.SET_ATTRIBUTE);
+    orders.write(XA_FOREGROUND);
+    orders.write(color);
+    return this;
+  }
+
+  // text following the previous order, without a new field
+  public HostScreenBuilder append(String text) {
+    writeText(text);
+    return this;
+  }
+
+  public HostScreenBuilder input(int row, int column, int length) {
+    return input(row, column, length, "", 0);
+  }
+
+  public HostScreenBuilder input(int row, int column, int length, String value) {
+    return input(row, column, length, value, 0);
+  }
+
+  private HostScreenBuilder input(int row, int column, int length, String value,
+      int attributes) {
+    field(row, column, attributes, value);
+    // a protected field stops the input field
+    int end = position(row, column) + length + 1;
+    if (end < rows * columns) {
+      setBufferAddress(end);
+      orders.write(Order.START_FIELD);
+      orders.write(BufferAddress.ADDRESS[PROTECTED | NUMERIC]);     // autoskip
+    }
+    if (cursor < 0) {
+      cursor = position(row, column) + 1;
+    }
+    return this;
+  }
+
+  public HostScreenBuilder hiddenInput(int row, int column, int length) {
+    return input(row, column, length, "", HIDDEN);
+  }
+
+  public HostScreenBuilder numericInput(int row, int column, int length) {
+    return input(row, column, length, "", NUMERIC);
+  }
+
+  // defaults to the first input field
+  public HostScreenBuilder cursor(int row, int column) {
+    cursor = position(row, column);
+    return this;
+  }
+
+  // fills positions with a character up to the given address
+  public HostScreenBuilder repeat(int row, int column, char character) {
+    orders.write(Order.REPEAT_TO_ADDRESS);
+    writeAddress(position(row, column));
+    writeText(String.valueOf(character));
+    return this;
+  }
+
+  private HostScreenBuilder field(int row, int column, int attributes, String text) {
+    setBufferAddress(row, column);
+    orders.write(Order.START_FIELD);
+    orders.write(BufferAddress.ADDRESS[attributes]);
+    writeText(text);
+    return this;
+  }
+
+  private void setBufferAddress(int row, int column) {
+    setBufferAddress(position(row, column));
+  }
+
+  private void setBufferAddress(int position) {
+    orders.write(Order.SET_BUFFER_ADDRESS);
+    writeAddress(position);
+  }
+
+  private void writeAddress(int position) {
+    byte[] address = new byte[2];
+    new BufferAddress(position).packAddress(address, 0);
+    orders.write(address, 0, 2);
+  }
+
+  private void writeText(String text) {
+    byte[] bytes = text.getBytes(EBCDIC);
+    orders.write(bytes, 0, bytes.length);
+  }
+
+  private int position(int row, int column) {
+    if (row < 1 || row > rows || column < 1 || column > columns) {
+      throw new IllegalArgumentException("Invalid position " + row + "," + column);
+    }
+    return (row - 1) * columns + column - 1;
+  }
+
+  public byte[] build() {
+    ByteArrayOutputStream screen = new ByteArrayOutputStream(orders.size() + 5);
+    screen.write(command);
+    screen.write(BufferAddress.ADDRESS[wcc]);        // sent as a graphic character
+    byte[] bytes = orders.toByteArray();
+    screen.write(bytes, 0, bytes.length);
+    if (cursor >= 0) {
+      setBufferAddressInto(screen, cursor);
+      screen.write(Order.INSERT_CURSOR);
+    }
+    return screen.toByteArray();
+  }
+
+  private static void setBufferAddressInto(ByteArrayOutputStream screen, int position) {
+    byte[] address = new byte[3];
+    address[0] = Order.SET_BUFFER_ADDRESS;
+    new BufferAddress(position).packAddress(address, 1);
+    screen.write(address, 0, 3);
+  }
+
+}
@@ -0,0 +1,73 @@
+package com.bytezone.dm3270.host;
+
+/*
+ * A terminal connected to a VirtualHost, as seen by its HostApplication.
+ */
+public class HostSession {
+
+  private final int id;
+  private final HostConnection connection;
+  private String deviceType = "";
+  private String luName = "";
+  private boolean extended;
+  private Object attachment;
+
+  HostSession(int id, HostConnection connection) {
+    this.id = id;
+    this.connection = connection;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public String getDeviceType() {
+    return deviceType;
+  }
+
+  void setDeviceType(String deviceType) {
+    this.deviceType = deviceType;
+  }
+
+  // only assigned in TN3270E sessions
+  public String getLuName() {
+    return luName;
+  }
+
+  void setLuName(String luName) {
+    this.luName = luName;
+  }
+
+  public boolean isExtended() {
+    return extended;
+  }
+
+  void setExtended(boolean extended) {
+    this.extended = extended;
+  }
+
+  // state kept by the HostApplication
+  public Object getAttachment() {
+    return attachment;
+  }
+
+  public void setAttachment(Object attachment) {
+    this.attachment = attachment;
+  }
+
+  // sends an unsolicited screen, right away
+  public void send(byte[] screen) {
+    connection.sendRecord(screen);
+  }
+
+  public void close() {
+    connection.close();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("HostSession %d (%s%s)", id, deviceType,
+        luName.isEmpty() ? "" : ", " + luName);
+  }
+
+}
@@ -0,0 +1,42 @@
+package com.bytezone.dm3270.host;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Sends a fixed sequence of screens: the first one on connection and the next one for
+ * every AID received. After the last screen the sequence continues from loopIndex, so
+ * a logon followed by a repeated transaction can be scripted as
+ * [welcome, menu, form, result] with loopIndex 1.
+ */
+public class ScriptedApplication implements HostApplication {
+
+  private final List<byte[]> screens;
+  private final int loopIndex;
+
+  public ScriptedApplication(List<byte[]> screens, int loopIndex) {
+    if (screens.isEmpty() || loopIndex < 0 || loopIndex >= screens.size()) {
+      throw new IllegalArgumentException("Invalid script of " + screens.size()
+          + " screens looping at " + loopIndex);
+    }
+    this.screens = new ArrayList<>(screens);
+    this.loopIndex = loopIndex;
+  }
+
+  @Override
+  public byte[] connect(HostSession session) {
+    session.setAttachment(0);
+    return screens.get(0);
+  }
+
+  @Override
+  public byte[] respond(HostSession session, HostInput input) {
+    int next = (Integer) session.getAttachment() + 1;
+    if (next == screens.size()) {
+      next = loopIndex;
+    }
+    session.setAttachment(next);
+    return screens.get(next);
+  }
+
+}
@@ -0,0 +1,310 @@
+package com.bytezone.dm3270.host;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process TN3270(E) host stand-in, to run clients against scripted screens without a
+ * mainframe.
+ * <p>
+ * A single NIO thread serves every connection: it negotiates TN3270E (falling back to TN3270
+ * when the terminal refuses it), sends the screens of a {@link HostApplication} and parses the
+ * Action IDs received. Responses can be delayed to simulate the host think time, without
+ * blocking the NIO thread.
+ */
+public class VirtualHost implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(VirtualHost.class);
+
+  private final HostApplication application;
+  private final Queue<HostConnection> pendingFlushes = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger sessionIds = new AtomicInteger();
+  private final AtomicInteger sessions = new AtomicInteger();
+  private final LongAdder transactions = new LongAdder();
+  private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+
+  private int port;
+  private boolean extended = true;
+  private volatile long responseDelayMillis;
+
+  private Selector selector;
+  private ServerSocketChannel serverChannel;
+  private ScheduledThreadPoolExecutor scheduler;
+  private Thread thread;
+  private volatile boolean running;
+
+  /**
+   * Creates a host running the given script for every terminal.
+   *
+   * @param application the script providing the screens.
+   */
+  public VirtualHost(HostApplication application) {
+    this.application = application;
+  }
+
+  /**
+   * Sets the port to listen on.
+   *
+   * @param port the port number. By default is 0, which picks any free port (see {@link
+   * #getPort()}).
+   */
+  public void setPort(int port) {
+    this.port = port;
+  }
+
+  /**
+   * Sets whether TN3270E is offered to terminals.
+   *
+   * @param extended false to only negotiate plain TN3270. By default is true.
+   */
+  public void setExtended(boolean extended) {
+    this.extended = extended;
+  }
+
+  /**
+   * Sets the time taken by the host to respond to an Action ID.
+   *
+   * @param responseDelayMillis the delay in millis. By default is 0. Can be changed while
+   * running.
+   */
+  public void setResponseDelayMillis(long responseDelayMillis) {
+    this.responseDelayMillis = responseDelayMillis;
+  }
+
+  /**
+   * Starts listening for connections.
+   *
+   * @throws IOException when the port can't be bound.
+   */
+  public void start() throws IOException {
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(new InetSocketAddress("localhost", port), 1024);
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    port = serverChannel.socket().getLocalPort();
+
+    scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread delayThread = new Thread(runnable, "dm3270-virtual-host-delay");
+      delayThread.setDaemon(true);
+      return delayThread;
+    });
+    scheduler.setRemoveOnCancelPolicy(true);
+
+    running = true;
+    thread = new Thread(this::run, "dm3270-virtual-host");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Gets the port the host listens on.
+   *
+   * @return the port number, which is only known after {@link #start()} when it was 0.
+   */
+  public int getPort() {
+    return port;
+  }
+
+  /**
+   * Gets the number of terminals currently connected.
+   *
+   * @return the number of connected terminals.
+   */
+  public int getSessionCount() {
+    return sessions.get();
+  }
+
+  /**
+   * Gets the number of Action IDs received since the host started.
+   *
+   * @return the number of Action IDs received.
+   */
+  public long getTransactionCount() {
+    return transactions.sum();
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        selector.select();
+        HostConnection connection;
+        while ((connection = pendingFlushes.poll()) != null) {
+          connection.flush();
+        }
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+          } else {
+            connection = (HostConnection) key.attachment();
+            if (key.isWritable() && !connection.flush()) {
+              continue;
+            }
+            if (key.isReadable()) {
+              read(connection, (SocketChannel) key.channel());
+            }
+          }
+        }
+      } catch (IOException ex) {
+        // only the selector itself fails here, clients are closed apart
+        if (running) {
+          LOG.error("Virtual host stopped", ex);
+        }
+        running = false;
+      }
+    }
+  }
+
+  // a client that fails to be set up is closed, the host keeps serving the others
+  private void accept() {
+    while (true) {
+      SocketChannel channel;
+      try {
+        channel = serverChannel.accept();
+      } catch (IOException ex) {
+        LOG.warn("Could not accept a connection", ex);
+        return;
+      }
+      if (channel == null) {
+        return;
+      }
+      try {
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        HostConnection connection =
+            new HostConnection(this, channel, key, sessionIds.incrementAndGet());
+        key.attach(connection);
+        sessions.incrementAndGet();
+        connection.start(extended);
+      } catch (IOException ex) {
+        LOG.warn("Closing {} after error", channel, ex);
+        try {
+          channel.close();
+        } catch (IOException closeEx) {
+          LOG.debug("Error closing {}", channel, closeEx);
+        }
+      }
+    }
+  }
+
+  private void read(HostConnection connection, SocketChannel channel) {
+    readBuffer.clear();
+    int bytesRead;
+    try {
+      bytesRead = channel.read(readBuffer);
+    } catch (IOException ex) {
+      bytesRead = -1;
+    }
+    if (bytesRead < 0) {
+      connection.close();
+      return;
+    }
+
+    byte[] buffer = new byte[bytesRead];
+    readBuffer.flip();
+    readBuffer.get(buffer);
+    try {
+      connection.received(buffer);
+    } catch (RuntimeException ex) {
+      LOG.warn("Closing {} after error", connection.getSession(), ex);
+      connection.close();
+    }
+  }
+
+  String getLuName(int sessionId) {
+    return String.format("VHLU%04d", sessionId % 10_000);
+  }
+
+  void connected(HostConnection connection) {
+    byte[] screen = application.connect(connection.getSession());
+    if (screen != null) {
+      connection.sendRecord(screen);
+    }
+  }
+
+  void received(HostConnection connection, HostInput input) {
+    transactions.increment();
+    byte[] screen = application.respond(connection.getSession(), input);
+    if (screen == null) {
+      return;
+    }
+    long delay = responseDelayMillis;
+    if (delay > 0) {
+      scheduler.schedule(() -> connection.sendRecord(screen), delay, TimeUnit.MILLISECONDS);
+    } else {
+      connection.sendRecord(screen);
+    }
+  }
+
+  void receivedStructuredFields(HostConnection connection, byte[] record) {
+    byte[] response = application.respondStructuredFields(connection.getSession(), record);
+    if (response != null) {
+      connection.sendRecord(response);
+    }
+  }
+
+  void disconnected(HostConnection connection) {
+    sessions.decrementAndGet();
+  }
+
+  // writes right away from the NIO thread, other threads let it do it
+  void flushLater(HostConnection connection) {
+    if (Thread.currentThread() == thread) {
+      connection.flush();
+    } else {
+      pendingFlushes.add(connection);
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Stops the host, closing all the connections.
+   *
+   * @throws IOException when there is a problem closing the connections.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!running) {
+      return;
+    }
+    running = false;
+    selector.wakeup();
+    try {
+      thread.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    scheduler.shutdownNow();
+    for (SelectionKey key : selector.keys()) {
+      if (key.attachment() instanceof HostConnection) {
+        ((HostConnection) key.attachment()).close();
+      }
+    }
+    serverChannel.close();
+    selector.close();
+  }
+
+}
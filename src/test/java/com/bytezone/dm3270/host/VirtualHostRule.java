@@ -0,0 +1,134 @@
+package com.bytezone.dm3270.host;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.ScreenTextWaiter;
+import com.bytezone.dm3270.TerminalClient;
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.rules.ExternalResource;
+
+/*
+ * A VirtualHost showing a welcome screen with a USERID field at row 10, column 15, and a main
+ * menu for any AID, with a TerminalClient to connect to it. For tests of features which work
+ * over a connection to a host, which keep the inputs the host received.
+ */
+public class VirtualHostRule extends ExternalResource {
+
+  public static final long TIMEOUT_MILLIS = 10000;
+  public static final String WELCOME = "VIRTUAL HOST WELCOME";
+  public static final String MAIN_MENU = "MAIN MENU";
+
+  private final List<HostInput> inputs = new CopyOnWriteArrayList<>();
+  private final List<TerminalClient> otherClients = new ArrayList<>();
+  private ScheduledExecutorService stableTimeoutExecutor;
+  private VirtualHost host;
+  private TerminalClient client;
+  private boolean connected;
+
+  @Override
+  protected void before() {
+    stableTimeoutExecutor = Executors.newSingleThreadScheduledExecutor();
+    ScriptedApplication script = new ScriptedApplication(Arrays.asList(
+        new HostScreenBuilder(24, 80)
+            .highlightedText(1, 30, WELCOME)
+            .text(10, 2, "USERID ===>")
+            .input(10, 14, 8)
+            .build(),
+        new HostScreenBuilder(24, 80)
+            .text(1, 30, MAIN_MENU)
+            .build()), 1);
+    host = new VirtualHost(new HostApplication() {
+      @Override
+      public byte[] connect(HostSession session) {
+        return script.connect(session);
+      }
+
+      @Override
+      public byte[] respond(HostSession session, HostInput input) {
+        inputs.add(input);
+        return script.respond(session, input);
+      }
+    });
+    client = new TerminalClient(2, new ScreenDimensions(24, 80));
+  }
+
+  @Override
+  protected void after() {
+    try {
+      if (connected) {
+        client.disconnect();
+      }
+      for (TerminalClient other : otherClients) {
+        other.disconnect();
+      }
+      host.close();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (IOException ex) {
+      throw new IllegalStateException(ex);
+    } finally {
+      stableTimeoutExecutor.shutdownNow();
+    }
+  }
+
+  // replaces the welcome and menu screens, before connecting
+  public void setApplication(HostApplication application) throws IOException {
+    host.close();
+    host = new VirtualHost(application);
+  }
+
+  public VirtualHost getHost() {
+    return host;
+  }
+
+  public TerminalClient getClient() {
+    return client;
+  }
+
+  public List<HostInput> getInputs() {
+    return inputs;
+  }
+
+  public void connect(boolean extended) throws Exception {
+    host.setExtended(extended);
+    host.start();
+    client.setUsesExtended3270(extended);
+    connected = true;
+    client.connectAsync("localhost", host.getPort()).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  // another client of the host, disconnected with the first one
+  public TerminalClient connectOther(TerminalClient other) throws Exception {
+    otherClients.add(other);
+    other.connectAsync("localhost", host.getPort()).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    return other;
+  }
+
+  public void sendUser() {
+    sendUser(client);
+  }
+
+  public void sendUser(TerminalClient terminalClient) {
+    terminalClient.setFieldTextByCoord(10, 15, "testusr");
+    terminalClient.sendAID(AIDCommand.AID_ENTER, "ENTER");
+  }
+
+  public void awaitScreenContains(String text) throws Exception {
+    awaitScreenContains(client, text);
+  }
+
+  public void awaitScreenContains(TerminalClient terminalClient, String text) throws Exception {
+    new ScreenTextWaiter(text, terminalClient, stableTimeoutExecutor).await(TIMEOUT_MILLIS);
+    assertThat(terminalClient.getScreenText()).contains(text);
+  }
+
+}
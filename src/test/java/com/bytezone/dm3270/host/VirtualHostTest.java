@@ -0,0 +1,49 @@
+package com.bytezone.dm3270.host;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.commands.AIDCommand;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class VirtualHostTest {
+
+  @Rule
+  public final VirtualHostRule virtualHost = new VirtualHostRule();
+
+  @Test
+  public void shouldGetWelcomeScreenWhenConnectWithTn3270e() throws Exception {
+    virtualHost.connect(true);
+    assertThat(virtualHost.getClient().getScreenText()).contains(VirtualHostRule.WELCOME);
+  }
+
+  @Test
+  public void shouldGetWelcomeScreenWhenConnectWithoutTn3270e() throws Exception {
+    virtualHost.connect(false);
+    assertThat(virtualHost.getClient().getScreenText()).contains(VirtualHostRule.WELCOME);
+  }
+
+  @Test
+  public void shouldReceiveFieldTextWhenSendEnter() throws Exception {
+    virtualHost.connect(true);
+    virtualHost.sendUser();
+    virtualHost.awaitScreenContains(VirtualHostRule.MAIN_MENU);
+    List<HostInput> inputs = virtualHost.getInputs();
+    assertThat(inputs).hasSize(1);
+    assertThat(inputs.get(0).getAid()).isEqualTo(AIDCommand.AID_ENTER);
+    assertThat(inputs.get(0).getField(10, 15, 80)).isEqualTo("testusr");
+  }
+
+  @Test
+  public void shouldDelayResponseWhenResponseDelaySet() throws Exception {
+    virtualHost.getHost().setResponseDelayMillis(500);
+    virtualHost.connect(false);
+    long start = System.nanoTime();
+    virtualHost.sendUser();
+    virtualHost.awaitScreenContains(VirtualHostRule.MAIN_MENU);
+    assertThat(System.nanoTime() - start).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(500));
+  }
+
+}
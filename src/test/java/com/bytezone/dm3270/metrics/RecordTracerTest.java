@@ -0,0 +1,60 @@
+package com.bytezone.dm3270.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class RecordTracerTest {
+
+  private final RecordTracer tracer = new RecordTracer(4);
+
+  @Test
+  public void shouldKeepStagesInOrderWhenSomeAreNotReached() {
+    tracer.dataRead(System.nanoTime());
+    tracer.recordFramed();
+    tracer.stageCompleted(RecordStage.PARSING);
+    tracer.stageCompleted(RecordStage.LISTENERS);
+    tracer.recordCompleted("BIND");
+
+    List<String> traces = traceTypes();
+    assertThat(traces).containsExactly("BIND");
+    tracer.forEachTrace(trace -> {
+      assertThat(trace.getNanos(RecordStage.APPLYING)).isZero();
+      assertThat(trace.getNanos(RecordStage.SCREEN_CHECK)).isZero();
+      assertThat(trace.getTotalNanos()).isGreaterThanOrEqualTo(
+          trace.getNanos(RecordStage.PARSING) + trace.getNanos(RecordStage.LISTENERS));
+    });
+  }
+
+  @Test
+  public void shouldOnlyKeepNewRecordsWhenReset() {
+    traceRecord("EW");
+    traceRecord("W");
+    tracer.reset();
+
+    assertThat(tracer.getCount()).isZero();
+    assertThat(traceTypes()).isEmpty();
+    assertThat(tracer.getTotal().getCount()).isZero();
+    traceRecord("RB");
+    assertThat(traceTypes()).containsExactly("RB");
+    assertThat(tracer.getHistogram(RecordStage.PARSING).getCount()).isEqualTo(1);
+  }
+
+  private void traceRecord(String type) {
+    tracer.dataRead(System.nanoTime());
+    tracer.recordFramed();
+    for (RecordStage stage : RecordStage.values()) {
+      tracer.stageCompleted(stage);
+    }
+    tracer.recordCompleted(type);
+  }
+
+  private List<String> traceTypes() {
+    List<String> types = new ArrayList<>();
+    tracer.forEachTrace(trace -> types.add(trace.getType()));
+    return types;
+  }
+
+}
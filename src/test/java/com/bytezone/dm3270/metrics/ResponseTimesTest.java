@@ -0,0 +1,27 @@
+package com.bytezone.dm3270.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.host.VirtualHostRule;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ResponseTimesTest {
+
+  @Rule
+  public final VirtualHostRule virtualHost = new VirtualHostRule();
+
+  @Test
+  public void shouldMeasureHostResponseTimeWhenSendEnter() throws Exception {
+    virtualHost.getHost().setResponseDelayMillis(200);
+    virtualHost.connect(true);
+    virtualHost.sendUser();
+    virtualHost.awaitScreenContains(VirtualHostRule.MAIN_MENU);
+    LatencyHistogram enterTimes = virtualHost.getClient().getResponseTimes()
+        .getHistogram("ENTR");
+    assertThat(enterTimes.getCount()).isEqualTo(1);
+    assertThat(enterTimes.getMax()).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(180));
+  }
+
+}
@@ -0,0 +1,47 @@
+package com.bytezone.dm3270.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.TerminalClient;
+import com.bytezone.dm3270.host.VirtualHostRule;
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class SessionsMonitorTest {
+
+  @Rule
+  public final VirtualHostRule virtualHost = new VirtualHostRule();
+
+  @Test
+  public void shouldPublishSessionsStateWhenSessionsMonitorRegistered() throws Exception {
+    AggregateSessionMetrics metrics = new AggregateSessionMetrics();
+    ResponseTimes responseTimes = new ResponseTimes();
+    TerminalClient client = virtualHost.getClient();
+    client.setSessionMetrics(metrics);
+    client.setResponseTimes(responseTimes);
+    SessionsMonitor monitor = new SessionsMonitor(metrics, responseTimes);
+    ObjectName name = new ObjectName(SessionsMonitor.DEFAULT_OBJECT_NAME + ",name=test");
+    monitor.register(name);
+    try {
+      virtualHost.connect(true);
+      virtualHost.sendUser();
+      virtualHost.awaitScreenContains(VirtualHostRule.MAIN_MENU);
+
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      assertThat(server.getAttribute(name, "ActiveSessions")).isEqualTo(1);
+      assertThat(server.getAttribute(name, "ConnectingSessions")).isEqualTo(0);
+      assertThat(server.getAttribute(name, "ResponseCount")).isEqualTo(1L);
+      CompositeData[] sessions = (CompositeData[]) server.getAttribute(name, "Sessions");
+      assertThat(sessions).hasSize(1);
+      assertThat(sessions[0].get("model")).isEqualTo("IBM-3278-2-E");
+      assertThat(sessions[0].get("port")).isEqualTo(virtualHost.getHost().getPort());
+    } finally {
+      monitor.unregister();
+    }
+  }
+
+}
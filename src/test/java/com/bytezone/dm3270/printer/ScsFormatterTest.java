@@ -0,0 +1,59 @@
+package com.bytezone.dm3270.printer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.utilities.EbcdicCodec;
+import org.junit.Test;
+
+public class ScsFormatterTest {
+
+  private static final int A = 0xC1;
+  private static final int B = 0xC2;
+  private static final int PP = 0x34;
+
+  private final ScsFormatter formatter = new ScsFormatter();
+
+  @Test
+  public void shouldSkipTypeAndValueWhenSetAttribute() {
+    assertThat(format(0x28, 0x42, 0xF2, A)).isEqualTo("A");
+  }
+
+  @Test
+  public void shouldPadToColumnWhenAbsoluteHorizontalPosition() {
+    assertThat(format(A, PP, 0xC0, 5, B)).isEqualTo("A   B");
+  }
+
+  @Test
+  public void shouldPadByCountWhenRelativeHorizontalPosition() {
+    assertThat(format(A, PP, 0xC8, 2, B)).isEqualTo("A  B");
+  }
+
+  @Test
+  public void shouldStartOneLineWhenAbsoluteVerticalPosition() {
+    assertThat(format(A, PP, 0xC4, 10, B)).isEqualTo("A\nB");
+  }
+
+  @Test
+  public void shouldStartLinesByCountWhenRelativeVerticalPosition() {
+    assertThat(format(A, PP, 0x4C, 2, B)).isEqualTo("A\n\nB");
+  }
+
+  @Test
+  public void shouldPrintSpaceForCharacterWhenGraphicEscape() {
+    assertThat(format(A, 0x08, B, PP, 0xC0, 4, A)).isEqualTo("A  A");
+  }
+
+  @Test
+  public void shouldSkipChannelWhenVerticalChannelSelect() {
+    assertThat(format(0x04, A, B)).isEqualTo("B");
+  }
+
+  private String format(int... values) {
+    byte[] buffer = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      buffer[i] = (byte) values[i];
+    }
+    return formatter.format(buffer, 0, buffer.length, EbcdicCodec.getDefault());
+  }
+
+}
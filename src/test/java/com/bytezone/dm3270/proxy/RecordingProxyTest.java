@@ -0,0 +1,155 @@
+package com.bytezone.dm3270.proxy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.ScreenTextWaiter;
+import com.bytezone.dm3270.TerminalClient;
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.host.HostScreenBuilder;
+import com.bytezone.dm3270.host.ScriptedApplication;
+import com.bytezone.dm3270.host.VirtualHost;
+import com.bytezone.dm3270.session.RecordedMessage;
+import com.bytezone.dm3270.session.SessionReader;
+import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
+import com.bytezone.dm3270.session.SessionRecorder;
+import com.bytezone.dm3270.streams.TelnetSocket;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class RecordingProxyTest {
+
+  private static final int TIMEOUT_MILLIS = 10000;
+
+  private final ScheduledExecutorService stableTimeoutExecutor = Executors
+      .newSingleThreadScheduledExecutor();
+  private final ExecutorService serverExecutor = Executors.newSingleThreadExecutor();
+
+  @After
+  public void teardown() {
+    stableTimeoutExecutor.shutdownNow();
+    serverExecutor.shutdownNow();
+  }
+
+  @Test
+  public void shouldRecordClientAndServerRecordsWhenConnectThroughRecordingProxy()
+      throws Exception {
+    Path recording = Files.createTempFile("dm3270", ".rec");
+    try (VirtualHost host = new VirtualHost(new ScriptedApplication(Arrays.asList(
+        new HostScreenBuilder(24, 80)
+            .text(10, 2, "USERID ===>")
+            .input(10, 14, 8)
+            .build(),
+        new HostScreenBuilder(24, 80)
+            .text(1, 30, "MAIN MENU")
+            .build()), 1))) {
+      host.setExtended(true);
+      host.start();
+      try (SessionRecorder recorder = new SessionRecorder(recording);
+          RecordingProxy proxy = new RecordingProxy("localhost", host.getPort(), recorder)) {
+        proxy.start();
+        TerminalClient client = new TerminalClient(2, new ScreenDimensions(24, 80));
+        client.setUsesExtended3270(true);
+        client.connectAsync("localhost", proxy.getPort())
+            .get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+          client.setFieldTextByCoord(10, 15, "testusr");
+          client.sendAID(AIDCommand.AID_ENTER, "ENTER");
+          new ScreenTextWaiter("MAIN MENU", client, stableTimeoutExecutor).await(TIMEOUT_MILLIS);
+        } finally {
+          client.disconnect();
+        }
+      }
+      List<RecordedMessage> messages = SessionReader.readSessions(recording).values().iterator()
+          .next();
+      assertThat(messages)
+          .extracting(RecordedMessage::getSource)
+          .contains(TelnetSocket.Source.SERVER, TelnetSocket.Source.CLIENT);
+      assertThat(messages)
+          .extracting(RecordedMessage::getType)
+          .contains(SessionRecordType.TELNET, SessionRecordType.TN3270E);
+    } finally {
+      Files.delete(recording);
+    }
+  }
+
+  @Test
+  public void shouldKeepRelayingWhenHostCannotBeResolved() throws Exception {
+    try (ServerSocket server = new ServerSocket(0);
+        RecordingProxy unresolved = new RecordingProxy("unknown-host.invalid", 23, null);
+        RecordingProxy proxy = new RecordingProxy("localhost", server.getLocalPort(), null)) {
+      unresolved.start();
+      proxy.start();
+      serverExecutor.submit(() -> respondAfterEndOfInput(server));
+
+      assertThat(relay(unresolved.getPort(), "first")).isEmpty();
+      assertThat(relay(unresolved.getPort(), "second")).isEmpty();
+      // the session is counted until the proxy is done closing it
+      long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+      while (unresolved.getSessionCount() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(unresolved.getSessionCount()).isZero();
+      assertThat(relay(proxy.getPort(), "data")).isEqualTo("received data");
+    }
+  }
+
+  @Test
+  public void shouldRelayResponseWhenClientEndsOutput() throws Exception {
+    try (ServerSocket server = new ServerSocket(0);
+        RecordingProxy proxy = new RecordingProxy("localhost", server.getLocalPort(), null)) {
+      proxy.start();
+      serverExecutor.submit(() -> respondAfterEndOfInput(server));
+
+      assertThat(relay(proxy.getPort(), "request")).isEqualTo("received request");
+    }
+  }
+
+  // sends the text, ends the output and reads until the proxy closes the connection
+  private static String relay(int port, String text) throws IOException {
+    try (Socket socket = new Socket("localhost", port)) {
+      socket.setSoTimeout(TIMEOUT_MILLIS);
+      socket.getOutputStream().write(text.getBytes(StandardCharsets.US_ASCII));
+      socket.shutdownOutput();
+      return readAll(socket.getInputStream());
+    } catch (SocketException ex) {
+      // the proxy may close the connection before the text is sent, a timeout still fails
+      return "";
+    }
+  }
+
+  // a host which only answers once the terminal has ended its output
+  private static Void respondAfterEndOfInput(ServerSocket server) throws IOException {
+    try (Socket socket = server.accept()) {
+      String request = readAll(socket.getInputStream());
+      socket.getOutputStream().write(("received " + request).getBytes(StandardCharsets.US_ASCII));
+    }
+    return null;
+  }
+
+  private static String readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[256];
+    int bytesRead;
+    while ((bytesRead = in.read(buffer)) >= 0) {
+      out.write(buffer, 0, bytesRead);
+    }
+    return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+  }
+
+}
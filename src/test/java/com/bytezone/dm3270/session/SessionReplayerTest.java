@@ -0,0 +1,62 @@
+package com.bytezone.dm3270.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.session.SessionRecord.SessionRecordType;
+import com.bytezone.dm3270.streams.TelnetSocket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class SessionReplayerTest {
+
+  private static final int IAC = 0xFF;
+  private static final int SB = 0xFA;
+  private static final int SE = 0xF0;
+
+  @Test
+  public void shouldGetModelWhenClientSentTerminalType() {
+    List<RecordedMessage> messages = Arrays.asList(
+        message(TelnetSocket.Source.SERVER, IAC, SB, 0x18, 0x01, IAC, SE),
+        message(TelnetSocket.Source.CLIENT, bytes(new int[]{IAC, SB, 0x18, 0x00},
+            "IBM-3278-4-E", IAC, SE)));
+
+    assertThat(SessionReplayer.getRecordedModel(messages)).isEqualTo(4);
+  }
+
+  @Test
+  public void shouldGetModelWhenClientRequestedTn3270eDeviceType() {
+    List<RecordedMessage> messages = Collections.singletonList(
+        message(TelnetSocket.Source.CLIENT, bytes(new int[]{IAC, SB, 0x28, 0x02, 0x07},
+            "IBM-3278-5-E", 0x01, 'L', 'U', '1', IAC, SE)));
+
+    assertThat(SessionReplayer.getRecordedModel(messages)).isEqualTo(5);
+  }
+
+  @Test
+  public void shouldGetNoModelWhenNegotiationNotRecorded() {
+    List<RecordedMessage> messages = Collections.singletonList(
+        message(TelnetSocket.Source.CLIENT, 0x7D, 0x40, 0x40, IAC, 0xEF));
+
+    assertThat(SessionReplayer.getRecordedModel(messages)).isZero();
+  }
+
+  private static RecordedMessage message(TelnetSocket.Source source, int... data) {
+    byte[] bytes = new byte[data.length];
+    for (int i = 0; i < data.length; i++) {
+      bytes[i] = (byte) data[i];
+    }
+    return new RecordedMessage(1, source, SessionRecordType.TELNET, 0, bytes);
+  }
+
+  private static int[] bytes(int[] prefix, String text, int... suffix) {
+    int[] data = Arrays.copyOf(prefix, prefix.length + text.length() + suffix.length);
+    for (int i = 0; i < text.length(); i++) {
+      data[prefix.length + i] = text.charAt(i);
+    }
+    System.arraycopy(suffix, 0, data, prefix.length + text.length(), suffix.length);
+    return data;
+  }
+
+}
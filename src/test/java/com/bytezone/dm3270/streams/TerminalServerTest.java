@@ -0,0 +1,71 @@
+package com.bytezone.dm3270.streams;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.LocalDateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TerminalServerTest {
+
+  private static final long TIMEOUT_MILLIS = 10_000;
+
+  private ServerSocket serverSocket;
+  private Socket peer;
+  private TerminalServer terminalServer;
+
+  @Before
+  public void setup() throws Exception {
+    serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+    // the peer never reads, so writes end up blocked once the socket buffers are full
+    peer = serverSocket.accept();
+    terminalServer = new TerminalServer(socket, new BufferListener() {
+
+      @Override
+      public void listen(TelnetSocket.Source targetRole, byte[] message,
+          LocalDateTime dateTime, boolean genuine) {
+      }
+
+      @Override
+      public void close() {
+      }
+
+    });
+    new Thread(terminalServer).start();
+  }
+
+  @After
+  public void teardown() throws Exception {
+    terminalServer.close();
+    peer.close();
+    serverSocket.close();
+  }
+
+  @Test
+  public void shouldNotWriteKeepAliveWhenWriteBlockedOnPeer() throws Exception {
+    awaitKeepAliveWritten();
+    Thread writer = new Thread(() -> terminalServer.write(new byte[64 * 1024 * 1024]));
+    writer.setDaemon(true);
+    writer.start();
+    Thread.sleep(500);
+
+    long start = System.currentTimeMillis();
+    assertThat(terminalServer.tryWrite(TelnetState.NO_OP)).isFalse();
+    assertThat(System.currentTimeMillis() - start).isLessThan(1000);
+    assertThat(writer.isAlive()).isTrue();
+  }
+
+  private void awaitKeepAliveWritten() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (!terminalServer.tryWrite(TelnetState.NO_OP)) {
+      assertThat(System.currentTimeMillis()).isLessThan(deadline);
+      Thread.sleep(10);
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+package com.bytezone.dm3270.telnet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class TelnetProcessorTest {
+
+  private static final byte IAC = (byte) 0xFF;
+
+  private final List<byte[]> records = new ArrayList<>();
+  private final TelnetProcessor processor = new TelnetProcessor(new TelnetCommandProcessor() {
+
+    @Override
+    public void processData(byte[] buffer, int length) {
+    }
+
+    @Override
+    public void processRecord(byte[] buffer, int length) {
+      records.add(Arrays.copyOf(buffer, length));
+    }
+
+    @Override
+    public void processTelnetCommand(byte[] buffer, int length) {
+    }
+
+    @Override
+    public void processTelnetSubcommand(byte[] buffer, int length) {
+    }
+
+  });
+
+  @Test
+  public void shouldProcessRecordWhenLargerThanRetainedBuffer() {
+    byte[] data = record(100_000, (byte) 0x40);
+    processor.listen(data);
+    processor.listen(record(10, (byte) 0x41));
+    assertThat(records).extracting(r -> r.length).containsExactly(100_002, 12);
+  }
+
+  @Test
+  public void shouldDiscardDataUpToNextRecordWhenRecordNeverEnds() {
+    byte[] unended = new byte[1024 * 1024];
+    Arrays.fill(unended, (byte) 0x40);
+    processor.listen(unended);
+    processor.listen(record(10, (byte) 0x41));
+    processor.listen(record(10, (byte) 0x42));
+    assertThat(records).hasSize(1);
+    assertThat(records.get(0)).startsWith((byte) 0x42);
+  }
+
+  // data followed by IAC EOR, which the processor keeps as the end of the record
+  private static byte[] record(int length, byte value) {
+    byte[] data = new byte[length + 2];
+    Arrays.fill(data, value);
+    data[length] = IAC;
+    data[length + 1] = TelnetProcessor.EOR;
+    return data;
+  }
+
+}
@@ -0,0 +1,81 @@
+package com.bytezone.dm3270.utilities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.Charset;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.Test;
+
+public class EbcdicCodecTest {
+
+  private static final byte SUB = 0x3F;
+
+  @Test
+  public void shouldDecodeEveryByteAsCharsetWhenSupportedCodePage() {
+    SoftAssertions softly = new SoftAssertions();
+    for (int codePage : EbcdicCodec.getSupportedCodePages()) {
+      byte[] values = allBytes();
+      softly.assertThat(EbcdicCodec.forCodePage(codePage).decode(values, 0, values.length))
+          .as("code page %d", codePage)
+          .isEqualTo(new String(values, charset(codePage)));
+    }
+    softly.assertAll();
+  }
+
+  // some bytes decode to the same char (like 0x15 and 0x25 in code page 37), so it is the text
+  // which must survive the round trip
+  @Test
+  public void shouldGetSameTextWhenDecodeEncodedText() {
+    SoftAssertions softly = new SoftAssertions();
+    for (int codePage : EbcdicCodec.getSupportedCodePages()) {
+      EbcdicCodec codec = EbcdicCodec.forCodePage(codePage);
+      byte[] values = allBytes();
+      String text = codec.decode(values, 0, values.length);
+      byte[] encoded = codec.encode(text);
+      softly.assertThat(codec.decode(encoded, 0, encoded.length))
+          .as("code page %d", codePage)
+          .isEqualTo(text);
+    }
+    softly.assertAll();
+  }
+
+  @Test
+  public void shouldEncodeEveryCharAsCharsetWhenSupportedCodePage() {
+    SoftAssertions softly = new SoftAssertions();
+    for (int codePage : EbcdicCodec.getSupportedCodePages()) {
+      EbcdicCodec codec = EbcdicCodec.forCodePage(codePage);
+      Charset charset = charset(codePage);
+      for (char c = 0; c < Character.MIN_SURROGATE; c++) {
+        byte expected = String.valueOf(c).getBytes(charset)[0];
+        if (codec.toByte(c) != expected) {
+          softly.fail("code page %d encoded U+%04X as %02X instead of %02X", codePage, (int) c,
+              codec.toByte(c), expected);
+        }
+      }
+    }
+    softly.assertAll();
+  }
+
+  @Test
+  public void shouldEncodeSubWhenUnmappableChar() {
+    for (int codePage : EbcdicCodec.getSupportedCodePages()) {
+      assertThat(EbcdicCodec.forCodePage(codePage).encode("\u4E00\uFFFD"))
+          .as("code page %d", codePage)
+          .startsWith(SUB)
+          .endsWith(SUB);
+    }
+  }
+
+  private static byte[] allBytes() {
+    byte[] values = new byte[256];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (byte) i;
+    }
+    return values;
+  }
+
+  private static Charset charset(int codePage) {
+    return Charset.forName(String.format(codePage >= 1140 ? "IBM%05d" : "IBM%03d", codePage));
+  }
+
+}
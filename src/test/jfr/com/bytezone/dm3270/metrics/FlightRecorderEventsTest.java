@@ -0,0 +1,87 @@
+package com.bytezone.dm3270.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bytezone.dm3270.ScreenTextWaiter;
+import com.bytezone.dm3270.TerminalClient;
+import com.bytezone.dm3270.commands.AIDCommand;
+import com.bytezone.dm3270.display.ScreenDimensions;
+import com.bytezone.dm3270.host.HostScreenBuilder;
+import com.bytezone.dm3270.host.ScriptedApplication;
+import com.bytezone.dm3270.host.VirtualHost;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// compiled apart (src/test/jfr), as JFR is not part of the Java 8 API
+public class FlightRecorderEventsTest {
+
+  private static final long TIMEOUT_MILLIS = 10000;
+
+  private final ScheduledExecutorService stableTimeoutExecutor = Executors
+      .newSingleThreadScheduledExecutor();
+  private VirtualHost host;
+  private TerminalClient client;
+
+  @Before
+  public void setup() throws Exception {
+    host = new VirtualHost(new ScriptedApplication(Arrays.asList(
+        new HostScreenBuilder(24, 80)
+            .text(10, 2, "USERID ===>")
+            .input(10, 14, 8)
+            .build(),
+        new HostScreenBuilder(24, 80)
+            .text(1, 30, "MAIN MENU")
+            .build()), 1));
+    host.start();
+    client = new TerminalClient(2, new ScreenDimensions(24, 80));
+  }
+
+  @After
+  public void teardown() throws Exception {
+    client.disconnect();
+    host.close();
+    stableTimeoutExecutor.shutdownNow();
+  }
+
+  @Test
+  public void shouldEmitFlightRecorderEventsWhenConnectWhileRecording() throws Exception {
+    Path dump = Files.createTempFile("dm3270", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("dm3270.SocketRead");
+      recording.enable("dm3270.RecordDecode");
+      recording.enable("dm3270.ScreenApply");
+      recording.enable("dm3270.ReplyWrite");
+      recording.start();
+      client.connectAsync("localhost", host.getPort())
+          .get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      awaitScreenContains("USERID");
+      client.setFieldTextByCoord(10, 15, "testusr");
+      client.sendAID(AIDCommand.AID_ENTER, "ENTER");
+      awaitScreenContains("MAIN MENU");
+      recording.stop();
+      recording.dump(dump);
+
+      assertThat(RecordingFile.readAllEvents(dump))
+          .extracting(e -> e.getEventType().getName())
+          .contains("dm3270.SocketRead", "dm3270.RecordDecode", "dm3270.ScreenApply",
+              "dm3270.ReplyWrite");
+    } finally {
+      Files.delete(dump);
+    }
+  }
+
+  private void awaitScreenContains(String text) throws Exception {
+    new ScreenTextWaiter(text, client, stableTimeoutExecutor).await(TIMEOUT_MILLIS);
+    assertThat(client.getScreenText()).contains(text);
+  }
+
+}